@@ -1,8 +1,11 @@
 package com.openwarehouses;
 
+import com.openwarehouses.services.StorageService;
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.views.InicioView;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
@@ -22,6 +25,9 @@ public class App extends Application {
   /** Altura mínima de la aplicación. */
   private static final int MIN_HEIGHT = 768;
 
+  /** Sesión de la aplicación, compartida por todas las vistas. */
+  private WarehouseSession session;
+
   /**
    * Punto de entrada de la aplicación. Inicializa la ventana principal y lanza la vista
    * {@link com.openwarehouses.views.InicioView} en el hilo de JavaFX.
@@ -31,7 +37,14 @@ public class App extends Application {
   @Override
   public void start(Stage primaryStage) {
 
-    InicioView inicioView = new InicioView(primaryStage);
+    // Un único servicio con escritura diferida: un solo hilo escribe los archivos
+    StorageService storage = StorageService.create();
+    storage.setWriteBehind(true);
+    session = new WarehouseSession(storage);
+    // Los guardados de otras instancias que comparten la carpeta se incorporan en el hilo de JavaFX
+    session.startWatching(Platform::runLater);
+
+    InicioView inicioView = new InicioView(primaryStage, session);
     Scene scene = new Scene(inicioView);
 
     primaryStage.setScene(scene);
@@ -41,6 +54,17 @@ public class App extends Application {
     primaryStage.show();
   }
 
+  /**
+   * Se invoca al cerrar la aplicación. Escribe los guardados pendientes antes de salir.
+   */
+  @Override
+  public void stop() {
+    if (session == null) {
+      return;
+    }
+    session.close();
+  }
+
   /**
    * Main principal de la aplicación que lanza la interfaz JavaFX.
    *
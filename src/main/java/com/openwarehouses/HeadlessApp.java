@@ -0,0 +1,460 @@
+package com.openwarehouses;
+
+import com.openwarehouses.models.Almacen;
+import com.openwarehouses.models.LocationKey;
+import com.openwarehouses.services.IntegrityService;
+import com.openwarehouses.services.LocationExportService;
+import com.openwarehouses.services.LocationLookupService;
+import com.openwarehouses.services.LocationQuery;
+import com.openwarehouses.services.PrintLabelService;
+import com.openwarehouses.services.StorageService;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Punto de entrada sin interfaz gráfica, para tareas programadas y para medir rendimiento. No
+ * arranca JavaFX: usa el mismo almacenamiento que la aplicación ({@link StorageService#create()}).
+ * Se lanza con {@code MainLauncher --headless <comando> [opciones]}.
+ *
+ * <pre>
+ * export [--almacen NOMBRE] [--salida ARCHIVO|-] [--formato csv|ndjson]
+ *     Exporta los códigos de ubicación, una línea por posición. Sin salida (o con "-") se
+ *     escribe en la salida estándar; el formato por defecto se deduce de la extensión.
+ *
+ * print --almacen NOMBRE [--pasillos 1-30] [--estanterias 2,4-6] [--alturas 1-3]
+ *       [--posiciones 1-10] [--size SMALL|MEDIUM|LARGE] [--copias N] [--salida ARCHIVO.pdf]
+ *     Genera el PDF de etiquetas de las posiciones seleccionadas, como la impresión de la
+ *     aplicación, e informa del rendimiento (páginas por segundo). La selección es una
+ *     {@link LocationQuery}, y las etiquetas pasan de ella al PDF sin acumularse en memoria.
+ *
+ * verify [--almacen NOMBRE] [--reparar]
+ *     Comprueba la coherencia de los almacenes y de sus archivos y escribe el informe en la
+ *     salida estándar. Con --reparar corrige lo que se pueda y lo guarda de una vez.
+ *
+ * locate [--almacen NOMBRE] [--codigo CODIGO]
+ *     Busca ubicaciones por su código, como haría un escáner. Sin --codigo lee un código por
+ *     línea de la entrada estándar y escribe "código TAB almacén" por cada ubicación encontrada.
+ * </pre>
+ *
+ * <p>Devuelve 0 si termina bien, 1 si falla (si la verificación deja problemas sin corregir, o si
+ * algún código no se encuentra) y 2 si los argumentos no son válidos. Los mensajes se escriben en
+ * la salida de error para no mezclarse con los datos.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public final class HeadlessApp {
+  /** Código de salida correcto. */
+  private static final int EXIT_OK = 0;
+
+  /** Código de salida cuando la tarea falla. */
+  private static final int EXIT_ERROR = 1;
+
+  /** Código de salida cuando los argumentos no son válidos. */
+  private static final int EXIT_USAGE = 2;
+
+  /** Ayuda mostrada cuando los argumentos no son válidos. */
+  private static final String USAGE = String.join("\n",
+      "Uso: --headless <comando> [opciones]",
+      "  export [--almacen NOMBRE] [--salida ARCHIVO|-] [--formato csv|ndjson]",
+      "  print --almacen NOMBRE [--pasillos 1-30] [--estanterias 2,4-6] [--alturas 1-3]",
+      "        [--posiciones 1-10] [--size SMALL|MEDIUM|LARGE] [--copias N]",
+      "        [--salida ARCHIVO.pdf]",
+      "  verify [--almacen NOMBRE] [--reparar]",
+      "  locate [--almacen NOMBRE] [--codigo CODIGO]");
+
+  /** Método de {@link LocationQuery} que restringe un nivel a un intervalo. */
+  @FunctionalInterface
+  private interface Intervalo {
+    /**
+     * Restringe un nivel de la consulta.
+     *
+     * @param consulta Consulta a restringir
+     * @param desde Primer número incluido
+     * @param hasta Último número incluido
+     * @return Consulta restringida
+     */
+    LocationQuery restringir(LocationQuery consulta, int desde, int hasta);
+  }
+
+  /** Constructor privado para evitar instanciación. */
+  private HeadlessApp() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Ejecuta un comando y termina el proceso con su código de salida.
+   *
+   * @param args Comando y opciones
+   */
+  public static void main(String[] args) {
+    System.exit(run(args));
+  }
+
+  /**
+   * Ejecuta un comando.
+   *
+   * @param args Comando y opciones
+   * @return Código de salida
+   */
+  static int run(String[] args) {
+    if (args.length == 0) {
+      System.err.println(USAGE);
+      return EXIT_USAGE;
+    }
+
+    StorageService storage = null;
+    try {
+      Map<String, String> opciones = opciones(args);
+      storage = StorageService.create();
+      return switch (args[0]) {
+        case "export" -> exportar(storage, opciones);
+        case "print" -> imprimir(storage, opciones);
+        case "verify" -> verificar(storage, opciones);
+        case "locate" -> localizar(storage, opciones);
+        default -> throw new IllegalArgumentException("Comando desconocido: " + args[0]);
+      };
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      return EXIT_USAGE;
+    } catch (IOException e) {
+      System.err.println("Error ejecutando " + args[0] + ": " + e.getMessage());
+      return EXIT_ERROR;
+    } finally {
+      if (storage != null) {
+        storage.close();
+      }
+    }
+  }
+
+  /**
+   * Lee las opciones {@code --nombre valor} que siguen al comando. Una opción seguida de otra
+   * opción, o al final, es un indicador y vale {@code true}.
+   *
+   * @param args Comando y opciones
+   * @return Valor de cada opción, por nombre sin guiones
+   * @throws IllegalArgumentException Si un argumento no empieza por {@code --}
+   */
+  private static Map<String, String> opciones(String[] args) {
+    Map<String, String> opciones = new HashMap<>();
+    for (int i = 1; i < args.length; i++) {
+      if (!args[i].startsWith("--")) {
+        throw new IllegalArgumentException("Opción no válida: " + args[i]);
+      }
+      boolean indicador = i + 1 >= args.length || args[i + 1].startsWith("--");
+      opciones.put(args[i].substring(2).toLowerCase(Locale.ROOT),
+          indicador ? "true" : args[++i]);
+    }
+    return opciones;
+  }
+
+  /**
+   * Obtiene los almacenes a procesar: todos, o solo el indicado con {@code --almacen}.
+   *
+   * @param almacenes Almacenes guardados
+   * @param opciones Opciones del comando
+   * @return Almacenes seleccionados
+   * @throws IllegalArgumentException Si el almacén indicado no existe
+   */
+  private static List<Almacen> almacenes(List<Almacen> almacenes, Map<String, String> opciones) {
+    String nombre = opciones.get("almacen");
+    if (nombre == null) {
+      return almacenes;
+    }
+    for (Almacen almacen : almacenes) {
+      if (nombre.equalsIgnoreCase(almacen.getNombre())) {
+        return List.of(almacen);
+      }
+    }
+    throw new IllegalArgumentException("No existe el almacén " + nombre);
+  }
+
+  /**
+   * Exporta los códigos de ubicación. Un archivo de destino se escribe aparte y se reemplaza al
+   * terminar, para que quien lo lea nunca vea una exportación a medias; si algo falla, el archivo
+   * temporal se borra.
+   *
+   * @param storage Almacenamiento
+   * @param opciones Opciones del comando
+   * @return Código de salida
+   * @throws IOException Si falla la escritura
+   */
+  private static int exportar(StorageService storage, Map<String, String> opciones)
+      throws IOException {
+    List<Almacen> almacenes = almacenes(storage.loadAlmacenes(), opciones);
+    String salida = opciones.getOrDefault("salida", "-");
+    LocationExportService.Formato formato;
+    try {
+      formato = opciones.containsKey("formato")
+          ? LocationExportService.Formato.valueOf(opciones.get("formato").toUpperCase(Locale.ROOT))
+          : LocationExportService.Formato.deArchivo(salida);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Formato no válido: " + opciones.get("formato"));
+    }
+
+    long inicio = System.nanoTime();
+    long total;
+    if ("-".equals(salida)) {
+      total = LocationExportService.exportar(almacenes, formato, Channels.newChannel(System.out));
+      System.out.flush();
+    } else {
+      Path destino = Path.of(salida).toAbsolutePath();
+      Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+      try {
+        total = LocationExportService.exportar(almacenes, formato, temporal);
+        try {
+          Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temporal);
+      }
+    }
+    System.err.printf("Exportadas %d posiciones en %d ms%n",
+        total, (System.nanoTime() - inicio) / 1_000_000);
+    return EXIT_OK;
+  }
+
+  /**
+   * Genera el PDF de etiquetas de las posiciones seleccionadas sin interfaz gráfica.
+   *
+   * @param storage Almacenamiento
+   * @param opciones Opciones del comando
+   * @return Código de salida
+   * @throws IOException Si falla la generación del PDF
+   */
+  private static int imprimir(StorageService storage, Map<String, String> opciones)
+      throws IOException {
+    if (!opciones.containsKey("almacen")) {
+      throw new IllegalArgumentException("Falta la opción --almacen");
+    }
+    Almacen almacen = almacenes(storage.loadAlmacenes(), opciones).get(0);
+    LocationQuery consulta = LocationQuery.todas();
+    consulta = seleccionar(
+        consulta, opciones, "pasillos", LocationQuery::pasillos, LocationQuery::pasillos);
+    consulta = seleccionar(
+        consulta, opciones, "estanterias", LocationQuery::estanterias, LocationQuery::estanterias);
+    consulta = seleccionar(
+        consulta, opciones, "alturas", LocationQuery::alturas, LocationQuery::alturas);
+    consulta = seleccionar(
+        consulta, opciones, "posiciones", LocationQuery::posiciones, LocationQuery::posiciones);
+    PrintLabelService.LabelSize size;
+    int copias;
+    try {
+      size = PrintLabelService.LabelSize.valueOf(
+          opciones.getOrDefault("size", "MEDIUM").toUpperCase(Locale.ROOT));
+      copias = Integer.parseInt(opciones.getOrDefault("copias", "1"));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Tamaño o número de copias no válido");
+    }
+    if (copias < 1) {
+      throw new IllegalArgumentException("El número de copias debe ser positivo");
+    }
+    File destino = new File(
+        opciones.getOrDefault("salida", PrintLabelService.defaultFileName(size)));
+
+    long inicio = System.nanoTime();
+    long etiquetas = consulta.contar(almacen);
+    long generado = System.nanoTime();
+    if (etiquetas == 0) {
+      throw new IllegalArgumentException("No se han encontrado posiciones para imprimir");
+    }
+
+    int paginas = PrintLabelService.writePdf(almacen, consulta, copias, size, destino);
+    long fin = System.nanoTime();
+    double segundos = Math.max(fin - inicio, 1) / 1e9;
+    System.err.printf(Locale.ROOT,
+        "%d etiquetas, %d páginas en %s: %.0f ms (selección %.0f ms, PDF %.0f ms), "
+            + "%.0f páginas/s%n",
+        etiquetas, paginas, destino, (fin - inicio) / 1e6, (generado - inicio) / 1e6,
+        (fin - generado) / 1e6, paginas / segundos);
+    return EXIT_OK;
+  }
+
+  /**
+   * Verifica los almacenes y sus archivos y, con {@code --reparar}, corrige lo que se pueda y lo
+   * guarda con un único guardado. Tras reparar se vuelve a verificar para informar de lo que
+   * queda.
+   *
+   * @param storage Almacenamiento
+   * @param opciones Opciones del comando
+   * @return {@link #EXIT_OK} si no quedan problemas, {@link #EXIT_ERROR} en otro caso
+   */
+  private static int verificar(StorageService storage, Map<String, String> opciones) {
+    boolean reparar = Boolean.parseBoolean(opciones.get("reparar"));
+    List<Almacen> todos = storage.loadAlmacenes();
+    List<Almacen> almacenes = almacenes(todos, opciones);
+
+    long inicio = System.nanoTime();
+    IntegrityService.Informe informe = reparar
+        ? IntegrityService.reparar(storage, almacenes)
+        : IntegrityService.verificar(storage, almacenes);
+    long fin = System.nanoTime();
+    for (IntegrityService.Problema problema : informe.problemas()) {
+      System.out.println(problema);
+    }
+    if (informe.total() > informe.problemas().size()) {
+      System.out.println("... " + (informe.total() - informe.problemas().size()) + " más");
+    }
+    System.out.printf(Locale.ROOT, "%d posiciones verificadas en %.0f ms: %d problemas %s%n",
+        informe.posiciones(), (fin - inicio) / 1e6, informe.total(), informe.totales());
+
+    if (!reparar) {
+      return informe.isCorrecto() ? EXIT_OK : EXIT_ERROR;
+    }
+    if (informe.reparados() > 0 || !informe.isCorrecto()) {
+      // Guarda también los archivos dañados que se pudieron recuperar de su copia
+      storage.saveAlmacenes(todos);
+      storage.flush();
+    }
+    IntegrityService.Informe pendiente = IntegrityService.verificar(storage, almacenes);
+    System.out.printf("%d problemas reparados, %d pendientes%n",
+        informe.reparados(), pendiente.total());
+    return pendiente.isCorrecto() ? EXIT_OK : EXIT_ERROR;
+  }
+
+  /**
+   * Busca ubicaciones por su código: el de {@code --codigo} o, si no se indica, uno por línea de
+   * la entrada estándar, hasta que se cierre. Al terminar informa del tiempo medio por búsqueda.
+   *
+   * @param storage Almacenamiento
+   * @param opciones Opciones del comando
+   * @return {@link #EXIT_OK} si se encuentran todos los códigos, {@link #EXIT_ERROR} en otro caso
+   * @throws IOException Si falla la lectura de la entrada estándar
+   */
+  private static int localizar(StorageService storage, Map<String, String> opciones)
+      throws IOException {
+    List<Almacen> almacenes = almacenes(storage.loadAlmacenes(), opciones);
+    List<String> codigos = new ArrayList<>();
+    if (opciones.containsKey("codigo")) {
+      codigos.add(opciones.get("codigo"));
+    } else {
+      BufferedReader in =
+          new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+      for (String linea = in.readLine(); linea != null; linea = in.readLine()) {
+        if (!linea.isBlank()) {
+          codigos.add(linea);
+        }
+      }
+    }
+
+    // La carga diferida de los almacenes no cuenta en el tiempo de búsqueda
+    for (Almacen almacen : almacenes) {
+      almacen.getPasillos();
+    }
+    long nanos = 0;
+    int encontrados = 0;
+    for (String codigo : codigos) {
+      long inicio = System.nanoTime();
+      List<LocationLookupService.Ubicacion> ubicaciones =
+          LocationLookupService.localizar(almacenes, codigo);
+      nanos += System.nanoTime() - inicio;
+      if (ubicaciones.isEmpty()) {
+        System.err.println("No existe la ubicación " + codigo.strip());
+        continue;
+      }
+      encontrados++;
+      for (LocationLookupService.Ubicacion ubicacion : ubicaciones) {
+        System.out.println(
+            ubicacion.posicion().getCodigo() + "\t" + ubicacion.almacen().getNombre());
+      }
+    }
+    System.out.flush();
+    System.err.printf(Locale.ROOT, "Encontrados %d de %d códigos, %.2f µs por búsqueda%n",
+        encontrados, codigos.size(), codigos.isEmpty() ? 0 : nanos / 1e3 / codigos.size());
+    return encontrados == codigos.size() ? EXIT_OK : EXIT_ERROR;
+  }
+
+  /**
+   * Restringe un nivel de una consulta con la selección de una opción. Un único rango se pasa
+   * como intervalo, que la consulta aprovecha para acotar la búsqueda (en las posiciones, con una
+   * búsqueda binaria); si hay varios, el intervalo los abarca y un filtro descarta los huecos.
+   *
+   * @param consulta Consulta a restringir
+   * @param opciones Opciones del comando
+   * @param nombre Nombre de la opción
+   * @param intervalo Método de la consulta que restringe el nivel a un intervalo
+   * @param filtro Método de la consulta que restringe el nivel con una condición
+   * @return Consulta restringida, o la misma si la opción no se indica
+   * @throws IllegalArgumentException Si la selección no es válida
+   */
+  private static LocationQuery seleccionar(LocationQuery consulta, Map<String, String> opciones,
+      String nombre, Intervalo intervalo,
+      BiFunction<LocationQuery, IntPredicate, LocationQuery> filtro) {
+    int[][] rangos = seleccion(opciones, nombre);
+    if (rangos == null) {
+      return consulta;
+    }
+    int desde = Integer.MAX_VALUE;
+    int hasta = Integer.MIN_VALUE;
+    for (int[] rango : rangos) {
+      desde = Math.min(desde, rango[0]);
+      hasta = Math.max(hasta, rango[1]);
+    }
+    consulta = intervalo.restringir(consulta, desde, hasta);
+    if (rangos.length == 1) {
+      return consulta;
+    }
+    return filtro.apply(consulta, numero -> {
+      for (int[] rango : rangos) {
+        if (numero >= rango[0] && numero <= rango[1]) {
+          return true;
+        }
+      }
+      return false;
+    });
+  }
+
+  /**
+   * Lee una selección de números como {@code 1-30} o {@code 2,4-6}. Los rangos se guardan como
+   * límites, sin enumerar sus números, y no pueden pasar de {@link LocationKey#MAX_NUMERO}.
+   *
+   * @param opciones Opciones del comando
+   * @param nombre Nombre de la opción
+   * @return Rangos {desde, hasta} seleccionados, o null si la opción no se indica
+   * @throws IllegalArgumentException Si la selección no es válida
+   */
+  private static int[][] seleccion(Map<String, String> opciones, String nombre) {
+    String valor = opciones.get(nombre);
+    if (valor == null) {
+      return null;
+    }
+    String[] partes = valor.split(",");
+    int[][] rangos = new int[partes.length][];
+    try {
+      for (int i = 0; i < partes.length; i++) {
+        String[] limites = partes[i].strip().split("-", 2);
+        int desde = Integer.parseInt(limites[0].strip());
+        int hasta = limites.length > 1 ? Integer.parseInt(limites[1].strip()) : desde;
+        if (desde < 1 || hasta < desde || hasta > LocationKey.MAX_NUMERO) {
+          throw new NumberFormatException();
+        }
+        rangos[i] = new int[] {desde, hasta};
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Selección de " + nombre + " no válida: " + valor
+          + " (números de 1 a " + LocationKey.MAX_NUMERO + ")");
+    }
+    return rangos;
+  }
+}
@@ -4,10 +4,14 @@ import java.io.File;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.Arrays;
 
 /**
  * Launcher que carga todos los jars de la carpeta "lib" y arranca la aplicación principal.
  * Compatible con Java 9+ (Java 21 incluido).
+ *
+ * <p>Con {@code --headless} como primer argumento se arranca {@link HeadlessApp}, sin interfaz
+ * gráfica, con el resto de argumentos.
  */
 public final class MainLauncher {
 
@@ -36,12 +40,17 @@ public final class MainLauncher {
 
             URLClassLoader loader = new URLClassLoader(urls, MainLauncher.class.getClassLoader());
 
-            // Cargar la clase principal
-            Class<?> appClass = Class.forName("com.openwarehouses.App", true, loader);
+            // Cargar la clase principal, o la de tareas sin interfaz
+            boolean headless = args.length > 0 && "--headless".equals(args[0]);
+            String mainClass = headless
+                    ? "com.openwarehouses.HeadlessApp"
+                    : "com.openwarehouses.App";
+            Class<?> appClass = Class.forName(mainClass, true, loader);
 
             // Invocar el main de la clase principal
             Method main = appClass.getMethod("main", String[].class);
-            main.invoke(null, (Object) args);
+            String[] appArgs = headless ? Arrays.copyOfRange(args, 1, args.length) : args;
+            main.invoke(null, (Object) appArgs);
 
         } catch (Exception e) {
             e.printStackTrace();
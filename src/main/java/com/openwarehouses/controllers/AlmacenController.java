@@ -1,10 +1,14 @@
 package com.openwarehouses.controllers;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import com.openwarehouses.models.Almacen;
-import com.openwarehouses.services.StorageService;
+import com.openwarehouses.services.JournalEntry;
+import com.openwarehouses.services.LayoutImportService;
 import com.openwarehouses.services.ValidationService;
+import com.openwarehouses.services.WarehouseSession;
 
 /**
  * Controlador para gestionar operaciones de Almacenes. Maneja creación, edición
@@ -16,28 +20,20 @@ import com.openwarehouses.services.ValidationService;
  * @since 2025-12-16
  */
 public class AlmacenController {
-  /** Servicio de almacenamiento para persistencia de datos. */
-  private final StorageService storageService;
+  /** Sesión de la aplicación, que persiste los cambios. */
+  private final WarehouseSession session;
 
-  /** Lista de almacenes gestionados. */
-  private List<Almacen> almacenes;
+  /** Lista de almacenes gestionados, la de la sesión. */
+  private final List<Almacen> almacenes;
 
   /**
-   * Constructor que inicializa el controlador con servicio de almacenamiento y
-   * lista de almacenes.
+   * Constructor que inicializa el controlador con la sesión de la aplicación.
    *
-   * @param storageService Servicio de almacenamiento para persistencia de datos
-   * @param almacenes      Lista de almacenes a gestionar
+   * @param session Sesión con la lista de almacenes y su almacenamiento
    */
-  public AlmacenController(StorageService storageService, List<Almacen> almacenes) {
-    this.storageService = storageService;
-    this.almacenes = almacenes;
-  }
-
-  /** Constructor vacío para solo visualizar datos. */
-  public AlmacenController() {
-    this.storageService = new StorageService();
-    this.almacenes = storageService.loadAlmacenes();
+  public AlmacenController(WarehouseSession session) {
+    this.session = session;
+    this.almacenes = session.getAlmacenes();
   }
 
   /**
@@ -66,7 +62,7 @@ public class AlmacenController {
 
     Almacen nuevoAlmacen = new Almacen(nombre);
     almacenes.add(nuevoAlmacen);
-    guardar();
+    registrar(nuevoAlmacen, JournalEntry.crearAlmacen(nombre));
     return true;
   }
 
@@ -90,8 +86,9 @@ public class AlmacenController {
       return false; // El nombre ya existe
     }
 
+    String nombreAnterior = almacenActual.getNombre();
     almacenActual.setNombre(nuevoNombre);
-    guardar();
+    registrar(almacenActual, JournalEntry.renombrarAlmacen(nombreAnterior, nuevoNombre));
     return true;
   }
 
@@ -101,8 +98,10 @@ public class AlmacenController {
    * @param almacen Almacén a eliminar
    */
   public void eliminarAlmacen(Almacen almacen) {
+    // Se captura su jerarquía antes de quitarlo para poder deshacer la eliminación
+    session.prepararEdicion(almacen);
     almacenes.remove(almacen);
-    guardar();
+    registrar(null, JournalEntry.eliminarAlmacen(almacen.getNombre()));
   }
 
   /**
@@ -118,14 +117,44 @@ public class AlmacenController {
         .orElse(null);
   }
 
+  /**
+   * Importa la distribución de un almacén desde un archivo CSV o JSON y la guarda de una vez.
+   * Los elementos que ya existen se conservan.
+   *
+   * @param almacen Almacén de destino
+   * @param origen  Archivo con la distribución
+   * @return Resumen de la importación
+   * @throws IOException Si no se puede leer el archivo; en ese caso no se modifica nada
+   */
+  public LayoutImportService.Resultado importarDistribucion(Almacen almacen, File origen)
+      throws IOException {
+    // Si la lista se ha recargado, se importa sobre el almacén actual con el mismo nombre
+    Almacen destino =
+        almacenes.contains(almacen) ? almacen : getAlmacenByNombre(almacen.getNombre());
+    if (destino == null) {
+      throw new IOException("El almacén " + almacen.getNombre() + " ya no existe");
+    }
+
+    LayoutImportService.Resultado resultado = LayoutImportService.importar(destino, origen);
+    if (resultado.creados() > 0) {
+      session.registrarImportacion(destino);
+    }
+    return resultado;
+  }
+
   /** Recarga los datos desde el almacenamiento. */
   public void recargar() {
-    this.almacenes = storageService.loadAlmacenes();
+    session.reload();
   }
 
-  /** Guarda los datos en el almacenamiento. */
-  private void guardar() {
-    storageService.saveAlmacenes(almacenes);
+  /**
+   * Registra el cambio en el diario del almacenamiento.
+   *
+   * @param almacen Almacén modificado, o null si el cambio se hizo sobre la lista
+   * @param cambio Cambio ya aplicado
+   */
+  private void registrar(Almacen almacen, JournalEntry cambio) {
+    session.registrar(almacen, List.of(cambio));
   }
 
   /**
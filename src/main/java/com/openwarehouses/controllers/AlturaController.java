@@ -1,12 +1,15 @@
 package com.openwarehouses.controllers;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Altura;
 import com.openwarehouses.models.Estanteria;
-import com.openwarehouses.services.StorageService;
+import com.openwarehouses.models.Pasillo;
+import com.openwarehouses.services.JournalEntry;
 import com.openwarehouses.services.ValidationService;
+import com.openwarehouses.services.WarehouseSession;
 
 /**
  * Controlador para gestionar operaciones de Alturas. Maneja creación, edición y
@@ -19,28 +22,36 @@ import com.openwarehouses.services.ValidationService;
  */
 public class AlturaController {
 
-  /** Servicio de almacenamiento para persistencia de datos. */
-  private final StorageService storageService;
+  /** Sesión de la aplicación, que persiste los cambios. */
+  private final WarehouseSession session;
+
+  /** Almacén al que pertenece la estantería actual. */
+  private final Almacen almacenActual;
+
+  /** Pasillo al que pertenece la estantería actual. */
+  private final Pasillo pasilloActual;
 
   /** Estantería actual. */
   private Estanteria estanteriaActual;
 
-  /** Lista de almacenes. */
-  private List<Almacen> almacenes;
-
   /**
-   * Constructor que inicializa el controlador con servicio de almacenamiento y
-   * lista de almacenes.
+   * Constructor que inicializa el controlador con la sesión de la aplicación.
    *
+   * @param almacenActual    Almacén al que pertenece la estantería
+   * @param pasilloActual    Pasillo al que pertenece la estantería
    * @param estanteriaActual Estanteria en la que se encuentra esta Altura
-   * @param almacenes        Lista de almacenes a gestionar
-   * @param storageService   Servicio de almacenamiento para persistencia de datos
+   * @param session          Sesión con la lista de almacenes y su almacenamiento
    */
   public AlturaController(
-      Estanteria estanteriaActual, List<Almacen> almacenes, StorageService storageService) {
+      Almacen almacenActual,
+      Pasillo pasilloActual,
+      Estanteria estanteriaActual,
+      WarehouseSession session) {
+    this.almacenActual = almacenActual;
+    this.pasilloActual = pasilloActual;
     this.estanteriaActual = estanteriaActual;
-    this.almacenes = almacenes;
-    this.storageService = storageService;
+    this.session = session;
+    session.prepararEdicion(almacenActual);
   }
 
   /**
@@ -68,6 +79,42 @@ public class AlturaController {
    * @return true si se creó exitosamente, false si el número ya existe
    */
   public boolean crearAltura(int numero) {
+    if (!insertarAltura(numero)) {
+      return false;
+    }
+    registrar(List.of(JournalEntry.crear(almacenActual.getNombre(), ruta(), numero)));
+    return true;
+  }
+
+  /**
+   * Crea en bloque las alturas del rango indicado en la estantería actual. Cada número se valida e
+   * inserta en memoria y los cambios se guardan una sola vez al terminar.
+   *
+   * @param inicio Primer número del rango (incluido)
+   * @param fin    Último número del rango (incluido)
+   * @return Números creados, en orden ascendente
+   */
+  public List<Integer> crearAlturas(int inicio, int fin) {
+    List<Integer> creados = new ArrayList<>();
+    for (int numero = inicio; numero <= fin; numero++) {
+      if (insertarAltura(numero)) {
+        creados.add(numero);
+      }
+    }
+
+    if (!creados.isEmpty()) {
+      registrar(creados.stream().map(n -> JournalEntry.crear(almacenActual.getNombre(), ruta(), n)).toList());
+    }
+    return creados;
+  }
+
+  /**
+   * Valida e inserta una altura en memoria, sin persistir.
+   *
+   * @param numero Número a insertar
+   * @return true si se insertó, false si no es válido o ya existe
+   */
+  private boolean insertarAltura(int numero) {
     if (!ValidationService.isNumeroValido(numero)) {
       return false;
     }
@@ -78,7 +125,6 @@ public class AlturaController {
 
     Altura nuevaAltura = new Altura(numero);
     estanteriaActual.addAltura(nuevaAltura);
-    guardar();
     return true;
   }
 
@@ -102,8 +148,9 @@ public class AlturaController {
       return false; // El número ya existe
     }
 
+    int numeroAnterior = alturaActual.getNumero();
     alturaActual.setNumero(nuevoNumero);
-    guardar();
+    registrar(List.of(JournalEntry.renumerar(almacenActual.getNombre(), ruta(), numeroAnterior, nuevoNumero)));
     return true;
   }
 
@@ -114,7 +161,7 @@ public class AlturaController {
    */
   public void eliminarAltura(Altura altura) {
     estanteriaActual.removeAltura(altura);
-    guardar();
+    registrar(List.of(JournalEntry.eliminar(almacenActual.getNombre(), ruta(), altura.getNumero())));
   }
 
   /**
@@ -130,8 +177,21 @@ public class AlturaController {
     return estanteriaActual.getAlturaByNumero(numero);
   }
 
-  /** Guarda los datos en el almacenamiento. */
-  private void guardar() {
-    storageService.saveAlmacenes(almacenes);
+  /**
+   * Números de los padres de los elementos gestionados, para identificarlos en el diario.
+   *
+   * @return Ruta dentro del almacén actual
+   */
+  private int[] ruta() {
+    return new int[] {pasilloActual.getNumero(), estanteriaActual.getNumero()};
+  }
+
+  /**
+   * Registra los cambios en el diario del almacenamiento.
+   *
+   * @param cambios Cambios ya aplicados sobre la jerarquía
+   */
+  private void registrar(List<JournalEntry> cambios) {
+    session.registrar(almacenActual, cambios);
   }
 }
@@ -1,12 +1,14 @@
 package com.openwarehouses.controllers;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Estanteria;
 import com.openwarehouses.models.Pasillo;
-import com.openwarehouses.services.StorageService;
+import com.openwarehouses.services.JournalEntry;
 import com.openwarehouses.services.ValidationService;
+import com.openwarehouses.services.WarehouseSession;
 
 /**
  * Controlador para gestionar operaciones de Estanterías. Maneja creación,
@@ -18,28 +20,30 @@ import com.openwarehouses.services.ValidationService;
  * @since 2025-12-16
  */
 public class EstanteriaController {
-  /** Servicio de almacenamiento para persistencia de datos. */
-  private final StorageService storageService;
+  /** Sesión de la aplicación, que persiste los cambios. */
+  private final WarehouseSession session;
+
+  /** Almacén al que pertenece el pasillo actual. */
+  private final Almacen almacenActual;
 
   /** Pasillo actual. */
   private Pasillo pasilloActual;
 
-  /** Lista de almacenes. */
-  private List<Almacen> almacenes;
-
   /**
-   * Constructor que inicializa el controlador con servicio de almacenamiento y
-   * lista de almacenes.
+   * Constructor que inicializa el controlador con la sesión de la aplicación.
    *
+   * @param almacenActual  Almacén al que pertenece el pasillo
    * @param pasilloActual  Pasillo en la que se encuentra esta Estanteria
-   * @param almacenes      Lista de almacenes a gestionar
-   * @param storageService Servicio de almacenamiento para persistencia de datos
+   * @param session        Sesión con la lista de almacenes y su almacenamiento
    */
   public EstanteriaController(
-      Pasillo pasilloActual, List<Almacen> almacenes, StorageService storageService) {
+      Almacen almacenActual,
+      Pasillo pasilloActual,
+      WarehouseSession session) {
+    this.almacenActual = almacenActual;
     this.pasilloActual = pasilloActual;
-    this.almacenes = almacenes;
-    this.storageService = storageService;
+    this.session = session;
+    session.prepararEdicion(almacenActual);
   }
 
   /**
@@ -67,6 +71,42 @@ public class EstanteriaController {
    * @return true si se creó exitosamente, false si el número ya existe
    */
   public boolean crearEstanteria(int numero) {
+    if (!insertarEstanteria(numero)) {
+      return false;
+    }
+    registrar(List.of(JournalEntry.crear(almacenActual.getNombre(), ruta(), numero)));
+    return true;
+  }
+
+  /**
+   * Crea en bloque las estanterías del rango indicado en el pasillo actual. Cada número se valida e
+   * inserta en memoria y los cambios se guardan una sola vez al terminar.
+   *
+   * @param inicio Primer número del rango (incluido)
+   * @param fin    Último número del rango (incluido)
+   * @return Números creados, en orden ascendente
+   */
+  public List<Integer> crearEstanterias(int inicio, int fin) {
+    List<Integer> creados = new ArrayList<>();
+    for (int numero = inicio; numero <= fin; numero++) {
+      if (insertarEstanteria(numero)) {
+        creados.add(numero);
+      }
+    }
+
+    if (!creados.isEmpty()) {
+      registrar(creados.stream().map(n -> JournalEntry.crear(almacenActual.getNombre(), ruta(), n)).toList());
+    }
+    return creados;
+  }
+
+  /**
+   * Valida e inserta una estantería en memoria, sin persistir.
+   *
+   * @param numero Número a insertar
+   * @return true si se insertó, false si no es válido o ya existe
+   */
+  private boolean insertarEstanteria(int numero) {
     if (!ValidationService.isNumeroValido(numero)) {
       return false;
     }
@@ -77,7 +117,6 @@ public class EstanteriaController {
 
     Estanteria nuevaEstanteria = new Estanteria(numero);
     pasilloActual.addEstanteria(nuevaEstanteria);
-    guardar();
     return true;
   }
 
@@ -101,8 +140,9 @@ public class EstanteriaController {
       return false; // El número ya existe
     }
 
+    int numeroAnterior = estanteriaActual.getNumero();
     estanteriaActual.setNumero(nuevoNumero);
-    guardar();
+    registrar(List.of(JournalEntry.renumerar(almacenActual.getNombre(), ruta(), numeroAnterior, nuevoNumero)));
     return true;
   }
 
@@ -113,7 +153,7 @@ public class EstanteriaController {
    */
   public void eliminarEstanteria(Estanteria estanteria) {
     pasilloActual.removeEstanteria(estanteria);
-    guardar();
+    registrar(List.of(JournalEntry.eliminar(almacenActual.getNombre(), ruta(), estanteria.getNumero())));
   }
 
   /**
@@ -129,8 +169,21 @@ public class EstanteriaController {
     return pasilloActual.getEstanteriaByNumero(numero);
   }
 
-  /** Guarda los datos en el almacenamiento. */
-  private void guardar() {
-    storageService.saveAlmacenes(almacenes);
+  /**
+   * Números de los padres de los elementos gestionados, para identificarlos en el diario.
+   *
+   * @return Ruta dentro del almacén actual
+   */
+  private int[] ruta() {
+    return new int[] {pasilloActual.getNumero()};
+  }
+
+  /**
+   * Registra los cambios en el diario del almacenamiento.
+   *
+   * @param cambios Cambios ya aplicados sobre la jerarquía
+   */
+  private void registrar(List<JournalEntry> cambios) {
+    session.registrar(almacenActual, cambios);
   }
 }
@@ -0,0 +1,61 @@
+package com.openwarehouses.controllers;
+
+import com.openwarehouses.services.WarehouseSession;
+
+/**
+ * Controlador para deshacer y rehacer los cambios hechos con los demás controladores. El
+ * historial pertenece a la sesión, así que es común a todas las vistas y persiste al navegar.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public class HistorialController {
+  /** Sesión de la aplicación, que guarda el historial. */
+  private final WarehouseSession session;
+
+  /**
+   * Constructor que inicializa el controlador con la sesión de la aplicación.
+   *
+   * @param session Sesión con la lista de almacenes y su historial
+   */
+  public HistorialController(WarehouseSession session) {
+    this.session = session;
+  }
+
+  /**
+   * Deshace el último cambio. La vista abierta recibe los elementos afectados.
+   *
+   * @return true si había algo que deshacer, false en caso contrario
+   */
+  public boolean deshacer() {
+    return session.deshacer();
+  }
+
+  /**
+   * Rehace el último cambio deshecho. La vista abierta recibe los elementos afectados.
+   *
+   * @return true si había algo que rehacer, false en caso contrario
+   */
+  public boolean rehacer() {
+    return session.rehacer();
+  }
+
+  /**
+   * Indica si hay cambios que deshacer.
+   *
+   * @return true si se puede deshacer
+   */
+  public boolean puedeDeshacer() {
+    return session.puedeDeshacer();
+  }
+
+  /**
+   * Indica si hay cambios que rehacer.
+   *
+   * @return true si se puede rehacer
+   */
+  public boolean puedeRehacer() {
+    return session.puedeRehacer();
+  }
+}
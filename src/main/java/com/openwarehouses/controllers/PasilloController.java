@@ -1,11 +1,13 @@
 package com.openwarehouses.controllers;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Pasillo;
-import com.openwarehouses.services.StorageService;
+import com.openwarehouses.services.JournalEntry;
 import com.openwarehouses.services.ValidationService;
+import com.openwarehouses.services.WarehouseSession;
 
 /**
  * Controlador para gestionar operaciones de Pasillos. Maneja creación, edición
@@ -17,28 +19,22 @@ import com.openwarehouses.services.ValidationService;
  * @since 2025-12-16
  */
 public class PasilloController {
-  /** Servicio de almacenamiento para persistencia de datos. */
-  private final StorageService storageService;
+  /** Sesión de la aplicación, que persiste los cambios. */
+  private final WarehouseSession session;
 
   /** Almacén actual. */
   private Almacen almacenActual;
 
-  /** Lista de todos los almacenes. */
-  private final List<Almacen> almacenes;
-
   /**
-   * Constructor que inicializa el controlador con servicio de almacenamiento y
-   * lista de almacenes.
+   * Constructor que inicializa el controlador con la sesión de la aplicación.
    *
    * @param almacenActual  Almacen en el que se encuentra este Pasillo
-   * @param almacenes      Lista de almacenes a gestionar
-   * @param storageService Servicio de almacenamiento para persistencia de datos
+   * @param session        Sesión con la lista de almacenes y su almacenamiento
    */
-  public PasilloController(
-      Almacen almacenActual, List<Almacen> almacenes, StorageService storageService) {
+  public PasilloController(Almacen almacenActual, WarehouseSession session) {
     this.almacenActual = almacenActual;
-    this.almacenes = almacenes;
-    this.storageService = storageService;
+    this.session = session;
+    session.prepararEdicion(almacenActual);
   }
 
   /**
@@ -57,6 +53,42 @@ public class PasilloController {
    * @return true si se creó exitosamente, false si el número ya existe
    */
   public boolean crearPasillo(int numero) {
+    if (!insertarPasillo(numero)) {
+      return false;
+    }
+    registrar(List.of(JournalEntry.crear(almacenActual.getNombre(), ruta(), numero)));
+    return true;
+  }
+
+  /**
+   * Crea en bloque los pasillos del rango indicado en el almacén actual. Cada número se valida e
+   * inserta en memoria y los cambios se guardan una sola vez al terminar.
+   *
+   * @param inicio Primer número del rango (incluido)
+   * @param fin    Último número del rango (incluido)
+   * @return Números creados, en orden ascendente
+   */
+  public List<Integer> crearPasillos(int inicio, int fin) {
+    List<Integer> creados = new ArrayList<>();
+    for (int numero = inicio; numero <= fin; numero++) {
+      if (insertarPasillo(numero)) {
+        creados.add(numero);
+      }
+    }
+
+    if (!creados.isEmpty()) {
+      registrar(creados.stream().map(n -> JournalEntry.crear(almacenActual.getNombre(), ruta(), n)).toList());
+    }
+    return creados;
+  }
+
+  /**
+   * Valida e inserta un pasillo en memoria, sin persistir.
+   *
+   * @param numero Número a insertar
+   * @return true si se insertó, false si no es válido o ya existe
+   */
+  private boolean insertarPasillo(int numero) {
     if (!ValidationService.isNumeroValido(numero)) {
       return false;
     }
@@ -67,7 +99,6 @@ public class PasilloController {
 
     Pasillo nuevoPasillo = new Pasillo(numero);
     almacenActual.addPasillo(nuevoPasillo);
-    guardar();
     return true;
   }
 
@@ -91,8 +122,9 @@ public class PasilloController {
       return false; // El número ya existe
     }
 
+    int numeroAnterior = pasilloActual.getNumero();
     pasilloActual.setNumero(nuevoNumero);
-    guardar();
+    registrar(List.of(JournalEntry.renumerar(almacenActual.getNombre(), ruta(), numeroAnterior, nuevoNumero)));
     return true;
   }
 
@@ -103,7 +135,7 @@ public class PasilloController {
    */
   public void eliminarPasillo(Pasillo pasillo) {
     almacenActual.removePasillo(pasillo);
-    guardar();
+    registrar(List.of(JournalEntry.eliminar(almacenActual.getNombre(), ruta(), pasillo.getNumero())));
   }
 
   /**
@@ -119,8 +151,21 @@ public class PasilloController {
     return almacenActual.getPasilloByNumero(numero);
   }
 
-  /** Guarda los datos en el almacenamiento. */
-  private void guardar() {
-    storageService.saveAlmacenes(almacenes);
+  /**
+   * Números de los padres de los elementos gestionados, para identificarlos en el diario.
+   *
+   * @return Ruta dentro del almacén actual
+   */
+  private int[] ruta() {
+    return new int[0];
+  }
+
+  /**
+   * Registra los cambios en el diario del almacenamiento.
+   *
+   * @param cambios Cambios ya aplicados sobre la jerarquía
+   */
+  private void registrar(List<JournalEntry> cambios) {
+    session.registrar(almacenActual, cambios);
   }
 }
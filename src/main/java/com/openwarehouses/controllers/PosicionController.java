@@ -1,12 +1,14 @@
 package com.openwarehouses.controllers;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Altura;
 import com.openwarehouses.models.Posicion;
-import com.openwarehouses.services.StorageService;
+import com.openwarehouses.services.JournalEntry;
 import com.openwarehouses.services.ValidationService;
+import com.openwarehouses.services.WarehouseSession;
 
 /**
  * Controlador para gestionar operaciones de Posiciones. Maneja creación,
@@ -18,8 +20,11 @@ import com.openwarehouses.services.ValidationService;
  * @since 2025-12-16
  */
 public class PosicionController {
-  /** Servicio de almacenamiento para persistencia de datos. */
-  private final StorageService storageService;
+  /** Sesión de la aplicación, que persiste los cambios. */
+  private final WarehouseSession session;
+
+  /** Almacén al que pertenece la altura actual. */
+  private final Almacen almacenActual;
 
   /** Altura actual. */
   private Altura alturaActual;
@@ -33,22 +38,21 @@ public class PosicionController {
   /** Número de la altura. */
   private int numeroAltura;
 
-  /** Lista de almacenes */
-  private List<Almacen> almacenes;
-
   /**
-   * Constructor que inicializa el controlador con servicio de almacenamiento y
-   * lista de almacenes.
+   * Constructor que inicializa el controlador con la sesión de la aplicación.
    *
+   * @param almacenActual  Almacén al que pertenece la altura
    * @param alturaActual   Altura en la que se encuentra esta Posicion
-   * @param almacenes      Lista de almacenes a gestionar
-   * @param storageService Servicio de almacenamiento para persistencia de datos
+   * @param session        Sesión con la lista de almacenes y su almacenamiento
    */
   public PosicionController(
-      Altura alturaActual, List<Almacen> almacenes, StorageService storageService) {
+      Almacen almacenActual,
+      Altura alturaActual,
+      WarehouseSession session) {
+    this.almacenActual = almacenActual;
     this.alturaActual = alturaActual;
-    this.almacenes = almacenes;
-    this.storageService = storageService;
+    this.session = session;
+    session.prepararEdicion(almacenActual);
   }
 
   /**
@@ -82,6 +86,42 @@ public class PosicionController {
    * @return true si se creó exitosamente, false si el número ya existe
    */
   public boolean crearPosicion(int numero) {
+    if (!insertarPosicion(numero)) {
+      return false;
+    }
+    registrar(List.of(JournalEntry.crear(almacenActual.getNombre(), ruta(), numero)));
+    return true;
+  }
+
+  /**
+   * Crea en bloque las posiciones del rango indicado en la altura actual. Cada número se valida e
+   * inserta en memoria y los cambios se guardan una sola vez al terminar.
+   *
+   * @param inicio Primer número del rango (incluido)
+   * @param fin    Último número del rango (incluido)
+   * @return Números creados, en orden ascendente
+   */
+  public List<Integer> crearPosiciones(int inicio, int fin) {
+    List<Integer> creados = new ArrayList<>();
+    for (int numero = inicio; numero <= fin; numero++) {
+      if (insertarPosicion(numero)) {
+        creados.add(numero);
+      }
+    }
+
+    if (!creados.isEmpty()) {
+      registrar(creados.stream().map(n -> JournalEntry.crear(almacenActual.getNombre(), ruta(), n)).toList());
+    }
+    return creados;
+  }
+
+  /**
+   * Valida e inserta una posición en memoria, sin persistir.
+   *
+   * @param numero Número a insertar
+   * @return true si se insertó, false si no es válido o ya existe
+   */
+  private boolean insertarPosicion(int numero) {
     if (!ValidationService.isNumeroValido(numero)) {
       return false;
     }
@@ -90,11 +130,7 @@ public class PosicionController {
       return false;
     }
 
-    Posicion nuevaPosicion = new Posicion(numero);
-    String codigo = ValidationService.generateCodigo(numeroPasillo, numeroEstanteria, numeroAltura, numero);
-    nuevaPosicion.setCodigo(codigo);
-    alturaActual.addPosicion(nuevaPosicion);
-    guardar();
+    alturaActual.addPosicion(new Posicion(numero));
     return true;
   }
 
@@ -118,11 +154,10 @@ public class PosicionController {
       return false; // El número ya existe
     }
 
+    int numeroAnterior = posicionActual.getNumero();
     posicionActual.setNumero(nuevoNumero);
-    String codigo = ValidationService.generateCodigo(
-        numeroPasillo, numeroEstanteria, numeroAltura, nuevoNumero);
-    posicionActual.setCodigo(codigo);
-    guardar();
+    alturaActual.marcarModificado();
+    registrar(List.of(JournalEntry.renumerar(almacenActual.getNombre(), ruta(), numeroAnterior, nuevoNumero)));
     return true;
   }
 
@@ -133,7 +168,7 @@ public class PosicionController {
    */
   public void eliminarPosicion(Posicion posicion) {
     alturaActual.removePosicion(posicion);
-    guardar();
+    registrar(List.of(JournalEntry.eliminar(almacenActual.getNombre(), ruta(), posicion.getNumero())));
   }
 
   /**
@@ -149,8 +184,21 @@ public class PosicionController {
     return alturaActual.getPosicionByNumero(numero);
   }
 
-  /** Guarda los datos en el almacenamiento. */
-  private void guardar() {
-    storageService.saveAlmacenes(almacenes);
+  /**
+   * Números de los padres de los elementos gestionados, para identificarlos en el diario.
+   *
+   * @return Ruta dentro del almacén actual
+   */
+  private int[] ruta() {
+    return new int[] {numeroPasillo, numeroEstanteria, numeroAltura};
+  }
+
+  /**
+   * Registra los cambios en el diario del almacenamiento.
+   *
+   * @param cambios Cambios ya aplicados sobre la jerarquía
+   */
+  private void registrar(List<JournalEntry> cambios) {
+    session.registrar(almacenActual, cambios);
   }
 }
@@ -1,13 +1,16 @@
 package com.openwarehouses.models;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Modelo que representa un almacén en la jerarquía. Un almacén contiene
  * múltiples pasillos.
  *
+ * <p>Los pasillos pueden cargarse de forma diferida: mientras no se acceda a ellos, el almacén
+ * solo conoce su nombre y el resumen (número de pasillos y posiciones) del índice.
+ *
  * @author German
  * @version 1.0
  * @since 2025-12-16
@@ -16,12 +19,30 @@ public class Almacen {
   /** Nombre del almacén. */
   private String nombre;
 
-  /** Lista de pasillos en el almacén. */
-  private List<Pasillo> pasillos;
+  /** Lista de pasillos en el almacén, indexada por número. */
+  private ListaIndexada<Almacen, Pasillo> pasillos;
+
+  /** Archivo de datos del almacén (no se serializa en JSON). */
+  private transient String archivo;
+
+  /** Carga pendiente de los pasillos; null cuando ya están en memoria. */
+  private transient Consumer<Almacen> cargador;
+
+  /** Número de pasillos según el índice, válido mientras no se hayan cargado. */
+  private transient int numPasillos;
+
+  /** Número de posiciones según el índice, válido mientras no se hayan cargado. */
+  private transient int numPosiciones;
+
+  /**
+   * Copia serializada del almacén guardada por el almacenamiento, o null si el almacén ha
+   * cambiado desde entonces (no se serializa en JSON).
+   */
+  private transient byte[] serializado;
 
   /** Constructor vacío para JSON serialization. */
   public Almacen() {
-    this.pasillos = new ArrayList<>();
+    this.pasillos = nuevaLista(null);
   }
 
   /**
@@ -31,7 +52,7 @@ public class Almacen {
    */
   public Almacen(String nombre) {
     this.nombre = nombre;
-    this.pasillos = new ArrayList<>();
+    this.pasillos = nuevaLista(null);
   }
 
   /**
@@ -49,15 +70,21 @@ public class Almacen {
    * @param nombre Nombre del almacén
    */
   public void setNombre(String nombre) {
+    serializado = null;
     this.nombre = nombre;
   }
 
   /**
-   * Obtiene los pasillos del almacén.
+   * Obtiene los pasillos del almacén. Si la carga es diferida, el primer acceso los lee.
    *
    * @return Lista de pasillos
    */
   public List<Pasillo> getPasillos() {
+    if (cargador != null) {
+      Consumer<Almacen> carga = cargador;
+      cargador = null;
+      carga.accept(this);
+    }
     return pasillos;
   }
 
@@ -67,7 +94,79 @@ public class Almacen {
    * @param pasillos Lista de pasillos del almacén
    */
   public void setPasillos(List<Pasillo> pasillos) {
-    this.pasillos = pasillos;
+    serializado = null;
+    this.cargador = null;
+    this.pasillos = nuevaLista(pasillos);
+  }
+
+  /**
+   * Deja los pasillos pendientes de cargar hasta el primer acceso.
+   *
+   * @param numPasillos Número de pasillos según el índice
+   * @param numPosiciones Número de posiciones según el índice
+   * @param cargador Acción que establece los pasillos del almacén
+   */
+  public void setCargaDiferida(int numPasillos, int numPosiciones, Consumer<Almacen> cargador) {
+    serializado = null;
+    this.numPasillos = numPasillos;
+    this.numPosiciones = numPosiciones;
+    this.cargador = cargador;
+  }
+
+  /**
+   * Indica si los pasillos ya están en memoria.
+   *
+   * @return true si no queda carga pendiente
+   */
+  public boolean isCargado() {
+    return cargador == null;
+  }
+
+  /**
+   * Obtiene el número de pasillos sin forzar la carga.
+   *
+   * @return Número de pasillos
+   */
+  public int getNumPasillos() {
+    return cargador != null ? numPasillos : pasillos.size();
+  }
+
+  /**
+   * Obtiene el número total de posiciones sin forzar la carga.
+   *
+   * @return Número de posiciones
+   */
+  public int getNumPosiciones() {
+    if (cargador != null) {
+      return numPosiciones;
+    }
+    int total = 0;
+    for (Pasillo pasillo : pasillos) {
+      for (Estanteria estanteria : pasillo.getEstanterias()) {
+        for (Altura altura : estanteria.getAlturas()) {
+          total += altura.getPosiciones().size();
+        }
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Obtiene el archivo de datos del almacén, o su clave si se guarda en una base de datos.
+   *
+   * @return Nombre del archivo o clave, o null si aún no se ha guardado
+   */
+  public String getArchivo() {
+    return archivo;
+  }
+
+  /**
+   * Establece el archivo de datos del almacén, o su clave si se guarda en una base de datos.
+   *
+   * @param archivo Nombre del archivo o clave
+   */
+  public void setArchivo(String archivo) {
+    this.archivo = archivo;
   }
 
   /**
@@ -76,7 +175,8 @@ public class Almacen {
    * @param pasillo Pasillo a añadir
    */
   public void addPasillo(Pasillo pasillo) {
-    if (!pasillos.contains(pasillo)) {
+    serializado = null;
+    if (!getPasillos().contains(pasillo)) {
       pasillos.add(pasillo);
     }
   }
@@ -88,7 +188,8 @@ public class Almacen {
    * @return Pasillo encontrado o null si no existe
    */
   public Pasillo getPasilloByNumero(int numero) {
-    return pasillos.stream().filter(p -> p.getNumero() == numero).findFirst().orElse(null);
+    getPasillos();
+    return pasillos.buscar(numero);
   }
 
   /**
@@ -97,7 +198,50 @@ public class Almacen {
    * @param pasillo Pasillo a eliminar
    */
   public void removePasillo(Pasillo pasillo) {
-    pasillos.remove(pasillo);
+    serializado = null;
+    getPasillos().remove(pasillo);
+  }
+
+  /**
+   * Crea la lista de pasillos indexada por número. Cada pasillo queda enlazado con ella para
+   * avisarla si cambia de número, y cualquier cambio de la lista descarta la copia serializada del
+   * almacén.
+   *
+   * @param iniciales Pasillos iniciales, o null para empezar vacía
+   * @return Lista de pasillos
+   */
+  private ListaIndexada<Almacen, Pasillo> nuevaLista(List<Pasillo> iniciales) {
+    return new ListaIndexada<>(
+        this, Pasillo::getNumero, (h, lista) -> h.lista = lista, this::marcarModificado,
+        iniciales);
+  }
+
+  /**
+   * Obtiene la copia serializada del almacén que guardó el almacenamiento. Los métodos que
+   * modifican el almacén la descartan; los cambios de sus hijos se descartan en los propios
+   * hijos.
+   *
+   * @return Bytes serializados, o null si el almacén ha cambiado desde que se serializó
+   */
+  public byte[] getSerializado() {
+    return serializado;
+  }
+
+  /**
+   * Guarda la copia serializada del almacén, para reutilizarla mientras no cambie.
+   *
+   * @param serializado Bytes serializados
+   */
+  public void setSerializado(byte[] serializado) {
+    this.serializado = serializado;
+  }
+
+  /**
+   * Descarta la copia serializada del almacén, por ejemplo al reordenar directamente su lista
+   * de pasillos.
+   */
+  public void marcarModificado() {
+    serializado = null;
   }
 
   @Override
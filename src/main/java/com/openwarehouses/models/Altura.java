@@ -1,29 +1,62 @@
 package com.openwarehouses.models;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.RandomAccess;
 
 /**
  * Modelo que representa una altura dentro de una estantería. Una altura contiene múltiples
  * posiciones.
  *
+ * <p>Las posiciones se guardan como un array ordenado de sus números, sin un objeto por posición:
+ * el código de una posición se deduce de su ruta. Los objetos {@link Posicion} se crean al pedirlos
+ * a {@link #getPosiciones()}, normalmente desde la interfaz, y se reutilizan mientras sigan en la
+ * altura.
+ *
  * @author German
  * @version 1.0
  * @since 2025-12-16
  */
 
 public class Altura {
+  /** Array compartido por las alturas sin posiciones. */
+  private static final int[] SIN_POSICIONES = new int[0];
+
+  /** Capacidad mínima al empezar a añadir posiciones. */
+  private static final int CAPACIDAD_MINIMA = 4;
+
   /** Número de la altura. */
   private int numero;
 
-  /** Lista de posiciones en la altura. */
-  private List<Posicion> posiciones;
+  /** Lista que contiene la altura, avisada al cambiar su número (no se serializa en JSON). */
+  transient ListaIndexada<Estanteria, Altura> lista;
+
+  /** Números de las posiciones, ordenados; solo son válidos los primeros {@link #total}. */
+  private transient int[] numeros = SIN_POSICIONES;
+
+  /** Número de posiciones de la altura. */
+  private transient int total;
+
+  /**
+   * Posiciones ya creadas, con el mismo índice que su número en {@link #numeros}, o null si no se
+   * ha pedido ninguna.
+   */
+  private transient Posicion[] vistas;
+
+  /** Vista de las posiciones como lista. */
+  private final transient Posiciones posiciones = new Posiciones();
+
+  /**
+   * Copia serializada de la altura guardada por el almacenamiento, o null si la altura ha
+   * cambiado desde entonces (no se serializa en JSON).
+   */
+  private transient byte[] serializado;
 
   /** Constructor vacío para JSON serialization. */
-  public Altura() {
-    this.posiciones = new ArrayList<>();
-  }
+  public Altura() {}
 
   /**
    * Constructor con número.
@@ -32,7 +65,6 @@ public class Altura {
    */
   public Altura(int numero) {
     this.numero = numero;
-    this.posiciones = new ArrayList<>();
   }
 
   /**
@@ -50,11 +82,17 @@ public class Altura {
    * @param numero Número de la altura
    */
   public void setNumero(int numero) {
+    serializado = null;
+    int anterior = this.numero;
     this.numero = numero;
+    if (lista != null && anterior != numero) {
+      lista.renumerado(this, anterior);
+    }
   }
 
   /**
-   * Obtiene las posiciones de la altura.
+   * Obtiene las posiciones de la altura, ordenadas por número. La lista se puede modificar, pero
+   * mantiene su orden: una posición añadida se coloca según su número, sea cual sea el índice.
    *
    * @return Lista de posiciones
    */
@@ -63,12 +101,48 @@ public class Altura {
   }
 
   /**
-   * Establece las posiciones de la altura.
+   * Establece las posiciones de la altura. Solo se guardan sus números.
    *
    * @param posiciones Lista de posiciones
    */
   public void setPosiciones(List<Posicion> posiciones) {
-    this.posiciones = posiciones;
+    int[] nuevos = new int[posiciones.size()];
+    for (int i = 0; i < nuevos.length; i++) {
+      nuevos[i] = posiciones.get(i).getNumero();
+    }
+    reemplazar(nuevos);
+  }
+
+  /**
+   * Obtiene los números de las posiciones sin crear objetos {@link Posicion}.
+   *
+   * @return Copia de los números, en orden
+   */
+  public int[] getNumerosPosiciones() {
+    return total == 0 ? SIN_POSICIONES : Arrays.copyOf(numeros, total);
+  }
+
+  /**
+   * Obtiene los números de las posiciones de un intervalo. Como están ordenados, se localizan
+   * con dos búsquedas binarias y solo se copian los del intervalo.
+   *
+   * @param desde Primer número incluido
+   * @param hasta Último número incluido
+   * @return Copia de los números del intervalo, en orden
+   */
+  public int[] getNumerosPosiciones(int desde, int hasta) {
+    int inicio = primero(desde);
+    int fin = primero(hasta + 1L);
+    return inicio >= fin ? SIN_POSICIONES : Arrays.copyOfRange(numeros, inicio, fin);
+  }
+
+  /**
+   * Establece las posiciones de la altura a partir de sus números.
+   *
+   * @param numeros Números de las posiciones, en cualquier orden
+   */
+  public void setNumerosPosiciones(int[] numeros) {
+    reemplazar(numeros.clone());
   }
 
   /**
@@ -77,11 +151,23 @@ public class Altura {
    * @param posicion Posición a añadir
    */
   public void addPosicion(Posicion posicion) {
-    if (!posiciones.contains(posicion)) {
+    serializado = null;
+    if (!containsPosicion(posicion.getNumero())) {
       posiciones.add(posicion);
     }
   }
 
+  /**
+   * Indica si la altura tiene una posición con un número, sin crearla.
+   *
+   * @param num Número de la posición
+   * @return true si existe
+   */
+  public boolean containsPosicion(int num) {
+    int i = primero(num);
+    return i < total && numeros[i] == num;
+  }
+
   /**
    * Obtiene una posición por su número.
    *
@@ -89,7 +175,8 @@ public class Altura {
    * @return Posición encontrada o null si no existe
    */
   public Posicion getPosicionByNumero(int num) {
-    return posiciones.stream().filter(p -> p.getNumero() == num).findFirst().orElse(null);
+    int i = primero(num);
+    return i < total && numeros[i] == num ? vista(i) : null;
   }
 
   /**
@@ -98,9 +185,296 @@ public class Altura {
    * @param posicion Posición a eliminar
    */
   public void removePosicion(Posicion posicion) {
+    serializado = null;
     posiciones.remove(posicion);
   }
 
+  /**
+   * Obtiene la clave de una posición de esta altura a partir de su ruta.
+   *
+   * @param num Número de la posición
+   * @return Clave de la posición, o null si la altura no está en una estantería de un pasillo o
+   *     algún número no cabe en una clave
+   */
+  LocationKey clavePosicion(int num) {
+    Estanteria estanteria = lista != null ? lista.getPropietario() : null;
+    Pasillo pasillo = estanteria != null ? estanteria.getPasillo() : null;
+    if (pasillo == null
+        || !LocationKey.admite(pasillo.getNumero(), estanteria.getNumero(), numero, num)) {
+      return null;
+    }
+    return LocationKey.of(pasillo.getNumero(), estanteria.getNumero(), numero, num);
+  }
+
+  /**
+   * Recoloca una posición de la altura que ha cambiado de número.
+   *
+   * @param posicion Posición renumerada, que ya tiene su número nuevo
+   * @param anterior Número que tenía
+   */
+  void renumerarPosicion(Posicion posicion, int anterior) {
+    int i = primero(anterior);
+    if (i >= total || numeros[i] != anterior) {
+      return;
+    }
+    for (int j = i; vistas != null && j < total && numeros[j] == anterior; j++) {
+      if (vistas[j] == posicion) {
+        i = j;
+        break;
+      }
+    }
+    quitar(i);
+    insertar(posicion.getNumero(), posicion);
+    posiciones.cambiada();
+  }
+
+  /**
+   * Sustituye todas las posiciones. Las que ya se habían creado dejan de pertenecer a la altura.
+   *
+   * @param nuevos Números nuevos, que pasan a ser de la altura
+   */
+  private void reemplazar(int[] nuevos) {
+    serializado = null;
+    soltarVistas();
+    Arrays.sort(nuevos);
+    numeros = nuevos.length == 0 ? SIN_POSICIONES : nuevos;
+    total = nuevos.length;
+    vistas = null;
+    posiciones.cambiada();
+  }
+
+  /**
+   * Obtiene el objeto de una posición, creándolo la primera vez.
+   *
+   * @param i Índice de la posición
+   * @return Posición
+   */
+  private Posicion vista(int i) {
+    if (vistas == null) {
+      vistas = new Posicion[numeros.length];
+    }
+    Posicion posicion = vistas[i];
+    if (posicion == null) {
+      posicion = new Posicion(numeros[i]);
+      posicion.altura = this;
+      vistas[i] = posicion;
+    }
+    return posicion;
+  }
+
+  /**
+   * Inserta un número detrás de los menores o iguales.
+   *
+   * @param num Número de la posición
+   * @param posicion Objeto de la posición, o null si no se ha creado
+   */
+  private void insertar(int num, Posicion posicion) {
+    if (total == numeros.length) {
+      int capacidad = Math.max(CAPACIDAD_MINIMA, total + (total >> 1));
+      numeros = Arrays.copyOf(numeros, capacidad);
+      if (vistas != null) {
+        vistas = Arrays.copyOf(vistas, capacidad);
+      }
+    }
+    int i = primero(num + 1L);
+    System.arraycopy(numeros, i, numeros, i + 1, total - i);
+    numeros[i] = num;
+    if (vistas != null) {
+      System.arraycopy(vistas, i, vistas, i + 1, total - i);
+      vistas[i] = posicion;
+    }
+    total++;
+    if (posicion != null) {
+      posicion.altura = this;
+    }
+    serializado = null;
+  }
+
+  /**
+   * Quita una posición por índice, sin desenlazar su objeto.
+   *
+   * @param i Índice de la posición
+   */
+  private void quitar(int i) {
+    System.arraycopy(numeros, i + 1, numeros, i, total - i - 1);
+    if (vistas != null) {
+      System.arraycopy(vistas, i + 1, vistas, i, total - i - 1);
+      vistas[total - 1] = null;
+    }
+    total--;
+    serializado = null;
+  }
+
+  /**
+   * Desenlaza una posición que sale de la altura. Conserva su clave, que ya no se puede deducir.
+   *
+   * @param posicion Posición que sale
+   */
+  private void soltar(Posicion posicion) {
+    LocationKey clave = posicion.getClave();
+    posicion.altura = null;
+    posicion.setClave(clave);
+  }
+
+  /** Desenlaza todas las posiciones ya creadas. */
+  private void soltarVistas() {
+    if (vistas == null) {
+      return;
+    }
+    for (int i = 0; i < total; i++) {
+      if (vistas[i] != null) {
+        soltar(vistas[i]);
+        vistas[i] = null;
+      }
+    }
+  }
+
+  /**
+   * Busca el índice de la primera posición con un número mayor o igual que el dado.
+   *
+   * @param num Número buscado
+   * @return Índice, o el total de posiciones si todas son menores
+   */
+  private int primero(long num) {
+    int bajo = 0;
+    int alto = total;
+    while (bajo < alto) {
+      int medio = (bajo + alto) >>> 1;
+      if (numeros[medio] < num) {
+        bajo = medio + 1;
+      } else {
+        alto = medio;
+      }
+    }
+    return bajo;
+  }
+
+  /**
+   * Obtiene la copia serializada de la altura que guardó el almacenamiento, con los números de
+   * sus posiciones. Los métodos que modifican la altura la descartan.
+   *
+   * @return Bytes serializados, o null si la altura ha cambiado desde que se serializó
+   */
+  public byte[] getSerializado() {
+    return serializado;
+  }
+
+  /**
+   * Guarda la copia serializada de la altura, para reutilizarla mientras no cambie.
+   *
+   * @param serializado Bytes serializados
+   */
+  public void setSerializado(byte[] serializado) {
+    this.serializado = serializado;
+  }
+
+  /**
+   * Descarta la copia serializada de la altura. Los cambios en sus posiciones ya la descartan,
+   * incluidos los hechos a través de la lista o al renumerar una posición.
+   */
+  public void marcarModificado() {
+    serializado = null;
+  }
+
+  /**
+   * Lista de las posiciones respaldada por los números de la altura. Las búsquedas usan el orden
+   * por número, así que comprobar si contiene una posición no crea ningún objeto.
+   */
+  private final class Posiciones extends AbstractList<Posicion> implements RandomAccess {
+    @Override
+    public Posicion get(int index) {
+      Objects.checkIndex(index, total);
+      return vista(index);
+    }
+
+    @Override
+    public int size() {
+      return total;
+    }
+
+    /**
+     * Añade una posición en el lugar que le corresponde por su número; el índice se ignora.
+     *
+     * @param index Índice pedido
+     * @param posicion Posición a añadir
+     */
+    @Override
+    public void add(int index, Posicion posicion) {
+      insertar(posicion.getNumero(), posicion);
+      modCount++;
+    }
+
+    @Override
+    public Posicion remove(int index) {
+      Posicion posicion = get(index);
+      quitar(index);
+      soltar(posicion);
+      modCount++;
+      return posicion;
+    }
+
+    @Override
+    public Posicion set(int index, Posicion posicion) {
+      Posicion anterior = remove(index);
+      add(posicion);
+      return anterior;
+    }
+
+    @Override
+    public void clear() {
+      soltarVistas();
+      total = 0;
+      serializado = null;
+      modCount++;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+      if (!(o instanceof Posicion posicion)) {
+        return -1;
+      }
+      int i = primero(posicion.getNumero());
+      return i < total && numeros[i] == posicion.getNumero() ? i : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+      if (!(o instanceof Posicion posicion)) {
+        return -1;
+      }
+      int i = primero(posicion.getNumero() + 1L) - 1;
+      return i >= 0 && numeros[i] == posicion.getNumero() ? i : -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return indexOf(o) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      int i = indexOf(o);
+      if (i < 0) {
+        return false;
+      }
+      remove(i);
+      return true;
+    }
+
+    /**
+     * No hace nada: las posiciones siempre están ordenadas por número.
+     *
+     * @param c Orden pedido
+     */
+    @Override
+    public void sort(Comparator<? super Posicion> c) {}
+
+    /** Registra un cambio hecho desde la altura, para que los iteradores abiertos fallen. */
+    private void cambiada() {
+      modCount++;
+    }
+  }
+
   @Override
   /**
    * Compara dos alturas por su número.
@@ -1,6 +1,5 @@
 package com.openwarehouses.models;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -16,12 +15,21 @@ public class Estanteria {
   /** Número de la estantería. */
   private int numero;
 
-  /** Lista de alturas en la estantería. */
-  private List<Altura> alturas;
+  /** Lista que contiene la estantería, avisada al cambiar su número (no se serializa en JSON). */
+  transient ListaIndexada<Pasillo, Estanteria> lista;
+
+  /** Lista de alturas en la estantería, indexada por número. */
+  private ListaIndexada<Estanteria, Altura> alturas;
+
+  /**
+   * Copia serializada de la estantería guardada por el almacenamiento, o null si la estantería
+   * ha cambiado desde entonces (no se serializa en JSON).
+   */
+  private transient byte[] serializado;
 
   /** Constructor vacío para JSON serialization. */
   public Estanteria() {
-    this.alturas = new ArrayList<>();
+    this.alturas = nuevaLista(null);
   }
 
   /**
@@ -31,7 +39,7 @@ public class Estanteria {
    */
   public Estanteria(int numero) {
     this.numero = numero;
-    this.alturas = new ArrayList<>();
+    this.alturas = nuevaLista(null);
   }
 
   /**
@@ -49,7 +57,12 @@ public class Estanteria {
    * @param numero Número de la estantería
    */
   public void setNumero(int numero) {
+    serializado = null;
+    int anterior = this.numero;
     this.numero = numero;
+    if (lista != null && anterior != numero) {
+      lista.renumerado(this, anterior);
+    }
   }
 
   /**
@@ -67,7 +80,8 @@ public class Estanteria {
    * @param alturas Lista de alturas
    */
   public void setAlturas(List<Altura> alturas) {
-    this.alturas = alturas;
+    serializado = null;
+    this.alturas = nuevaLista(alturas);
   }
 
   /**
@@ -76,6 +90,7 @@ public class Estanteria {
    * @param altura Altura a añadir
    */
   public void addAltura(Altura altura) {
+    serializado = null;
     if (!alturas.contains(altura)) {
       alturas.add(altura);
     }
@@ -88,7 +103,7 @@ public class Estanteria {
    * @return Altura encontrada o null si no existe
    */
   public Altura getAlturaByNumero(int num) {
-    return alturas.stream().filter(a -> a.getNumero() == num).findFirst().orElse(null);
+    return alturas.buscar(num);
   }
 
   /**
@@ -97,9 +112,61 @@ public class Estanteria {
    * @param altura Altura a eliminar
    */
   public void removeAltura(Altura altura) {
+    serializado = null;
     alturas.remove(altura);
   }
 
+  /**
+   * Obtiene el pasillo que contiene la estantería.
+   *
+   * @return Pasillo, o null si la estantería no está en ninguno
+   */
+  Pasillo getPasillo() {
+    return lista != null ? lista.getPropietario() : null;
+  }
+
+  /**
+   * Crea la lista de alturas indexada por número. Cada altura queda enlazada con ella para avisarla
+   * si cambia de número, y cualquier cambio de la lista descarta la copia serializada de la
+   * estantería.
+   *
+   * @param iniciales Alturas iniciales, o null para empezar vacía
+   * @return Lista de alturas
+   */
+  private ListaIndexada<Estanteria, Altura> nuevaLista(List<Altura> iniciales) {
+    return new ListaIndexada<>(
+        this, Altura::getNumero, (h, lista) -> h.lista = lista, this::marcarModificado,
+        iniciales);
+  }
+
+  /**
+   * Obtiene la copia serializada de la estantería que guardó el almacenamiento. Los métodos
+   * que modifican la estantería la descartan; los cambios de sus hijos se descartan en los
+   * propios hijos.
+   *
+   * @return Bytes serializados, o null si la estantería ha cambiado desde que se serializó
+   */
+  public byte[] getSerializado() {
+    return serializado;
+  }
+
+  /**
+   * Guarda la copia serializada de la estantería, para reutilizarla mientras no cambie.
+   *
+   * @param serializado Bytes serializados
+   */
+  public void setSerializado(byte[] serializado) {
+    this.serializado = serializado;
+  }
+
+  /**
+   * Descarta la copia serializada de la estantería, por ejemplo al reordenar directamente su
+   * lista de alturas.
+   */
+  public void marcarModificado() {
+    serializado = null;
+  }
+
   @Override
   /**
    * Compara dos estanterías por su número.
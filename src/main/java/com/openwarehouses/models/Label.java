@@ -1,67 +1,55 @@
 package com.openwarehouses.models;
 
 /**
- * Modelo que representa una etiqueta de posición para impresión. Contiene el código único de la
- * posición (pasillo.estantería.altura.posición).
+ * Modelo que representa una etiqueta de posición para impresión. Contiene la clave de la posición,
+ * de la que sale su código único (pasillo.estantería.altura.posición).
  *
  * @author German
  * @version 1.0
  * @since 2024-12-16
  */
 public class Label {
-  /** Código de la etiqueta (formato: pasillo.estanteria.altura.posicion). */
-  private String codigo;
-
-  /** Número del pasillo. */
-  private int numeroPasillo;
-
-  /** Número de la estantería. */
-  private int numeroEstanteria;
-
-  /** Número de la altura. */
-  private int numeroAltura;
-
-  /** Número de la posición. */
-  private int numeroPosicion;
+  /** Clave de la posición; el código se escribe a partir de ella solo al mostrarlo. */
+  private final long clave;
 
   /**
-   * Constructor que crea una etiqueta con el código de posición.
+   * Constructor que crea una etiqueta a partir de la ruta de la posición.
    *
-   * @param codigo Código de posición (ej: "2.3.1.5")
    * @param numeroPasillo Número del pasillo
    * @param numeroEstanteria Número de la estantería
    * @param numeroAltura Número de la altura
    * @param numeroPosicion Número de la posición
+   * @throws IllegalArgumentException Si algún número no cabe en una {@link LocationKey}
    */
-  public Label(
-      String codigo,
-      int numeroPasillo,
-      int numeroEstanteria,
-      int numeroAltura,
-      int numeroPosicion) {
-    this.codigo = codigo;
-    this.numeroPasillo = numeroPasillo;
-    this.numeroEstanteria = numeroEstanteria;
-    this.numeroAltura = numeroAltura;
-    this.numeroPosicion = numeroPosicion;
+  public Label(int numeroPasillo, int numeroEstanteria, int numeroAltura, int numeroPosicion) {
+    this.clave = LocationKey.pack(numeroPasillo, numeroEstanteria, numeroAltura, numeroPosicion);
   }
 
   /**
-   * Obtiene el código de la etiqueta.
+   * Constructor que crea una etiqueta con la clave de la posición.
    *
-   * @return Código de la etiqueta
+   * @param clave Clave de la posición
    */
-  public String getCodigo() {
-    return codigo;
+  public Label(LocationKey clave) {
+    this.clave = clave.toLong();
   }
 
   /**
-   * Establece el código de la etiqueta.
+   * Obtiene la clave de la posición.
    *
-   * @param codigo Código de la etiqueta
+   * @return Clave de la posición
    */
-  public void setCodigo(String codigo) {
-    this.codigo = codigo;
+  public LocationKey getClave() {
+    return LocationKey.fromLong(clave);
+  }
+
+  /**
+   * Obtiene el código de la etiqueta (ej: "2.3.1.5"). Se genera en cada llamada.
+   *
+   * @return Código de la etiqueta
+   */
+  public String getCodigo() {
+    return LocationKey.toString(clave);
   }
 
   /**
@@ -70,7 +58,7 @@ public class Label {
    * @return Número del pasillo
    */
   public int getNumeroPasillo() {
-    return numeroPasillo;
+    return LocationKey.numero(clave, 0);
   }
 
   /**
@@ -79,7 +67,7 @@ public class Label {
    * @return Número de la estantería
    */
   public int getNumeroEstanteria() {
-    return numeroEstanteria;
+    return LocationKey.numero(clave, 1);
   }
 
   /**
@@ -88,7 +76,7 @@ public class Label {
    * @return Número de la altura
    */
   public int getNumeroAltura() {
-    return numeroAltura;
+    return LocationKey.numero(clave, 2);
   }
 
   /**
@@ -97,7 +85,7 @@ public class Label {
    * @return Número de la posición
    */
   public int getNumeroPosicion() {
-    return numeroPosicion;
+    return LocationKey.numero(clave, 3);
   }
 
   @Override
@@ -107,6 +95,6 @@ public class Label {
    * @return cadena representando la etiqueta
    */
   public String toString() {
-    return "Label{" + "codigo='" + codigo + '\'' + '}';
+    return "Label{" + "codigo='" + getCodigo() + '\'' + '}';
   }
 }
@@ -0,0 +1,383 @@
+package com.openwarehouses.models;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.RandomAccess;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Lista ordenada de los hijos de un nivel de la jerarquía con un índice por número, para que
+ * buscar un hijo o comprobar si existe no recorra la lista.
+ *
+ * <p>El índice es una tabla hash de direccionamiento abierto con claves {@code int}, sin objetos
+ * intermedios por entrada. Se mantiene en todas las operaciones de la lista (también las de sus
+ * iteradores, que pasan por {@link #set}, {@link #add(int, Object)} y {@link #remove(int)}) y al
+ * renumerar un hijo: cada hijo conoce la lista que lo contiene y le avisa desde su
+ * {@code setNumero}.
+ *
+ * <p>Cualquier cambio de la lista avisa también al propietario, que descarta su copia serializada.
+ * Así, quien cambie los hijos directamente con {@code getPasillos()} y similares no puede dejar
+ * guardada una copia con los hijos anteriores.
+ *
+ * <p>Si varios hijos comparten número (un dato incoherente que puede corregir
+ * {@link com.openwarehouses.services.IntegrityService}), el índice apunta a uno de ellos.
+ *
+ * @param <P> Tipo del elemento que contiene la lista
+ * @param <T> Tipo de los hijos
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+final class ListaIndexada<P, T> extends AbstractList<T> implements RandomAccess {
+  /** Capacidad inicial de la tabla; siempre es potencia de dos. */
+  private static final int CAPACIDAD_INICIAL = 8;
+
+  /** Elemento que contiene la lista. */
+  private final P propietario;
+
+  /** Hijos en orden. */
+  private final ArrayList<T> elementos;
+
+  /** Número de un hijo. */
+  private final ToIntFunction<T> numero;
+
+  /** Asigna a un hijo la lista que lo contiene, o null al quitarlo. */
+  private final BiConsumer<T, ListaIndexada<P, T>> enlazar;
+
+  /** Avisa al propietario de que sus hijos han cambiado. */
+  private final Runnable modificado;
+
+  /** Números de la tabla; una celda está libre si su valor es null. */
+  private int[] claves;
+
+  /** Hijo de cada celda de la tabla. */
+  private Object[] valores;
+
+  /** Celdas ocupadas de la tabla. */
+  private int ocupadas;
+
+  /** Hijos que no están en la tabla porque otro tiene su mismo número. */
+  private int repetidos;
+
+  /**
+   * Crea una lista vacía.
+   *
+   * @param propietario Elemento que contiene la lista
+   * @param numero Número de un hijo
+   * @param enlazar Asigna a un hijo la lista que lo contiene
+   * @param modificado Avisa al propietario de que sus hijos han cambiado
+   */
+  ListaIndexada(P propietario, ToIntFunction<T> numero,
+      BiConsumer<T, ListaIndexada<P, T>> enlazar, Runnable modificado) {
+    this.propietario = propietario;
+    this.elementos = new ArrayList<>();
+    this.numero = numero;
+    this.enlazar = enlazar;
+    this.modificado = modificado;
+    this.claves = new int[CAPACIDAD_INICIAL];
+    this.valores = new Object[CAPACIDAD_INICIAL];
+  }
+
+  /**
+   * Crea una lista con los hijos de otra colección, por ejemplo la leída de JSON.
+   *
+   * @param propietario Elemento que contiene la lista
+   * @param numero Número de un hijo
+   * @param enlazar Asigna a un hijo la lista que lo contiene
+   * @param modificado Avisa al propietario de que sus hijos han cambiado
+   * @param hijos Hijos iniciales, en orden; puede ser null
+   */
+  ListaIndexada(P propietario, ToIntFunction<T> numero,
+      BiConsumer<T, ListaIndexada<P, T>> enlazar, Runnable modificado,
+      Collection<? extends T> hijos) {
+    this(propietario, numero, enlazar, modificado);
+    if (hijos != null) {
+      elementos.ensureCapacity(hijos.size());
+      addAll(hijos);
+    }
+  }
+
+  /**
+   * Obtiene el elemento que contiene la lista, para subir por la jerarquía desde un hijo.
+   *
+   * @return Elemento propietario
+   */
+  P getPropietario() {
+    return propietario;
+  }
+
+  /**
+   * Busca un hijo por su número.
+   *
+   * @param clave Número buscado
+   * @return Hijo con ese número, o null si no hay ninguno
+   */
+  @SuppressWarnings("unchecked")
+  T buscar(int clave) {
+    int mascara = claves.length - 1;
+    for (int i = mezclar(clave) & mascara; valores[i] != null; i = (i + 1) & mascara) {
+      if (claves[i] == clave) {
+        return (T) valores[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Actualiza el índice cuando un hijo de la lista cambia de número.
+   *
+   * @param hijo Hijo renumerado, que ya tiene su número nuevo
+   * @param anterior Número que tenía
+   */
+  void renumerado(T hijo, int anterior) {
+    quitarDelIndice(hijo, anterior);
+    ponerEnIndice(hijo);
+  }
+
+  @Override
+  public T get(int index) {
+    return elementos.get(index);
+  }
+
+  @Override
+  public int size() {
+    return elementos.size();
+  }
+
+  @Override
+  public T set(int index, T hijo) {
+    T anterior = elementos.set(index, hijo);
+    soltar(anterior);
+    tomar(hijo);
+    modificado.run();
+    return anterior;
+  }
+
+  @Override
+  public void add(int index, T hijo) {
+    elementos.add(index, hijo);
+    modCount++;
+    tomar(hijo);
+    modificado.run();
+  }
+
+  @Override
+  public T remove(int index) {
+    T hijo = elementos.remove(index);
+    modCount++;
+    soltar(hijo);
+    modificado.run();
+    return hijo;
+  }
+
+  @Override
+  public void clear() {
+    for (T hijo : elementos) {
+      enlazar.accept(hijo, null);
+    }
+    elementos.clear();
+    modCount++;
+    claves = new int[CAPACIDAD_INICIAL];
+    valores = new Object[CAPACIDAD_INICIAL];
+    ocupadas = 0;
+    repetidos = 0;
+    modificado.run();
+  }
+
+  /**
+   * Ordena los hijos sin tocar el índice, ya que no cambian ni sus números ni cuáles son. La
+   * ordenación heredada los reemplaza uno a uno y dejaría repetidos pasajeros.
+   *
+   * @param c Orden de los hijos
+   */
+  @Override
+  public void sort(Comparator<? super T> c) {
+    elementos.sort(c);
+    modCount++;
+    modificado.run();
+  }
+
+  /**
+   * Indica si la lista tiene un hijo igual, es decir, del mismo tipo y con el mismo número, sin
+   * recorrerla.
+   *
+   * @param o Objeto a buscar
+   * @return true si hay un hijo con su número
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean contains(Object o) {
+    if (o == null || elementos.isEmpty()) {
+      return false;
+    }
+    Object primero = elementos.get(0);
+    if (primero.getClass() != o.getClass()) {
+      return elementos.contains(o);
+    }
+    return buscar(numero.applyAsInt((T) o)) != null;
+  }
+
+  /**
+   * Añade un hijo al índice y lo enlaza con esta lista.
+   *
+   * @param hijo Hijo añadido
+   */
+  private void tomar(T hijo) {
+    if (hijo == null) {
+      return;
+    }
+    enlazar.accept(hijo, this);
+    ponerEnIndice(hijo);
+  }
+
+  /**
+   * Quita un hijo del índice y lo desenlaza de esta lista.
+   *
+   * @param hijo Hijo quitado
+   */
+  private void soltar(T hijo) {
+    if (hijo == null) {
+      return;
+    }
+    int clave = numero.applyAsInt(hijo);
+    quitarDelIndice(hijo, clave);
+    if (buscar(clave) != hijo && (repetidos == 0 || !contieneInstancia(hijo))) {
+      enlazar.accept(hijo, null);
+    }
+  }
+
+  /**
+   * Indica si un hijo sigue en la lista, por identidad. Solo hace falta mirarlo si hay números
+   * repetidos, porque entonces puede estar dos veces.
+   *
+   * @param hijo Hijo a buscar
+   * @return true si la lista lo contiene
+   */
+  private boolean contieneInstancia(T hijo) {
+    for (T otro : elementos) {
+      if (otro == hijo) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Pone un hijo en la tabla, salvo que ya haya otro con su número.
+   *
+   * @param hijo Hijo a indexar
+   */
+  private void ponerEnIndice(T hijo) {
+    if ((ocupadas + 1) * 2 > claves.length) {
+      redimensionar(claves.length * 2);
+    }
+    int clave = numero.applyAsInt(hijo);
+    int mascara = claves.length - 1;
+    int i = mezclar(clave) & mascara;
+    while (valores[i] != null) {
+      if (claves[i] == clave) {
+        repetidos++;
+        return;
+      }
+      i = (i + 1) & mascara;
+    }
+    claves[i] = clave;
+    valores[i] = hijo;
+    ocupadas++;
+  }
+
+  /**
+   * Quita un hijo de la tabla. Si la celda de su número era de otro hijo repetido, solo se
+   * descuenta; si era suya y hay repetidos, se busca en la lista otro hijo con ese número (que
+   * puede ser el mismo, si estaba dos veces).
+   *
+   * @param hijo Hijo a quitar
+   * @param clave Número con el que estaba indexado
+   */
+  private void quitarDelIndice(T hijo, int clave) {
+    int mascara = claves.length - 1;
+    int i = mezclar(clave) & mascara;
+    while (valores[i] != null && claves[i] != clave) {
+      i = (i + 1) & mascara;
+    }
+    if (valores[i] == null) {
+      return;
+    }
+    if (valores[i] != hijo) {
+      repetidos--;
+      return;
+    }
+
+    if (repetidos > 0) {
+      for (T otro : elementos) {
+        if (numero.applyAsInt(otro) == clave) {
+          valores[i] = otro;
+          repetidos--;
+          return;
+        }
+      }
+    }
+    borrarCelda(i);
+  }
+
+  /**
+   * Libera una celda y recoloca las siguientes del mismo grupo, para que las búsquedas no se
+   * corten en el hueco.
+   *
+   * @param libre Celda a liberar
+   */
+  private void borrarCelda(int libre) {
+    int mascara = claves.length - 1;
+    valores[libre] = null;
+    ocupadas--;
+    for (int i = (libre + 1) & mascara; valores[i] != null; i = (i + 1) & mascara) {
+      int ideal = mezclar(claves[i]) & mascara;
+      // Se mueve si su posición ideal no está entre el hueco y ella (de forma circular)
+      boolean mover = libre <= i ? ideal <= libre || ideal > i : ideal <= libre && ideal > i;
+      if (mover) {
+        claves[libre] = claves[i];
+        valores[libre] = valores[i];
+        valores[i] = null;
+        libre = i;
+      }
+    }
+  }
+
+  /**
+   * Cambia el tamaño de la tabla y vuelve a colocar sus entradas.
+   *
+   * @param capacidad Nueva capacidad, potencia de dos
+   */
+  private void redimensionar(int capacidad) {
+    int[] viejasClaves = claves;
+    Object[] viejosValores = valores;
+    claves = new int[capacidad];
+    valores = new Object[capacidad];
+    int mascara = capacidad - 1;
+    for (int j = 0; j < viejosValores.length; j++) {
+      if (viejosValores[j] == null) {
+        continue;
+      }
+      int i = mezclar(viejasClaves[j]) & mascara;
+      while (valores[i] != null) {
+        i = (i + 1) & mascara;
+      }
+      claves[i] = viejasClaves[j];
+      valores[i] = viejosValores[j];
+    }
+  }
+
+  /**
+   * Dispersa un número para repartir en la tabla los números consecutivos de un nivel.
+   *
+   * @param clave Número
+   * @return Valor disperso
+   */
+  private static int mezclar(int clave) {
+    int h = clave * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,271 @@
+package com.openwarehouses.models;
+
+/**
+ * Clave de una ubicación: los números de pasillo, estantería, altura y posición empaquetados en
+ * un {@code long}, 16 bits cada uno. Se compara, ordena y dispersa sobre ese valor, sin cadenas;
+ * el código {@code pasillo.estanteria.altura.posicion} solo se escribe al mostrarlo o imprimirlo.
+ *
+ * <p>El orden de las claves es el de la jerarquía: por pasillo, luego estantería, altura y
+ * posición.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public final class LocationKey implements Comparable<LocationKey> {
+  /** Mayor número que admite cada nivel de la clave. */
+  public static final int MAX_NUMERO = 0xFFFF;
+
+  /** Bits de cada número dentro de la clave. */
+  private static final int BITS = 16;
+
+  /** Niveles del código: pasillo, estantería, altura y posición. */
+  private static final int NIVELES = 4;
+
+  /** Cifras máximas de un número en un código ({@value #MAX_NUMERO} tiene cinco). */
+  private static final int MAX_CIFRAS = 5;
+
+  /** Números empaquetados, el pasillo en los bits altos. */
+  private final long valor;
+
+  /**
+   * Constructor privado; las claves se crean con {@link #of} o {@link #fromLong}.
+   *
+   * @param valor Números empaquetados
+   */
+  private LocationKey(long valor) {
+    this.valor = valor;
+  }
+
+  /**
+   * Crea la clave de una ubicación.
+   *
+   * @param numeroPasillo Número del pasillo
+   * @param numeroEstanteria Número de la estantería
+   * @param numeroAltura Número de la altura
+   * @param numeroPosicion Número de la posición
+   * @return Clave de la ubicación
+   * @throws IllegalArgumentException Si algún número está fuera de 0..{@value #MAX_NUMERO}
+   */
+  public static LocationKey of(
+      int numeroPasillo, int numeroEstanteria, int numeroAltura, int numeroPosicion) {
+    return new LocationKey(pack(numeroPasillo, numeroEstanteria, numeroAltura, numeroPosicion));
+  }
+
+  /**
+   * Empaqueta los números de una ubicación sin crear ningún objeto, para los recorridos masivos.
+   *
+   * @param numeroPasillo Número del pasillo
+   * @param numeroEstanteria Número de la estantería
+   * @param numeroAltura Número de la altura
+   * @param numeroPosicion Número de la posición
+   * @return Valor de la clave
+   * @throws IllegalArgumentException Si algún número está fuera de 0..{@value #MAX_NUMERO}
+   */
+  public static long pack(
+      int numeroPasillo, int numeroEstanteria, int numeroAltura, int numeroPosicion) {
+    if (!admite(numeroPasillo, numeroEstanteria, numeroAltura, numeroPosicion)) {
+      throw new IllegalArgumentException("Número de ubicación fuera de rango: " + numeroPasillo
+          + "." + numeroEstanteria + "." + numeroAltura + "." + numeroPosicion);
+    }
+    return (long) numeroPasillo << (3 * BITS) | (long) numeroEstanteria << (2 * BITS)
+        | (long) numeroAltura << BITS | numeroPosicion;
+  }
+
+  /**
+   * Recupera una clave a partir de su valor empaquetado.
+   *
+   * @param valor Valor obtenido con {@link #toLong} o {@link #pack}
+   * @return Clave
+   */
+  public static LocationKey fromLong(long valor) {
+    return new LocationKey(valor);
+  }
+
+  /**
+   * Indica si un número cabe en una clave.
+   *
+   * @param numero Número de cualquier nivel
+   * @return true si está entre 0 y {@value #MAX_NUMERO}
+   */
+  public static boolean admite(int numero) {
+    return numero >= 0 && numero <= MAX_NUMERO;
+  }
+
+  /**
+   * Indica si los números de una ubicación caben en una clave.
+   *
+   * @param numeroPasillo Número del pasillo
+   * @param numeroEstanteria Número de la estantería
+   * @param numeroAltura Número de la altura
+   * @param numeroPosicion Número de la posición
+   * @return true si todos están entre 0 y {@value #MAX_NUMERO}
+   */
+  public static boolean admite(
+      int numeroPasillo, int numeroEstanteria, int numeroAltura, int numeroPosicion) {
+    return admite(numeroPasillo) && admite(numeroEstanteria) && admite(numeroAltura)
+        && admite(numeroPosicion);
+  }
+
+  /**
+   * Lee un código como el de una etiqueta ({@code 12.3.4.7}) sin crear cadenas intermedias. Se
+   * aceptan también guiones o barras como separador y espacios alrededor.
+   *
+   * @param codigo Código leído
+   * @return Clave del código, o null si no tiene el formato esperado o algún número no cabe
+   */
+  public static LocationKey parse(CharSequence codigo) {
+    if (codigo == null) {
+      return null;
+    }
+    int inicio = 0;
+    int fin = codigo.length();
+    while (inicio < fin && Character.isWhitespace(codigo.charAt(inicio))) {
+      inicio++;
+    }
+    while (fin > inicio && Character.isWhitespace(codigo.charAt(fin - 1))) {
+      fin--;
+    }
+
+    long clave = 0;
+    int numero = 0;
+    int nivel = 0;
+    int cifras = 0;
+    for (int i = inicio; i < fin; i++) {
+      char c = codigo.charAt(i);
+      if (c >= '0' && c <= '9') {
+        numero = numero * 10 + (c - '0');
+        if (++cifras > MAX_CIFRAS || numero > MAX_NUMERO) {
+          return null;
+        }
+      } else if ((c == '.' || c == '-' || c == '/') && cifras > 0 && nivel < NIVELES - 1) {
+        clave = clave << BITS | numero;
+        numero = 0;
+        cifras = 0;
+        nivel++;
+      } else {
+        return null;
+      }
+    }
+    return nivel == NIVELES - 1 && cifras > 0 ? new LocationKey(clave << BITS | numero) : null;
+  }
+
+  /**
+   * Escribe el código de una clave empaquetada.
+   *
+   * @param valor Valor de la clave
+   * @return Código {@code pasillo.estanteria.altura.posicion}
+   */
+  public static String toString(long valor) {
+    return appendTo(new StringBuilder(4 * MAX_CIFRAS + NIVELES - 1), valor).toString();
+  }
+
+  /**
+   * Añade a un texto el código de una clave empaquetada, sin cadenas intermedias.
+   *
+   * @param destino Texto de destino
+   * @param valor Valor de la clave
+   * @return El mismo texto, para encadenar llamadas
+   */
+  public static StringBuilder appendTo(StringBuilder destino, long valor) {
+    return destino.append(numero(valor, 0)).append('.').append(numero(valor, 1)).append('.')
+        .append(numero(valor, 2)).append('.').append(numero(valor, 3));
+  }
+
+  /**
+   * Extrae un nivel de una clave empaquetada.
+   *
+   * @param valor Valor de la clave
+   * @param nivel 0 para el pasillo, 1 la estantería, 2 la altura y 3 la posición
+   * @return Número de ese nivel
+   */
+  static int numero(long valor, int nivel) {
+    return (int) (valor >>> ((NIVELES - 1 - nivel) * BITS)) & MAX_NUMERO;
+  }
+
+  /**
+   * Obtiene el valor empaquetado, para guardarlo sin objetos en arrays o etiquetas.
+   *
+   * @return Valor de la clave
+   */
+  public long toLong() {
+    return valor;
+  }
+
+  /**
+   * Obtiene el número del pasillo.
+   *
+   * @return Número del pasillo
+   */
+  public int getNumeroPasillo() {
+    return numero(valor, 0);
+  }
+
+  /**
+   * Obtiene el número de la estantería.
+   *
+   * @return Número de la estantería
+   */
+  public int getNumeroEstanteria() {
+    return numero(valor, 1);
+  }
+
+  /**
+   * Obtiene el número de la altura.
+   *
+   * @return Número de la altura
+   */
+  public int getNumeroAltura() {
+    return numero(valor, 2);
+  }
+
+  /**
+   * Obtiene el número de la posición.
+   *
+   * @return Número de la posición
+   */
+  public int getNumeroPosicion() {
+    return numero(valor, 3);
+  }
+
+  /**
+   * Añade el código de la clave a un texto.
+   *
+   * @param destino Texto de destino
+   * @return El mismo texto, para encadenar llamadas
+   */
+  public StringBuilder appendTo(StringBuilder destino) {
+    return appendTo(destino, valor);
+  }
+
+  @Override
+  public int compareTo(LocationKey otra) {
+    return Long.compareUnsigned(valor, otra.valor);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || o instanceof LocationKey otra && valor == otra.valor;
+  }
+
+  /**
+   * Genera un código hash mezclando el valor; plegar sin más sus dos mitades daría el mismo hash
+   * a todas las claves de la forma {@code a.b.a.b}.
+   *
+   * @return código hash de la clave
+   */
+  @Override
+  public int hashCode() {
+    return Long.hashCode(valor * 0x9E3779B97F4A7C15L);
+  }
+
+  /**
+   * Código de la ubicación.
+   *
+   * @return Código {@code pasillo.estanteria.altura.posicion}
+   */
+  @Override
+  public String toString() {
+    return toString(valor);
+  }
+}
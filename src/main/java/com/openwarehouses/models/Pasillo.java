@@ -1,6 +1,5 @@
 package com.openwarehouses.models;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -15,12 +14,21 @@ public class Pasillo {
   /** Número del pasillo. */
   private int numero;
 
-  /** Lista de estanterías en el pasillo. */
-  private List<Estanteria> estanterias;
+  /** Lista que contiene el pasillo, avisada al cambiar su número (no se serializa en JSON). */
+  transient ListaIndexada<Almacen, Pasillo> lista;
+
+  /** Lista de estanterías en el pasillo, indexada por número. */
+  private ListaIndexada<Pasillo, Estanteria> estanterias;
+
+  /**
+   * Copia serializada del pasillo guardada por el almacenamiento, o null si el pasillo ha
+   * cambiado desde entonces (no se serializa en JSON).
+   */
+  private transient byte[] serializado;
 
   /** Constructor vacío para JSON serialization. */
   public Pasillo() {
-    this.estanterias = new ArrayList<>();
+    this.estanterias = nuevaLista(null);
   }
 
   /**
@@ -30,7 +38,7 @@ public class Pasillo {
    */
   public Pasillo(int numero) {
     this.numero = numero;
-    this.estanterias = new ArrayList<>();
+    this.estanterias = nuevaLista(null);
   }
 
   /**
@@ -48,7 +56,12 @@ public class Pasillo {
    * @param numero número del pasillo
    */
   public void setNumero(int numero) {
+    serializado = null;
+    int anterior = this.numero;
     this.numero = numero;
+    if (lista != null && anterior != numero) {
+      lista.renumerado(this, anterior);
+    }
   }
 
   /**
@@ -66,7 +79,8 @@ public class Pasillo {
    * @param estanterias lista de estanterías
    */
   public void setEstanterias(List<Estanteria> estanterias) {
-    this.estanterias = estanterias;
+    serializado = null;
+    this.estanterias = nuevaLista(estanterias);
   }
 
   /**
@@ -75,6 +89,7 @@ public class Pasillo {
    * @param estanteria estantería a agregar
    */
   public void addEstanteria(Estanteria estanteria) {
+    serializado = null;
     if (!estanterias.contains(estanteria)) {
       estanterias.add(estanteria);
     }
@@ -87,7 +102,7 @@ public class Pasillo {
    * @return estantería encontrada o null si no existe
    */
   public Estanteria getEstanteriaByNumero(int num) {
-    return estanterias.stream().filter(e -> e.getNumero() == num).findFirst().orElse(null);
+    return estanterias.buscar(num);
   }
 
   /**
@@ -96,9 +111,52 @@ public class Pasillo {
    * @param estanteria estantería a eliminar
    */
   public void removeEstanteria(Estanteria estanteria) {
+    serializado = null;
     estanterias.remove(estanteria);
   }
 
+  /**
+   * Crea la lista de estanterías indexada por número. Cada estantería queda enlazada con ella para
+   * avisarla si cambia de número, y cualquier cambio de la lista descarta la copia serializada del
+   * pasillo.
+   *
+   * @param iniciales Estanterías iniciales, o null para empezar vacía
+   * @return Lista de estanterías
+   */
+  private ListaIndexada<Pasillo, Estanteria> nuevaLista(List<Estanteria> iniciales) {
+    return new ListaIndexada<>(
+        this, Estanteria::getNumero, (h, lista) -> h.lista = lista, this::marcarModificado,
+        iniciales);
+  }
+
+  /**
+   * Obtiene la copia serializada del pasillo que guardó el almacenamiento. Los métodos que
+   * modifican el pasillo la descartan; los cambios de sus hijos se descartan en los propios
+   * hijos.
+   *
+   * @return Bytes serializados, o null si el pasillo ha cambiado desde que se serializó
+   */
+  public byte[] getSerializado() {
+    return serializado;
+  }
+
+  /**
+   * Guarda la copia serializada del pasillo, para reutilizarla mientras no cambie.
+   *
+   * @param serializado Bytes serializados
+   */
+  public void setSerializado(byte[] serializado) {
+    this.serializado = serializado;
+  }
+
+  /**
+   * Descarta la copia serializada del pasillo, por ejemplo al reordenar directamente su lista
+   * de estanterías.
+   */
+  public void marcarModificado() {
+    serializado = null;
+  }
+
   @Override
   /**
    * Compara dos objetos Pasillo por su número.
@@ -4,7 +4,7 @@ import java.util.Objects;
 
 /**
  * Modelo que representa una Posición dentro de una Altura. Una Posición es el nivel más bajo de la
- * jerarquía. Genera un código identificador basado en la jerarquía:
+ * jerarquía. Su {@link LocationKey} se deduce de la jerarquía y se muestra con el código
  * pasillo.estanteria.altura.posicion
  *
  * @author German
@@ -16,8 +16,14 @@ public class Posicion {
   /** Número de la posición. */
   private int numero;
 
-  /** Código de la posición (formato: pasillo.estanteria.altura.posicion). */
-  private String codigo;
+  /**
+   * Altura que contiene la posición, de la que se deduce su clave y a la que se avisa al cambiar
+   * su número (no se serializa en JSON).
+   */
+  transient Altura altura;
+
+  /** Clave de la posición cuando no está en una altura de la que deducirla. */
+  private LocationKey clave;
 
   /** Constructor vacío para JSON serialization. */
   public Posicion() {}
@@ -46,25 +52,52 @@ public class Posicion {
    * @param numero número de la posición
    */
   public void setNumero(int numero) {
+    int anterior = this.numero;
     this.numero = numero;
+    if (altura != null && anterior != numero) {
+      altura.renumerarPosicion(this, anterior);
+    }
+  }
+
+  /**
+   * Obtiene la clave de la posición. Dentro de una altura se deduce de su ruta; si no, es la
+   * última que se le asignó.
+   *
+   * @return clave de la posición, o null si no se conoce
+   */
+  public LocationKey getClave() {
+    LocationKey deducida = altura != null ? altura.clavePosicion(numero) : null;
+    return deducida != null ? deducida : clave;
+  }
+
+  /**
+   * Establece la clave de la posición, que solo se usa mientras no esté en una altura.
+   *
+   * @param clave clave de la posición
+   */
+  public void setClave(LocationKey clave) {
+    this.clave = clave;
   }
 
   /**
-   * Obtiene el código de la posición.
+   * Obtiene el código de la posición, escrito a partir de su clave en cada llamada.
    *
-   * @return código de la posición
+   * @return código de la posición (formato: pasillo.estanteria.altura.posicion), o null si no se
+   *     conoce
    */
   public String getCodigo() {
-    return codigo;
+    LocationKey actual = getClave();
+    return actual != null ? actual.toString() : null;
   }
 
   /**
-   * Establece el código de la posición.
+   * Establece el código de la posición, por ejemplo el guardado en un archivo antiguo. Se guarda
+   * como clave; un código que no se pueda leer se descarta.
    *
    * @param codigo código de la posición
    */
   public void setCodigo(String codigo) {
-    this.codigo = codigo;
+    this.clave = LocationKey.parse(codigo);
   }
 
   @Override
@@ -102,6 +135,7 @@ public class Posicion {
    * @return cadena representando la posición
    */
   public String toString() {
-    return "Posición " + numero + (codigo != null ? " (" + codigo + ")" : "");
+    String actual = getCodigo();
+    return "Posición " + numero + (actual != null ? " (" + actual + ")" : "");
   }
 }
@@ -0,0 +1,625 @@
+package com.openwarehouses.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import com.openwarehouses.models.Almacen;
+import com.openwarehouses.models.Altura;
+import com.openwarehouses.models.Estanteria;
+import com.openwarehouses.models.Pasillo;
+
+/**
+ * Formato binario de los archivos de datos. Sustituye al JSON con sangrías como formato de
+ * guardado: los números se escriben como varint y los códigos de posición no se guardan, ya que
+ * se deducen de la ruta.
+ *
+ * <p>Todos los archivos empiezan por {@code "OWHS"} y un byte de versión, y terminan con un CRC32
+ * (4 bytes big-endian) sobre todo lo anterior. En la versión 2 un byte indica el tipo:
+ *
+ * <pre>
+ * 'I' índice    pin, secuencia del diario, nº almacenes y por cada uno:
+ *               nombre, archivo, nº pasillos, nº posiciones
+ * 'A' almacén   secuencia del diario, nombre, nº pasillos y por cada uno: número (zigzag),
+ *               nº estanterías ... hasta los números de posición
+ * </pre>
+ *
+ * <p>La versión 3 solo añade la secuencia del diario al principio de los archivos de almacén; los
+ * de la versión 2 se leen como si la secuencia fuera 0.
+ *
+ * <p>La versión 1 (un único archivo con pin, secuencia y todos los almacenes) solo se lee, para
+ * convertir los datos de versiones anteriores.
+ *
+ * <p>Al codificar, cada pasillo, estantería y altura guarda sus bytes en el modelo (ver
+ * {@link Altura#getSerializado()}). En el siguiente guardado, las partes que no han cambiado se
+ * copian tal cual y solo se recorren las posiciones de las que sí, de modo que el coste es
+ * proporcional a lo modificado.
+ *
+ * <p>La lectura trabaja sobre un {@link ByteBuffer} con accesos absolutos, de modo que puede
+ * decodificar directamente una región de archivo mapeada en memoria sin copiarla al heap.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+final class BinarySnapshot {
+  /** Cabecera que identifica el formato. */
+  private static final byte[] MAGIC = {'O', 'W', 'H', 'S'};
+
+  /** Versión de un único archivo con todos los almacenes. */
+  private static final int VERSION_SINGLE = 1;
+
+  /** Primera versión con índice y un archivo por almacén. */
+  private static final int VERSION_SHARDS = 2;
+
+  /** Versión actual: los archivos de almacén llevan la secuencia del diario que incluyen. */
+  static final int VERSION = 3;
+
+  /** Tipo de archivo: índice. */
+  private static final int KIND_INDEX = 'I';
+
+  /** Tipo de archivo: almacén. */
+  private static final int KIND_ALMACEN = 'A';
+
+  /**
+   * Resumen de un almacén en el índice.
+   *
+   * @param nombre Nombre del almacén
+   * @param archivo Archivo donde se guarda su jerarquía
+   * @param numPasillos Número de pasillos
+   * @param numPosiciones Número total de posiciones
+   */
+  record IndexEntry(String nombre, String archivo, int numPasillos, int numPosiciones) {}
+
+  /**
+   * Contenido del índice.
+   *
+   * @param pin PIN guardado, o null
+   * @param journalSeq Última secuencia del diario incluida en los archivos de almacén
+   * @param entries Almacenes, en orden
+   */
+  record Index(String pin, long journalSeq, List<IndexEntry> entries) {}
+
+  /**
+   * Contenido de un archivo de la versión 1.
+   *
+   * @param pin PIN guardado, o null
+   * @param journalSeq Secuencia del diario
+   * @param almacenes Almacenes completos
+   */
+  record Single(String pin, long journalSeq, List<Almacen> almacenes) {}
+
+  /** Clase de utilidades: no se instancia. */
+  private BinarySnapshot() {}
+
+  /**
+   * Indica si los datos empiezan con la cabecera del formato binario.
+   *
+   * @param data Contenido del archivo
+   * @return true si es un archivo binario de almacenes
+   */
+  static boolean isBinary(ByteBuffer data) {
+    if (data.limit() < MAGIC.length) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (data.get(i) != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Codifica el índice.
+   *
+   * @param index Contenido del índice
+   * @return Bytes del archivo
+   */
+  static byte[] encodeIndex(Index index) {
+    Output out = header(KIND_INDEX);
+    out.string(index.pin());
+    out.varint(index.journalSeq());
+    out.varint(index.entries().size());
+    for (IndexEntry entry : index.entries()) {
+      out.string(entry.nombre());
+      out.string(entry.archivo());
+      out.varint(entry.numPasillos());
+      out.varint(entry.numPosiciones());
+    }
+    return out.finish();
+  }
+
+  /**
+   * Decodifica el índice.
+   *
+   * @param data Contenido del archivo
+   * @return Índice leído
+   * @throws IOException Si el formato, la versión o la suma de verificación no son válidos
+   */
+  static Index decodeIndex(ByteBuffer data) throws IOException {
+    Input in = open(data, VERSION, KIND_INDEX);
+    String pin = in.string();
+    long seq = in.varint();
+    int count = in.count();
+    List<IndexEntry> entries = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      entries.add(new IndexEntry(in.string(), in.string(), (int) in.varint(), (int) in.varint()));
+    }
+    in.finish();
+    return new Index(pin, seq, entries);
+  }
+
+  /**
+   * Codifica la jerarquía completa de un almacén. Si nada ha cambiado desde la última
+   * codificación se devuelven los mismos bytes sin volver a generarlos, con la secuencia de
+   * entonces: el contenido no ha cambiado desde esa secuencia, así que sigue siendo válida.
+   *
+   * @param almacen Almacén a guardar, ya cargado
+   * @param journalSeq Última secuencia del diario incluida en el almacén
+   * @return Bytes del archivo; no deben modificarse
+   */
+  static byte[] encodeAlmacen(Almacen almacen, long journalSeq) {
+    List<Pasillo> pasillos = almacen.getPasillos();
+    byte[][] partes = new byte[pasillos.size()][];
+    boolean reutilizado = encodeHijos(
+        pasillos, partes, Pasillo::getSerializado, BinarySnapshot::encodePasillo);
+    if (reutilizado && almacen.getSerializado() != null) {
+      return almacen.getSerializado();
+    }
+
+    int length = 64;
+    for (byte[] parte : partes) {
+      length += parte.length;
+    }
+    Output out = header(KIND_ALMACEN, length);
+    out.varint(journalSeq);
+    out.string(almacen.getNombre());
+    writeHijos(out, partes);
+    byte[] data = out.finish();
+    almacen.setSerializado(data);
+    return data;
+  }
+
+  /**
+   * Codifica un pasillo, reutilizando sus bytes si ni él ni sus estanterías han cambiado.
+   *
+   * @param pasillo Pasillo a codificar
+   * @return Bytes del pasillo
+   */
+  private static byte[] encodePasillo(Pasillo pasillo) {
+    byte[] data = encodeNivel(
+        pasillo.getSerializado(),
+        pasillo.getNumero(),
+        pasillo.getEstanterias(),
+        Estanteria::getSerializado,
+        BinarySnapshot::encodeEstanteria);
+    pasillo.setSerializado(data);
+    return data;
+  }
+
+  /**
+   * Codifica una estantería, reutilizando sus bytes si ni ella ni sus alturas han cambiado.
+   *
+   * @param estanteria Estantería a codificar
+   * @return Bytes de la estantería
+   */
+  private static byte[] encodeEstanteria(Estanteria estanteria) {
+    byte[] data = encodeNivel(
+        estanteria.getSerializado(),
+        estanteria.getNumero(),
+        estanteria.getAlturas(),
+        Altura::getSerializado,
+        BinarySnapshot::encodeAltura);
+    estanteria.setSerializado(data);
+    return data;
+  }
+
+  /**
+   * Codifica una altura con los números de sus posiciones, si ha cambiado.
+   *
+   * @param altura Altura a codificar
+   * @return Bytes de la altura
+   */
+  private static byte[] encodeAltura(Altura altura) {
+    if (altura.getSerializado() != null) {
+      return altura.getSerializado();
+    }
+
+    int[] posiciones = altura.getNumerosPosiciones();
+    Output out = new Output(10 + 5 * posiciones.length);
+    out.zigzag(altura.getNumero());
+    out.varint(posiciones.length);
+    for (int posicion : posiciones) {
+      out.zigzag(posicion);
+    }
+    byte[] data = out.toArray();
+    altura.setSerializado(data);
+    return data;
+  }
+
+  /**
+   * Codifica un elemento con hijos: su número, el número de hijos y los bytes de cada hijo.
+   *
+   * @param anterior Bytes de la última codificación del elemento, o null si ha cambiado
+   * @param numero Número del elemento
+   * @param hijos Hijos del elemento
+   * @param guardado Bytes guardados de un hijo
+   * @param codificar Codificación de un hijo
+   * @param <T> Tipo de los hijos
+   * @return Bytes anteriores si nada ha cambiado, o los bytes nuevos
+   */
+  private static <T> byte[] encodeNivel(
+      byte[] anterior,
+      int numero,
+      List<T> hijos,
+      Function<T, byte[]> guardado,
+      Function<T, byte[]> codificar) {
+    byte[][] partes = new byte[hijos.size()][];
+    if (encodeHijos(hijos, partes, guardado, codificar) && anterior != null) {
+      return anterior;
+    }
+
+    int length = 10;
+    for (byte[] parte : partes) {
+      length += parte.length;
+    }
+    Output out = new Output(length);
+    out.zigzag(numero);
+    writeHijos(out, partes);
+    return out.toArray();
+  }
+
+  /**
+   * Codifica los hijos de un elemento.
+   *
+   * @param hijos Hijos a codificar
+   * @param partes Bytes de cada hijo, rellenado aquí
+   * @param guardado Bytes guardados de un hijo
+   * @param codificar Codificación de un hijo
+   * @param <T> Tipo de los hijos
+   * @return true si todos los hijos reutilizaron sus bytes guardados
+   */
+  private static <T> boolean encodeHijos(
+      List<T> hijos,
+      byte[][] partes,
+      Function<T, byte[]> guardado,
+      Function<T, byte[]> codificar) {
+    boolean reutilizado = true;
+    for (int i = 0; i < partes.length; i++) {
+      T hijo = hijos.get(i);
+      byte[] previo = guardado.apply(hijo);
+      partes[i] = codificar.apply(hijo);
+      reutilizado &= partes[i] == previo;
+    }
+    return reutilizado;
+  }
+
+  /**
+   * Escribe el número de hijos y sus bytes.
+   *
+   * @param out Búfer de salida
+   * @param partes Bytes de cada hijo, en orden
+   */
+  private static void writeHijos(Output out, byte[][] partes) {
+    out.varint(partes.length);
+    for (byte[] parte : partes) {
+      out.bytes(parte);
+    }
+  }
+
+  /**
+   * Decodifica la jerarquía de un almacén.
+   *
+   * @param data Contenido del archivo
+   * @return Almacén leído
+   * @throws IOException Si el formato, la versión o la suma de verificación no son válidos
+   */
+  static Almacen decodeAlmacen(ByteBuffer data) throws IOException {
+    Input in = open(data, VERSION, KIND_ALMACEN);
+    if (version(data) >= VERSION) {
+      in.varint();
+    }
+    Almacen almacen = readAlmacen(in);
+    in.finish();
+    return almacen;
+  }
+
+  /**
+   * Obtiene la última secuencia del diario incluida en un archivo de almacén, sin decodificarlo.
+   *
+   * @param data Contenido del archivo, ya validado con {@link #decodeAlmacen}
+   * @return Secuencia, o 0 si el archivo es de la versión 2
+   * @throws IOException Si los datos están truncados
+   */
+  static long journalSeq(ByteBuffer data) throws IOException {
+    if (version(data) < VERSION) {
+      return 0;
+    }
+    return new Input(data, MAGIC.length + 2, data.limit() - 4).varint();
+  }
+
+  /**
+   * Obtiene la suma de verificación guardada al final de un archivo codificado.
+   *
+   * @param data Contenido del archivo
+   * @return CRC32 del contenido
+   */
+  static long checksum(byte[] data) {
+    return checksum(ByteBuffer.wrap(data));
+  }
+
+  /**
+   * Obtiene la suma de verificación guardada al final de un archivo codificado.
+   *
+   * @param data Contenido del archivo
+   * @return CRC32 del contenido
+   */
+  static long checksum(ByteBuffer data) {
+    return data.getInt(data.limit() - 4) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Indica si los datos son un archivo de la versión 1.
+   *
+   * @param data Contenido del archivo
+   * @return true si hay que convertirlo
+   */
+  static boolean isSingle(ByteBuffer data) {
+    return isBinary(data) && data.limit() > MAGIC.length && data.get(MAGIC.length) == VERSION_SINGLE;
+  }
+
+  /**
+   * Obtiene la versión de un archivo.
+   *
+   * @param data Contenido del archivo, con la cabecera ya comprobada
+   * @return Versión del formato
+   */
+  private static int version(ByteBuffer data) {
+    return data.get(MAGIC.length) & 0xFF;
+  }
+
+  /**
+   * Decodifica un archivo de la versión 1.
+   *
+   * @param data Contenido del archivo
+   * @return Contenido completo
+   * @throws IOException Si el formato o la suma de verificación no son válidos
+   */
+  static Single decodeSingle(ByteBuffer data) throws IOException {
+    Input in = open(data, VERSION_SINGLE, -1);
+    String pin = in.string();
+    long seq = in.varint();
+    int count = in.count();
+    List<Almacen> almacenes = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      almacenes.add(readAlmacen(in));
+    }
+    in.finish();
+    return new Single(pin, seq, almacenes);
+  }
+
+  /**
+   * Crea el búfer de salida con la cabecera de la versión actual.
+   *
+   * @param kind Tipo de archivo
+   * @return Búfer listo para el contenido
+   */
+  private static Output header(int kind) {
+    return header(kind, 8192);
+  }
+
+  /**
+   * Crea el búfer de salida con la cabecera de la versión actual.
+   *
+   * @param kind Tipo de archivo
+   * @param capacity Tamaño previsto del archivo
+   * @return Búfer listo para el contenido
+   */
+  private static Output header(int kind, int capacity) {
+    Output out = new Output(capacity);
+    out.bytes(MAGIC);
+    out.raw(VERSION);
+    out.raw(kind);
+    return out;
+  }
+
+  /**
+   * Lee un almacén con toda su jerarquía.
+   *
+   * @param in Lector posicionado sobre el almacén
+   * @return Almacén leído
+   * @throws IOException Si los datos están truncados
+   */
+  private static Almacen readAlmacen(Input in) throws IOException {
+    Almacen almacen = new Almacen(in.string());
+    int numPasillos = in.count();
+    for (int p = 0; p < numPasillos; p++) {
+      Pasillo pasillo = new Pasillo(in.zigzag());
+      int numEstanterias = in.count();
+      for (int e = 0; e < numEstanterias; e++) {
+        Estanteria estanteria = new Estanteria(in.zigzag());
+        int numAlturas = in.count();
+        for (int h = 0; h < numAlturas; h++) {
+          Altura altura = new Altura(in.zigzag());
+          int[] posiciones = new int[in.count()];
+          for (int k = 0; k < posiciones.length; k++) {
+            posiciones[k] = in.zigzag();
+          }
+          altura.setNumerosPosiciones(posiciones);
+          estanteria.getAlturas().add(altura);
+        }
+        pasillo.getEstanterias().add(estanteria);
+      }
+      almacen.getPasillos().add(pasillo);
+    }
+    return almacen;
+  }
+
+  /**
+   * Valida cabecera, versión, tipo y suma de verificación.
+   *
+   * @param data Contenido del archivo
+   * @param version Versión esperada; con tipo se admiten también las anteriores que lo llevan
+   * @param kind Tipo esperado, o -1 si la versión no lleva tipo
+   * @return Lector posicionado sobre el contenido
+   * @throws IOException Si los datos no son un archivo válido del tipo esperado
+   */
+  private static Input open(ByteBuffer data, int version, int kind) throws IOException {
+    int headerLength = MAGIC.length + (kind < 0 ? 1 : 2);
+    if (!isBinary(data) || data.limit() < headerLength + 4) {
+      throw new IOException("No es un archivo binario de almacenes");
+    }
+    int found = version(data);
+    if (kind < 0 ? found != version : found < VERSION_SHARDS || found > version) {
+      throw new IOException("Versión de archivo no soportada: " + found);
+    }
+    if (kind >= 0 && data.get(MAGIC.length + 1) != kind) {
+      throw new IOException("Tipo de archivo inesperado: " + (char) data.get(MAGIC.length + 1));
+    }
+
+    int end = data.limit() - 4;
+    CRC32 crc = new CRC32();
+    // Sobre un búfer mapeado, CRC32 lee la memoria del archivo sin copiarla
+    crc.update(data.duplicate().position(0).limit(end));
+    if (crc.getValue() != checksum(data)) {
+      throw new IOException("Suma de verificación incorrecta");
+    }
+    return new Input(data, headerLength, end);
+  }
+
+  /** Búfer de escritura que crece según se necesita. */
+  private static final class Output {
+    private byte[] buf;
+    private int len;
+
+    private Output(int capacity) {
+      buf = new byte[capacity];
+    }
+
+    private void ensure(int extra) {
+      if (len + extra > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+      }
+    }
+
+    private void raw(int b) {
+      ensure(1);
+      buf[len++] = (byte) b;
+    }
+
+    private void bytes(byte[] b) {
+      ensure(b.length);
+      System.arraycopy(b, 0, buf, len, b.length);
+      len += b.length;
+    }
+
+    private void varint(long v) {
+      ensure(10);
+      while ((v & ~0x7FL) != 0) {
+        buf[len++] = (byte) ((v & 0x7F) | 0x80);
+        v >>>= 7;
+      }
+      buf[len++] = (byte) v;
+    }
+
+    private void zigzag(int v) {
+      varint(((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL);
+    }
+
+    private void string(String s) {
+      if (s == null) {
+        varint(0);
+        return;
+      }
+      byte[] b = s.getBytes(StandardCharsets.UTF_8);
+      varint(b.length + 1L);
+      bytes(b);
+    }
+
+    /** Devuelve los bytes escritos, sin copiarlos si ocupan todo el búfer. */
+    private byte[] toArray() {
+      return len == buf.length ? buf : Arrays.copyOf(buf, len);
+    }
+
+    /** Añade la suma de verificación y devuelve los bytes finales. */
+    private byte[] finish() {
+      CRC32 crc = new CRC32();
+      crc.update(buf, 0, len);
+      long value = crc.getValue();
+      raw((int) (value >>> 24));
+      raw((int) (value >>> 16));
+      raw((int) (value >>> 8));
+      raw((int) value);
+      return Arrays.copyOf(buf, len);
+    }
+  }
+
+  /** Lector secuencial con accesos absolutos sobre el contenido de un archivo. */
+  private static final class Input {
+    private final ByteBuffer data;
+    private final int end;
+    private int pos;
+
+    private Input(ByteBuffer data, int pos, int end) {
+      this.data = data;
+      this.pos = pos;
+      this.end = end;
+    }
+
+    private long varint() throws IOException {
+      long result = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        if (pos >= end) {
+          throw new IOException("Archivo binario truncado");
+        }
+        byte b = data.get(pos++);
+        result |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          return result;
+        }
+      }
+      throw new IOException("Varint demasiado largo");
+    }
+
+    private int zigzag() throws IOException {
+      int v = (int) varint();
+      return (v >>> 1) ^ -(v & 1);
+    }
+
+    private int count() throws IOException {
+      long n = varint();
+      if (n > end - pos) {
+        // Cada elemento ocupa al menos un byte
+        throw new IOException("Número de elementos no válido: " + n);
+      }
+      return (int) n;
+    }
+
+    private String string() throws IOException {
+      long n = varint();
+      if (n == 0) {
+        return null;
+      }
+      if (n - 1 > end - pos) {
+        throw new IOException("Cadena truncada en el archivo binario");
+      }
+      byte[] bytes = new byte[(int) (n - 1)];
+      data.get(pos, bytes);
+      pos += bytes.length;
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Comprueba que se ha consumido todo el contenido. */
+    private void finish() throws IOException {
+      if (pos != end) {
+        throw new IOException("Datos sobrantes en el archivo binario");
+      }
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package com.openwarehouses.services;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Diario de cambios de solo anexado. Cada línea es un {@link JournalEntry} en JSON con un número
+ * de secuencia creciente. La instantánea de {@link StorageService} guarda la última secuencia que
+ * incluye, de modo que al cargar solo se reaplican los registros posteriores.
+ *
+ * <p>Tras compactar, el diario empieza con una marca de secuencia para que la numeración continúe
+ * aunque no queden cambios pendientes.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+final class ChangeJournal {
+  /** Archivo del diario. */
+  private final Path path;
+
+  /** Gson compacto: un registro por línea. */
+  private final Gson gson = new Gson();
+
+  /** Última secuencia asignada, o -1 si aún no se ha leído el diario. */
+  private long lastSeq = -1;
+
+  /** Número de cambios presentes en el diario. */
+  private int size;
+
+  /** Indica si la última lectura encontró una línea dañada al final. */
+  private boolean damaged;
+
+  /**
+   * Constructor.
+   *
+   * @param path Archivo del diario
+   */
+  ChangeJournal(Path path) {
+    this.path = path;
+  }
+
+  /**
+   * Anexa los cambios al final del diario y los fuerza a disco, asignándoles secuencia.
+   *
+   * @param cambios Cambios a registrar
+   * @return Número de cambios pendientes de compactar tras el anexado
+   * @throws IOException Si falla la escritura
+   */
+  synchronized int append(List<JournalEntry> cambios) throws IOException {
+    ensureLoaded();
+    if (damaged) {
+      // Se descarta la línea incompleta para que los nuevos registros no queden detrás de ella
+      trimUpTo(0);
+    }
+    StringBuilder sb = new StringBuilder(cambios.size() * 64);
+    long seq = lastSeq;
+    for (JournalEntry cambio : cambios) {
+      cambio.setSeq(++seq);
+      sb.append(gson.toJson(cambio)).append('\n');
+    }
+
+    try (FileChannel channel = FileChannel.open(
+        path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+
+    lastSeq = seq;
+    size += cambios.size();
+    return size;
+  }
+
+  /**
+   * Obtiene la última secuencia asignada.
+   *
+   * @return Secuencia del último cambio registrado
+   */
+  synchronized long lastSeq() {
+    ensureLoaded();
+    return lastSeq;
+  }
+
+  /**
+   * Obtiene el número de cambios pendientes de compactar.
+   *
+   * @return Cambios en el diario
+   */
+  synchronized int size() {
+    ensureLoaded();
+    return size;
+  }
+
+  /**
+   * Garantiza que las nuevas secuencias sean posteriores a la de la instantánea cargada, aunque
+   * el diario se haya perdido.
+   *
+   * @param seq Secuencia incluida en la instantánea
+   */
+  synchronized void advanceTo(long seq) {
+    ensureLoaded();
+    lastSeq = Math.max(lastSeq, seq);
+  }
+
+  /** Descarta la secuencia y el tamaño conocidos para leerlos de nuevo del archivo. */
+  synchronized void reload() {
+    lastSeq = -1;
+  }
+
+  /**
+   * Lee los cambios con secuencia posterior a la indicada, en orden.
+   *
+   * @param seq Secuencia incluida en la instantánea
+   * @return Cambios a reaplicar
+   */
+  synchronized List<JournalEntry> readAfter(long seq) {
+    List<JournalEntry> cambios = new ArrayList<>();
+    for (JournalEntry entry : readAll()) {
+      if (!entry.isMarca() && entry.getSeq() > seq) {
+        cambios.add(entry);
+      }
+    }
+    return cambios;
+  }
+
+  /**
+   * Elimina del diario los cambios ya incluidos en una instantánea. Los posteriores se conservan
+   * reescribiendo el diario de forma atómica.
+   *
+   * @param seq Secuencia incluida en la instantánea escrita
+   * @throws IOException Si falla la reescritura
+   */
+  synchronized void trimUpTo(long seq) throws IOException {
+    List<JournalEntry> restantes = readAfter(seq);
+    StringBuilder sb = new StringBuilder();
+    sb.append(gson.toJson(JournalEntry.marca(Math.max(seq, lastSeq)))).append('\n');
+    for (JournalEntry entry : restantes) {
+      sb.append(gson.toJson(entry)).append('\n');
+    }
+
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(
+          temp,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(true);
+      }
+      try {
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    size = restantes.size();
+    damaged = false;
+  }
+
+  /**
+   * Borra el diario y reinicia la numeración.
+   *
+   * @throws IOException Si no se puede borrar el archivo
+   */
+  synchronized void clear() throws IOException {
+    Files.deleteIfExists(path);
+    lastSeq = 0;
+    size = 0;
+    damaged = false;
+  }
+
+  /** Lee el diario la primera vez para conocer la última secuencia y el número de cambios. */
+  private void ensureLoaded() {
+    if (lastSeq >= 0) {
+      return;
+    }
+    lastSeq = 0;
+    size = 0;
+    for (JournalEntry entry : readAll()) {
+      lastSeq = Math.max(lastSeq, entry.getSeq());
+      if (!entry.isMarca()) {
+        size++;
+      }
+    }
+  }
+
+  /**
+   * Lee todos los registros válidos del diario. La lectura se detiene en la primera línea dañada,
+   * que solo puede ser la última si el anexado se interrumpió.
+   *
+   * @return Registros leídos
+   */
+  private List<JournalEntry> readAll() {
+    List<JournalEntry> entries = new ArrayList<>();
+    damaged = false;
+    if (!Files.exists(path)) {
+      return entries;
+    }
+
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank()) {
+          continue;
+        }
+        JournalEntry entry;
+        try {
+          entry = gson.fromJson(line, JournalEntry.class);
+        } catch (JsonParseException e) {
+          System.err.println("Error leyendo el diario, se descarta el final: " + e.getMessage());
+          damaged = true;
+          break;
+        }
+        if (entry != null) {
+          entries.add(entry);
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("Error leyendo el diario: " + e.getMessage());
+    }
+    return entries;
+  }
+}
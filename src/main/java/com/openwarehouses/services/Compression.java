@@ -0,0 +1,216 @@
+package com.openwarehouses.services;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresión gzip opcional de los archivos de datos y de los JSON exportados. Un archivo
+ * comprimido se reconoce por su cabecera gzip ({@code 1f 8b}), así que al leer no hace falta saber
+ * cómo se escribió. Los datos pasan por el compresor en flujo, sin una copia comprimida intermedia
+ * en memoria.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+final class Compression {
+  /** Primer byte de la cabecera gzip. */
+  private static final int MAGIC_1 = 0x1f;
+
+  /** Segundo byte de la cabecera gzip. */
+  private static final int MAGIC_2 = 0x8b;
+
+  /** Tamaño del búfer del compresor. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Tamaño del final gzip: CRC32 y tamaño sin comprimir, ambos little-endian. */
+  static final int TRAILER_SIZE = 8;
+
+  /** Constructor privado para evitar instanciación. */
+  private Compression() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Indica si unos datos empiezan por la cabecera gzip.
+   *
+   * @param head Primeros bytes del archivo, desde la posición 0
+   * @return true si están comprimidos
+   */
+  static boolean isCompressed(ByteBuffer head) {
+    return head.limit() >= 2
+        && (head.get(0) & 0xFF) == MAGIC_1
+        && (head.get(1) & 0xFF) == MAGIC_2;
+  }
+
+  /**
+   * Indica si un archivo abierto está comprimido, sin mover su posición.
+   *
+   * @param channel Canal del archivo
+   * @return true si empieza por la cabecera gzip
+   * @throws IOException Si falla la lectura
+   */
+  static boolean isCompressed(FileChannel channel) throws IOException {
+    ByteBuffer head = ByteBuffer.allocate(2);
+    while (head.hasRemaining() && channel.read(head, head.position()) >= 0) {
+      // Lee los dos bytes de cabecera
+    }
+    return isCompressed(head.flip());
+  }
+
+  /**
+   * Obtiene el CRC32 del contenido sin comprimir guardado al final de un archivo gzip.
+   *
+   * @param trailer Los {@link #TRAILER_SIZE} bytes finales del archivo
+   * @return CRC32 del contenido original
+   */
+  static long trailerChecksum(ByteBuffer trailer) {
+    return trailer.order(ByteOrder.LITTLE_ENDIAN).getInt(0) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Calcula el CRC32 que tendrá un contenido al comprimirlo, el mismo que guarda el final gzip.
+   *
+   * @param data Contenido sin comprimir
+   * @return CRC32 del contenido
+   */
+  static long checksum(byte[] data) {
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    return crc.getValue();
+  }
+
+  /**
+   * Calcula el CRC32 de un contenido ya descomprimido, para compararlo con el del final gzip.
+   *
+   * @param data Contenido sin comprimir, desde la posición 0 hasta el límite
+   * @return CRC32 del contenido
+   */
+  static long checksum(ByteBuffer data) {
+    CRC32 crc = new CRC32();
+    crc.update(data.duplicate().rewind());
+    return crc.getValue();
+  }
+
+  /**
+   * Descomprime un archivo gzip completo en un búfer del tamaño exacto, leyendo el archivo en
+   * flujo. El tamaño se toma del final gzip.
+   *
+   * @param channel Canal del archivo, comprimido
+   * @return Contenido descomprimido, con posición 0
+   * @throws IOException Si el archivo no es un gzip válido
+   */
+  static ByteBuffer inflate(FileChannel channel) throws IOException {
+    long size = channel.size();
+    if (size < TRAILER_SIZE + 10) {
+      throw new IOException("Archivo comprimido truncado");
+    }
+    ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+    while (trailer.hasRemaining()
+        && channel.read(trailer, size - TRAILER_SIZE + trailer.position()) >= 0) {
+      // Lee el final gzip
+    }
+    int length = trailer.order(ByteOrder.LITTLE_ENDIAN).getInt(4);
+    if (length < 0) {
+      throw new IOException("Archivo comprimido demasiado grande");
+    }
+
+    channel.position(0);
+    // Se cierra el gzip para liberar el descompresor, pero no el canal: lo cierra quien lo abrió
+    try (InputStream in = new GZIPInputStream(entradaSinCerrar(channel), BUFFER_SIZE)) {
+      byte[] data = in.readNBytes(length);
+      if (data.length != length || in.read() != -1) {
+        throw new IOException("Tamaño descomprimido inesperado");
+      }
+      return ByteBuffer.wrap(data);
+    }
+  }
+
+  /**
+   * Comprime unos datos en un archivo abierto. El compresor se libera al terminar, pero el canal
+   * queda abierto para que quien lo abrió pueda forzarlo a disco antes de cerrarlo.
+   *
+   * @param channel Canal del archivo, en la posición donde empezar a escribir
+   * @param data Contenido sin comprimir
+   * @throws IOException Si falla la escritura
+   */
+  static void deflate(FileChannel channel, byte[] data) throws IOException {
+    try (GZIPOutputStream out = new GZIPOutputStream(salidaSinCerrar(channel), BUFFER_SIZE)) {
+      out.write(data);
+    }
+  }
+
+  /**
+   * Abre un flujo de lectura que descomprime si los datos empiezan por la cabecera gzip.
+   *
+   * @param in Flujo original
+   * @return Flujo con el contenido sin comprimir
+   * @throws IOException Si falla la lectura de la cabecera
+   */
+  static InputStream detect(InputStream in) throws IOException {
+    BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+    buffered.mark(2);
+    int b1 = buffered.read();
+    int b2 = buffered.read();
+    buffered.reset();
+    return b1 == MAGIC_1 && b2 == MAGIC_2 ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+  }
+
+  /**
+   * Envuelve un flujo de escritura con el compresor.
+   *
+   * @param out Flujo de destino
+   * @return Flujo que comprime lo que se escribe; al cerrarlo se cierra también el destino
+   * @throws IOException Si falla la escritura de la cabecera
+   */
+  static GZIPOutputStream deflate(OutputStream out) throws IOException {
+    return new GZIPOutputStream(out, BUFFER_SIZE);
+  }
+
+  /**
+   * Abre un flujo de lectura sobre un canal que, al cerrarse, deja el canal abierto.
+   *
+   * @param channel Canal del archivo
+   * @return Flujo de lectura
+   */
+  private static InputStream entradaSinCerrar(FileChannel channel) {
+    return new FilterInputStream(Channels.newInputStream(channel)) {
+      @Override
+      public void close() {
+        // El canal lo cierra quien lo abrió
+      }
+    };
+  }
+
+  /**
+   * Abre un flujo de escritura sobre un canal que, al cerrarse, deja el canal abierto.
+   *
+   * @param channel Canal del archivo
+   * @return Flujo de escritura
+   */
+  private static OutputStream salidaSinCerrar(FileChannel channel) {
+    return new FilterOutputStream(Channels.newOutputStream(channel)) {
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+      }
+
+      @Override
+      public void close() throws IOException {
+        // El canal lo cierra quien lo abrió
+        flush();
+      }
+    };
+  }
+}
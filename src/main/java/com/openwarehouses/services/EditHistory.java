@@ -0,0 +1,719 @@
+package com.openwarehouses.services;
+
+import com.openwarehouses.models.Almacen;
+import com.openwarehouses.models.Altura;
+import com.openwarehouses.models.Estanteria;
+import com.openwarehouses.models.Pasillo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Historial de deshacer y rehacer de la sesión. Cada paso es una instantánea inmutable de la
+ * jerarquía, y las instantáneas comparten estructura: un cambio solo copia los nodos de la ruta
+ * que lleva al elemento modificado y reutiliza el resto. Así, cientos de pasos sobre un almacén
+ * de 100.000 posiciones ocupan kilobytes en lugar de una copia completa por paso.
+ *
+ * <p>Las instantáneas se actualizan a partir de los mismos {@link JournalEntry} que se escriben en
+ * el diario, sin recorrer la jerarquía en memoria. Solo la primera edición de un almacén captura
+ * su jerarquía completa; hasta entonces su raíz es null, lo que indica que no ha cambiado.
+ *
+ * <p>Al deshacer o rehacer se comparan la instantánea actual y la de destino, y solo se
+ * reconstruyen las ramas que no comparten: los elementos que no cambian conservan su objeto.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+final class EditHistory {
+  /** Número máximo de pasos que se pueden deshacer. */
+  static final int MAX_PASOS = 500;
+
+  /** Hijos de los nodos vacíos, compartidos por todos ellos. */
+  private static final Nodo[] SIN_HIJOS = new Nodo[0];
+
+  /** Posiciones de las alturas vacías, compartidas por todas ellas. */
+  private static final int[] SIN_POSICIONES = new int[0];
+
+  /** Nivel de las alturas en la jerarquía (0 es el almacén). */
+  private static final int NIVEL_ALTURA = 3;
+
+  /**
+   * Elemento inmutable de una instantánea. Almacenes, pasillos y estanterías tienen hijos; las
+   * alturas guardan solo los números de sus posiciones, que no tienen más datos.
+   *
+   * @param numero Número del elemento (0 para el almacén)
+   * @param hijos Hijos en orden, o null en las alturas
+   * @param posiciones Números de las posiciones de menor a mayor, como los guarda la altura, o
+   *     null si no es una altura
+   */
+  private record Nodo(int numero, Nodo[] hijos, int[] posiciones) {
+    /**
+     * Indica si dos nodos tienen el mismo contenido compartido, aunque difiera el número.
+     *
+     * @param otro Nodo a comparar
+     * @return true si sus hijos o posiciones son la misma instancia
+     */
+    boolean mismoContenido(Nodo otro) {
+      return hijos == otro.hijos && posiciones == otro.posiciones;
+    }
+  }
+
+  /**
+   * Instantánea de la lista de almacenes. Cada almacén se identifica por su objeto, de modo que
+   * deshacer una baja vuelve a poner el mismo objeto en la lista.
+   *
+   * @param almacenes Almacenes en orden
+   * @param nombres Nombre de cada almacén en esta instantánea
+   * @param raices Jerarquía de cada almacén, o null si aún no se ha editado
+   */
+  private record Estado(Almacen[] almacenes, String[] nombres, Nodo[] raices) {
+    /**
+     * Busca un almacén por identidad.
+     *
+     * @param almacen Almacén a buscar
+     * @return Índice, o -1 si no está
+     */
+    int indice(Almacen almacen) {
+      for (int i = 0; i < almacenes.length; i++) {
+        if (almacenes[i] == almacen) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /** Instantánea que corresponde a la lista en memoria, o null si aún no se ha iniciado. */
+  private Estado actual;
+
+  /** Instantáneas anteriores, la más reciente primero. */
+  private final Deque<Estado> deshacer = new ArrayDeque<>();
+
+  /** Instantáneas deshechas, la más reciente primero. */
+  private final Deque<Estado> rehacer = new ArrayDeque<>();
+
+  /**
+   * Descarta el historial y toma la lista actual como punto de partida. Se usa al cargar y cuando
+   * la lista cambia por fuera del historial (por ejemplo, al incorporar guardados externos).
+   *
+   * @param almacenes Lista de almacenes en memoria
+   */
+  void reiniciar(List<Almacen> almacenes) {
+    deshacer.clear();
+    rehacer.clear();
+    int n = almacenes.size();
+    String[] nombres = new String[n];
+    for (int i = 0; i < n; i++) {
+      nombres[i] = almacenes.get(i).getNombre();
+    }
+    actual = new Estado(almacenes.toArray(new Almacen[0]), nombres, new Nodo[n]);
+  }
+
+  /**
+   * Captura la jerarquía de un almacén antes de su primera edición. Como hasta ahora no había
+   * cambiado, la misma captura vale para todos los pasos guardados en los que aparece.
+   *
+   * @param almacen Almacén que se va a editar
+   */
+  void seguir(Almacen almacen) {
+    int i = actual == null ? -1 : actual.indice(almacen);
+    if (i < 0 || actual.raices()[i] != null) {
+      return;
+    }
+    Nodo raiz = capturar(almacen);
+    completar(actual, almacen, raiz);
+    for (Estado estado : deshacer) {
+      completar(estado, almacen, raiz);
+    }
+    for (Estado estado : rehacer) {
+      completar(estado, almacen, raiz);
+    }
+  }
+
+  /**
+   * Asigna la jerarquía capturada a un almacén de una instantánea que aún no la tenía.
+   *
+   * @param estado Instantánea
+   * @param almacen Almacén capturado
+   * @param raiz Jerarquía capturada
+   */
+  private static void completar(Estado estado, Almacen almacen, Nodo raiz) {
+    int i = estado.indice(almacen);
+    if (i >= 0 && estado.raices()[i] == null) {
+      estado.raices()[i] = raiz;
+    }
+  }
+
+  /**
+   * Registra como un único paso cambios ya aplicados sobre la lista. Si algún cambio afecta a un
+   * almacén cuya jerarquía no se capturó antes de editarlo, el historial se reinicia: no se
+   * podría deshacer con seguridad.
+   *
+   * @param almacenes Lista de almacenes en memoria, ya modificada
+   * @param cambios Cambios aplicados
+   */
+  void registrar(List<Almacen> almacenes, List<JournalEntry> cambios) {
+    if (actual == null) {
+      reiniciar(almacenes);
+      return;
+    }
+    List<Almacen> objetos = new ArrayList<>(Arrays.asList(actual.almacenes()));
+    List<String> nombres = new ArrayList<>(Arrays.asList(actual.nombres()));
+    List<Nodo> raices = new ArrayList<>(Arrays.asList(actual.raices()));
+    for (JournalEntry cambio : cambios) {
+      if (!aplicar(cambio, almacenes, objetos, nombres, raices)) {
+        reiniciar(almacenes);
+        return;
+      }
+    }
+
+    deshacer.push(actual);
+    if (deshacer.size() > MAX_PASOS) {
+      deshacer.removeLast();
+    }
+    rehacer.clear();
+    actual = new Estado(objetos.toArray(new Almacen[0]), nombres.toArray(new String[0]),
+        raices.toArray(new Nodo[0]));
+  }
+
+  /**
+   * Aplica un cambio sobre las listas de la nueva instantánea.
+   *
+   * @param cambio Cambio a aplicar
+   * @param almacenes Lista de almacenes en memoria, de donde se toman los almacenes creados
+   * @param objetos Almacenes de la nueva instantánea
+   * @param nombres Nombres de la nueva instantánea
+   * @param raices Jerarquías de la nueva instantánea
+   * @return false si el cambio no se puede seguir en el historial
+   */
+  private static boolean aplicar(
+      JournalEntry cambio,
+      List<Almacen> almacenes,
+      List<Almacen> objetos,
+      List<String> nombres,
+      List<Nodo> raices) {
+    int i = indicePorNombre(nombres, cambio.getAlmacen());
+    if (cambio.getRuta() == null) {
+      switch (cambio.getOp()) {
+        case CREAR -> {
+          if (i >= 0) {
+            return true;
+          }
+          int j = indicePorNombre(almacenes.stream().map(Almacen::getNombre).toList(),
+              cambio.getAlmacen());
+          if (j < 0) {
+            return false;
+          }
+          Almacen nuevo = almacenes.get(j);
+          objetos.add(nuevo);
+          nombres.add(nuevo.getNombre());
+          raices.add(new Nodo(0, SIN_HIJOS, null));
+        }
+        case RENUMERAR -> {
+          if (i >= 0) {
+            nombres.set(i, cambio.getNuevoNombre());
+          }
+        }
+        case ELIMINAR -> {
+          if (i >= 0) {
+            objetos.remove(i);
+            nombres.remove(i);
+            raices.remove(i);
+          }
+        }
+        default -> {
+        }
+      }
+      return true;
+    }
+
+    if (i < 0 || cambio.getNumero() == null) {
+      return true;
+    }
+    if (raices.get(i) == null) {
+      return false;
+    }
+    raices.set(i, cambiar(raices.get(i), cambio, 0));
+    return true;
+  }
+
+  /**
+   * Busca un almacén por nombre sin distinguir mayúsculas, como {@link JournalEntry#aplicar}.
+   *
+   * @param nombres Nombres de la instantánea
+   * @param nombre Nombre buscado
+   * @return Índice, o -1 si no está
+   */
+  private static int indicePorNombre(List<String> nombres, String nombre) {
+    for (int i = 0; i < nombres.size(); i++) {
+      if (nombres.get(i) != null && nombres.get(i).equalsIgnoreCase(nombre)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Devuelve una copia del nodo con el cambio aplicado en su rama. Solo se copian los nodos de la
+   * ruta; los demás hijos se comparten con la instantánea anterior.
+   *
+   * @param nodo Nodo del nivel actual
+   * @param cambio Cambio a aplicar
+   * @param nivel Nivel del nodo (0 es el almacén)
+   * @return Nodo resultante, el mismo si el cambio no encaja
+   */
+  private static Nodo cambiar(Nodo nodo, JournalEntry cambio, int nivel) {
+    int[] ruta = cambio.getRuta();
+    if (nivel == ruta.length) {
+      return nivel == NIVEL_ALTURA
+          ? operarPosiciones(nodo, cambio)
+          : operarHijos(nodo, cambio, nivel);
+    }
+    int i = buscar(nodo.hijos(), ruta[nivel]);
+    if (i < 0) {
+      return nodo;
+    }
+    Nodo hijo = cambiar(nodo.hijos()[i], cambio, nivel + 1);
+    if (hijo == nodo.hijos()[i]) {
+      return nodo;
+    }
+    Nodo[] hijos = nodo.hijos().clone();
+    hijos[i] = hijo;
+    return new Nodo(nodo.numero(), hijos, null);
+  }
+
+  /**
+   * Aplica una operación sobre los hijos de un almacén, pasillo o estantería, con las mismas
+   * reglas que {@link JournalEntry#aplicar}: los cambios que no encajan se ignoran.
+   *
+   * @param nodo Nodo padre
+   * @param cambio Cambio a aplicar
+   * @param nivel Nivel del padre
+   * @return Nodo resultante
+   */
+  private static Nodo operarHijos(Nodo nodo, JournalEntry cambio, int nivel) {
+    Nodo[] hijos = nodo.hijos();
+    int numero = cambio.getNumero();
+    int i = buscar(hijos, numero);
+    switch (cambio.getOp()) {
+      case CREAR -> {
+        if (i >= 0) {
+          return nodo;
+        }
+        Nodo nuevo = nivel + 1 == NIVEL_ALTURA
+            ? new Nodo(numero, null, SIN_POSICIONES)
+            : new Nodo(numero, SIN_HIJOS, null);
+        Nodo[] resultado = Arrays.copyOf(hijos, hijos.length + 1);
+        resultado[hijos.length] = nuevo;
+        return new Nodo(nodo.numero(), resultado, null);
+      }
+      case RENUMERAR -> {
+        int nuevoNumero = cambio.getNuevoNumero();
+        if (i < 0 || buscar(hijos, nuevoNumero) >= 0) {
+          return nodo;
+        }
+        Nodo[] resultado = hijos.clone();
+        resultado[i] = new Nodo(nuevoNumero, hijos[i].hijos(), hijos[i].posiciones());
+        return new Nodo(nodo.numero(), resultado, null);
+      }
+      case ELIMINAR -> {
+        if (i < 0) {
+          return nodo;
+        }
+        Nodo[] resultado = new Nodo[hijos.length - 1];
+        System.arraycopy(hijos, 0, resultado, 0, i);
+        System.arraycopy(hijos, i + 1, resultado, i, hijos.length - i - 1);
+        return new Nodo(nodo.numero(), resultado.length == 0 ? SIN_HIJOS : resultado, null);
+      }
+      default -> {
+        return nodo;
+      }
+    }
+  }
+
+  /**
+   * Aplica una operación sobre las posiciones de una altura.
+   *
+   * @param nodo Altura
+   * @param cambio Cambio a aplicar
+   * @return Nodo resultante
+   */
+  private static Nodo operarPosiciones(Nodo nodo, JournalEntry cambio) {
+    int[] posiciones = nodo.posiciones();
+    int numero = cambio.getNumero();
+    int i = buscar(posiciones, numero);
+    int[] resultado;
+    switch (cambio.getOp()) {
+      case CREAR -> {
+        if (i >= 0) {
+          return nodo;
+        }
+        resultado = Arrays.copyOf(posiciones, posiciones.length + 1);
+        resultado[posiciones.length] = numero;
+        Arrays.sort(resultado);
+      }
+      case RENUMERAR -> {
+        int nuevoNumero = cambio.getNuevoNumero();
+        if (i < 0 || buscar(posiciones, nuevoNumero) >= 0) {
+          return nodo;
+        }
+        resultado = posiciones.clone();
+        resultado[i] = nuevoNumero;
+        Arrays.sort(resultado);
+      }
+      case ELIMINAR -> {
+        if (i < 0) {
+          return nodo;
+        }
+        resultado = new int[posiciones.length - 1];
+        System.arraycopy(posiciones, 0, resultado, 0, i);
+        System.arraycopy(posiciones, i + 1, resultado, i, posiciones.length - i - 1);
+      }
+      default -> {
+        return nodo;
+      }
+    }
+    return new Nodo(nodo.numero(), null, resultado.length == 0 ? SIN_POSICIONES : resultado);
+  }
+
+  /**
+   * Indica si hay pasos que deshacer.
+   *
+   * @return true si el historial no está vacío
+   */
+  boolean puedeDeshacer() {
+    return !deshacer.isEmpty();
+  }
+
+  /**
+   * Indica si hay pasos deshechos que rehacer.
+   *
+   * @return true si se ha deshecho algo desde la última edición
+   */
+  boolean puedeRehacer() {
+    return !rehacer.isEmpty();
+  }
+
+  /**
+   * Vuelve la lista al paso anterior.
+   *
+   * @param almacenes Lista de almacenes en memoria
+   * @return Elementos cambiados, o null si no había nada que deshacer
+   */
+  ExternalChange deshacer(List<Almacen> almacenes) {
+    if (deshacer.isEmpty()) {
+      return null;
+    }
+    rehacer.push(actual);
+    return restaurar(almacenes, deshacer.pop());
+  }
+
+  /**
+   * Vuelve a aplicar el último paso deshecho.
+   *
+   * @param almacenes Lista de almacenes en memoria
+   * @return Elementos cambiados, o null si no había nada que rehacer
+   */
+  ExternalChange rehacer(List<Almacen> almacenes) {
+    if (rehacer.isEmpty()) {
+      return null;
+    }
+    deshacer.push(actual);
+    return restaurar(almacenes, rehacer.pop());
+  }
+
+  /**
+   * Lleva la lista en memoria a una instantánea. Solo se recorren las ramas cuyos nodos difieren
+   * de la instantánea actual.
+   *
+   * @param almacenes Lista de almacenes en memoria
+   * @param destino Instantánea a restaurar
+   * @return Elementos cambiados
+   */
+  private ExternalChange restaurar(List<Almacen> almacenes, Estado destino) {
+    ExternalChange cambio = new ExternalChange();
+    List<Almacen> resultado = new ArrayList<>(destino.almacenes().length);
+    for (int i = 0; i < destino.almacenes().length; i++) {
+      Almacen almacen = destino.almacenes()[i];
+      if (!almacen.getNombre().equals(destino.nombres()[i])) {
+        almacen.setNombre(destino.nombres()[i]);
+        cambio.marcarModificado(almacen);
+        cambio.marcarLista();
+      }
+      // Un almacén que no está en la lista actual no ha cambiado desde que se quitó
+      int j = actual.indice(almacen);
+      Nodo origen = j >= 0 ? actual.raices()[j] : destino.raices()[i];
+      Nodo objetivo = destino.raices()[i];
+      if (origen != null && objetivo != null && origen != objetivo) {
+        restaurarNivel(almacen, almacen.getPasillos(), origen, objetivo, 1,
+            Pasillo::getNumero, Pasillo::setNumero, cambio);
+      }
+      resultado.add(almacen);
+    }
+
+    Set<Almacen> restaurados = Collections.newSetFromMap(new IdentityHashMap<>());
+    restaurados.addAll(resultado);
+    for (Almacen almacen : almacenes) {
+      if (!restaurados.contains(almacen)) {
+        cambio.marcarEliminado(almacen);
+      }
+    }
+    boolean mismaLista = resultado.size() == almacenes.size();
+    for (int i = 0; i < resultado.size() && mismaLista; i++) {
+      mismaLista = resultado.get(i) == almacenes.get(i);
+    }
+    if (!mismaLista) {
+      cambio.marcarLista();
+    }
+    almacenes.clear();
+    almacenes.addAll(resultado);
+    actual = destino;
+    return cambio;
+  }
+
+  /**
+   * Lleva los hijos de un elemento a los de un nodo de destino, emparejándolos por número con los
+   * del nodo de origen (que corresponde a la lista en memoria). Los hijos que solo cambian de
+   * número conservan su objeto; los que no existen se reconstruyen desde el destino.
+   *
+   * @param padre Elemento en memoria
+   * @param hijos Lista de hijos en memoria
+   * @param origen Nodo que corresponde al padre en memoria
+   * @param destino Nodo a restaurar
+   * @param nivel Nivel de los hijos (1 pasillos, 2 estanterías, 3 alturas)
+   * @param numero Número de un hijo
+   * @param renumerar Cambio de número de un hijo
+   * @param cambio Cambios detectados
+   * @param <T> Tipo de los hijos
+   */
+  private static <T> void restaurarNivel(
+      Object padre,
+      List<T> hijos,
+      Nodo origen,
+      Nodo destino,
+      int nivel,
+      ToIntFunction<T> numero,
+      ObjIntConsumer<T> renumerar,
+      ExternalChange cambio) {
+    Map<Integer, T> porNumero = new HashMap<>();
+    for (T hijo : hijos) {
+      porNumero.put(numero.applyAsInt(hijo), hijo);
+    }
+    Set<Integer> numerosDestino = new HashSet<>();
+    for (Nodo d : destino.hijos()) {
+      numerosDestino.add(d.numero());
+    }
+
+    List<T> resultado = new ArrayList<>(destino.hijos().length);
+    boolean modificado = hijos.size() != destino.hijos().length;
+    for (Nodo d : destino.hijos()) {
+      T hijo = porNumero.remove(d.numero());
+      Nodo o = hijo == null ? null : nodo(origen, d.numero());
+      if (hijo == null) {
+        // Un hijo renumerado conserva su contenido: se busca por él entre los que sobran
+        o = renumerado(origen, d, numerosDestino, porNumero.keySet());
+        hijo = o == null ? null : porNumero.remove(o.numero());
+        if (hijo != null) {
+          renumerar.accept(hijo, d.numero());
+          cambio.marcarModificado(hijo);
+        }
+      }
+      if (hijo == null) {
+        hijo = construir(d, nivel);
+      } else if (o != null && o != d && !o.mismoContenido(d)) {
+        restaurarHijo(hijo, o, d, nivel, cambio);
+      }
+      int i = resultado.size();
+      modificado |= i >= hijos.size() || hijos.get(i) != hijo;
+      resultado.add(hijo);
+    }
+    for (T eliminado : porNumero.values()) {
+      cambio.marcarEliminado(eliminado);
+    }
+
+    if (modificado) {
+      hijos.clear();
+      hijos.addAll(resultado);
+      cambio.marcarModificado(padre);
+    }
+  }
+
+  /**
+   * Restaura los hijos de un elemento emparejado, según su nivel.
+   *
+   * @param hijo Elemento en memoria (pasillo, estantería o altura)
+   * @param origen Nodo que le corresponde en memoria
+   * @param destino Nodo a restaurar
+   * @param nivel Nivel del elemento
+   * @param cambio Cambios detectados
+   */
+  private static void restaurarHijo(
+      Object hijo, Nodo origen, Nodo destino, int nivel, ExternalChange cambio) {
+    if (hijo instanceof Pasillo p) {
+      restaurarNivel(p, p.getEstanterias(), origen, destino, nivel + 1,
+          Estanteria::getNumero, Estanteria::setNumero, cambio);
+    } else if (hijo instanceof Estanteria e) {
+      restaurarNivel(e, e.getAlturas(), origen, destino, nivel + 1,
+          Altura::getNumero, Altura::setNumero, cambio);
+    } else if (hijo instanceof Altura h) {
+      restaurarPosiciones(h, destino.posiciones(), cambio);
+    }
+  }
+
+  /**
+   * Lleva las posiciones de una altura a los números de destino.
+   *
+   * @param altura Altura en memoria
+   * @param destino Números de las posiciones a restaurar
+   * @param cambio Cambios detectados
+   */
+  private static void restaurarPosiciones(Altura altura, int[] destino, ExternalChange cambio) {
+    if (!Arrays.equals(altura.getNumerosPosiciones(), destino)) {
+      altura.setNumerosPosiciones(destino);
+      cambio.marcarModificado(altura);
+    }
+  }
+
+  /**
+   * Busca entre los hijos de origen que sobran uno con el mismo contenido que el de destino.
+   *
+   * @param origen Nodo padre en memoria
+   * @param destino Hijo a restaurar
+   * @param numerosDestino Números de todos los hijos de destino
+   * @param sobrantes Números de los hijos en memoria aún sin emparejar
+   * @return Hijo de origen renumerado, o null si no hay
+   */
+  private static Nodo renumerado(
+      Nodo origen, Nodo destino, Set<Integer> numerosDestino, Set<Integer> sobrantes) {
+    for (Nodo o : origen.hijos()) {
+      if (!numerosDestino.contains(o.numero()) && sobrantes.contains(o.numero())
+          && o.mismoContenido(destino)) {
+        return o;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Busca un hijo por número.
+   *
+   * @param padre Nodo padre
+   * @param numero Número buscado
+   * @return Hijo, o null si no está
+   */
+  private static Nodo nodo(Nodo padre, int numero) {
+    int i = buscar(padre.hijos(), numero);
+    return i < 0 ? null : padre.hijos()[i];
+  }
+
+  /**
+   * Busca la posición de un hijo por número.
+   *
+   * @param hijos Hijos en orden
+   * @param numero Número buscado
+   * @return Índice, o -1 si no está
+   */
+  private static int buscar(Nodo[] hijos, int numero) {
+    for (int i = 0; i < hijos.length; i++) {
+      if (hijos[i].numero() == numero) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Busca la posición de un número en una altura.
+   *
+   * @param posiciones Números de las posiciones
+   * @param numero Número buscado
+   * @return Índice, o -1 si no está
+   */
+  private static int buscar(int[] posiciones, int numero) {
+    for (int i = 0; i < posiciones.length; i++) {
+      if (posiciones[i] == numero) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Captura la jerarquía de un almacén en memoria.
+   *
+   * @param almacen Almacén a capturar
+   * @return Raíz de la instantánea
+   */
+  private static Nodo capturar(Almacen almacen) {
+    return new Nodo(0, capturar(almacen.getPasillos(), p -> new Nodo(p.getNumero(),
+        capturar(p.getEstanterias(), e -> new Nodo(e.getNumero(),
+            capturar(e.getAlturas(),
+                h -> new Nodo(h.getNumero(), null, h.getNumerosPosiciones())), null)),
+        null)), null);
+  }
+
+  /**
+   * Captura una lista de hijos.
+   *
+   * @param hijos Hijos en memoria
+   * @param capturar Captura de un hijo
+   * @param <T> Tipo de los hijos
+   * @return Nodos en el mismo orden
+   */
+  private static <T> Nodo[] capturar(List<T> hijos, Function<T, Nodo> capturar) {
+    if (hijos.isEmpty()) {
+      return SIN_HIJOS;
+    }
+    Nodo[] nodos = new Nodo[hijos.size()];
+    for (int i = 0; i < nodos.length; i++) {
+      nodos[i] = capturar.apply(hijos.get(i));
+    }
+    return nodos;
+  }
+
+  /**
+   * Reconstruye un elemento y todo su contenido a partir de su nodo.
+   *
+   * @param nodo Nodo del elemento
+   * @param nivel Nivel del elemento (1 pasillo, 2 estantería, 3 altura)
+   * @param <T> Tipo del elemento
+   * @return Elemento nuevo
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T construir(Nodo nodo, int nivel) {
+    switch (nivel) {
+      case 1 -> {
+        Pasillo pasillo = new Pasillo(nodo.numero());
+        for (Nodo hijo : nodo.hijos()) {
+          pasillo.getEstanterias().add(construir(hijo, nivel + 1));
+        }
+        return (T) pasillo;
+      }
+      case 2 -> {
+        Estanteria estanteria = new Estanteria(nodo.numero());
+        for (Nodo hijo : nodo.hijos()) {
+          estanteria.getAlturas().add(construir(hijo, nivel + 1));
+        }
+        return (T) estanteria;
+      }
+      default -> {
+        Altura altura = new Altura(nodo.numero());
+        altura.setNumerosPosiciones(nodo.posiciones());
+        return (T) altura;
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.openwarehouses.services;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Resultado de incorporar a la sesión los cambios hechos en disco por otra instancia, o de deshacer
+ * y rehacer. Indica qué elementos de la jerarquía en memoria han cambiado y cuáles han
+ * desaparecido, para que la vista abierta solo repinte lo afectado. Los elementos se comparan por
+ * identidad: son los mismos objetos que tienen las vistas.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public final class ExternalChange {
+  /** Elementos cuyos hijos directos han cambiado, o que han cambiado de número o nombre. */
+  private final Set<Object> modificados = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /** Elementos que ya no están en la jerarquía, por haberse eliminado o sustituido. */
+  private final Set<Object> eliminados = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /** Indica si ha cambiado la lista de almacenes (altas, bajas, nombres u orden). */
+  private boolean listaModificada;
+
+  /** Constructor de paquete: solo la sesión crea cambios. */
+  ExternalChange() {}
+
+  /**
+   * Indica si ha cambiado la lista de almacenes.
+   *
+   * @return true si hay almacenes nuevos, eliminados, renombrados o reordenados
+   */
+  public boolean isListaModificada() {
+    return listaModificada;
+  }
+
+  /**
+   * Indica si han cambiado los hijos directos de un elemento, o su número (el nombre si es un
+   * almacén).
+   *
+   * @param elemento Almacén, pasillo, estantería o altura
+   * @return true si hay que repintar el elemento o sus hijos
+   */
+  public boolean isModificado(Object elemento) {
+    return modificados.contains(elemento);
+  }
+
+  /**
+   * Indica si alguno de los elementos de una ruta ha desaparecido.
+   *
+   * @param ruta Elementos desde el almacén hasta el nivel mostrado
+   * @return true si la vista que los muestra ya no es válida
+   */
+  public boolean isEliminado(Object... ruta) {
+    for (Object elemento : ruta) {
+      if (eliminados.contains(elemento)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Indica si no hay ningún cambio.
+   *
+   * @return true si la jerarquía en memoria ya coincidía con el disco
+   */
+  public boolean isVacio() {
+    return !listaModificada && modificados.isEmpty() && eliminados.isEmpty();
+  }
+
+  /**
+   * Marca que un elemento ha cambiado sus hijos o su número.
+   *
+   * @param elemento Elemento modificado
+   */
+  void marcarModificado(Object elemento) {
+    modificados.add(elemento);
+  }
+
+  /**
+   * Marca que un elemento ha desaparecido.
+   *
+   * @param elemento Elemento eliminado
+   */
+  void marcarEliminado(Object elemento) {
+    eliminados.add(elemento);
+  }
+
+  /** Marca que ha cambiado la lista de almacenes. */
+  void marcarLista() {
+    listaModificada = true;
+  }
+}
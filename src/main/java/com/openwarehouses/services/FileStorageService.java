@@ -0,0 +1,1307 @@
+package com.openwarehouses.services;
+
+import com.google.gson.JsonParseException;
+import com.openwarehouses.models.Almacen;
+import com.openwarehouses.services.BinarySnapshot.Index;
+import com.openwarehouses.services.BinarySnapshot.IndexEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Almacenamiento en archivos, el que se usa por defecto. Los datos se guardan en
+ * Documentos/Almacenes o en la carpeta ejecutable, en formato binario compacto (ver
+ * {@link BinarySnapshot}): un índice pequeño ({@code almacenes.idx}) con el PIN, los nombres y el
+ * resumen de cada almacén, y un archivo por almacén con su jerarquía. Al cargar solo se lee el
+ * índice; la jerarquía de cada almacén se lee la primera vez que se accede a sus pasillos, y al
+ * guardar solo se reescriben los archivos de almacén que han cambiado.
+ *
+ * <p>El JSON queda como formato de importación y exportación; los datos de versiones anteriores
+ * ({@code almacenes.json} o {@code almacenes.bin}) se convierten automáticamente la primera vez.
+ * También maneja la configuración del PIN de acceso.
+ *
+ * <p>En modo de escritura diferida los guardados se hacen en un hilo de fondo: cada guardado
+ * codifica los almacenes en el momento, reutilizando los bytes de las partes que no han cambiado,
+ * y las ráfagas se agrupan en una sola escritura.
+ *
+ * <p>Las ediciones puntuales se registran con {@link #appendChanges} en un diario de solo anexado
+ * ({@code almacenes.journal}) en lugar de reescribir todo el archivo. Al cargar se reaplican los
+ * cambios posteriores a la instantánea, y cuando el diario crece se compacta en una instantánea
+ * nueva. Cada archivo de almacén guarda además la secuencia del diario que incluye: si el proceso
+ * se interrumpe después de escribir los almacenes y antes del índice, los cambios que ya están en
+ * el archivo de su almacén no se vuelven a aplicar.
+ *
+ * <p>Con {@link #setCompressed} el índice y los archivos de almacén se escriben comprimidos con
+ * gzip, lo que reduce el espacio en disco y lo que hay que sincronizar entre sedes. Al leer se
+ * detecta la compresión por la cabecera de cada archivo, así que pueden convivir archivos
+ * comprimidos y sin comprimir.
+ *
+ * <p>Con {@link #startWatching} se vigila la carpeta de datos para detectar los guardados de otras
+ * instancias que comparten la carpeta (por ejemplo, sincronizada en red).
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public class FileStorageService implements StorageService {
+  /** Nombre del índice de almacenes. */
+  private static final String FILENAME = "almacenes.idx";
+
+  /** Prefijo de los archivos de almacén. */
+  private static final String SHARD_PREFIX = "almacen-";
+
+  /** Extensión de los archivos de almacén. */
+  private static final String SHARD_SUFFIX = ".bin";
+
+  /** Nombre del archivo binario único usado por versiones anteriores. */
+  private static final String SINGLE_FILENAME = "almacenes.bin";
+
+  /** Nombre del archivo JSON usado por versiones anteriores. */
+  private static final String JSON_FILENAME = "almacenes.json";
+
+  /** Sufijo con el que se conservan los datos antiguos tras convertirlos. */
+  private static final String MIGRATED_SUFFIX = ".migrated";
+
+  /** Sufijo de la copia de seguridad que se rota en cada guardado. */
+  private static final String BACKUP_SUFFIX = ".bak";
+
+  /** Sufijo del archivo temporal donde se escribe antes de reemplazar el definitivo. */
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  /** Nombre del diario de cambios pendientes de compactar. */
+  private static final String JOURNAL_FILENAME = "almacenes.journal";
+
+  /** Número de cambios en el diario a partir del cual se escribe una instantánea nueva. */
+  private static final int COMPACT_THRESHOLD = 500;
+
+  /** Tamaño a partir del cual los archivos binarios se mapean en memoria en lugar de leerse. */
+  private static final long MAP_THRESHOLD = 64 * 1024;
+
+  /**
+   * En Windows un archivo mapeado no se puede reemplazar hasta que el recolector libera el mapeo,
+   * lo que bloquearía el guardado atómico; allí se lee siempre al heap.
+   */
+  private static final boolean MAP_FILES =
+      !System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+  /** Tiempo sin eventos que se espera antes de avisar, para agrupar las ráfagas de escritura. */
+  private static final long WATCH_QUIET_MILLIS = 300;
+
+  /** Directorio donde se almacenan los datos. */
+  private final File storageDir;
+
+  /** Diario de cambios posteriores a la última instantánea. */
+  private final ChangeJournal journal;
+
+  /** Indica si hay una compactación solicitada que aún no se ha escrito. */
+  private volatile boolean compacting;
+
+  /** Suma de verificación del contenido en disco de cada archivo de almacén leído o escrito. */
+  private final Map<String, Long> shardChecksums = new ConcurrentHashMap<>();
+
+  /** Última secuencia del diario incluida en cada archivo de almacén leído. */
+  private final Map<String, Long> shardSeqs = new ConcurrentHashMap<>();
+
+  /** Archivos de almacén dañados que no se sobrescriben para no perder lo recuperable. */
+  private final Set<String> unreadableShards = ConcurrentHashMap.newKeySet();
+
+  /** Configuración cacheada en memoria, válida mientras el archivo no cambie. */
+  private Config cachedConfig;
+
+  /** Fecha de modificación del archivo cuando se cacheó la configuración. */
+  private long cachedModified = -1;
+
+  /** Tamaño del archivo cuando se cacheó la configuración. */
+  private long cachedLength = -1;
+
+  /** Huella de los datos en disco tras la última carga o escritura propia. */
+  private volatile Fingerprint knownFingerprint;
+
+  /** Escrituras propias en curso, durante las cuales la huella en disco no es comparable. */
+  private final AtomicInteger ownWrites = new AtomicInteger();
+
+  /** Indica si los archivos nuevos se escriben comprimidos. */
+  private volatile boolean compressed;
+
+  /** Indica si los guardados se escriben en segundo plano. */
+  private volatile boolean writeBehind;
+
+  /** Hilo único de escritura en segundo plano, creado al activar la escritura diferida. */
+  private ExecutorService writer;
+
+  /** Cerrojo del ciclo de vida del hilo de escritura. */
+  private final Object writerLock = new Object();
+
+  /** Vigilancia de la carpeta de datos, o null si no está activa. */
+  private WatchService watchService;
+
+  /** Guardado pendiente de escribir; los nuevos guardados reemplazan al anterior. */
+  private final AtomicReference<PendingSave> pending = new AtomicReference<>();
+
+  /** Número de guardados solicitados. */
+  private long savesRequested;
+
+  /** Número de escrituras completadas. */
+  private long writesCompleted;
+
+  /** Duración de la última escritura en milisegundos. */
+  private double lastWriteMillis;
+
+  /** Duración máxima de una escritura en milisegundos. */
+  private double maxWriteMillis;
+
+  /** Tiempo total de escritura en milisegundos. */
+  private double totalWriteMillis;
+
+  /** Latencia de la última escritura en milisegundos. */
+  private double lastLatencyMillis;
+
+  /** Clase interna para manejar la configuración (PIN). */
+  private static class Config {
+    private String pin;
+
+    Config(String pin) {
+      this.pin = pin;
+    }
+  }
+
+  /**
+   * Contenido de un guardado: el índice completo y los almacenes cargados en memoria.
+   *
+   * @param index Resumen de todos los almacenes, en orden
+   * @param shards Almacenes cargados cuyo archivo puede haber cambiado, ya codificados
+   */
+  private record SaveRequest(List<IndexEntry> index, List<Shard> shards) {}
+
+  /**
+   * Archivo de un almacén listo para escribir.
+   *
+   * @param archivo Nombre del archivo
+   * @param data Contenido codificado; no se modifica
+   */
+  private record Shard(String archivo, byte[] data) {}
+
+  /**
+   * Guardado pendiente en la cola de escritura diferida.
+   *
+   * @param request Copia del contenido a escribir
+   * @param journalSeq Última secuencia del diario incluida en la copia
+   * @param requests Guardados agrupados en esta escritura
+   * @param since Instante (nanoTime) del guardado más antiguo agrupado
+   */
+  private record PendingSave(SaveRequest request, long journalSeq, int requests, long since) {}
+
+  /**
+   * Huella de los archivos que cambian con cada modificación de los datos: el índice y el diario.
+   *
+   * @param indexModified Fecha de modificación del índice
+   * @param indexLength Tamaño del índice
+   * @param journalModified Fecha de modificación del diario
+   * @param journalLength Tamaño del diario
+   */
+  private record Fingerprint(
+      long indexModified, long indexLength, long journalModified, long journalLength) {}
+
+  /** Constructor que usa la carpeta de datos por defecto ({@link StorageService#defaultDirectory}). */
+  public FileStorageService() {
+    this(StorageService.defaultDirectory());
+  }
+
+  /**
+   * Constructor con una carpeta de datos concreta.
+   *
+   * @param storageDir Carpeta donde están el índice, los archivos de almacén y el diario
+   */
+  public FileStorageService(File storageDir) {
+    this.storageDir = storageDir;
+    this.journal = new ChangeJournal(new File(storageDir, JOURNAL_FILENAME).toPath());
+  }
+
+  /**
+   * Activa o desactiva la compresión gzip de los archivos que se escriban a partir de ahora. Los
+   * archivos existentes se siguen leyendo igual y se convierten cuando se reescriben.
+   *
+   * @param enabled true para comprimir
+   */
+  public void setCompressed(boolean enabled) {
+    compressed = enabled;
+  }
+
+  /**
+   * Activa o desactiva la escritura diferida. Al desactivarla se escriben antes los guardados
+   * pendientes.
+   *
+   * @param enabled true para escribir en segundo plano
+   */
+  @Override
+  public void setWriteBehind(boolean enabled) {
+    if (!enabled) {
+      writeBehind = false;
+      flush();
+      return;
+    }
+
+    synchronized (writerLock) {
+      if (writer == null) {
+        writer =
+            Executors.newSingleThreadExecutor(
+                r -> {
+                  Thread t = new Thread(r, "almacenes-writer");
+                  t.setDaemon(true);
+                  return t;
+                });
+      }
+    }
+    writeBehind = true;
+  }
+
+  /**
+   * Guarda la lista de almacenes en disco. Los almacenes cuya jerarquía no se ha cargado solo
+   * actualizan su entrada en el índice. En modo de escritura diferida se codifican los almacenes
+   * cargados y se devuelve enseguida; si ya había un guardado pendiente, se sustituye por este.
+   *
+   * @param almacenes Lista de almacenes a guardar
+   */
+  @Override
+  public void saveAlmacenes(List<Almacen> almacenes) {
+    synchronized (this) {
+      savesRequested++;
+    }
+
+    // Los cambios registrados hasta aquí quedan cubiertos por esta instantánea
+    long seq = journal.lastSeq();
+    if (!writeBehind) {
+      writeAlmacenes(prepare(almacenes, seq), seq, System.nanoTime());
+      return;
+    }
+
+    SaveRequest snapshot = prepare(almacenes, seq);
+    long now = System.nanoTime();
+    PendingSave previous =
+        pending.getAndUpdate(
+            p -> p == null
+                ? new PendingSave(snapshot, seq, 1, now)
+                : new PendingSave(snapshot, seq, p.requests() + 1, p.since()));
+
+    if (previous == null) {
+      scheduleDrain();
+    }
+  }
+
+  /**
+   * Encarga al hilo de escritura el guardado pendiente. Si el hilo se ha detenido entretanto
+   * ({@link #close()}) o no existe, se escribe en el hilo actual para no perder el guardado.
+   */
+  private void scheduleDrain() {
+    ExecutorService w;
+    synchronized (writerLock) {
+      w = writer;
+    }
+    if (w != null && !w.isShutdown()) {
+      try {
+        w.execute(this::drainPending);
+        return;
+      } catch (RejectedExecutionException e) {
+        // Se ha cerrado entre la comprobación y el envío
+      }
+    }
+    drainPending();
+  }
+
+  /**
+   * Registra cambios puntuales en el diario, sin reescribir el archivo de almacenes. Cuando el
+   * diario acumula suficientes cambios se solicita una instantánea nueva, que en modo de escritura
+   * diferida se escribe en segundo plano.
+   *
+   * @param almacenes Lista de almacenes ya modificada
+   * @param cambios Cambios aplicados sobre la lista
+   */
+  @Override
+  public void appendChanges(List<Almacen> almacenes, List<JournalEntry> cambios) {
+    if (cambios.isEmpty()) {
+      return;
+    }
+
+    int size;
+    boolean inSync = beginOwnWrite();
+    try {
+      size = journal.append(cambios);
+    } catch (IOException e) {
+      System.err.println("Error escribiendo el diario: " + e.getMessage());
+      // Sin diario, el cambio solo se conserva con una instantánea completa
+      saveAlmacenes(almacenes);
+      return;
+    } finally {
+      endOwnWrite(inSync);
+    }
+
+    if (size >= COMPACT_THRESHOLD && !compacting) {
+      compacting = true;
+      saveAlmacenes(almacenes);
+    }
+  }
+
+  /** Escribe el guardado pendiente más reciente, si lo hay. Se ejecuta en el hilo de escritura. */
+  private void drainPending() {
+    PendingSave save = pending.getAndSet(null);
+    if (save != null) {
+      writeAlmacenes(save.request(), save.journalSeq(), save.since());
+    }
+  }
+
+  /**
+   * Escribe los almacenes en disco y actualiza las métricas.
+   *
+   * @param request Contenido a escribir
+   * @param journalSeq Última secuencia del diario incluida en los almacenes
+   * @param since Instante (nanoTime) del guardado más antiguo incluido
+   */
+  private void writeAlmacenes(SaveRequest request, long journalSeq, long since) {
+    long start = System.nanoTime();
+    boolean inSync = beginOwnWrite();
+    try {
+      // Se conserva la configuración (PIN) cacheada sin volver a leer el índice
+      writeSnapshot(loadConfig(), journalSeq, request);
+      journal.trimUpTo(journalSeq);
+    } catch (IOException e) {
+      System.err.println("Error guardando almacenes: " + e.getMessage());
+    } finally {
+      compacting = false;
+      endOwnWrite(inSync);
+    }
+
+    long end = System.nanoTime();
+    synchronized (this) {
+      writesCompleted++;
+      lastWriteMillis = (end - start) / 1e6;
+      maxWriteMillis = Math.max(maxWriteMillis, lastWriteMillis);
+      totalWriteMillis += lastWriteMillis;
+      lastLatencyMillis = (end - since) / 1e6;
+    }
+  }
+
+  /**
+   * Escribe los archivos de almacén que han cambiado y después el índice, de modo que el índice
+   * nunca apunte a un archivo que aún no existe. Los archivos de almacenes eliminados se borran.
+   *
+   * @param cfg Configuración a guardar en el índice
+   * @param journalSeq Última secuencia del diario incluida
+   * @param request Contenido a escribir
+   * @throws IOException Si falla alguna escritura
+   */
+  private void writeSnapshot(Config cfg, long journalSeq, SaveRequest request) throws IOException {
+    for (Shard shard : request.shards()) {
+      writeShard(shard);
+    }
+
+    File file = new File(storageDir, FILENAME);
+    writeAtomically(
+        file.toPath(),
+        BinarySnapshot.encodeIndex(new Index(cfg.pin, journalSeq, request.index())),
+        compressed);
+    cacheConfig(cfg, file);
+    deleteOrphanShards(request.index());
+  }
+
+  /**
+   * Escribe el archivo de un almacén si su contenido difiere del que hay en disco.
+   *
+   * @param shard Almacén codificado
+   * @throws IOException Si falla la escritura
+   */
+  private void writeShard(Shard shard) throws IOException {
+    String archivo = shard.archivo();
+    if (unreadableShards.contains(archivo)) {
+      System.err.println("Archivo dañado, no se sobrescribe: " + archivo);
+      return;
+    }
+
+    byte[] data = shard.data();
+    // La suma conocida es la del final del archivo: la del gzip si está comprimido
+    boolean compress = compressed;
+    Long checksum = compress ? Compression.checksum(data) : BinarySnapshot.checksum(data);
+    File file = new File(storageDir, archivo);
+    if (checksum.equals(shardChecksums.get(archivo)) && file.exists()) {
+      return;
+    }
+    writeAtomically(file.toPath(), data, compress);
+    shardChecksums.put(archivo, checksum);
+  }
+
+  /**
+   * Borra los archivos de almacén (y sus copias) que ya no aparecen en el índice.
+   *
+   * @param index Índice recién escrito
+   */
+  private void deleteOrphanShards(List<IndexEntry> index) {
+    Set<String> referenced = new HashSet<>();
+    for (IndexEntry entry : index) {
+      referenced.add(entry.archivo());
+    }
+
+    File[] files = storageDir.listFiles((dir, name) -> name.startsWith(SHARD_PREFIX));
+    if (files == null) {
+      return;
+    }
+    for (File f : files) {
+      String name = f.getName();
+      String archivo = name.endsWith(BACKUP_SUFFIX)
+          ? name.substring(0, name.length() - BACKUP_SUFFIX.length())
+          : name;
+      if (archivo.endsWith(SHARD_SUFFIX) && !referenced.contains(archivo)) {
+        f.delete();
+        shardChecksums.remove(archivo);
+        shardSeqs.remove(archivo);
+      }
+    }
+  }
+
+  /**
+   * Prepara un guardado: asigna archivo a los almacenes nuevos, resume todos en el índice y
+   * codifica los que tienen la jerarquía en memoria. La codificación se hace en el hilo que
+   * guarda, así que el hilo de escritura no ve modificaciones posteriores; como solo se
+   * recodifican las partes modificadas (ver {@link BinarySnapshot}), su coste es proporcional a
+   * los cambios.
+   *
+   * @param almacenes Lista de almacenes
+   * @param journalSeq Última secuencia del diario incluida en los almacenes
+   * @return Contenido a escribir
+   */
+  private SaveRequest prepare(List<Almacen> almacenes, long journalSeq) {
+    List<IndexEntry> index = new ArrayList<>(almacenes.size());
+    List<Shard> shards = new ArrayList<>();
+    for (Almacen almacen : almacenes) {
+      if (almacen.getArchivo() == null) {
+        almacen.setArchivo(SHARD_PREFIX + UUID.randomUUID() + SHARD_SUFFIX);
+      }
+      index.add(new IndexEntry(
+          almacen.getNombre(),
+          almacen.getArchivo(),
+          almacen.getNumPasillos(),
+          almacen.getNumPosiciones()));
+      if (almacen.isCargado()) {
+        shards.add(new Shard(
+            almacen.getArchivo(), BinarySnapshot.encodeAlmacen(almacen, journalSeq)));
+      }
+    }
+    return new SaveRequest(index, shards);
+  }
+
+  /**
+   * Indica si los datos en disco han cambiado desde la última carga o escritura de este servicio,
+   * por ejemplo porque otra instancia de la aplicación ha guardado. Solo consulta la fecha y el
+   * tamaño del índice y del diario, sin leerlos.
+   *
+   * @return true si hay que volver a cargar los almacenes para ver los datos actuales
+   */
+  @Override
+  public boolean hasExternalChanges() {
+    Fingerprint known = knownFingerprint;
+    return known == null || ownWrites.get() == 0 && !known.equals(currentFingerprint());
+  }
+
+  /**
+   * Calcula la huella actual de los datos en disco.
+   *
+   * @return Huella del índice y del diario
+   */
+  private Fingerprint currentFingerprint() {
+    File index = new File(storageDir, FILENAME);
+    File journalFile = new File(storageDir, JOURNAL_FILENAME);
+    return new Fingerprint(
+        index.lastModified(), index.length(), journalFile.lastModified(), journalFile.length());
+  }
+
+  /**
+   * Empieza una escritura propia.
+   *
+   * @return true si el disco coincidía con la huella conocida antes de escribir
+   */
+  private boolean beginOwnWrite() {
+    ownWrites.incrementAndGet();
+    Fingerprint known = knownFingerprint;
+    return known != null && known.equals(currentFingerprint());
+  }
+
+  /**
+   * Termina una escritura propia. La huella resultante solo se toma como conocida si el disco
+   * estaba sincronizado, para no ocultar un cambio externo anterior a la escritura.
+   *
+   * @param inSync Resultado de {@link #beginOwnWrite()}
+   */
+  private void endOwnWrite(boolean inSync) {
+    if (inSync) {
+      knownFingerprint = currentFingerprint();
+    }
+    ownWrites.decrementAndGet();
+  }
+
+  /**
+   * Espera a que se escriban todos los guardados pendientes. Debe llamarse antes de cerrar la
+   * aplicación.
+   */
+  @Override
+  public void flush() {
+    ExecutorService w;
+    synchronized (writerLock) {
+      w = writer;
+    }
+    if (w == null || w.isShutdown()) {
+      return;
+    }
+
+    try {
+      w.submit(this::drainPending).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      System.err.println("Error vaciando la cola de guardado: " + e.getMessage());
+    }
+  }
+
+  /** Escribe los guardados pendientes y detiene el hilo de escritura y la vigilancia. */
+  @Override
+  public void close() {
+    writeBehind = false;
+    flush();
+    stopWatching();
+    synchronized (writerLock) {
+      if (writer != null) {
+        writer.shutdown();
+        try {
+          writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        writer = null;
+      }
+    }
+  }
+
+  /**
+   * Empieza a vigilar la carpeta de datos. Cuando otra instancia guarda (cambian el índice o el
+   * diario y no es una escritura propia), se invoca la acción en el hilo de vigilancia, una vez
+   * por ráfaga de escrituras. No hace nada si ya se está vigilando.
+   *
+   * @param onExternalChange Acción a ejecutar al detectar cambios externos
+   */
+  @Override
+  public void startWatching(Runnable onExternalChange) {
+    synchronized (writerLock) {
+      if (watchService != null) {
+        return;
+      }
+      try {
+        watchService = FileSystems.getDefault().newWatchService();
+        storageDir.toPath().register(
+            watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+      } catch (IOException e) {
+        System.err.println("Error vigilando la carpeta de datos: " + e.getMessage());
+        watchService = null;
+        return;
+      }
+
+      WatchService ws = watchService;
+      Thread t = new Thread(() -> watch(ws, onExternalChange), "almacenes-watcher");
+      t.setDaemon(true);
+      t.start();
+    }
+  }
+
+  /** Deja de vigilar la carpeta de datos. */
+  @Override
+  public void stopWatching() {
+    synchronized (writerLock) {
+      if (watchService == null) {
+        return;
+      }
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        System.err.println("Error cerrando la vigilancia: " + e.getMessage());
+      }
+      watchService = null;
+    }
+  }
+
+  /**
+   * Bucle del hilo de vigilancia. Tras un evento sobre el índice o el diario espera a que la
+   * carpeta quede en calma y solo avisa si la huella difiere de la conocida, de modo que las
+   * escrituras propias no generan avisos.
+   *
+   * @param ws Servicio de vigilancia, que se cierra para terminar
+   * @param onExternalChange Acción a ejecutar al detectar cambios externos
+   */
+  private void watch(WatchService ws, Runnable onExternalChange) {
+    try {
+      while (true) {
+        WatchKey key = ws.take();
+        boolean relevant = isDataEvent(key);
+        if (!key.reset()) {
+          return;
+        }
+        if (!relevant) {
+          continue;
+        }
+
+        // Una escritura completa toca varios archivos: se agrupan hasta que no lleguen más eventos
+        WatchKey next;
+        while ((next = ws.poll(WATCH_QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+          next.pollEvents();
+          next.reset();
+        }
+        if (hasExternalChanges()) {
+          onExternalChange.run();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      // Vigilancia detenida
+    }
+  }
+
+  /**
+   * Comprueba si algún evento afecta a los archivos que cambian con cada modificación.
+   *
+   * @param key Clave con eventos pendientes
+   * @return true si ha cambiado el índice o el diario, o se han perdido eventos
+   */
+  private static boolean isDataEvent(WatchKey key) {
+    boolean relevant = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        relevant = true;
+      } else if (event.context() instanceof Path name) {
+        String file = name.toString();
+        relevant |= file.equals(FILENAME) || file.equals(JOURNAL_FILENAME);
+      }
+    }
+    return relevant;
+  }
+
+  /**
+   * Obtiene las métricas de guardado: latencias de escritura y profundidad de la cola.
+   *
+   * @return Foto actual de las métricas
+   */
+  @Override
+  public synchronized StorageMetrics getMetrics() {
+    PendingSave p = pending.get();
+    return new StorageMetrics(
+        savesRequested,
+        writesCompleted,
+        p == null ? 0 : p.requests(),
+        lastWriteMillis,
+        maxWriteMillis,
+        totalWriteMillis,
+        lastLatencyMillis);
+  }
+
+  /**
+   * Escribe el contenido de forma segura frente a cortes: se escribe en un archivo temporal del
+   * mismo directorio, se fuerza a disco y se mueve atómicamente sobre el archivo definitivo. Antes
+   * del reemplazo, la versión anterior queda como copia de seguridad ({@code .bak}).
+   *
+   * @param target Archivo definitivo
+   * @param data Contenido a escribir
+   * @param compress true para comprimirlo con gzip al escribirlo
+   * @throws IOException Si falla la escritura; en ese caso el archivo definitivo no se modifica
+   */
+  private void writeAtomically(Path target, byte[] data, boolean compress) throws IOException {
+    Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+    try {
+      try (FileChannel channel = FileChannel.open(
+          temp,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        if (compress) {
+          Compression.deflate(channel, data);
+        } else {
+          ByteBuffer buffer = ByteBuffer.wrap(data);
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+        }
+        channel.force(true);
+      }
+
+      rotateBackup(target);
+      try {
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+      syncDirectory();
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Conserva la versión actual del archivo como copia de seguridad. Se intenta un enlace duro para
+   * no copiar datos; si el sistema de archivos no lo admite, se copia.
+   *
+   * @param target Archivo de datos actual
+   * @throws IOException Si no se puede crear la copia
+   */
+  private void rotateBackup(Path target) throws IOException {
+    if (!Files.exists(target)) {
+      return;
+    }
+
+    Path backup = target.resolveSibling(target.getFileName() + BACKUP_SUFFIX);
+    Files.deleteIfExists(backup);
+    try {
+      Files.createLink(backup, target);
+    } catch (UnsupportedOperationException | IOException e) {
+      Files.copy(target, backup, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Fuerza a disco la entrada de directorio tras el renombrado. No todas las plataformas permiten
+   * abrir un directorio (Windows no), así que un fallo aquí se ignora.
+   */
+  private void syncDirectory() {
+    try (FileChannel dir = FileChannel.open(storageDir.toPath(), StandardOpenOption.READ)) {
+      dir.force(true);
+    } catch (IOException e) {
+      // Plataforma sin soporte: el renombrado ya es atómico
+    }
+  }
+
+  /**
+   * Carga la lista de almacenes desde el índice y reaplica los cambios del diario posteriores a la
+   * instantánea. La jerarquía de cada almacén queda pendiente hasta el primer acceso a sus
+   * pasillos; los almacenes afectados por el diario se cargan al reaplicarlo. Si no hay datos, se
+   * parte de una lista vacía.
+   *
+   * @return Lista de almacenes cargados
+   */
+  @Override
+  public List<Almacen> loadAlmacenes() {
+    flush();
+    // La huella se toma antes de leer: un cambio externo durante la lectura se detecta después
+    Fingerprint fingerprint = currentFingerprint();
+    Index index = loadIndex();
+    List<Almacen> almacenes = new ArrayList<>();
+    long seq = 0;
+    if (index != null) {
+      seq = index.journalSeq();
+      for (IndexEntry entry : index.entries()) {
+        Almacen almacen = new Almacen(entry.nombre());
+        almacen.setArchivo(entry.archivo());
+        almacen.setCargaDiferida(entry.numPasillos(), entry.numPosiciones(), this::loadShard);
+        almacenes.add(almacen);
+      }
+    }
+
+    // Otra instancia puede haber anexado cambios: se vuelve a leer la última secuencia
+    journal.reload();
+    journal.advanceTo(seq);
+    for (JournalEntry cambio : journal.readAfter(seq)) {
+      if (!isInShard(almacenes, cambio)) {
+        cambio.aplicar(almacenes);
+      }
+    }
+    knownFingerprint = fingerprint;
+    return almacenes;
+  }
+
+  /**
+   * Indica si un cambio del diario ya está en el archivo de su almacén. Ocurre cuando el proceso
+   * se interrumpió después de escribir ese archivo y antes del índice: el índice conserva la
+   * secuencia anterior, y reaplicar el cambio sobre el almacén que ya lo incluye lo estropearía.
+   * Los cambios de la lista de almacenes solo dependen del índice.
+   *
+   * @param almacenes Almacenes tal como van quedando al reaplicar el diario
+   * @param cambio Cambio a reaplicar
+   * @return true si hay que saltarlo
+   */
+  private boolean isInShard(List<Almacen> almacenes, JournalEntry cambio) {
+    if (cambio.getRuta() == null) {
+      return false;
+    }
+    // El mismo almacén que elegirá JournalEntry.aplicar
+    Almacen almacen = almacenes.stream()
+        .filter(x -> x.getNombre() != null && x.getNombre().equalsIgnoreCase(cambio.getAlmacen()))
+        .findFirst()
+        .orElse(null);
+    if (almacen == null || almacen.getArchivo() == null) {
+      return false;
+    }
+    // Se carga ya su archivo, que aplicar cargaría de todos modos, para conocer su secuencia
+    almacen.getPasillos();
+    Long incluida = shardSeqs.get(almacen.getArchivo());
+    return incluida != null && cambio.getSeq() <= incluida;
+  }
+
+  /**
+   * Lee el índice y cachea su configuración. Si está dañado se recupera la copia de seguridad.
+   *
+   * @return Índice leído, o null si no hay datos
+   */
+  private Index loadIndex() {
+    migrate();
+    File file = new File(storageDir, FILENAME);
+    if (!file.exists() || file.length() == 0) {
+      return null;
+    }
+
+    try {
+      return readIndex(file, file);
+    } catch (IOException e) {
+      // Archivo truncado o corrupto: se recupera la última copia buena
+      System.err.println("Error cargando índice: " + e.getMessage());
+      File backup = new File(storageDir, FILENAME + BACKUP_SUFFIX);
+      if (!backup.exists()) {
+        return null;
+      }
+      try {
+        return readIndex(backup, file);
+      } catch (IOException ex) {
+        System.err.println("Error cargando copia de seguridad: " + ex.getMessage());
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Lee un archivo de índice concreto y cachea su configuración.
+   *
+   * @param source Archivo a leer
+   * @param file Índice cuya huella se asocia a la configuración cacheada
+   * @return Índice leído
+   * @throws IOException Si falla la lectura o el archivo no es válido
+   */
+  private Index readIndex(File source, File file) throws IOException {
+    Index index = BinarySnapshot.decodeIndex(readFile(source.toPath()));
+    cacheConfig(new Config(index.pin() != null ? index.pin() : DEFAULT_PIN), file);
+    return index;
+  }
+
+  /**
+   * Carga la jerarquía de un almacén desde su archivo. Se invoca en el primer acceso a sus
+   * pasillos. Si el archivo está dañado se usa su copia de seguridad; si tampoco se puede, el
+   * almacén queda vacío y su archivo no se sobrescribe.
+   *
+   * @param almacen Almacén con carga pendiente
+   */
+  private void loadShard(Almacen almacen) {
+    String archivo = almacen.getArchivo();
+    shardSeqs.remove(archivo);
+    File file = new File(storageDir, archivo);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      boolean gzip = Compression.isCompressed(channel);
+      ByteBuffer data = read(channel, file.toPath());
+      almacen.setPasillos(BinarySnapshot.decodeAlmacen(data).getPasillos());
+      shardSeqs.put(archivo, BinarySnapshot.journalSeq(data));
+      shardChecksums.put(
+          archivo, gzip ? Compression.checksum(data) : BinarySnapshot.checksum(data));
+      return;
+    } catch (IOException e) {
+      System.err.println("Error cargando almacén " + almacen.getNombre() + ": " + e.getMessage());
+    }
+
+    File backup = new File(storageDir, archivo + BACKUP_SUFFIX);
+    try {
+      // Sin registrar la suma: el siguiente guardado reescribe el archivo dañado
+      ByteBuffer data = readFile(backup.toPath());
+      almacen.setPasillos(BinarySnapshot.decodeAlmacen(data).getPasillos());
+      shardSeqs.put(archivo, BinarySnapshot.journalSeq(data));
+    } catch (IOException e) {
+      if (file.exists() || backup.exists()) {
+        System.err.println("Error cargando copia de seguridad: " + e.getMessage());
+        unreadableShards.add(archivo);
+      }
+      almacen.setPasillos(new ArrayList<>());
+    }
+  }
+
+  /**
+   * Indica si el archivo de un almacén sigue siendo el que este servicio leyó o escribió por
+   * última vez. Solo se lee la suma de verificación del final del archivo (la del gzip si está
+   * comprimido), no su contenido.
+   *
+   * @param archivo Nombre del archivo de almacén
+   * @return true si la suma en disco coincide con la conocida
+   */
+  @Override
+  public boolean isShardCurrent(String archivo) {
+    Long known = archivo != null ? shardChecksums.get(archivo) : null;
+    if (known == null) {
+      return false;
+    }
+
+    File file = new File(storageDir, archivo);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      boolean gzip = Compression.isCompressed(channel);
+      int length = gzip ? Compression.TRAILER_SIZE : 4;
+      if (size < length) {
+        return false;
+      }
+      ByteBuffer tail = ByteBuffer.allocate(length);
+      while (tail.hasRemaining() && channel.read(tail, size - length + tail.position()) >= 0) {
+        // Lee los bytes finales
+      }
+      tail.flip();
+      return known
+          == (gzip ? Compression.trailerChecksum(tail) : BinarySnapshot.checksum(tail));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Comprueba el índice y el archivo de cada almacén decodificándolos por completo, lo que
+   * valida su formato y su suma de verificación (también la del gzip si están comprimidos). Los
+   * archivos de los almacenes se comprueban en paralelo.
+   *
+   * @return Descripción de cada archivo dañado o que falta; vacía si todo es correcto
+   */
+  @Override
+  public List<String> verifyStorage() {
+    flush();
+    File file = new File(storageDir, FILENAME);
+    if (!file.exists()) {
+      return List.of();
+    }
+
+    Index index;
+    try {
+      index = BinarySnapshot.decodeIndex(readFile(file.toPath()));
+    } catch (IOException e) {
+      return List.of(FILENAME + ": " + e.getMessage());
+    }
+    return index.entries().parallelStream()
+        .map(this::verifyShard)
+        .filter(problema -> problema != null)
+        .toList();
+  }
+
+  /**
+   * Comprueba el archivo de un almacén.
+   *
+   * @param entry Entrada del índice del almacén
+   * @return Descripción del problema, o null si el archivo es correcto
+   */
+  private String verifyShard(IndexEntry entry) {
+    Path path = new File(storageDir, entry.archivo()).toPath();
+    if (!Files.exists(path)) {
+      return entry.archivo() + " (" + entry.nombre() + "): no existe";
+    }
+    try {
+      BinarySnapshot.decodeAlmacen(readFile(path));
+      return null;
+    } catch (IOException e) {
+      return entry.archivo() + " (" + entry.nombre() + "): " + e.getMessage();
+    }
+  }
+
+  /**
+   * Abre un archivo binario para decodificarlo. Los archivos grandes se mapean en memoria y se
+   * decodifican directamente desde la región mapeada, sin copiarlos al heap; los pequeños (como el
+   * índice) se leen de una vez, que es más barato que mapearlos. Los comprimidos se descomprimen
+   * en flujo.
+   *
+   * @param path Archivo a leer
+   * @return Contenido completo del archivo, sin comprimir y con posición 0
+   * @throws IOException Si no se puede leer
+   */
+  private static ByteBuffer readFile(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return read(channel, path);
+    }
+  }
+
+  /**
+   * Lee un archivo ya abierto, como {@link #readFile(Path)}.
+   *
+   * @param channel Canal del archivo
+   * @param path Ruta del archivo, para los mensajes de error
+   * @return Contenido completo del archivo, sin comprimir y con posición 0
+   * @throws IOException Si no se puede leer
+   */
+  private static ByteBuffer read(FileChannel channel, Path path) throws IOException {
+    if (Compression.isCompressed(channel)) {
+      return Compression.inflate(channel);
+    }
+
+    long size = channel.size();
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Archivo demasiado grande: " + path.getFileName());
+    }
+    if (MAP_FILES && size >= MAP_THRESHOLD) {
+      // El mapeo sigue siendo válido tras cerrar el canal
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate((int) size);
+    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+      // Lee hasta completar el búfer
+    }
+    return buffer.flip();
+  }
+
+  /**
+   * Convierte los datos de versiones anteriores ({@code almacenes.bin} de un solo archivo o
+   * {@code almacenes.json}) al índice con un archivo por almacén, solo si aún no hay índice. El
+   * archivo original se conserva con el sufijo {@code .migrated}.
+   */
+  private synchronized void migrate() {
+    if (new File(storageDir, FILENAME).exists()) {
+      return;
+    }
+    File source = new File(storageDir, SINGLE_FILENAME);
+    if (!source.exists()) {
+      source = new File(storageDir, JSON_FILENAME);
+    }
+    if (!source.exists()) {
+      return;
+    }
+
+    JsonFormat.Contenido contenido = readLegacy(source);
+    File backup = new File(storageDir, source.getName() + BACKUP_SUFFIX);
+    if (contenido == null && backup.exists()) {
+      contenido = readLegacy(backup);
+    }
+    if (contenido == null) {
+      contenido = new JsonFormat.Contenido(null, 0, null);
+    }
+
+    try {
+      Config cfg = new Config(contenido.pin() != null ? contenido.pin() : DEFAULT_PIN);
+      List<Almacen> almacenes =
+          contenido.almacenes() != null ? contenido.almacenes() : new ArrayList<>();
+      writeSnapshot(cfg, contenido.journalSeq(), prepare(almacenes, contenido.journalSeq()));
+      Files.move(
+          source.toPath(),
+          new File(storageDir, source.getName() + MIGRATED_SUFFIX).toPath(),
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      System.err.println("Error migrando " + source.getName() + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Lee un archivo de datos de una versión anterior, binario de un solo archivo o JSON.
+   *
+   * @param source Archivo a leer
+   * @return Contenido leído, o null si no se puede leer
+   */
+  private JsonFormat.Contenido readLegacy(File source) {
+    try {
+      ByteBuffer data = readFile(source.toPath());
+      if (BinarySnapshot.isSingle(data)) {
+        BinarySnapshot.Single single = BinarySnapshot.decodeSingle(data);
+        return new JsonFormat.Contenido(single.pin(), single.journalSeq(), single.almacenes());
+      }
+      return JsonFormat.read(source);
+    } catch (IOException | JsonParseException e) {
+      System.err.println("Error leyendo " + source.getName() + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Obtiene el PIN guardado en la configuración. Si no existe, devuelve "1234".
+   * @return Devuelve el pin correcto en formato String
+   */
+  @Override
+  public String loadPin() {
+    Config cfg = loadConfig();
+    if (cfg.pin != null && !cfg.pin.isBlank()) {
+      return cfg.pin;
+    }
+    return DEFAULT_PIN;
+  }
+
+  /**
+   * Devuelve la configuración, usando la copia en memoria si el índice no ha cambiado desde que
+   * se leyó (misma fecha de modificación y tamaño). En otro caso se lee el índice, que es pequeño
+   * porque no contiene la jerarquía.
+   *
+   * @return Configuración actual, nunca null
+   */
+  private synchronized Config loadConfig() {
+    migrate();
+    File file = new File(storageDir, FILENAME);
+    if (cachedConfig != null
+        && file.lastModified() == cachedModified
+        && file.length() == cachedLength) {
+      return cachedConfig;
+    }
+
+    Config cfg = new Config(DEFAULT_PIN);
+    if (loadIndex() == null) {
+      cacheConfig(cfg, file);
+      return cfg;
+    }
+    // loadIndex ha cacheado la configuración del índice o de su copia
+    return cachedConfig;
+  }
+
+  /**
+   * Guarda en memoria la configuración junto con la huella actual del archivo.
+   *
+   * @param cfg Configuración a cachear
+   * @param file Archivo del que procede
+   */
+  private synchronized void cacheConfig(Config cfg, File file) {
+    this.cachedConfig = cfg;
+    this.cachedModified = file.lastModified();
+    this.cachedLength = file.length();
+  }
+
+  /**
+   * Guarda el PIN en la configuración, preservando los almacenes existentes. Solo se reescribe el
+   * índice.
+   * @param pin El pin nuevo que se va a guardar
+   * */
+  @Override
+  public void savePin(String pin) {
+    flush();
+    boolean inSync = beginOwnWrite();
+    try {
+      Index index = loadIndex();
+      Config cfg = new Config(pin);
+      File file = new File(storageDir, FILENAME);
+      writeAtomically(file.toPath(), BinarySnapshot.encodeIndex(new Index(
+          pin,
+          index != null ? index.journalSeq() : 0,
+          index != null ? index.entries() : List.of())), compressed);
+      cacheConfig(cfg, file);
+    } catch (IOException e) {
+      System.err.println("Error guardando PIN: " + e.getMessage());
+    } finally {
+      endOwnWrite(inSync);
+    }
+  }
+
+  /**
+   * Exporta los almacenes y la configuración actuales a un archivo JSON legible. Se cargan todas
+   * las jerarquías.
+   *
+   * @param target Archivo JSON de destino
+   * @return true si se exportó correctamente
+   */
+  @Override
+  public boolean exportJson(File target) {
+    List<Almacen> almacenes = loadAlmacenes();
+    for (Almacen almacen : almacenes) {
+      almacen.getPasillos();
+    }
+    try {
+      JsonFormat.write(loadConfig().pin, almacenes, target);
+      return true;
+    } catch (IOException e) {
+      System.err.println("Error exportando JSON: " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Importa los almacenes de un archivo JSON (formato actual o antiguo), reemplazando los datos
+   * guardados. Se conserva el PIN actual. Las listas ya cargadas en memoria deben recargarse.
+   *
+   * @param source Archivo JSON de origen
+   * @return true si se importó correctamente
+   */
+  @Override
+  public boolean importJson(File source) {
+    flush();
+    try {
+      JsonFormat.Contenido imported = JsonFormat.read(source);
+      if (imported == null || imported.almacenes() == null) {
+        return false;
+      }
+      long seq = journal.lastSeq();
+      writeSnapshot(loadConfig(), seq, prepare(imported.almacenes(), seq));
+      journal.trimUpTo(seq);
+      return true;
+    } catch (IOException | JsonParseException e) {
+      System.err.println("Error importando JSON: " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Obtiene el directorio de almacenamiento.
+   *
+   * @return Directorio de almacenamiento
+   */
+  @Override
+  public File getStorageDirectory() {
+    return storageDir;
+  }
+
+  /** Limpia todos los datos (borra el índice, los archivos de almacén, los antiguos y el diario). */
+  @Override
+  public void clearData() {
+    flush();
+    File[] files = storageDir.listFiles((dir, name) ->
+        name.startsWith(FILENAME)
+            || name.startsWith(SHARD_PREFIX)
+            || name.equals(SINGLE_FILENAME)
+            || name.equals(JSON_FILENAME));
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    try {
+      journal.clear();
+    } catch (IOException e) {
+      System.err.println("Error borrando el diario: " + e.getMessage());
+    }
+    shardChecksums.clear();
+    shardSeqs.clear();
+    unreadableShards.clear();
+    synchronized (this) {
+      cachedConfig = null;
+    }
+  }
+
+  /**
+   * Verifica si existe algún almacén guardado.
+   *
+   * @return true si hay almacenes, false en caso contrario
+   */
+  @Override
+  public boolean hasAlmacenes() {
+    return !loadAlmacenes().isEmpty();
+  }
+}
@@ -0,0 +1,941 @@
+package com.openwarehouses.services;
+
+import com.openwarehouses.models.Almacen;
+import com.openwarehouses.models.Altura;
+import com.openwarehouses.models.Estanteria;
+import com.openwarehouses.models.Pasillo;
+import com.openwarehouses.models.Posicion;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Almacenamiento en una base de datos H2 embebida, pensado para instalaciones grandes. Cada nivel
+ * de la jerarquía es una tabla con índice único por padre y número, de modo que las consultas
+ * parciales (por ejemplo, todas las posiciones del pasillo 7) no leen el resto del almacén.
+ *
+ * <p>Los cambios puntuales se aplican en una transacción por llamada, y las altas consecutivas
+ * del mismo nivel (creación por rangos) se insertan en lote. La jerarquía de cada almacén se lee
+ * la primera vez que se accede a sus pasillos. En {@link Almacen#getArchivo()} se guarda el
+ * identificador de su fila.
+ *
+ * <p>La base de datos la abre en exclusiva este proceso, así que no hay cambios externos que
+ * vigilar. La primera vez que se abre se copian los datos de {@link FileStorageService} si los hay.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public class H2StorageService implements StorageService {
+  /** Nombre de la base de datos dentro de la carpeta de datos. */
+  private static final String DATABASE_NAME = "almacenes-h2";
+
+  /** Clave del PIN en la tabla de configuración. */
+  private static final String PIN_KEY = "pin";
+
+  /** Clave que indica que ya se copiaron los datos del almacenamiento en archivos. */
+  private static final String MIGRATED_KEY = "migrado";
+
+  /** Número de posiciones por lote al insertar una jerarquía completa. */
+  private static final int BATCH_SIZE = 1000;
+
+  /** Tablas de la jerarquía, por nivel: pasillo, estantería, altura y posición. */
+  private static final String[] TABLES = {"pasillo", "estanteria", "altura", "posicion"};
+
+  /** Columna del padre de cada tabla de la jerarquía. */
+  private static final String[] PARENTS = {
+    "almacen_id", "pasillo_id", "estanteria_id", "altura_id"
+  };
+
+  /** Esquema: una tabla por nivel, con borrado en cascada e índice único por padre y número. */
+  private static final String[] SCHEMA = {
+    "CREATE TABLE IF NOT EXISTS config ("
+        + "clave VARCHAR(64) PRIMARY KEY, valor VARCHAR(255))",
+    "CREATE TABLE IF NOT EXISTS almacen ("
+        + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+        + "nombre VARCHAR(255) NOT NULL UNIQUE, orden INT NOT NULL)",
+    "CREATE TABLE IF NOT EXISTS pasillo ("
+        + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+        + "almacen_id BIGINT NOT NULL REFERENCES almacen(id) ON DELETE CASCADE, "
+        + "numero INT NOT NULL, UNIQUE (almacen_id, numero))",
+    "CREATE TABLE IF NOT EXISTS estanteria ("
+        + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+        + "pasillo_id BIGINT NOT NULL REFERENCES pasillo(id) ON DELETE CASCADE, "
+        + "numero INT NOT NULL, UNIQUE (pasillo_id, numero))",
+    "CREATE TABLE IF NOT EXISTS altura ("
+        + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+        + "estanteria_id BIGINT NOT NULL REFERENCES estanteria(id) ON DELETE CASCADE, "
+        + "numero INT NOT NULL, UNIQUE (estanteria_id, numero))",
+    "CREATE TABLE IF NOT EXISTS posicion ("
+        + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+        + "altura_id BIGINT NOT NULL REFERENCES altura(id) ON DELETE CASCADE, "
+        + "numero INT NOT NULL, codigo VARCHAR(64), UNIQUE (altura_id, numero))"
+  };
+
+  /** Uniones desde las posiciones hasta su almacén, para las consultas por almacén. */
+  private static final String JOIN_POSICIONES =
+      " FROM posicion s JOIN altura h ON s.altura_id = h.id"
+          + " JOIN estanteria e ON h.estanteria_id = e.id"
+          + " JOIN pasillo p ON e.pasillo_id = p.id";
+
+  /** Carpeta de datos. */
+  private final File storageDir;
+
+  /** Conexión única con la base de datos; su uso se sincroniza sobre este servicio. */
+  private final Connection connection;
+
+  /** Número de guardados solicitados. */
+  private long savesRequested;
+
+  /** Número de escrituras completadas. */
+  private long writesCompleted;
+
+  /** Duración de la última escritura en milisegundos. */
+  private double lastWriteMillis;
+
+  /** Duración máxima de una escritura en milisegundos. */
+  private double maxWriteMillis;
+
+  /** Tiempo total de escritura en milisegundos. */
+  private double totalWriteMillis;
+
+  /**
+   * Constructor que abre (o crea) la base de datos en la carpeta indicada.
+   *
+   * @param storageDir Carpeta de datos
+   * @throws IllegalStateException Si no se puede abrir la base de datos
+   */
+  public H2StorageService(File storageDir) {
+    this.storageDir = storageDir;
+    try {
+      String url = "jdbc:h2:" + new File(storageDir, DATABASE_NAME).getAbsolutePath();
+      this.connection = DriverManager.getConnection(url, "sa", "");
+      try (Statement st = connection.createStatement()) {
+        for (String sql : SCHEMA) {
+          st.execute(sql);
+        }
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+    migrate();
+  }
+
+  /**
+   * Copia los datos del almacenamiento en archivos la primera vez que se abre la base de datos,
+   * para poder cambiar de almacenamiento sin perderlos. Los archivos no se modifican.
+   */
+  private synchronized void migrate() {
+    if (readConfig(MIGRATED_KEY) != null) {
+      return;
+    }
+    FileStorageService files = new FileStorageService(storageDir);
+    try {
+      if (!hasAlmacenes() && files.hasAlmacenes()) {
+        List<Almacen> almacenes = files.loadAlmacenes();
+        for (Almacen almacen : almacenes) {
+          almacen.getPasillos();
+          almacen.setArchivo(null);
+        }
+        saveAlmacenes(almacenes);
+        savePin(files.loadPin());
+      }
+      writeConfig(MIGRATED_KEY, "1");
+    } finally {
+      files.close();
+    }
+  }
+
+  @Override
+  public synchronized List<Almacen> loadAlmacenes() {
+    List<Almacen> almacenes = new ArrayList<>();
+    try {
+      Map<Long, Integer> pasillos =
+          contar("SELECT almacen_id, COUNT(*) FROM pasillo GROUP BY almacen_id");
+      Map<Long, Integer> posiciones =
+          contar("SELECT p.almacen_id, COUNT(*)" + JOIN_POSICIONES + " GROUP BY p.almacen_id");
+      try (Statement st = connection.createStatement();
+          ResultSet rs = st.executeQuery("SELECT id, nombre FROM almacen ORDER BY orden, id")) {
+        while (rs.next()) {
+          long id = rs.getLong(1);
+          Almacen almacen = new Almacen(rs.getString(2));
+          almacen.setArchivo(Long.toString(id));
+          almacen.setCargaDiferida(
+              pasillos.getOrDefault(id, 0), posiciones.getOrDefault(id, 0), this::loadHierarchy);
+          almacenes.add(almacen);
+        }
+      }
+    } catch (SQLException e) {
+      System.err.println("Error cargando almacenes: " + e.getMessage());
+    }
+    return almacenes;
+  }
+
+  /**
+   * Ejecuta una consulta de recuento agrupado por almacén.
+   *
+   * @param sql Consulta que devuelve el identificador del almacén y el recuento
+   * @return Recuento por almacén
+   * @throws SQLException Si falla la consulta
+   */
+  private Map<Long, Integer> contar(String sql) throws SQLException {
+    Map<Long, Integer> recuento = new HashMap<>();
+    try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+      while (rs.next()) {
+        recuento.put(rs.getLong(1), rs.getInt(2));
+      }
+    }
+    return recuento;
+  }
+
+  /**
+   * Lee la jerarquía de un almacén con una consulta por nivel. Se invoca en el primer acceso a sus
+   * pasillos; si falla, el almacén queda vacío.
+   *
+   * @param almacen Almacén con carga pendiente
+   */
+  private synchronized void loadHierarchy(Almacen almacen) {
+    Long id = id(almacen);
+    List<Pasillo> pasillos = new ArrayList<>();
+    if (id == null) {
+      almacen.setPasillos(pasillos);
+      return;
+    }
+
+    try {
+      Map<Long, Pasillo> porPasillo = new HashMap<>();
+      try (PreparedStatement ps = connection.prepareStatement(
+          "SELECT id, numero FROM pasillo WHERE almacen_id = ? ORDER BY id")) {
+        ps.setLong(1, id);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            Pasillo pasillo = new Pasillo(rs.getInt(2));
+            porPasillo.put(rs.getLong(1), pasillo);
+            pasillos.add(pasillo);
+          }
+        }
+      }
+
+      Map<Long, Estanteria> porEstanteria = new HashMap<>();
+      try (PreparedStatement ps = connection.prepareStatement(
+          "SELECT e.id, e.pasillo_id, e.numero FROM estanteria e"
+              + " JOIN pasillo p ON e.pasillo_id = p.id WHERE p.almacen_id = ? ORDER BY e.id")) {
+        ps.setLong(1, id);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            Estanteria estanteria = new Estanteria(rs.getInt(3));
+            porEstanteria.put(rs.getLong(1), estanteria);
+            porPasillo.get(rs.getLong(2)).getEstanterias().add(estanteria);
+          }
+        }
+      }
+
+      Map<Long, Altura> porAltura = new HashMap<>();
+      try (PreparedStatement ps = connection.prepareStatement(
+          "SELECT h.id, h.estanteria_id, h.numero FROM altura h"
+              + " JOIN estanteria e ON h.estanteria_id = e.id"
+              + " JOIN pasillo p ON e.pasillo_id = p.id WHERE p.almacen_id = ? ORDER BY h.id")) {
+        ps.setLong(1, id);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            Altura altura = new Altura(rs.getInt(3));
+            porAltura.put(rs.getLong(1), altura);
+            porEstanteria.get(rs.getLong(2)).getAlturas().add(altura);
+          }
+        }
+      }
+
+      try (PreparedStatement ps = connection.prepareStatement(
+          "SELECT s.altura_id, s.numero" + JOIN_POSICIONES
+              + " WHERE p.almacen_id = ? ORDER BY s.id")) {
+        ps.setLong(1, id);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            porAltura.get(rs.getLong(1)).getPosiciones().add(new Posicion(rs.getInt(2)));
+          }
+        }
+      }
+    } catch (SQLException e) {
+      System.err.println("Error cargando almacén " + almacen.getNombre() + ": " + e.getMessage());
+      pasillos = new ArrayList<>();
+    }
+    almacen.setPasillos(pasillos);
+  }
+
+  /**
+   * Consulta las posiciones de una parte de un almacén directamente en la base de datos, sin
+   * cargar el resto de su jerarquía.
+   */
+  @Override
+  public synchronized List<Posicion> loadPosiciones(String almacen, int... ruta) {
+    StringBuilder sql = new StringBuilder("SELECT s.numero, p.numero, e.numero, h.numero"
+        + JOIN_POSICIONES
+        + " JOIN almacen a ON p.almacen_id = a.id WHERE UPPER(a.nombre) = UPPER(?)");
+    String[] columnas = {"p.numero", "e.numero", "h.numero"};
+    for (int i = 0; i < Math.min(ruta.length, columnas.length); i++) {
+      sql.append(" AND ").append(columnas[i]).append(" = ?");
+    }
+    sql.append(" ORDER BY s.id");
+
+    List<Posicion> posiciones = new ArrayList<>();
+    try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+      ps.setString(1, almacen);
+      for (int i = 0; i < Math.min(ruta.length, columnas.length); i++) {
+        ps.setInt(i + 2, ruta[i]);
+      }
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          Posicion posicion = new Posicion(rs.getInt(1));
+          posicion.setClave(ValidationService.generateClave(
+              rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getInt(1)));
+          posiciones.add(posicion);
+        }
+      }
+    } catch (SQLException e) {
+      System.err.println("Error consultando posiciones: " + e.getMessage());
+    }
+    return posiciones;
+  }
+
+  /**
+   * Guarda la lista completa en una transacción. La jerarquía de los almacenes cargados se
+   * reemplaza; los no cargados solo actualizan nombre y orden, y los que ya no están se borran.
+   */
+  @Override
+  public synchronized void saveAlmacenes(List<Almacen> almacenes) {
+    savesRequested++;
+    long start = System.nanoTime();
+    transaction(() -> {
+      // Los almacenes sin fila conocida pueden existir ya con el mismo nombre (importación)
+      for (Almacen almacen : almacenes) {
+        if (id(almacen) == null) {
+          Long id = almacenId(almacen.getNombre());
+          almacen.setArchivo(id != null ? Long.toString(id) : null);
+        }
+      }
+      // Nombres provisionales para que los intercambios de nombre no violen la unicidad
+      try (Statement st = connection.createStatement()) {
+        st.executeUpdate("UPDATE almacen SET nombre = CONCAT('#', id)");
+      }
+
+      Set<Long> vivos = new HashSet<>();
+      for (int i = 0; i < almacenes.size(); i++) {
+        Almacen almacen = almacenes.get(i);
+        long id = upsertAlmacen(almacen, i);
+        vivos.add(id);
+        if (almacen.isCargado()) {
+          try (PreparedStatement ps =
+              connection.prepareStatement("DELETE FROM pasillo WHERE almacen_id = ?")) {
+            ps.setLong(1, id);
+            ps.executeUpdate();
+          }
+          insertHierarchy(id, almacen);
+        }
+      }
+
+      List<Long> sobrantes = new ArrayList<>();
+      try (Statement st = connection.createStatement();
+          ResultSet rs = st.executeQuery("SELECT id FROM almacen")) {
+        while (rs.next()) {
+          if (!vivos.contains(rs.getLong(1))) {
+            sobrantes.add(rs.getLong(1));
+          }
+        }
+      }
+      try (PreparedStatement ps = connection.prepareStatement("DELETE FROM almacen WHERE id = ?")) {
+        for (long id : sobrantes) {
+          ps.setLong(1, id);
+          ps.addBatch();
+        }
+        ps.executeBatch();
+      }
+    }, "Error guardando almacenes: ");
+    registrarEscritura(start);
+  }
+
+  /**
+   * Actualiza la fila de un almacén o la crea si no tiene.
+   *
+   * @param almacen Almacén a guardar
+   * @param orden Posición en la lista
+   * @return Identificador de su fila
+   * @throws SQLException Si falla la escritura
+   */
+  private long upsertAlmacen(Almacen almacen, int orden) throws SQLException {
+    Long id = id(almacen);
+    if (id != null) {
+      try (PreparedStatement ps = connection.prepareStatement(
+          "UPDATE almacen SET nombre = ?, orden = ? WHERE id = ?")) {
+        ps.setString(1, almacen.getNombre());
+        ps.setInt(2, orden);
+        ps.setLong(3, id);
+        if (ps.executeUpdate() > 0) {
+          return id;
+        }
+      }
+    }
+
+    long nuevo =
+        insert("INSERT INTO almacen (nombre, orden) VALUES (?, ?)", almacen.getNombre(), orden);
+    almacen.setArchivo(Long.toString(nuevo));
+    return nuevo;
+  }
+
+  /**
+   * Inserta la jerarquía completa de un almacén. Las posiciones, que son la mayoría de las filas,
+   * se insertan en lotes.
+   *
+   * @param almacenId Identificador del almacén
+   * @param almacen Almacén cargado
+   * @throws SQLException Si falla la escritura
+   */
+  private void insertHierarchy(long almacenId, Almacen almacen) throws SQLException {
+    try (PreparedStatement posiciones = connection.prepareStatement(
+        "INSERT INTO posicion (altura_id, numero, codigo) VALUES (?, ?, ?)")) {
+      int pendientes = 0;
+      for (Pasillo pasillo : almacen.getPasillos()) {
+        long pasilloId = insertHijo(0, almacenId, pasillo.getNumero());
+        for (Estanteria estanteria : pasillo.getEstanterias()) {
+          long estanteriaId = insertHijo(1, pasilloId, estanteria.getNumero());
+          for (Altura altura : estanteria.getAlturas()) {
+            long alturaId = insertHijo(2, estanteriaId, altura.getNumero());
+            for (int posicion : altura.getNumerosPosiciones()) {
+              posiciones.setLong(1, alturaId);
+              posiciones.setInt(2, posicion);
+              posiciones.setString(3, ValidationService.generateCodigo(pasillo.getNumero(),
+                  estanteria.getNumero(), altura.getNumero(), posicion));
+              posiciones.addBatch();
+              if (++pendientes == BATCH_SIZE) {
+                posiciones.executeBatch();
+                pendientes = 0;
+              }
+            }
+          }
+        }
+      }
+      if (pendientes > 0) {
+        posiciones.executeBatch();
+      }
+    }
+  }
+
+  /**
+   * Inserta un pasillo, estantería o altura.
+   *
+   * @param nivel Nivel de la tabla (0 pasillo, 1 estantería, 2 altura)
+   * @param padre Identificador del padre
+   * @param numero Número del elemento
+   * @return Identificador de la fila nueva
+   * @throws SQLException Si falla la escritura
+   */
+  private long insertHijo(int nivel, long padre, int numero) throws SQLException {
+    return insert(
+        "INSERT INTO " + TABLES[nivel] + " (" + PARENTS[nivel] + ", numero) VALUES (?, ?)",
+        padre, numero);
+  }
+
+  /**
+   * Ejecuta un INSERT y devuelve la clave generada.
+   *
+   * @param sql Sentencia con parámetros
+   * @param valores Valores de los parámetros, en orden
+   * @return Identificador de la fila nueva
+   * @throws SQLException Si falla la escritura
+   */
+  private long insert(String sql, Object... valores) throws SQLException {
+    try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+      for (int i = 0; i < valores.length; i++) {
+        ps.setObject(i + 1, valores[i]);
+      }
+      ps.executeUpdate();
+      try (ResultSet keys = ps.getGeneratedKeys()) {
+        if (!keys.next()) {
+          throw new SQLException("Sin clave generada: " + sql);
+        }
+        return keys.getLong(1);
+      }
+    }
+  }
+
+  /**
+   * Aplica los cambios en una sola transacción. Las altas consecutivas del mismo padre, como las
+   * de un rango, se envían en un único lote.
+   */
+  @Override
+  public synchronized void appendChanges(List<Almacen> almacenes, List<JournalEntry> cambios) {
+    if (cambios.isEmpty()) {
+      return;
+    }
+    savesRequested++;
+    long start = System.nanoTime();
+    transaction(() -> {
+      PreparedStatement lote = null;
+      String padreLote = null;
+      try {
+        for (JournalEntry cambio : cambios) {
+          int[] ruta = cambio.getRuta();
+          if (ruta == null) {
+            aplicarAlmacen(almacenes, cambio);
+            continue;
+          }
+          if (cambio.getNumero() == null || ruta.length >= TABLES.length) {
+            continue;
+          }
+
+          String clave = cambio.getAlmacen().toUpperCase() + Arrays.toString(ruta);
+          if (cambio.getOp() == JournalEntry.Op.CREAR && clave.equals(padreLote)) {
+            addCrear(lote, ruta, cambio.getNumero());
+            continue;
+          }
+          if (lote != null) {
+            lote.executeBatch();
+            lote.close();
+            lote = null;
+            padreLote = null;
+          }
+
+          Long padre = padreId(cambio.getAlmacen(), ruta);
+          if (padre == null) {
+            continue;
+          }
+          if (cambio.getOp() == JournalEntry.Op.CREAR) {
+            lote = prepareCrear(ruta.length, padre);
+            padreLote = clave;
+            addCrear(lote, ruta, cambio.getNumero());
+          } else if (cambio.getOp() == JournalEntry.Op.RENUMERAR) {
+            renumerar(ruta, padre, cambio.getNumero(), cambio.getNuevoNumero());
+          } else if (cambio.getOp() == JournalEntry.Op.ELIMINAR) {
+            eliminar(ruta.length, padre, cambio.getNumero());
+          }
+        }
+        if (lote != null) {
+          lote.executeBatch();
+        }
+      } finally {
+        if (lote != null) {
+          lote.close();
+        }
+      }
+    }, "Error registrando cambios: ");
+    registrarEscritura(start);
+  }
+
+  /**
+   * Aplica un alta, renombrado o baja de almacén. Al crear uno se anota su fila en el almacén en
+   * memoria.
+   *
+   * @param almacenes Lista en memoria, ya modificada
+   * @param cambio Cambio sobre un almacén
+   * @throws SQLException Si falla la escritura
+   */
+  private void aplicarAlmacen(List<Almacen> almacenes, JournalEntry cambio) throws SQLException {
+    Long id = almacenId(cambio.getAlmacen());
+    switch (cambio.getOp()) {
+      case CREAR -> {
+        if (id != null) {
+          return;
+        }
+        int orden;
+        try (Statement st = connection.createStatement();
+            ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(orden), -1) + 1 FROM almacen")) {
+          rs.next();
+          orden = rs.getInt(1);
+        }
+        long nuevo = insert(
+            "INSERT INTO almacen (nombre, orden) VALUES (?, ?)", cambio.getAlmacen(), orden);
+        for (Almacen almacen : almacenes) {
+          if (cambio.getAlmacen().equalsIgnoreCase(almacen.getNombre())) {
+            almacen.setArchivo(Long.toString(nuevo));
+          }
+        }
+      }
+      case RENUMERAR -> {
+        if (id != null) {
+          update("UPDATE almacen SET nombre = ? WHERE id = ?", cambio.getNuevoNombre(), id);
+        }
+      }
+      case ELIMINAR -> {
+        if (id != null) {
+          update("DELETE FROM almacen WHERE id = ?", id);
+        }
+      }
+      default -> {
+      }
+    }
+  }
+
+  /**
+   * Prepara el lote de altas bajo un padre. Las altas de números que ya existen se ignoran, como
+   * al reaplicar el diario.
+   *
+   * @param nivel Nivel de los elementos (longitud de la ruta)
+   * @param padre Identificador del padre
+   * @return Sentencia preparada con el padre ya asignado
+   * @throws SQLException Si falla la preparación
+   */
+  private PreparedStatement prepareCrear(int nivel, long padre) throws SQLException {
+    String tabla = TABLES[nivel];
+    String columnaPadre = PARENTS[nivel];
+    String columnas = nivel == TABLES.length - 1 ? "numero, codigo" : "numero";
+    String valores = nivel == TABLES.length - 1 ? "?, ?, ?" : "?, ?";
+    PreparedStatement ps = connection.prepareStatement(
+        "MERGE INTO " + tabla + " (" + columnaPadre + ", " + columnas + ") KEY ("
+            + columnaPadre + ", numero) VALUES (" + valores + ")");
+    ps.setLong(1, padre);
+    return ps;
+  }
+
+  /**
+   * Añade un alta al lote.
+   *
+   * @param lote Sentencia preparada por {@link #prepareCrear}
+   * @param ruta Ruta del elemento
+   * @param numero Número del elemento
+   * @throws SQLException Si falla el lote
+   */
+  private static void addCrear(PreparedStatement lote, int[] ruta, int numero) throws SQLException {
+    lote.setInt(2, numero);
+    if (ruta.length == TABLES.length - 1) {
+      lote.setString(3, ValidationService.generateCodigo(ruta[0], ruta[1], ruta[2], numero));
+    }
+    lote.addBatch();
+  }
+
+  /**
+   * Cambia el número de un elemento si el nuevo número está libre. Las posiciones regeneran su
+   * código.
+   *
+   * @param ruta Ruta del elemento
+   * @param padre Identificador del padre
+   * @param numero Número actual
+   * @param nuevoNumero Nuevo número
+   * @throws SQLException Si falla la escritura
+   */
+  private void renumerar(int[] ruta, long padre, int numero, int nuevoNumero) throws SQLException {
+    String tabla = TABLES[ruta.length];
+    String columnaPadre = PARENTS[ruta.length];
+    if (childId(ruta.length, padre, nuevoNumero) != null) {
+      return;
+    }
+    if (ruta.length == TABLES.length - 1) {
+      update("UPDATE posicion SET numero = ?, codigo = ? WHERE altura_id = ? AND numero = ?",
+          nuevoNumero,
+          ValidationService.generateCodigo(ruta[0], ruta[1], ruta[2], nuevoNumero),
+          padre,
+          numero);
+    } else {
+      update("UPDATE " + tabla + " SET numero = ? WHERE " + columnaPadre + " = ? AND numero = ?",
+          nuevoNumero, padre, numero);
+    }
+  }
+
+  /**
+   * Borra un elemento; su contenido se borra en cascada.
+   *
+   * @param nivel Nivel del elemento
+   * @param padre Identificador del padre
+   * @param numero Número del elemento
+   * @throws SQLException Si falla la escritura
+   */
+  private void eliminar(int nivel, long padre, int numero) throws SQLException {
+    update("DELETE FROM " + TABLES[nivel] + " WHERE " + PARENTS[nivel] + " = ? AND numero = ?",
+        padre, numero);
+  }
+
+  /**
+   * Localiza el padre de un elemento siguiendo su ruta.
+   *
+   * @param almacen Nombre del almacén
+   * @param ruta Números de los padres
+   * @return Identificador del padre, o null si algún nivel no existe
+   * @throws SQLException Si falla la consulta
+   */
+  private Long padreId(String almacen, int[] ruta) throws SQLException {
+    Long id = almacenId(almacen);
+    for (int nivel = 0; nivel < ruta.length && id != null; nivel++) {
+      id = childId(nivel, id, ruta[nivel]);
+    }
+    return id;
+  }
+
+  /**
+   * Busca un almacén por nombre sin distinguir mayúsculas.
+   *
+   * @param nombre Nombre del almacén
+   * @return Identificador, o null si no existe
+   * @throws SQLException Si falla la consulta
+   */
+  private Long almacenId(String nombre) throws SQLException {
+    return queryId("SELECT id FROM almacen WHERE UPPER(nombre) = UPPER(?)", nombre);
+  }
+
+  /**
+   * Busca un hijo por número usando el índice único del nivel.
+   *
+   * @param nivel Nivel del hijo
+   * @param padre Identificador del padre
+   * @param numero Número del hijo
+   * @return Identificador, o null si no existe
+   * @throws SQLException Si falla la consulta
+   */
+  private Long childId(int nivel, long padre, int numero) throws SQLException {
+    return queryId(
+        "SELECT id FROM " + TABLES[nivel] + " WHERE " + PARENTS[nivel] + " = ? AND numero = ?",
+        padre, numero);
+  }
+
+  /**
+   * Ejecuta una consulta que devuelve como mucho un identificador.
+   *
+   * @param sql Consulta con parámetros
+   * @param valores Valores de los parámetros
+   * @return Identificador, o null si no hay fila
+   * @throws SQLException Si falla la consulta
+   */
+  private Long queryId(String sql, Object... valores) throws SQLException {
+    try (PreparedStatement ps = connection.prepareStatement(sql)) {
+      for (int i = 0; i < valores.length; i++) {
+        ps.setObject(i + 1, valores[i]);
+      }
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next() ? rs.getLong(1) : null;
+      }
+    }
+  }
+
+  /**
+   * Ejecuta una sentencia de modificación.
+   *
+   * @param sql Sentencia con parámetros
+   * @param valores Valores de los parámetros
+   * @throws SQLException Si falla la escritura
+   */
+  private void update(String sql, Object... valores) throws SQLException {
+    try (PreparedStatement ps = connection.prepareStatement(sql)) {
+      for (int i = 0; i < valores.length; i++) {
+        ps.setObject(i + 1, valores[i]);
+      }
+      ps.executeUpdate();
+    }
+  }
+
+  /**
+   * Obtiene el identificador de fila guardado en un almacén.
+   *
+   * @param almacen Almacén
+   * @return Identificador, o null si aún no tiene fila en esta base de datos
+   */
+  private static Long id(Almacen almacen) {
+    try {
+      return almacen.getArchivo() != null ? Long.valueOf(almacen.getArchivo()) : null;
+    } catch (NumberFormatException e) {
+      // Clave de otro almacenamiento
+      return null;
+    }
+  }
+
+  /** Operación sobre la base de datos que puede fallar. */
+  @FunctionalInterface
+  private interface Operacion {
+    void ejecutar() throws SQLException;
+  }
+
+  /**
+   * Ejecuta una operación en una transacción. Si falla se deshace entera.
+   *
+   * @param operacion Operación a ejecutar
+   * @param error Prefijo del mensaje de error
+   */
+  private void transaction(Operacion operacion, String error) {
+    try {
+      connection.setAutoCommit(false);
+      try {
+        operacion.ejecutar();
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      System.err.println(error + e.getMessage());
+    }
+  }
+
+  /**
+   * Actualiza las métricas tras una escritura.
+   *
+   * @param start Instante (nanoTime) de inicio
+   */
+  private void registrarEscritura(long start) {
+    writesCompleted++;
+    lastWriteMillis = (System.nanoTime() - start) / 1e6;
+    maxWriteMillis = Math.max(maxWriteMillis, lastWriteMillis);
+    totalWriteMillis += lastWriteMillis;
+  }
+
+  /** La base de datos es de este proceso: no hay cambios externos. */
+  @Override
+  public boolean hasExternalChanges() {
+    return false;
+  }
+
+  /** No hace nada: la base de datos no se comparte con otras instancias. */
+  @Override
+  public void startWatching(Runnable onExternalChange) {
+    // Sin cambios externos que vigilar
+  }
+
+  /** No hace nada: no hay vigilancia activa. */
+  @Override
+  public void stopWatching() {
+    // Sin vigilancia
+  }
+
+  /** No hace nada: cada cambio se confirma en su transacción, sin cola de escritura. */
+  @Override
+  public void setWriteBehind(boolean enabled) {
+    // Escritura siempre inmediata
+  }
+
+  /** No hace nada: no hay guardados pendientes. */
+  @Override
+  public void flush() {
+    // Sin cola de escritura
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      System.err.println("Error cerrando la base de datos: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public synchronized StorageMetrics getMetrics() {
+    return new StorageMetrics(
+        savesRequested,
+        writesCompleted,
+        0,
+        lastWriteMillis,
+        maxWriteMillis,
+        totalWriteMillis,
+        lastWriteMillis);
+  }
+
+  @Override
+  public synchronized String loadPin() {
+    String pin = readConfig(PIN_KEY);
+    return pin != null && !pin.isBlank() ? pin : DEFAULT_PIN;
+  }
+
+  @Override
+  public synchronized void savePin(String pin) {
+    writeConfig(PIN_KEY, pin);
+  }
+
+  /**
+   * Lee un valor de la tabla de configuración.
+   *
+   * @param clave Clave
+   * @return Valor, o null si no existe
+   */
+  private String readConfig(String clave) {
+    try (PreparedStatement ps =
+        connection.prepareStatement("SELECT valor FROM config WHERE clave = ?")) {
+      ps.setString(1, clave);
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next() ? rs.getString(1) : null;
+      }
+    } catch (SQLException e) {
+      System.err.println("Error leyendo la configuración: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Escribe un valor en la tabla de configuración.
+   *
+   * @param clave Clave
+   * @param valor Valor
+   */
+  private void writeConfig(String clave, String valor) {
+    try {
+      update("MERGE INTO config (clave, valor) KEY (clave) VALUES (?, ?)", clave, valor);
+    } catch (SQLException e) {
+      System.err.println("Error guardando la configuración: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public synchronized boolean exportJson(File target) {
+    List<Almacen> almacenes = loadAlmacenes();
+    for (Almacen almacen : almacenes) {
+      almacen.getPasillos();
+    }
+    try {
+      JsonFormat.write(loadPin(), almacenes, target);
+      return true;
+    } catch (IOException e) {
+      System.err.println("Error exportando JSON: " + e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public synchronized boolean importJson(File source) {
+    try {
+      JsonFormat.Contenido imported = JsonFormat.read(source);
+      if (imported == null || imported.almacenes() == null) {
+        return false;
+      }
+      saveAlmacenes(imported.almacenes());
+      return true;
+    } catch (IOException | com.google.gson.JsonParseException e) {
+      System.err.println("Error importando JSON: " + e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public File getStorageDirectory() {
+    return storageDir;
+  }
+
+  @Override
+  public synchronized void clearData() {
+    transaction(() -> {
+      try (Statement st = connection.createStatement()) {
+        st.executeUpdate("DELETE FROM almacen");
+        st.executeUpdate("DELETE FROM config WHERE clave <> '" + MIGRATED_KEY + "'");
+      }
+    }, "Error borrando los datos: ");
+  }
+
+  @Override
+  public synchronized boolean hasAlmacenes() {
+    try (Statement st = connection.createStatement();
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM almacen")) {
+      return rs.next() && rs.getLong(1) > 0;
+    } catch (SQLException e) {
+      System.err.println("Error consultando almacenes: " + e.getMessage());
+      return false;
+    }
+  }
+}
@@ -0,0 +1,360 @@
+package com.openwarehouses.services;
+
+import com.openwarehouses.models.Almacen;
+import com.openwarehouses.models.Altura;
+import com.openwarehouses.models.Estanteria;
+import com.openwarehouses.models.LocationKey;
+import com.openwarehouses.models.Pasillo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Verificación y reparación de la coherencia de los almacenes en memoria y de sus archivos.
+ *
+ * <p>Se comprueba que los números de cada nivel sean positivos y no se repitan entre hermanos (por
+ * ejemplo, tras un {@code setNumero} sin validar) y, con {@link StorageService#verifyStorage()},
+ * que los archivos guardados sean legibles y su suma de verificación correcta. Los códigos de
+ * posición no se revisan: se deducen siempre de la ruta.
+ *
+ * <p>Cada almacén se recorre en paralelo por pasillos, ya que sus subárboles son independientes.
+ * La reparación fusiona los elementos repetidos (los hijos del repetido pasan al primero, sin
+ * perder posiciones) y elimina las posiciones repetidas; los números no válidos solo se
+ * informan. Nada se guarda aquí: quien repara guarda después de una vez.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public final class IntegrityService {
+  /** Número máximo de problemas que se detallan en el informe. */
+  private static final int MAX_DETALLE = 1000;
+
+  /** Números por debajo de este límite se controlan con un {@link BitSet}; el resto, con hash. */
+  private static final int LIMITE_BITSET = 1 << 16;
+
+  /** Tipo de problema encontrado. */
+  public enum Tipo {
+    /** Número repetido entre elementos del mismo nivel. */
+    DUPLICADO,
+    /**
+     * Número cero, negativo o mayor que {@link LocationKey#MAX_NUMERO}, que no tendría etiqueta.
+     */
+    NUMERO_NO_VALIDO,
+    /** Archivo guardado ilegible o con suma de verificación incorrecta. */
+    ARCHIVO
+  }
+
+  /**
+   * Problema encontrado.
+   *
+   * @param tipo Tipo de problema
+   * @param almacen Nombre del almacén, o null si afecta a un archivo sin almacén
+   * @param detalle Ruta afectada y descripción
+   */
+  public record Problema(Tipo tipo, String almacen, String detalle) {
+    @Override
+    public String toString() {
+      return tipo + " " + (almacen != null ? almacen + " " : "") + detalle;
+    }
+  }
+
+  /**
+   * Resultado de una verificación o reparación.
+   *
+   * @param totales Número de problemas de cada tipo
+   * @param problemas Primeros problemas encontrados, como mucho {@value #MAX_DETALLE}
+   * @param posiciones Posiciones recorridas
+   * @param reparados Problemas corregidos (cero si solo se verificó)
+   */
+  public record Informe(
+      Map<Tipo, Long> totales, List<Problema> problemas, long posiciones, long reparados) {
+
+    /**
+     * Obtiene el número total de problemas.
+     *
+     * @return Suma de los problemas de todos los tipos
+     */
+    public long total() {
+      return totales.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Indica si no se encontró ningún problema.
+     *
+     * @return true si todo es correcto
+     */
+    public boolean isCorrecto() {
+      return total() == 0;
+    }
+  }
+
+  /** Problemas acumulados por una tarea; las de cada pasillo se combinan al terminar. */
+  private static final class Parcial {
+    private final String almacen;
+    private final Map<Tipo, Long> totales = new EnumMap<>(Tipo.class);
+    private final List<Problema> problemas = new ArrayList<>();
+    private long posiciones;
+    private long reparados;
+
+    /**
+     * Crea un acumulador para un almacén.
+     *
+     * @param almacen Nombre del almacén
+     */
+    private Parcial(String almacen) {
+      this.almacen = almacen;
+    }
+
+    /**
+     * Anota un problema.
+     *
+     * @param tipo Tipo de problema
+     * @param detalle Ruta afectada y descripción
+     */
+    private void anotar(Tipo tipo, String detalle) {
+      totales.merge(tipo, 1L, Long::sum);
+      if (problemas.size() < MAX_DETALLE) {
+        problemas.add(new Problema(tipo, almacen, detalle));
+      }
+    }
+
+    /**
+     * Incorpora los problemas de otra tarea.
+     *
+     * @param otro Acumulador de otra tarea
+     * @return Este acumulador
+     */
+    private Parcial combinar(Parcial otro) {
+      otro.totales.forEach((tipo, n) -> totales.merge(tipo, n, Long::sum));
+      for (Problema problema : otro.problemas) {
+        if (problemas.size() >= MAX_DETALLE) {
+          break;
+        }
+        problemas.add(problema);
+      }
+      posiciones += otro.posiciones;
+      reparados += otro.reparados;
+      return this;
+    }
+  }
+
+  /** Números ya vistos entre los hermanos de un nivel. */
+  private static final class Vistos {
+    private final BitSet pequenos = new BitSet();
+    private Set<Integer> grandes;
+
+    /**
+     * Anota un número.
+     *
+     * @param numero Número del elemento
+     * @return true si ya se había visto
+     */
+    private boolean repetido(int numero) {
+      if (numero >= 0 && numero < LIMITE_BITSET) {
+        boolean visto = pequenos.get(numero);
+        pequenos.set(numero);
+        return visto;
+      }
+      if (grandes == null) {
+        grandes = new HashSet<>();
+      }
+      return !grandes.add(numero);
+    }
+  }
+
+  /** Constructor privado para evitar instanciación. */
+  private IntegrityService() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Verifica los almacenes en memoria y los archivos del almacenamiento, sin modificar nada.
+   *
+   * @param storage Almacenamiento cuyos archivos se comprueban, o null para no comprobarlos
+   * @param almacenes Almacenes a verificar; se cargan si tenían la carga pendiente
+   * @return Informe con los problemas encontrados
+   */
+  public static Informe verificar(StorageService storage, List<Almacen> almacenes) {
+    return recorrer(storage, almacenes, false);
+  }
+
+  /**
+   * Repara los almacenes en memoria y devuelve lo que queda por corregir. Los elementos
+   * modificados se marcan para que el siguiente guardado los reescriba; hay que guardar después
+   * si {@link Informe#reparados()} es mayor que cero.
+   *
+   * @param storage Almacenamiento cuyos archivos se comprueban, o null para no comprobarlos
+   * @param almacenes Almacenes a reparar
+   * @return Informe con los problemas encontrados y los corregidos
+   */
+  public static Informe reparar(StorageService storage, List<Almacen> almacenes) {
+    return recorrer(storage, almacenes, true);
+  }
+
+  /**
+   * Recorre los almacenes, en paralelo por pasillos, y opcionalmente repara.
+   *
+   * @param storage Almacenamiento, o null
+   * @param almacenes Almacenes a recorrer
+   * @param reparar true para corregir lo que se pueda
+   * @return Informe del recorrido
+   */
+  private static Informe recorrer(StorageService storage, List<Almacen> almacenes,
+      boolean reparar) {
+    Parcial total = new Parcial(null);
+    if (storage != null) {
+      for (String archivo : storage.verifyStorage()) {
+        total.anotar(Tipo.ARCHIVO, archivo);
+      }
+    }
+
+    for (Almacen almacen : almacenes) {
+      Parcial parcial = new Parcial(almacen.getNombre());
+      List<Pasillo> pasillos = almacen.getPasillos();
+      revisarNivel(pasillos, Pasillo::getNumero, "pasillo ", parcial, reparar,
+          (primero, repetido) -> primero.getEstanterias().addAll(repetido.getEstanterias()),
+          almacen::marcarModificado, Pasillo::marcarModificado);
+
+      Parcial pasillosParcial = pasillos.parallelStream()
+          .map(pasillo -> revisarPasillo(almacen.getNombre(), pasillo, reparar))
+          .reduce(Parcial::combinar)
+          .orElseGet(() -> new Parcial(almacen.getNombre()));
+      total.combinar(parcial.combinar(pasillosParcial));
+    }
+    return new Informe(new EnumMap<>(total.totales), List.copyOf(total.problemas),
+        total.posiciones, total.reparados);
+  }
+
+  /**
+   * Revisa el subárbol de un pasillo. Cada tarea trabaja solo sobre su pasillo.
+   *
+   * @param almacen Nombre del almacén
+   * @param pasillo Pasillo a revisar
+   * @param reparar true para corregir lo que se pueda
+   * @return Problemas del pasillo
+   */
+  private static Parcial revisarPasillo(String almacen, Pasillo pasillo, boolean reparar) {
+    Parcial parcial = new Parcial(almacen);
+    int p = pasillo.getNumero();
+    revisarNivel(pasillo.getEstanterias(), Estanteria::getNumero, p + ".", parcial, reparar,
+        (primero, repetido) -> primero.getAlturas().addAll(repetido.getAlturas()),
+        pasillo::marcarModificado, Estanteria::marcarModificado);
+
+    for (Estanteria estanteria : pasillo.getEstanterias()) {
+      int e = estanteria.getNumero();
+      revisarNivel(estanteria.getAlturas(), Altura::getNumero, p + "." + e + ".", parcial,
+          reparar, (primero, repetido) -> primero.getPosiciones().addAll(repetido.getPosiciones()),
+          estanteria::marcarModificado, Altura::marcarModificado);
+
+      for (Altura altura : estanteria.getAlturas()) {
+        int h = altura.getNumero();
+        revisarPosiciones(p + "." + e + "." + h + ".", altura, parcial, reparar);
+      }
+    }
+    return parcial;
+  }
+
+  /**
+   * Comprueba los números de los hijos de un elemento y, si se repara, fusiona los repetidos en
+   * el primero con ese número.
+   *
+   * @param hijos Hijos del elemento, en orden
+   * @param numero Número de un hijo
+   * @param ruta Ruta del elemento, para el informe
+   * @param parcial Problemas acumulados
+   * @param reparar true para fusionar los repetidos
+   * @param fusionar Pasa los hijos del repetido al primero
+   * @param padreModificado Marca como modificado el elemento cuya lista cambia
+   * @param hijoModificado Marca como modificado el hijo que recibe los del repetido
+   * @param <T> Tipo de los hijos
+   */
+  private static <T> void revisarNivel(List<T> hijos, ToIntFunction<T> numero, String ruta,
+      Parcial parcial, boolean reparar, BiConsumer<T, T> fusionar, Runnable padreModificado,
+      Consumer<T> hijoModificado) {
+    Vistos vistos = new Vistos();
+    Map<Integer, T> primeros = null;
+    for (Iterator<T> it = hijos.iterator(); it.hasNext(); ) {
+      T hijo = it.next();
+      int n = numero.applyAsInt(hijo);
+      if (!ValidationService.isNumeroValido(n)) {
+        parcial.anotar(Tipo.NUMERO_NO_VALIDO, ruta + n);
+      }
+      if (!vistos.repetido(n)) {
+        continue;
+      }
+
+      parcial.anotar(Tipo.DUPLICADO, ruta + n);
+      if (!reparar) {
+        continue;
+      }
+      if (primeros == null) {
+        primeros = primeros(hijos, numero);
+      }
+      T primero = primeros.get(n);
+      fusionar.accept(primero, hijo);
+      hijoModificado.accept(primero);
+      it.remove();
+      padreModificado.run();
+      parcial.reparados++;
+    }
+  }
+
+  /**
+   * Obtiene el primer hijo con cada número.
+   *
+   * @param hijos Hijos de un elemento
+   * @param numero Número de un hijo
+   * @param <T> Tipo de los hijos
+   * @return Primer hijo por número
+   */
+  private static <T> Map<Integer, T> primeros(List<T> hijos, ToIntFunction<T> numero) {
+    Map<Integer, T> primeros = new HashMap<>();
+    for (T hijo : hijos) {
+      primeros.putIfAbsent(numero.applyAsInt(hijo), hijo);
+    }
+    return primeros;
+  }
+
+  /**
+   * Comprueba los números de las posiciones de una altura y, si se repara, quita los repetidos.
+   * Como la altura los guarda ordenados, los repetidos quedan seguidos.
+   *
+   * @param ruta Ruta de la altura, para el informe
+   * @param altura Altura a revisar
+   * @param parcial Problemas acumulados
+   * @param reparar true para quitar las posiciones repetidas
+   */
+  private static void revisarPosiciones(String ruta, Altura altura, Parcial parcial,
+      boolean reparar) {
+    int[] numeros = altura.getNumerosPosiciones();
+    parcial.posiciones += numeros.length;
+    int distintos = 0;
+    for (int i = 0; i < numeros.length; i++) {
+      int n = numeros[i];
+      if (!ValidationService.isNumeroValido(n)) {
+        parcial.anotar(Tipo.NUMERO_NO_VALIDO, ruta + n);
+      }
+      if (i > 0 && numeros[i - 1] == n) {
+        parcial.anotar(Tipo.DUPLICADO, ruta + n);
+        continue;
+      }
+      numeros[distintos++] = n;
+    }
+    if (reparar && distintos < numeros.length) {
+      altura.setNumerosPosiciones(Arrays.copyOf(numeros, distintos));
+      parcial.reparados += numeros.length - distintos;
+    }
+  }
+}
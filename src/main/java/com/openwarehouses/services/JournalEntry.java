@@ -0,0 +1,456 @@
+package com.openwarehouses.services;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.openwarehouses.models.Almacen;
+import com.openwarehouses.models.Altura;
+import com.openwarehouses.models.Estanteria;
+import com.openwarehouses.models.Pasillo;
+import com.openwarehouses.models.Posicion;
+
+/**
+ * Registro de un cambio en la jerarquía para el diario de {@link StorageService}. Cada registro
+ * describe una única operación (crear, renumerar o eliminar) sobre un elemento identificado por el
+ * nombre del almacén y la ruta de números de sus padres.
+ *
+ * <p>La longitud de la ruta indica el nivel: sin ruta se trata del propio almacén; con 0, 1, 2 o 3
+ * números, de un pasillo, una estantería, una altura o una posición respectivamente.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public final class JournalEntry {
+
+  /** Operaciones registrables en el diario. */
+  public enum Op {
+    /** Alta de un elemento. */
+    CREAR,
+    /** Cambio de número (o de nombre, para almacenes). */
+    RENUMERAR,
+    /** Baja de un elemento y todo su contenido. */
+    ELIMINAR
+  }
+
+  /** Número de secuencia asignado al escribirse en el diario. */
+  private long seq;
+
+  /** Operación; null en las marcas de secuencia del diario. */
+  private Op op;
+
+  /** Nombre del almacén afectado. */
+  private String almacen;
+
+  /** Números de los padres del elemento, o null si el elemento es el almacén. */
+  private int[] ruta;
+
+  /** Número del elemento afectado. */
+  private Integer numero;
+
+  /** Nuevo número en las renumeraciones. */
+  private Integer nuevoNumero;
+
+  /** Nuevo nombre en los renombrados de almacén. */
+  private String nuevoNombre;
+
+  /** Constructor vacío para JSON serialization. */
+  JournalEntry() {}
+
+  /**
+   * Constructor interno.
+   *
+   * @param op Operación
+   * @param almacen Nombre del almacén
+   * @param ruta Números de los padres, o null para el almacén
+   * @param numero Número del elemento
+   */
+  private JournalEntry(Op op, String almacen, int[] ruta, Integer numero) {
+    this.op = op;
+    this.almacen = almacen;
+    this.ruta = ruta;
+    this.numero = numero;
+  }
+
+  /**
+   * Crea el registro de alta de un almacén.
+   *
+   * @param nombre Nombre del almacén
+   * @return Registro del cambio
+   */
+  public static JournalEntry crearAlmacen(String nombre) {
+    return new JournalEntry(Op.CREAR, nombre, null, null);
+  }
+
+  /**
+   * Crea el registro de renombrado de un almacén.
+   *
+   * @param nombre Nombre actual
+   * @param nuevoNombre Nuevo nombre
+   * @return Registro del cambio
+   */
+  public static JournalEntry renombrarAlmacen(String nombre, String nuevoNombre) {
+    JournalEntry entry = new JournalEntry(Op.RENUMERAR, nombre, null, null);
+    entry.nuevoNombre = nuevoNombre;
+    return entry;
+  }
+
+  /**
+   * Crea el registro de baja de un almacén.
+   *
+   * @param nombre Nombre del almacén
+   * @return Registro del cambio
+   */
+  public static JournalEntry eliminarAlmacen(String nombre) {
+    return new JournalEntry(Op.ELIMINAR, nombre, null, null);
+  }
+
+  /**
+   * Crea el registro de alta de un elemento dentro de un almacén.
+   *
+   * @param almacen Nombre del almacén
+   * @param ruta Números de los padres del elemento
+   * @param numero Número del nuevo elemento
+   * @return Registro del cambio
+   */
+  public static JournalEntry crear(String almacen, int[] ruta, int numero) {
+    return new JournalEntry(Op.CREAR, almacen, ruta, numero);
+  }
+
+  /**
+   * Crea el registro de renumeración de un elemento dentro de un almacén.
+   *
+   * @param almacen Nombre del almacén
+   * @param ruta Números de los padres del elemento
+   * @param numero Número actual
+   * @param nuevoNumero Nuevo número
+   * @return Registro del cambio
+   */
+  public static JournalEntry renumerar(String almacen, int[] ruta, int numero, int nuevoNumero) {
+    JournalEntry entry = new JournalEntry(Op.RENUMERAR, almacen, ruta, numero);
+    entry.nuevoNumero = nuevoNumero;
+    return entry;
+  }
+
+  /**
+   * Crea el registro de baja de un elemento dentro de un almacén.
+   *
+   * @param almacen Nombre del almacén
+   * @param ruta Números de los padres del elemento
+   * @param numero Número del elemento
+   * @return Registro del cambio
+   */
+  public static JournalEntry eliminar(String almacen, int[] ruta, int numero) {
+    return new JournalEntry(Op.ELIMINAR, almacen, ruta, numero);
+  }
+
+  /**
+   * Crea una marca de secuencia: indica al diario desde qué número continuar sin aplicar cambios.
+   *
+   * @param seq Última secuencia incluida en la instantánea
+   * @return Marca de secuencia
+   */
+  static JournalEntry marca(long seq) {
+    JournalEntry entry = new JournalEntry();
+    entry.seq = seq;
+    return entry;
+  }
+
+  /**
+   * Obtiene el número de secuencia.
+   *
+   * @return Secuencia en el diario
+   */
+  public long getSeq() {
+    return seq;
+  }
+
+  /**
+   * Asigna el número de secuencia.
+   *
+   * @param seq Secuencia en el diario
+   */
+  void setSeq(long seq) {
+    this.seq = seq;
+  }
+
+  /**
+   * Obtiene la operación.
+   *
+   * @return Operación, o null si es una marca de secuencia
+   */
+  public Op getOp() {
+    return op;
+  }
+
+  /**
+   * Obtiene el nombre del almacén afectado.
+   *
+   * @return Nombre del almacén
+   */
+  public String getAlmacen() {
+    return almacen;
+  }
+
+  /**
+   * Obtiene los números de los padres del elemento.
+   *
+   * @return Ruta, o null si el elemento es el almacén
+   */
+  int[] getRuta() {
+    return ruta;
+  }
+
+  /**
+   * Obtiene el número del elemento afectado.
+   *
+   * @return Número, o null si el elemento es el almacén
+   */
+  Integer getNumero() {
+    return numero;
+  }
+
+  /**
+   * Obtiene el nuevo número de una renumeración.
+   *
+   * @return Nuevo número, o null si no es una renumeración
+   */
+  Integer getNuevoNumero() {
+    return nuevoNumero;
+  }
+
+  /**
+   * Obtiene el nuevo nombre de un renombrado de almacén.
+   *
+   * @return Nuevo nombre, o null si no es un renombrado
+   */
+  String getNuevoNombre() {
+    return nuevoNombre;
+  }
+
+  /**
+   * Indica si el registro es solo una marca de secuencia.
+   *
+   * @return true si no describe ningún cambio
+   */
+  boolean isMarca() {
+    return op == null;
+  }
+
+  /**
+   * Aplica el cambio sobre la lista de almacenes en memoria. Los cambios que ya no encajan con el
+   * estado (elemento inexistente o duplicado) se ignoran.
+   *
+   * @param almacenes Lista de almacenes a modificar
+   */
+  public void aplicar(List<Almacen> almacenes) {
+    if (op == null) {
+      return;
+    }
+
+    Almacen a = almacenes.stream()
+        .filter(x -> x.getNombre() != null && x.getNombre().equalsIgnoreCase(almacen))
+        .findFirst()
+        .orElse(null);
+
+    if (ruta == null) {
+      aplicarAlmacen(almacenes, a);
+      return;
+    }
+    if (a == null || numero == null) {
+      return;
+    }
+
+    switch (ruta.length) {
+      case 0 -> aplicarPasillo(a);
+      case 1 -> aplicarEstanteria(a.getPasilloByNumero(ruta[0]));
+      case 2 -> aplicarAltura(estanteria(a));
+      case 3 -> aplicarPosicion(altura(a));
+      default -> {
+      }
+    }
+  }
+
+  /**
+   * Aplica una operación sobre el propio almacén.
+   *
+   * @param almacenes Lista de almacenes
+   * @param a Almacén existente con ese nombre, o null
+   */
+  private void aplicarAlmacen(List<Almacen> almacenes, Almacen a) {
+    switch (op) {
+      case CREAR -> {
+        if (a == null) {
+          almacenes.add(new Almacen(almacen));
+        }
+      }
+      case RENUMERAR -> {
+        if (a != null) {
+          a.setNombre(nuevoNombre);
+        }
+      }
+      case ELIMINAR -> {
+        if (a != null) {
+          almacenes.remove(a);
+        }
+      }
+      default -> {
+      }
+    }
+  }
+
+  /**
+   * Aplica una operación sobre un pasillo.
+   *
+   * @param a Almacén padre
+   */
+  private void aplicarPasillo(Almacen a) {
+    Pasillo actual = a.getPasilloByNumero(numero);
+    switch (op) {
+      case CREAR -> {
+        if (actual == null) {
+          a.addPasillo(new Pasillo(numero));
+        }
+      }
+      case RENUMERAR -> {
+        if (actual != null && a.getPasilloByNumero(nuevoNumero) == null) {
+          actual.setNumero(nuevoNumero);
+        }
+      }
+      case ELIMINAR -> {
+        if (actual != null) {
+          a.removePasillo(actual);
+        }
+      }
+      default -> {
+      }
+    }
+  }
+
+  /**
+   * Aplica una operación sobre una estantería.
+   *
+   * @param p Pasillo padre, o null si ya no existe
+   */
+  private void aplicarEstanteria(Pasillo p) {
+    if (p == null) {
+      return;
+    }
+    Estanteria actual = p.getEstanteriaByNumero(numero);
+    switch (op) {
+      case CREAR -> {
+        if (actual == null) {
+          p.addEstanteria(new Estanteria(numero));
+        }
+      }
+      case RENUMERAR -> {
+        if (actual != null && p.getEstanteriaByNumero(nuevoNumero) == null) {
+          actual.setNumero(nuevoNumero);
+        }
+      }
+      case ELIMINAR -> {
+        if (actual != null) {
+          p.removeEstanteria(actual);
+        }
+      }
+      default -> {
+      }
+    }
+  }
+
+  /**
+   * Aplica una operación sobre una altura.
+   *
+   * @param e Estantería padre, o null si ya no existe
+   */
+  private void aplicarAltura(Estanteria e) {
+    if (e == null) {
+      return;
+    }
+    Altura actual = e.getAlturaByNumero(numero);
+    switch (op) {
+      case CREAR -> {
+        if (actual == null) {
+          e.addAltura(new Altura(numero));
+        }
+      }
+      case RENUMERAR -> {
+        if (actual != null && e.getAlturaByNumero(nuevoNumero) == null) {
+          actual.setNumero(nuevoNumero);
+        }
+      }
+      case ELIMINAR -> {
+        if (actual != null) {
+          e.removeAltura(actual);
+        }
+      }
+      default -> {
+      }
+    }
+  }
+
+  /**
+   * Aplica una operación sobre una posición, regenerando su código.
+   *
+   * @param al Altura padre, o null si ya no existe
+   */
+  private void aplicarPosicion(Altura al) {
+    if (al == null) {
+      return;
+    }
+    Posicion actual = al.getPosicionByNumero(numero);
+    switch (op) {
+      case CREAR -> {
+        if (actual == null) {
+          al.addPosicion(new Posicion(numero));
+        }
+      }
+      case RENUMERAR -> {
+        if (actual != null && al.getPosicionByNumero(nuevoNumero) == null) {
+          actual.setNumero(nuevoNumero);
+          al.marcarModificado();
+        }
+      }
+      case ELIMINAR -> {
+        if (actual != null) {
+          al.removePosicion(actual);
+        }
+      }
+      default -> {
+      }
+    }
+  }
+
+  /**
+   * Localiza la estantería indicada por los dos primeros números de la ruta.
+   *
+   * @param a Almacén
+   * @return Estantería o null
+   */
+  private Estanteria estanteria(Almacen a) {
+    Pasillo p = a.getPasilloByNumero(ruta[0]);
+    return p == null ? null : p.getEstanteriaByNumero(ruta[1]);
+  }
+
+  /**
+   * Localiza la altura indicada por los tres números de la ruta.
+   *
+   * @param a Almacén
+   * @return Altura o null
+   */
+  private Altura altura(Almacen a) {
+    Estanteria e = estanteria(a);
+    return e == null ? null : e.getAlturaByNumero(ruta[2]);
+  }
+
+  @Override
+  /**
+   * Representación en cadena del registro.
+   *
+   * @return Cadena representando el cambio
+   */
+  public String toString() {
+    return "JournalEntry{seq=" + seq + ", op=" + op + ", almacen=" + almacen
+        + ", ruta=" + Arrays.toString(ruta) + ", numero=" + numero + "}";
+  }
+}
@@ -0,0 +1,183 @@
+package com.openwarehouses.services;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.openwarehouses.models.Almacen;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formato JSON de importación y exportación, común a todos los almacenamientos. El documento
+ * contiene la configuración (PIN), la secuencia del diario y la lista de almacenes; también se
+ * acepta el formato antiguo, que era solo el array de almacenes.
+ *
+ * <p>Los archivos terminados en {@code .gz} se escriben comprimidos con gzip; al leer, la
+ * compresión se detecta por la cabecera del archivo, sea cual sea su nombre.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+final class JsonFormat {
+  /** Extensión de los archivos JSON comprimidos. */
+  static final String COMPRESSED_SUFFIX = ".gz";
+
+  /** Instancia de Gson con los adaptadores propios de los modelos. */
+  private static final Gson GSON =
+      ModelTypeAdapters.register(new GsonBuilder().setPrettyPrinting()).create();
+
+  /**
+   * Contenido de un documento JSON.
+   *
+   * @param pin PIN guardado, o null si el documento no lo incluye
+   * @param journalSeq Última secuencia del diario incluida
+   * @param almacenes Almacenes leídos, o null si el documento no los incluye
+   */
+  record Contenido(String pin, long journalSeq, List<Almacen> almacenes) {}
+
+  /** Configuración tal como se serializa en el documento. */
+  private static class Config {
+    private String pin;
+
+    Config(String pin) {
+      this.pin = pin;
+    }
+  }
+
+  /** Documento completo tal como se serializa. */
+  private static class Documento {
+    private Config config;
+    private long journalSeq;
+    private List<Almacen> almacenes;
+
+    Documento(Config config, long journalSeq, List<Almacen> almacenes) {
+      this.config = config;
+      this.journalSeq = journalSeq;
+      this.almacenes = almacenes;
+    }
+  }
+
+  /** Constructor privado para evitar instanciación. */
+  private JsonFormat() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Lee un archivo JSON de almacenes, en el formato actual o en el antiguo.
+   *
+   * @param source Archivo JSON
+   * @return Contenido leído, o null si el archivo está vacío
+   * @throws IOException Si falla la lectura o el JSON no es válido
+   */
+  static Contenido read(File source) throws IOException {
+    if (source.length() == 0) {
+      return null;
+    }
+    try (JsonReader reader = openJsonReader(source)) {
+      return readDocumento(reader);
+    } catch (EOFException e) {
+      // Archivo solo con espacios en blanco
+      return null;
+    }
+  }
+
+  /**
+   * Escribe los almacenes y el PIN en un archivo JSON legible, comprimido si el nombre termina en
+   * {@code .gz}. El JSON se comprime a medida que se genera.
+   *
+   * @param pin PIN de la configuración
+   * @param almacenes Almacenes con su jerarquía cargada
+   * @param target Archivo de destino
+   * @throws IOException Si falla la escritura
+   */
+  static void write(String pin, List<Almacen> almacenes, File target) throws IOException {
+    Writer writer = target.getName().toLowerCase().endsWith(COMPRESSED_SUFFIX)
+        ? new OutputStreamWriter(
+            Compression.deflate(Files.newOutputStream(target.toPath())), StandardCharsets.UTF_8)
+        : Files.newBufferedWriter(target.toPath(), StandardCharsets.UTF_8);
+    try (writer) {
+      GSON.toJson(new Documento(new Config(pin), 0, almacenes), writer);
+    }
+  }
+
+  /**
+   * Decodifica el contenido completo del archivo en una sola pasada.
+   *
+   * @param reader Lector posicionado al inicio del documento
+   * @return Contenido con la configuración y los almacenes leídos
+   * @throws IOException Si falla la lectura o el JSON no es válido
+   */
+  private static Contenido readDocumento(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+      // Formato antiguo: lista JSON de almacenes, sin configuración
+      return new Contenido(null, 0, readAlmacenes(reader));
+    }
+
+    Config config = null;
+    long journalSeq = 0;
+    List<Almacen> almacenes = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "config" -> config = GSON.fromJson(reader, Config.class);
+        case "journalSeq" -> journalSeq = reader.nextLong();
+        case "almacenes" -> almacenes = readAlmacenes(reader);
+        default -> reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new Contenido(config != null ? config.pin : null, journalSeq, almacenes);
+  }
+
+  /**
+   * Lee un array JSON de almacenes elemento a elemento, sin materializar el array completo como
+   * árbol intermedio.
+   *
+   * @param reader Lector posicionado sobre el array
+   * @return Lista de almacenes leídos
+   * @throws IOException Si falla la lectura
+   */
+  private static List<Almacen> readAlmacenes(JsonReader reader) throws IOException {
+    List<Almacen> almacenes = new ArrayList<>();
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return almacenes;
+    }
+
+    reader.beginArray();
+    while (reader.hasNext()) {
+      Almacen almacen = GSON.fromJson(reader, Almacen.class);
+      if (almacen != null) {
+        almacenes.add(almacen);
+      }
+    }
+    reader.endArray();
+    return almacenes;
+  }
+
+  /**
+   * Abre un lector JSON con búfer sobre el archivo indicado, descomprimiéndolo en flujo si está
+   * comprimido.
+   *
+   * @param file Archivo a leer
+   * @return Lector JSON en modo permisivo, como el que usa Gson internamente
+   * @throws IOException Si no se puede abrir el archivo
+   */
+  private static JsonReader openJsonReader(File file) throws IOException {
+    JsonReader reader = new JsonReader(new InputStreamReader(
+        Compression.detect(Files.newInputStream(file.toPath())), StandardCharsets.UTF_8));
+    reader.setLenient(true);
+    return reader;
+  }
+}
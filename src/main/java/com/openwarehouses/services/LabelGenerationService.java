@@ -1,5 +1,7 @@
 package com.openwarehouses.services;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
@@ -8,6 +10,7 @@ import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Altura;
 import com.openwarehouses.models.Estanteria;
 import com.openwarehouses.models.Label;
+import com.openwarehouses.models.LocationKey;
 import com.openwarehouses.models.Pasillo;
 import com.openwarehouses.models.Posicion;
 
@@ -29,6 +32,61 @@ import javafx.scene.control.Alert;
  */
 public class LabelGenerationService {
 
+  /**
+   * Recibe las posiciones recorridas por {@link #forEachPosicion}, una a una y sin crear
+   * etiquetas.
+   */
+  @FunctionalInterface
+  public interface PosicionVisitor {
+    /**
+     * Procesa una posición.
+     *
+     * @param numeroPasillo    Número del pasillo
+     * @param numeroEstanteria Número de la estantería
+     * @param numeroAltura     Número de la altura
+     * @param numeroPosicion   Número de la posición
+     * @throws IOException Si falla la escritura del destino
+     */
+    void visit(int numeroPasillo, int numeroEstanteria, int numeroAltura, int numeroPosicion)
+        throws IOException;
+  }
+
+  /**
+   * Recorre todas las posiciones de un almacén en orden, sin acumular etiquetas en una lista.
+   * Es la base de las exportaciones, que pueden tener millones de posiciones.
+   *
+   * @param almacen Almacén a recorrer
+   * @param visitor Receptor de cada posición
+   * @return Número de posiciones recorridas
+   * @throws IOException Si el receptor falla
+   */
+  public long forEachPosicion(Almacen almacen, PosicionVisitor visitor) throws IOException {
+    return LocationQuery.todas().forEachPosicion(almacen, visitor);
+  }
+
+  /**
+   * Genera etiquetas para las posiciones de un almacén que cumplen una consulta, sin pasar por
+   * las listas de cada nivel.
+   *
+   * @param almacen  Almacén del cual generar etiquetas
+   * @param consulta Posiciones a incluir
+   * @return Lista de etiquetas, en el orden del almacén
+   */
+  public List<Label> generateLabels(Almacen almacen, LocationQuery consulta) {
+    List<Label> labels = new ArrayList<>();
+    try {
+      consulta.forEachPosicion(almacen, (pasillo, estanteria, altura, posicion) -> {
+        if (admiteEtiqueta(pasillo, estanteria, altura, posicion)) {
+          labels.add(new Label(pasillo, estanteria, altura, posicion));
+        }
+      });
+    } catch (IOException e) {
+      // Añadir a la lista no escribe nada
+      throw new UncheckedIOException(e);
+    }
+    return labels;
+  }
+
   /**
    * Genera etiquetas para todas las posiciones de un almacén.
    *
@@ -128,10 +186,12 @@ public class LabelGenerationService {
    */
   public List<Label> generateLabelsForAltura(
       int numeroPasillo, int numeroEstanteria, Altura altura) {
-    List<Label> labels = new ArrayList<>();
-    for (Posicion posicion : altura.getPosiciones()) {
-      labels.add(
-          generateLabelForPosicion(numeroPasillo, numeroEstanteria, altura.getNumero(), posicion));
+    int[] posiciones = altura.getNumerosPosiciones();
+    List<Label> labels = new ArrayList<>(posiciones.length);
+    for (int posicion : posiciones) {
+      if (admiteEtiqueta(numeroPasillo, numeroEstanteria, altura.getNumero(), posicion)) {
+        labels.add(new Label(numeroPasillo, numeroEstanteria, altura.getNumero(), posicion));
+      }
     }
     return labels;
   }
@@ -149,24 +209,54 @@ public class LabelGenerationService {
       int numeroPasillo, int numeroEstanteria, int numeroAltura, List<Posicion> posiciones) {
     List<Label> labels = new ArrayList<>();
     for (Posicion posicion : posiciones) {
-      labels.add(generateLabelForPosicion(numeroPasillo, numeroEstanteria, numeroAltura, posicion));
+      Label label =
+          generateLabelForPosicion(numeroPasillo, numeroEstanteria, numeroAltura, posicion);
+      if (label != null) {
+        labels.add(label);
+      }
     }
     return labels;
   }
 
   /**
-   * Genera una etiqueta para una posición individual.
+   * Genera una etiqueta para una posición individual. La etiqueta guarda la clave de la posición;
+   * el código solo se escribe al imprimirla.
    *
    * @param numeroPasillo    Número del pasillo
    * @param numeroEstanteria Número de la estantería
    * @param numeroAltura     Número de la altura
    * @param posicion         Posición para generar etiqueta
-   * @return Etiqueta de la posición
+   * @return Etiqueta de la posición, o null si algún número no cabe en una clave
    */
   public Label generateLabelForPosicion(
       int numeroPasillo, int numeroEstanteria, int numeroAltura, Posicion posicion) {
-    String codigo = numeroPasillo + "." + numeroEstanteria + "." + numeroAltura + "." + posicion.getNumero();
-    return new Label(codigo, numeroPasillo, numeroEstanteria, numeroAltura, posicion.getNumero());
+    if (!admiteEtiqueta(numeroPasillo, numeroEstanteria, numeroAltura, posicion.getNumero())) {
+      return null;
+    }
+    return new Label(numeroPasillo, numeroEstanteria, numeroAltura, posicion.getNumero());
+  }
+
+  /**
+   * Comprueba que una posición pueda tener etiqueta. Los datos guardados antes de limitar los
+   * números pueden tener alguno mayor que {@link LocationKey#MAX_NUMERO}; esas posiciones se
+   * omiten con un aviso en lugar de detener la generación.
+   *
+   * @param numeroPasillo    Número del pasillo
+   * @param numeroEstanteria Número de la estantería
+   * @param numeroAltura     Número de la altura
+   * @param numeroPosicion   Número de la posición
+   * @return true si todos los números caben en una clave
+   */
+  static boolean admiteEtiqueta(
+      int numeroPasillo, int numeroEstanteria, int numeroAltura, int numeroPosicion) {
+    if (LocationKey.admite(numeroPasillo, numeroEstanteria, numeroAltura, numeroPosicion)) {
+      return true;
+    }
+    System.err.println("Error generando etiqueta: la posición "
+        + ValidationService.generateCodigo(
+            numeroPasillo, numeroEstanteria, numeroAltura, numeroPosicion)
+        + " tiene números mayores que " + LocationKey.MAX_NUMERO + " y se omite");
+    return false;
   }
 
   /**
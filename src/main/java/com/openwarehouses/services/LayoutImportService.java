@@ -0,0 +1,437 @@
+package com.openwarehouses.services;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.openwarehouses.models.Almacen;
+import com.openwarehouses.models.Altura;
+import com.openwarehouses.models.Estanteria;
+import com.openwarehouses.models.Pasillo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Importación masiva de la distribución de un almacén desde un archivo, para dar de alta una sede
+ * sin crear los rangos nivel a nivel.
+ *
+ * <p>Se admiten dos formatos, que se distinguen por el primer carácter del archivo:
+ *
+ * <pre>
+ * CSV     pasillo,estanteria,altura,posicion        (también separado por ';' o tabulador)
+ *         3,1-20,1-5,1-10
+ * JSON    [{"pasillo": 3, "estanteria": "1-20", "altura": "1-5", "posicion": "1-10"}, ...]
+ *         o un objeto por línea (NDJSON)
+ * </pre>
+ *
+ * <p>Cada campo es un número o un rango {@code desde-hasta}. Un registro con menos campos crea los
+ * niveles indicados vacíos (por ejemplo, {@code 3,1-20} crea veinte estanterías sin alturas). Las
+ * líneas vacías o que empiezan por {@code #} se ignoran, y una primera línea no numérica se toma
+ * como cabecera. El archivo puede estar comprimido con gzip.
+ *
+ * <p>El archivo se lee en flujo, sin cargarlo en memoria: los registros se acumulan en un árbol de
+ * números (con un {@link BitSet} de posiciones por altura) que descarta los repetidos, y al
+ * terminar se incorpora de una vez al almacén. Si la lectura falla no se modifica nada. Los
+ * registros no válidos se rechazan sin detener la importación.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public final class LayoutImportService {
+  /** Número máximo de cada nivel, el mismo que admiten los diálogos de creación. */
+  private static final int MAX_NUMERO = 999;
+
+  /** Número máximo de posiciones que puede generar un solo registro. */
+  private static final long MAX_POSICIONES_REGISTRO = 1_000_000;
+
+  /** Número máximo de rechazos que se detallan en el resultado. */
+  private static final int MAX_DETALLE_RECHAZOS = 100;
+
+  /** Nombres de los campos, en orden de nivel. */
+  private static final String[] CAMPOS = {"pasillo", "estanteria", "altura", "posicion"};
+
+  /**
+   * Resultado de una importación.
+   *
+   * @param registros Registros leídos, incluidos los rechazados (sin cabecera ni comentarios)
+   * @param creados Elementos nuevos añadidos al almacén, de cualquier nivel
+   * @param repetidas Posiciones que ya existían o aparecían más de una vez en el archivo
+   * @param rechazados Registros no válidos
+   * @param rechazos Motivo de los primeros rechazos, con su línea o número de registro
+   */
+  public record Resultado(
+      long registros, long creados, long repetidas, long rechazados, List<String> rechazos) {}
+
+  /** Árbol de números leídos: pasillo, estantería, altura y posiciones. */
+  private static final class Lote {
+    private final Map<Integer, Map<Integer, Map<Integer, BitSet>>> pasillos =
+        new LinkedHashMap<>();
+    private long registros;
+    private long repetidas;
+    private long rechazados;
+    private final List<String> rechazos = new ArrayList<>();
+
+    /**
+     * Anota un registro rechazado.
+     *
+     * @param donde Línea o número de registro
+     * @param motivo Motivo del rechazo
+     */
+    private void rechazar(String donde, String motivo) {
+      registros++;
+      rechazados++;
+      if (rechazos.size() < MAX_DETALLE_RECHAZOS) {
+        rechazos.add(donde + ": " + motivo);
+      }
+    }
+
+    /**
+     * Añade los elementos de un registro ya validado.
+     *
+     * @param rangos Rango de cada nivel presente ({desde, hasta}), de uno a cuatro
+     */
+    private void añadir(int[][] rangos) {
+      registros++;
+      for (int p = rangos[0][0]; p <= rangos[0][1]; p++) {
+        Map<Integer, Map<Integer, BitSet>> estanterias =
+            pasillos.computeIfAbsent(p, k -> new LinkedHashMap<>());
+        if (rangos.length < 2) {
+          continue;
+        }
+        for (int e = rangos[1][0]; e <= rangos[1][1]; e++) {
+          Map<Integer, BitSet> alturas = estanterias.computeIfAbsent(e, k -> new LinkedHashMap<>());
+          if (rangos.length < 3) {
+            continue;
+          }
+          for (int h = rangos[2][0]; h <= rangos[2][1]; h++) {
+            BitSet posiciones = alturas.computeIfAbsent(h, k -> new BitSet());
+            if (rangos.length < 4) {
+              continue;
+            }
+            int desde = rangos[3][0];
+            int hasta = rangos[3][1] + 1;
+            repetidas += posiciones.get(desde, hasta).cardinality();
+            posiciones.set(desde, hasta);
+          }
+        }
+      }
+    }
+  }
+
+  /** Constructor privado para evitar instanciación. */
+  private LayoutImportService() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Importa la distribución de un archivo CSV o JSON en un almacén. Los elementos que ya existen se
+   * conservan; solo se añaden los nuevos, con su código de posición. No se guarda nada: eso lo hace
+   * quien llama, con un único guardado.
+   *
+   * @param almacen Almacén de destino
+   * @param origen Archivo a importar
+   * @return Resumen de la importación
+   * @throws IOException Si no se puede leer el archivo; en ese caso el almacén no se modifica
+   */
+  public static Resultado importar(Almacen almacen, File origen) throws IOException {
+    Lote lote = new Lote();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        Compression.detect(Files.newInputStream(origen.toPath())), StandardCharsets.UTF_8))) {
+      if (isJson(reader)) {
+        leerJson(reader, lote);
+      } else {
+        leerCsv(reader, lote);
+      }
+    } catch (JsonParseException | IllegalStateException e) {
+      throw new IOException("JSON no válido: " + e.getMessage(), e);
+    }
+
+    long creados = incorporar(almacen, lote);
+    return new Resultado(
+        lote.registros, creados, lote.repetidas, lote.rechazados, List.copyOf(lote.rechazos));
+  }
+
+  /**
+   * Indica si el contenido es JSON mirando su primer carácter no blanco, sin consumirlo.
+   *
+   * @param reader Lector al inicio del archivo
+   * @return true si empieza por '[' o '{'
+   * @throws IOException Si falla la lectura
+   */
+  private static boolean isJson(BufferedReader reader) throws IOException {
+    while (true) {
+      reader.mark(1);
+      int c = reader.read();
+      if (c == -1) {
+        return false;
+      }
+      if (c == '\uFEFF' || Character.isWhitespace(c)) {
+        continue;
+      }
+      reader.reset();
+      return c == '[' || c == '{';
+    }
+  }
+
+  /**
+   * Lee registros CSV línea a línea.
+   *
+   * @param reader Lector del archivo
+   * @param lote Registros leídos
+   * @throws IOException Si falla la lectura
+   */
+  private static void leerCsv(BufferedReader reader, Lote lote) throws IOException {
+    String linea;
+    int numero = 0;
+    boolean primera = true;
+    while ((linea = reader.readLine()) != null) {
+      numero++;
+      String texto = linea.strip();
+      if (texto.isEmpty() || texto.startsWith("#")) {
+        continue;
+      }
+      String[] campos = texto.split("[,;\t]", -1);
+      if (primera && !campos[0].isBlank() && !Character.isDigit(campos[0].strip().charAt(0))) {
+        // Cabecera con los nombres de las columnas
+        primera = false;
+        continue;
+      }
+      primera = false;
+      procesar(campos, "Línea " + numero, lote);
+    }
+  }
+
+  /**
+   * Lee registros JSON: un array de objetos o un objeto tras otro (NDJSON).
+   *
+   * @param reader Lector del archivo
+   * @param lote Registros leídos
+   * @throws IOException Si falla la lectura o el JSON no es válido
+   */
+  private static void leerJson(BufferedReader reader, Lote lote) throws IOException {
+    JsonReader json = new JsonReader(reader);
+    json.setLenient(true);
+    int numero = 0;
+    while (json.peek() != JsonToken.END_DOCUMENT) {
+      if (json.peek() == JsonToken.BEGIN_ARRAY) {
+        json.beginArray();
+        while (json.hasNext()) {
+          leerObjeto(json, "Registro " + ++numero, lote);
+        }
+        json.endArray();
+      } else {
+        leerObjeto(json, "Registro " + ++numero, lote);
+      }
+    }
+  }
+
+  /**
+   * Lee un objeto JSON con los campos de un registro. Los campos pueden ser números o textos con
+   * un número o un rango; los desconocidos se ignoran.
+   *
+   * @param json Lector posicionado sobre el objeto
+   * @param donde Número de registro, para los rechazos
+   * @param lote Registros leídos
+   * @throws IOException Si falla la lectura
+   */
+  private static void leerObjeto(JsonReader json, String donde, Lote lote) throws IOException {
+    if (json.peek() != JsonToken.BEGIN_OBJECT) {
+      json.skipValue();
+      lote.rechazar(donde, "no es un objeto");
+      return;
+    }
+
+    String[] campos = new String[CAMPOS.length];
+    json.beginObject();
+    while (json.hasNext()) {
+      String nombre = json.nextName().toLowerCase(Locale.ROOT);
+      int nivel = nivel(nombre);
+      if (nivel < 0 || json.peek() == JsonToken.NULL) {
+        json.skipValue();
+      } else if (json.peek() == JsonToken.NUMBER || json.peek() == JsonToken.STRING) {
+        campos[nivel] = json.nextString();
+      } else {
+        json.skipValue();
+        campos[nivel] = "";
+      }
+    }
+    json.endObject();
+
+    int presentes = 0;
+    while (presentes < campos.length && campos[presentes] != null) {
+      presentes++;
+    }
+    for (int i = presentes; i < campos.length; i++) {
+      if (campos[i] != null) {
+        lote.rechazar(donde, "falta el campo " + CAMPOS[presentes]);
+        return;
+      }
+    }
+    String[] presentesCampos = new String[presentes];
+    System.arraycopy(campos, 0, presentesCampos, 0, presentes);
+    procesar(presentesCampos, donde, lote);
+  }
+
+  /**
+   * Obtiene el nivel de un campo JSON por su nombre, con o sin tilde.
+   *
+   * @param nombre Nombre del campo en minúsculas
+   * @return Nivel (0 pasillo a 3 posición), o -1 si no es un campo de la distribución
+   */
+  private static int nivel(String nombre) {
+    String normalizado = nombre.replace('í', 'i').replace('ó', 'o');
+    for (int i = 0; i < CAMPOS.length; i++) {
+      if (CAMPOS[i].equals(normalizado)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Valida los campos de un registro y lo añade al lote, o lo rechaza.
+   *
+   * @param campos Textos de los niveles presentes, en orden
+   * @param donde Línea o número de registro, para los rechazos
+   * @param lote Registros leídos
+   */
+  private static void procesar(String[] campos, String donde, Lote lote) {
+    if (campos.length == 0 || campos.length > CAMPOS.length) {
+      lote.rechazar(donde, "se esperan de 1 a 4 campos (pasillo, estanteria, altura, posicion)");
+      return;
+    }
+
+    int[][] rangos = new int[campos.length][];
+    long total = 1;
+    for (int i = 0; i < campos.length; i++) {
+      rangos[i] = rango(campos[i].strip());
+      if (rangos[i] == null) {
+        lote.rechazar(donde, "valor de " + CAMPOS[i] + " no válido: '" + campos[i].strip() + "'");
+        return;
+      }
+      total *= rangos[i][1] - rangos[i][0] + 1;
+    }
+    if (total > MAX_POSICIONES_REGISTRO) {
+      lote.rechazar(donde, "el registro genera demasiados elementos (" + total + ")");
+      return;
+    }
+    lote.añadir(rangos);
+  }
+
+  /**
+   * Interpreta un número o un rango {@code desde-hasta}.
+   *
+   * @param texto Texto del campo, sin espacios alrededor
+   * @return {desde, hasta}, o null si no es válido o se sale de 1 a {@value #MAX_NUMERO}
+   */
+  private static int[] rango(String texto) {
+    int guion = texto.indexOf('-', 1);
+    int desde = numero(guion < 0 ? texto : texto.substring(0, guion).strip());
+    int hasta = guion < 0 ? desde : numero(texto.substring(guion + 1).strip());
+    if (desde < 1 || hasta < desde) {
+      return null;
+    }
+    return new int[] {desde, hasta};
+  }
+
+  /**
+   * Interpreta un número de nivel.
+   *
+   * @param texto Texto del número
+   * @return Número, o -1 si no es un entero de 1 a {@value #MAX_NUMERO}
+   */
+  private static int numero(String texto) {
+    if (texto.isEmpty() || texto.length() > 3) {
+      return -1;
+    }
+    int valor = 0;
+    for (int i = 0; i < texto.length(); i++) {
+      char c = texto.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      valor = valor * 10 + (c - '0');
+    }
+    return valor >= 1 && valor <= MAX_NUMERO ? valor : -1;
+  }
+
+  /**
+   * Incorpora el lote al almacén: crea los pasillos, estanterías, alturas y posiciones que faltan
+   * y cuenta como repetidas las posiciones que ya existían.
+   *
+   * @param almacen Almacén de destino
+   * @param lote Registros leídos
+   * @return Número de elementos creados
+   */
+  private static long incorporar(Almacen almacen, Lote lote) {
+    long creados = 0;
+    for (Map.Entry<Integer, Map<Integer, Map<Integer, BitSet>>> p : lote.pasillos.entrySet()) {
+      Pasillo pasillo = almacen.getPasilloByNumero(p.getKey());
+      if (pasillo == null) {
+        pasillo = new Pasillo(p.getKey());
+        almacen.getPasillos().add(pasillo);
+        creados++;
+      }
+
+      for (Map.Entry<Integer, Map<Integer, BitSet>> e : p.getValue().entrySet()) {
+        Estanteria estanteria = pasillo.getEstanteriaByNumero(e.getKey());
+        if (estanteria == null) {
+          estanteria = new Estanteria(e.getKey());
+          pasillo.getEstanterias().add(estanteria);
+          creados++;
+        }
+
+        for (Map.Entry<Integer, BitSet> h : e.getValue().entrySet()) {
+          Altura altura = estanteria.getAlturaByNumero(h.getKey());
+          if (altura == null) {
+            altura = new Altura(h.getKey());
+            estanteria.getAlturas().add(altura);
+            creados++;
+          }
+          creados += incorporarPosiciones(altura, h.getValue(), lote);
+        }
+      }
+    }
+    return creados;
+  }
+
+  /**
+   * Añade a una altura las posiciones del lote que no tiene.
+   *
+   * @param altura Altura de destino
+   * @param numeros Números de posición leídos
+   * @param lote Lote, donde se cuentan las repetidas
+   * @return Número de posiciones creadas
+   */
+  private static long incorporarPosiciones(Altura altura, BitSet numeros, Lote lote) {
+    if (numeros.isEmpty()) {
+      return 0;
+    }
+    int[] actuales = altura.getNumerosPosiciones();
+    int[] resultado = Arrays.copyOf(actuales, actuales.length + numeros.cardinality());
+    int total = actuales.length;
+    for (int n = numeros.nextSetBit(0); n >= 0; n = numeros.nextSetBit(n + 1)) {
+      if (altura.containsPosicion(n)) {
+        lote.repetidas++;
+      } else {
+        resultado[total++] = n;
+      }
+    }
+    if (total > actuales.length) {
+      altura.setNumerosPosiciones(Arrays.copyOf(resultado, total));
+    }
+    return total - actuales.length;
+  }
+}
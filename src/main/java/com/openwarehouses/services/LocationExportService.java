@@ -0,0 +1,293 @@
+package com.openwarehouses.services;
+
+import com.openwarehouses.models.Almacen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Exportación de los códigos de ubicación para otros sistemas (por ejemplo, el WMS). Escribe una
+ * línea por posición con el almacén, los cuatro números y el código
+ * {@code pasillo.estanteria.altura.posicion}, en CSV o en NDJSON (un objeto JSON por línea).
+ *
+ * <p>Las posiciones se recorren con {@link LabelGenerationService#forEachPosicion} y cada línea se
+ * codifica directamente en un búfer de bytes que se vuelca al canal de destino al llenarse, sin
+ * crear etiquetas ni textos intermedios por posición.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public final class LocationExportService {
+  /** Tamaño del búfer de escritura. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Espacio máximo que ocupa una línea sin contar el nombre del almacén. */
+  private static final int MAX_LINE_SIZE = 128;
+
+  /** Cabecera de las columnas CSV. */
+  private static final String CSV_HEADER = "almacen,pasillo,estanteria,altura,posicion,codigo\n";
+
+  /** Formato de la exportación. */
+  public enum Formato {
+    /** Valores separados por comas, con cabecera. */
+    CSV,
+    /** Un objeto JSON por línea. */
+    NDJSON;
+
+    /**
+     * Elige el formato según la extensión del archivo de destino.
+     *
+     * @param nombre Nombre del archivo
+     * @return NDJSON para {@code .ndjson}, {@code .jsonl} o {@code .json}; CSV en otro caso
+     */
+    public static Formato deArchivo(String nombre) {
+      String lower = nombre.toLowerCase(Locale.ROOT);
+      return lower.endsWith(".ndjson") || lower.endsWith(".jsonl") || lower.endsWith(".json")
+          ? NDJSON
+          : CSV;
+    }
+  }
+
+  /** Constructor privado para evitar instanciación. */
+  private LocationExportService() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Exporta los códigos de ubicación a un archivo, que se reemplaza si existe.
+   *
+   * @param almacenes Almacenes a exportar
+   * @param formato Formato de las líneas
+   * @param destino Archivo de destino
+   * @return Número de posiciones exportadas
+   * @throws IOException Si falla la escritura
+   */
+  public static long exportar(List<Almacen> almacenes, Formato formato, Path destino)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(destino, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      return exportar(almacenes, formato, channel);
+    }
+  }
+
+  /**
+   * Exporta los códigos de ubicación a un canal, por ejemplo la salida estándar. El canal no se
+   * cierra.
+   *
+   * @param almacenes Almacenes a exportar
+   * @param formato Formato de las líneas
+   * @param destino Canal de destino
+   * @return Número de posiciones exportadas
+   * @throws IOException Si falla la escritura
+   */
+  public static long exportar(
+      List<Almacen> almacenes, Formato formato, WritableByteChannel destino) throws IOException {
+    LabelGenerationService labels = new LabelGenerationService();
+    Salida salida = new Salida(destino);
+    if (formato == Formato.CSV) {
+      salida.ascii(CSV_HEADER);
+    }
+
+    long total = 0;
+    for (Almacen almacen : almacenes) {
+      byte[] nombre = (formato == Formato.CSV
+          ? csv(almacen.getNombre())
+          : json(almacen.getNombre())).getBytes(StandardCharsets.UTF_8);
+      salida.reservar(nombre.length + MAX_LINE_SIZE);
+
+      total += labels.forEachPosicion(almacen, (pasillo, estanteria, altura, posicion) -> {
+        salida.reservar(nombre.length + MAX_LINE_SIZE);
+        if (formato == Formato.CSV) {
+          salida.bytes(nombre).coma().numero(pasillo).coma().numero(estanteria).coma()
+              .numero(altura).coma().numero(posicion).coma();
+        } else {
+          salida.ascii("{\"almacen\":\"").bytes(nombre)
+              .ascii("\",\"pasillo\":").numero(pasillo)
+              .ascii(",\"estanteria\":").numero(estanteria)
+              .ascii(",\"altura\":").numero(altura)
+              .ascii(",\"posicion\":").numero(posicion)
+              .ascii(",\"codigo\":\"");
+        }
+        salida.numero(pasillo).punto().numero(estanteria).punto().numero(altura).punto()
+            .numero(posicion);
+        if (formato == Formato.NDJSON) {
+          salida.ascii("\"}");
+        }
+        salida.ascii("\n");
+      });
+    }
+    salida.volcar();
+    return total;
+  }
+
+  /**
+   * Prepara un valor para una celda CSV: se entrecomilla si contiene separadores o comillas.
+   *
+   * @param valor Valor original, puede ser null
+   * @return Celda CSV
+   */
+  private static String csv(String valor) {
+    if (valor == null) {
+      return "";
+    }
+    if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0
+        && valor.indexOf('\r') < 0) {
+      return valor;
+    }
+    return '"' + valor.replace("\"", "\"\"") + '"';
+  }
+
+  /**
+   * Escapa un valor para una cadena JSON, sin las comillas.
+   *
+   * @param valor Valor original, puede ser null
+   * @return Contenido de la cadena JSON
+   */
+  private static String json(String valor) {
+    if (valor == null) {
+      return "";
+    }
+    StringBuilder sb = new StringBuilder(valor.length());
+    for (int i = 0; i < valor.length(); i++) {
+      char c = valor.charAt(i);
+      switch (c) {
+        case '"' -> sb.append("\\\"");
+        case '\\' -> sb.append("\\\\");
+        case '\n' -> sb.append("\\n");
+        case '\r' -> sb.append("\\r");
+        case '\t' -> sb.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            sb.append(String.format("\\u%04x", (int) c));
+          } else {
+            sb.append(c);
+          }
+        }
+      }
+    }
+    return sb.toString();
+  }
+
+  /** Búfer de salida que escribe números y texto ASCII sin crear cadenas. */
+  private static final class Salida {
+    /** Canal de destino. */
+    private final WritableByteChannel channel;
+
+    /** Búfer pendiente de volcar, directo para que el canal no lo copie. */
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Crea la salida sobre un canal.
+     *
+     * @param channel Canal de destino
+     */
+    private Salida(WritableByteChannel channel) {
+      this.channel = channel;
+    }
+
+    /**
+     * Asegura espacio libre en el búfer, volcándolo o ampliándolo si hace falta.
+     *
+     * @param bytes Espacio necesario
+     * @throws IOException Si falla la escritura
+     */
+    private void reservar(int bytes) throws IOException {
+      if (buffer.remaining() >= bytes) {
+        return;
+      }
+      volcar();
+      if (buffer.capacity() < bytes) {
+        buffer = ByteBuffer.allocateDirect(bytes);
+      }
+    }
+
+    /**
+     * Escribe en el canal el contenido del búfer y lo vacía.
+     *
+     * @throws IOException Si falla la escritura
+     */
+    private void volcar() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    /**
+     * Escribe bytes ya codificados; el espacio debe estar reservado.
+     *
+     * @param data Bytes a escribir
+     * @return Esta salida
+     */
+    private Salida bytes(byte[] data) {
+      buffer.put(data);
+      return this;
+    }
+
+    /**
+     * Escribe un texto que solo contiene caracteres ASCII.
+     *
+     * @param texto Texto a escribir
+     * @return Esta salida
+     * @throws IOException Si hay que volcar el búfer y falla la escritura
+     */
+    private Salida ascii(String texto) throws IOException {
+      reservar(texto.length());
+      for (int i = 0; i < texto.length(); i++) {
+        buffer.put((byte) texto.charAt(i));
+      }
+      return this;
+    }
+
+    /**
+     * Escribe el separador CSV.
+     *
+     * @return Esta salida
+     */
+    private Salida coma() {
+      buffer.put((byte) ',');
+      return this;
+    }
+
+    /**
+     * Escribe el separador de los números del código.
+     *
+     * @return Esta salida
+     */
+    private Salida punto() {
+      buffer.put((byte) '.');
+      return this;
+    }
+
+    /**
+     * Escribe un número entero en decimal.
+     *
+     * @param valor Número
+     * @return Esta salida
+     */
+    private Salida numero(int valor) {
+      long resto = valor;
+      if (resto < 0) {
+        buffer.put((byte) '-');
+        resto = -resto;
+      }
+      long divisor = 1;
+      while (resto / divisor >= 10) {
+        divisor *= 10;
+      }
+      for (; divisor > 0; divisor /= 10) {
+        buffer.put((byte) ('0' + resto / divisor % 10));
+      }
+      return this;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.openwarehouses.services;
+
+import com.openwarehouses.models.Almacen;
+import com.openwarehouses.models.Altura;
+import com.openwarehouses.models.Estanteria;
+import com.openwarehouses.models.LocationKey;
+import com.openwarehouses.models.Pasillo;
+import com.openwarehouses.models.Posicion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Búsqueda de una ubicación a partir de su código, por ejemplo el leído por un escáner en una
+ * etiqueta ({@code 12.3.4.7}).
+ *
+ * <p>No se mantiene un índice aparte: cada nivel de la jerarquía ya indexa sus hijos por número
+ * (y las alturas guardan sus posiciones ordenadas), y ese índice se actualiza en cada alta, baja o
+ * renumeración, venga de los controladores, del diario o de deshacer. Una búsqueda son tres
+ * consultas hash y una búsqueda binaria, sin recorrer ninguna lista.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public final class LocationLookupService {
+  /**
+   * Ubicación encontrada, con toda su ruta.
+   *
+   * @param almacen Almacén
+   * @param pasillo Pasillo
+   * @param estanteria Estantería
+   * @param altura Altura
+   * @param posicion Posición
+   */
+  public record Ubicacion(
+      Almacen almacen, Pasillo pasillo, Estanteria estanteria, Altura altura, Posicion posicion) {
+    @Override
+    public String toString() {
+      return almacen.getNombre() + " " + posicion.getCodigo();
+    }
+  }
+
+  /** Constructor privado para evitar instanciación. */
+  private LocationLookupService() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Busca una ubicación en un almacén.
+   *
+   * @param almacen Almacén donde buscar
+   * @param codigo Código {@code pasillo.estanteria.altura.posicion}, leído con
+   *     {@link LocationKey#parse}
+   * @return Ubicación encontrada, o null si el código no es válido o no existe en el almacén
+   */
+  public static Ubicacion localizar(Almacen almacen, CharSequence codigo) {
+    LocationKey clave = LocationKey.parse(codigo);
+    return clave != null ? localizar(almacen, clave) : null;
+  }
+
+  /**
+   * Busca una ubicación en varios almacenes. Los códigos solo son únicos dentro de un almacén, así
+   * que puede haber una coincidencia en cada uno.
+   *
+   * @param almacenes Almacenes donde buscar
+   * @param codigo Código de la ubicación
+   * @return Ubicaciones encontradas, en el orden de los almacenes; vacía si no hay ninguna
+   */
+  public static List<Ubicacion> localizar(List<Almacen> almacenes, CharSequence codigo) {
+    LocationKey clave = LocationKey.parse(codigo);
+    List<Ubicacion> encontradas = new ArrayList<>(1);
+    if (clave == null) {
+      return encontradas;
+    }
+    for (Almacen almacen : almacenes) {
+      Ubicacion ubicacion = localizar(almacen, clave);
+      if (ubicacion != null) {
+        encontradas.add(ubicacion);
+      }
+    }
+    return encontradas;
+  }
+
+  /**
+   * Busca una ubicación por su clave, bajando por la jerarquía del almacén con sus números.
+   *
+   * @param almacen Almacén donde buscar
+   * @param clave Clave de la ubicación
+   * @return Ubicación encontrada, o null si falta algún nivel
+   */
+  public static Ubicacion localizar(Almacen almacen, LocationKey clave) {
+    Pasillo pasillo = almacen.getPasilloByNumero(clave.getNumeroPasillo());
+    Estanteria estanteria =
+        pasillo != null ? pasillo.getEstanteriaByNumero(clave.getNumeroEstanteria()) : null;
+    Altura altura =
+        estanteria != null ? estanteria.getAlturaByNumero(clave.getNumeroAltura()) : null;
+    Posicion posicion =
+        altura != null ? altura.getPosicionByNumero(clave.getNumeroPosicion()) : null;
+    return posicion != null ? new Ubicacion(almacen, pasillo, estanteria, altura, posicion) : null;
+  }
+}
@@ -0,0 +1,299 @@
+package com.openwarehouses.services;
+
+import com.openwarehouses.models.Almacen;
+import com.openwarehouses.models.Altura;
+import com.openwarehouses.models.Estanteria;
+import com.openwarehouses.models.LocationKey;
+import com.openwarehouses.models.Pasillo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.IntPredicate;
+
+/**
+ * Consulta de posiciones por intervalos o condiciones sobre los números de cada nivel, por
+ * ejemplo "las alturas 1 a 3 de los pasillos 10 a 20" o "las estanterías pares":
+ *
+ * <pre>
+ * LocationQuery.todas().pasillos(10, 20).alturas(1, 3)
+ * LocationQuery.todas().estanterias(n -&gt; n % 2 == 0)
+ * </pre>
+ *
+ * <p>Las consultas son inmutables: cada método devuelve una consulta nueva, y varias condiciones
+ * sobre el mismo nivel se combinan (tienen que cumplirse todas). Al recorrer un almacén se
+ * descarta cada pasillo, estantería o altura que no cumple su condición sin bajar a sus hijos, y
+ * el intervalo de posiciones se localiza con búsquedas binarias en cada altura. Las posiciones se
+ * entregan una a una a un {@link LabelGenerationService.PosicionVisitor}, sin listas intermedias.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public final class LocationQuery {
+  /** Consulta sin condiciones. */
+  private static final LocationQuery TODAS =
+      new LocationQuery(Nivel.TODOS, Nivel.TODOS, Nivel.TODOS, Nivel.TODOS);
+
+  /** Condición sobre los pasillos. */
+  private final Nivel pasillos;
+
+  /** Condición sobre las estanterías. */
+  private final Nivel estanterias;
+
+  /** Condición sobre las alturas. */
+  private final Nivel alturas;
+
+  /** Condición sobre las posiciones. */
+  private final Nivel posiciones;
+
+  /**
+   * Condición sobre los números de un nivel: un intervalo y, opcionalmente, un filtro.
+   *
+   * @param desde Primer número incluido
+   * @param hasta Último número incluido
+   * @param filtro Condición adicional, o null si basta con el intervalo
+   */
+  private record Nivel(int desde, int hasta, IntPredicate filtro) {
+    /** Nivel sin condiciones. */
+    static final Nivel TODOS = new Nivel(0, Integer.MAX_VALUE, null);
+
+    /**
+     * Restringe el intervalo del nivel.
+     *
+     * @param d Primer número incluido
+     * @param h Último número incluido
+     * @return Nivel con la intersección de ambos intervalos
+     */
+    Nivel entre(int d, int h) {
+      return new Nivel(Math.max(desde, d), Math.min(hasta, h), filtro);
+    }
+
+    /**
+     * Añade un filtro al nivel.
+     *
+     * @param f Filtro a añadir
+     * @return Nivel que exige ambos filtros
+     */
+    Nivel donde(IntPredicate f) {
+      return new Nivel(desde, hasta, filtro == null ? f : filtro.and(f));
+    }
+
+    /**
+     * Indica si ningún número puede cumplir la condición.
+     *
+     * @return true si el intervalo está vacío
+     */
+    boolean vacio() {
+      return desde > hasta;
+    }
+
+    /**
+     * Indica si un número cumple la condición.
+     *
+     * @param numero Número a comprobar
+     * @return true si está en el intervalo y pasa el filtro
+     */
+    boolean incluye(int numero) {
+      return numero >= desde && numero <= hasta && (filtro == null || filtro.test(numero));
+    }
+  }
+
+  /**
+   * Crea una consulta.
+   *
+   * @param pasillos Condición sobre los pasillos
+   * @param estanterias Condición sobre las estanterías
+   * @param alturas Condición sobre las alturas
+   * @param posiciones Condición sobre las posiciones
+   */
+  private LocationQuery(Nivel pasillos, Nivel estanterias, Nivel alturas, Nivel posiciones) {
+    this.pasillos = pasillos;
+    this.estanterias = estanterias;
+    this.alturas = alturas;
+    this.posiciones = posiciones;
+  }
+
+  /**
+   * Obtiene la consulta de todas las posiciones, de la que parten las demás.
+   *
+   * @return Consulta sin condiciones
+   */
+  public static LocationQuery todas() {
+    return TODAS;
+  }
+
+  /**
+   * Restringe los pasillos a un intervalo.
+   *
+   * @param desde Primer número incluido
+   * @param hasta Último número incluido
+   * @return Consulta restringida
+   * @throws IllegalArgumentException Si el intervalo no es válido
+   */
+  public LocationQuery pasillos(int desde, int hasta) {
+    return new LocationQuery(
+        pasillos.entre(desde, validar(desde, hasta)), estanterias, alturas, posiciones);
+  }
+
+  /**
+   * Restringe los pasillos a los que cumplen una condición.
+   *
+   * @param filtro Condición sobre el número del pasillo
+   * @return Consulta restringida
+   */
+  public LocationQuery pasillos(IntPredicate filtro) {
+    return new LocationQuery(pasillos.donde(filtro), estanterias, alturas, posiciones);
+  }
+
+  /**
+   * Restringe las estanterías a un intervalo.
+   *
+   * @param desde Primer número incluido
+   * @param hasta Último número incluido
+   * @return Consulta restringida
+   * @throws IllegalArgumentException Si el intervalo no es válido
+   */
+  public LocationQuery estanterias(int desde, int hasta) {
+    return new LocationQuery(
+        pasillos, estanterias.entre(desde, validar(desde, hasta)), alturas, posiciones);
+  }
+
+  /**
+   * Restringe las estanterías a las que cumplen una condición.
+   *
+   * @param filtro Condición sobre el número de la estantería
+   * @return Consulta restringida
+   */
+  public LocationQuery estanterias(IntPredicate filtro) {
+    return new LocationQuery(pasillos, estanterias.donde(filtro), alturas, posiciones);
+  }
+
+  /**
+   * Restringe las alturas a un intervalo.
+   *
+   * @param desde Primer número incluido
+   * @param hasta Último número incluido
+   * @return Consulta restringida
+   * @throws IllegalArgumentException Si el intervalo no es válido
+   */
+  public LocationQuery alturas(int desde, int hasta) {
+    return new LocationQuery(
+        pasillos, estanterias, alturas.entre(desde, validar(desde, hasta)), posiciones);
+  }
+
+  /**
+   * Restringe las alturas a las que cumplen una condición.
+   *
+   * @param filtro Condición sobre el número de la altura
+   * @return Consulta restringida
+   */
+  public LocationQuery alturas(IntPredicate filtro) {
+    return new LocationQuery(pasillos, estanterias, alturas.donde(filtro), posiciones);
+  }
+
+  /**
+   * Restringe las posiciones a un intervalo.
+   *
+   * @param desde Primer número incluido
+   * @param hasta Último número incluido
+   * @return Consulta restringida
+   * @throws IllegalArgumentException Si el intervalo no es válido
+   */
+  public LocationQuery posiciones(int desde, int hasta) {
+    return new LocationQuery(
+        pasillos, estanterias, alturas, posiciones.entre(desde, validar(desde, hasta)));
+  }
+
+  /**
+   * Restringe las posiciones a las que cumplen una condición.
+   *
+   * @param filtro Condición sobre el número de la posición
+   * @return Consulta restringida
+   */
+  public LocationQuery posiciones(IntPredicate filtro) {
+    return new LocationQuery(pasillos, estanterias, alturas, posiciones.donde(filtro));
+  }
+
+  /**
+   * Indica si una ubicación cumple la consulta.
+   *
+   * @param clave Clave de la ubicación
+   * @return true si cumple la condición de todos los niveles
+   */
+  public boolean incluye(LocationKey clave) {
+    return pasillos.incluye(clave.getNumeroPasillo())
+        && estanterias.incluye(clave.getNumeroEstanteria())
+        && alturas.incluye(clave.getNumeroAltura())
+        && posiciones.incluye(clave.getNumeroPosicion());
+  }
+
+  /**
+   * Recorre en orden las posiciones de un almacén que cumplen la consulta, saltándose los
+   * pasillos, estanterías y alturas descartados sin mirar su contenido.
+   *
+   * @param almacen Almacén a recorrer
+   * @param visitor Receptor de cada posición
+   * @return Número de posiciones recorridas
+   * @throws IOException Si el receptor falla
+   */
+  public long forEachPosicion(Almacen almacen, LabelGenerationService.PosicionVisitor visitor)
+      throws IOException {
+    if (pasillos.vacio() || estanterias.vacio() || alturas.vacio() || posiciones.vacio()) {
+      return 0;
+    }
+    long total = 0;
+    for (Pasillo pasillo : almacen.getPasillos()) {
+      if (!pasillos.incluye(pasillo.getNumero())) {
+        continue;
+      }
+      for (Estanteria estanteria : pasillo.getEstanterias()) {
+        if (!estanterias.incluye(estanteria.getNumero())) {
+          continue;
+        }
+        for (Altura altura : estanteria.getAlturas()) {
+          if (!alturas.incluye(altura.getNumero())) {
+            continue;
+          }
+          for (int posicion : altura.getNumerosPosiciones(posiciones.desde(), posiciones.hasta())) {
+            if (posiciones.filtro() == null || posiciones.filtro().test(posicion)) {
+              visitor.visit(pasillo.getNumero(), estanteria.getNumero(), altura.getNumero(),
+                  posicion);
+              total++;
+            }
+          }
+        }
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Cuenta las posiciones de un almacén que cumplen la consulta.
+   *
+   * @param almacen Almacén a recorrer
+   * @return Número de posiciones
+   */
+  public long contar(Almacen almacen) {
+    try {
+      return forEachPosicion(almacen, (pasillo, estanteria, altura, posicion) -> { });
+    } catch (IOException e) {
+      // El receptor vacío no escribe nada
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Comprueba los límites de un intervalo.
+   *
+   * @param desde Primer número incluido
+   * @param hasta Último número incluido
+   * @return El último número, si el intervalo es válido
+   * @throws IllegalArgumentException Si el intervalo está invertido
+   */
+  private static int validar(int desde, int hasta) {
+    if (hasta < desde) {
+      throw new IllegalArgumentException("Intervalo no válido: " + desde + "-" + hasta);
+    }
+    return hasta;
+  }
+}
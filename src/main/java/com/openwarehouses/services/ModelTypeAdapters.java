@@ -0,0 +1,306 @@
+package com.openwarehouses.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.openwarehouses.models.Almacen;
+import com.openwarehouses.models.Altura;
+import com.openwarehouses.models.Estanteria;
+import com.openwarehouses.models.Pasillo;
+import com.openwarehouses.models.Posicion;
+
+/**
+ * Adaptadores de Gson escritos a mano para la jerarquía de modelos, en lugar del acceso por
+ * reflexión. Producen el mismo JSON que la reflexión salvo el código de posición, que no se escribe
+ * porque se deduce de la ruta: al leer no se regenera nada, cada posición obtiene su código de la
+ * altura que la contiene a través de {@link Posicion#getClave()}. Los campos desconocidos se
+ * ignoran.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+final class ModelTypeAdapters {
+  /** Adaptador de posiciones. */
+  private static final PosicionAdapter POSICION = new PosicionAdapter();
+
+  /** Adaptador de alturas. */
+  private static final AlturaAdapter ALTURA = new AlturaAdapter();
+
+  /** Adaptador de estanterías. */
+  private static final EstanteriaAdapter ESTANTERIA = new EstanteriaAdapter();
+
+  /** Adaptador de pasillos. */
+  private static final PasilloAdapter PASILLO = new PasilloAdapter();
+
+  /** Adaptador de almacenes. */
+  private static final AlmacenAdapter ALMACEN = new AlmacenAdapter();
+
+  /** Clase de utilidades: no se instancia. */
+  private ModelTypeAdapters() {}
+
+  /**
+   * Registra los adaptadores de todos los modelos.
+   *
+   * @param builder Constructor de Gson
+   * @return El mismo constructor, para encadenar
+   */
+  static GsonBuilder register(GsonBuilder builder) {
+    return builder
+        .registerTypeAdapter(Almacen.class, ALMACEN)
+        .registerTypeAdapter(Pasillo.class, PASILLO)
+        .registerTypeAdapter(Estanteria.class, ESTANTERIA)
+        .registerTypeAdapter(Altura.class, ALTURA)
+        .registerTypeAdapter(Posicion.class, POSICION);
+  }
+
+  /**
+   * Escribe una lista con el adaptador indicado.
+   *
+   * @param out Escritor JSON
+   * @param items Elementos a escribir, o null
+   * @param adapter Adaptador de los elementos
+   * @param <T> Tipo de los elementos
+   * @throws IOException Si falla la escritura
+   */
+  private static <T> void writeList(JsonWriter out, List<T> items, TypeAdapter<T> adapter)
+      throws IOException {
+    if (items == null) {
+      out.nullValue();
+      return;
+    }
+    out.beginArray();
+    for (T item : items) {
+      adapter.write(out, item);
+    }
+    out.endArray();
+  }
+
+  /**
+   * Lee una lista con el adaptador indicado, descartando los elementos nulos.
+   *
+   * @param in Lector JSON
+   * @param adapter Adaptador de los elementos
+   * @param <T> Tipo de los elementos
+   * @return Lista leída (vacía si el valor es null)
+   * @throws IOException Si falla la lectura
+   */
+  private static <T> List<T> readList(JsonReader in, TypeAdapter<T> adapter) throws IOException {
+    List<T> items = new ArrayList<>();
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return items;
+    }
+    in.beginArray();
+    while (in.hasNext()) {
+      T item = adapter.read(in);
+      if (item != null) {
+        items.add(item);
+      }
+    }
+    in.endArray();
+    return items;
+  }
+
+  /** Adaptador de {@link Almacen}. */
+  private static final class AlmacenAdapter extends TypeAdapter<Almacen> {
+    @Override
+    public void write(JsonWriter out, Almacen almacen) throws IOException {
+      if (almacen == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("nombre").value(almacen.getNombre());
+      out.name("pasillos");
+      writeList(out, almacen.getPasillos(), PASILLO);
+      out.endObject();
+    }
+
+    @Override
+    public Almacen read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      Almacen almacen = new Almacen();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "nombre" -> almacen.setNombre(readString(in));
+          case "pasillos" -> almacen.setPasillos(readList(in, PASILLO));
+          default -> in.skipValue();
+        }
+      }
+      in.endObject();
+      return almacen;
+    }
+  }
+
+  /** Adaptador de {@link Pasillo}. */
+  private static final class PasilloAdapter extends TypeAdapter<Pasillo> {
+    @Override
+    public void write(JsonWriter out, Pasillo pasillo) throws IOException {
+      if (pasillo == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("numero").value(pasillo.getNumero());
+      out.name("estanterias");
+      writeList(out, pasillo.getEstanterias(), ESTANTERIA);
+      out.endObject();
+    }
+
+    @Override
+    public Pasillo read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      Pasillo pasillo = new Pasillo();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "numero" -> pasillo.setNumero(in.nextInt());
+          case "estanterias" -> pasillo.setEstanterias(readList(in, ESTANTERIA));
+          default -> in.skipValue();
+        }
+      }
+      in.endObject();
+      return pasillo;
+    }
+  }
+
+  /** Adaptador de {@link Estanteria}. */
+  private static final class EstanteriaAdapter extends TypeAdapter<Estanteria> {
+    @Override
+    public void write(JsonWriter out, Estanteria estanteria) throws IOException {
+      if (estanteria == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("numero").value(estanteria.getNumero());
+      out.name("alturas");
+      writeList(out, estanteria.getAlturas(), ALTURA);
+      out.endObject();
+    }
+
+    @Override
+    public Estanteria read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      Estanteria estanteria = new Estanteria();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "numero" -> estanteria.setNumero(in.nextInt());
+          case "alturas" -> estanteria.setAlturas(readList(in, ALTURA));
+          default -> in.skipValue();
+        }
+      }
+      in.endObject();
+      return estanteria;
+    }
+  }
+
+  /** Adaptador de {@link Altura}. */
+  private static final class AlturaAdapter extends TypeAdapter<Altura> {
+    @Override
+    public void write(JsonWriter out, Altura altura) throws IOException {
+      if (altura == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("numero").value(altura.getNumero());
+      out.name("posiciones");
+      // Con los números de la altura, sin crear las posiciones
+      out.beginArray();
+      for (int posicion : altura.getNumerosPosiciones()) {
+        out.beginObject().name("numero").value(posicion).endObject();
+      }
+      out.endArray();
+      out.endObject();
+    }
+
+    @Override
+    public Altura read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      Altura altura = new Altura();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "numero" -> altura.setNumero(in.nextInt());
+          case "posiciones" -> altura.setPosiciones(readList(in, POSICION));
+          default -> in.skipValue();
+        }
+      }
+      in.endObject();
+      return altura;
+    }
+  }
+
+  /**
+   * Adaptador de {@link Posicion}. No escribe el código; al leer una posición suelta conserva el
+   * código si viene, y dentro de una altura se deduce de su ruta.
+   */
+  private static final class PosicionAdapter extends TypeAdapter<Posicion> {
+    @Override
+    public void write(JsonWriter out, Posicion posicion) throws IOException {
+      if (posicion == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("numero").value(posicion.getNumero());
+      out.endObject();
+    }
+
+    @Override
+    public Posicion read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      Posicion posicion = new Posicion();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "numero" -> posicion.setNumero(in.nextInt());
+          case "codigo" -> posicion.setCodigo(readString(in));
+          default -> in.skipValue();
+        }
+      }
+      in.endObject();
+      return posicion;
+    }
+  }
+
+  /**
+   * Lee una cadena que puede ser null.
+   *
+   * @param in Lector JSON
+   * @return Cadena leída o null
+   * @throws IOException Si falla la lectura
+   */
+  private static String readString(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return in.nextString();
+  }
+}
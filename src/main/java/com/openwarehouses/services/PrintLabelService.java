@@ -5,14 +5,18 @@ import com.google.zxing.EncodeHintType;
 import com.google.zxing.MultiFormatWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
+import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Label;
+import com.openwarehouses.models.LocationKey;
 
 import java.awt.Desktop;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.util.Hashtable;
 import java.util.List;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -99,42 +103,122 @@ public final class PrintLabelService {
       return;
     }
 
+    try {
+      File file = new File(defaultFileName(size));
+      writePdf(labels, copies, size, file);
+
+      openPdf(file);
+      printLabels(labels, copies, size);
+
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Obtiene el nombre del PDF que se genera por defecto para un tamaño de etiqueta.
+   *
+   * @param size Tamaño de la etiqueta
+   * @return Nombre del archivo, relativo a la carpeta de trabajo
+   */
+  public static String defaultFileName(LabelSize size) {
+    return "etiquetas_" + size.name().toLowerCase() + ".pdf";
+  }
+
+  /**
+   * Genera el PDF de las etiquetas, una página por copia, sin abrirlo ni mostrar avisos. No usa
+   * JavaFX ni el escritorio, así que sirve también para las impresiones por lotes. Las páginas se
+   * guardan en un archivo temporal mientras se generan, de modo que la memoria no crece con el
+   * número de etiquetas.
+   *
+   * @param labels Lista de etiquetas a imprimir
+   * @param copies Número de copias por etiqueta
+   * @param size Tamaño de la etiqueta
+   * @param target Archivo PDF de destino
+   * @return Número de páginas generadas
+   * @throws IOException Si falla la generación o la escritura del PDF
+   */
+  public static int writePdf(List<Label> labels, int copies, LabelSize size, File target)
+      throws IOException {
+    PDRectangle pageSize = getPageSize(size);
+    try (PDDocument document = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
+      for (Label label : labels) {
+        addLabel(document, pageSize, label.getCodigo(), copies, size);
+      }
+
+      document.save(target);
+      return document.getNumberOfPages();
+    }
+  }
+
+  /**
+   * Genera el PDF de las etiquetas de las posiciones de un almacén que cumplen una consulta. Las
+   * posiciones pasan de la consulta a las páginas una a una, sin crear una lista de etiquetas.
+   *
+   * @param almacen Almacén del que se imprimen las etiquetas
+   * @param consulta Posiciones a imprimir
+   * @param copies Número de copias por etiqueta
+   * @param size Tamaño de la etiqueta
+   * @param target Archivo PDF de destino
+   * @return Número de páginas generadas
+   * @throws IOException Si falla la generación o la escritura del PDF
+   */
+  public static int writePdf(
+      Almacen almacen, LocationQuery consulta, int copies, LabelSize size, File target)
+      throws IOException {
+    PDRectangle pageSize = getPageSize(size);
+    try (PDDocument document = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
+      consulta.forEachPosicion(almacen, (pasillo, estanteria, altura, posicion) -> {
+        if (LabelGenerationService.admiteEtiqueta(pasillo, estanteria, altura, posicion)) {
+          addLabel(document, pageSize,
+              LocationKey.toString(LocationKey.pack(pasillo, estanteria, altura, posicion)),
+              copies, size);
+        }
+      });
+
+      document.save(target);
+      return document.getNumberOfPages();
+    }
+  }
+
+  /**
+   * Añade al documento las páginas de una etiqueta, una por copia.
+   *
+   * @param document Documento PDF
+   * @param pageSize Tamaño de la página
+   * @param codigo Código de la etiqueta
+   * @param copies Número de copias
+   * @param size Tamaño de la etiqueta
+   * @throws IOException Si falla el dibujo de alguna página
+   */
+  private static void addLabel(
+      PDDocument document, PDRectangle pageSize, String codigo, int copies, LabelSize size)
+      throws IOException {
     boolean drawQrFlag = false;
     boolean drawBarcodeFlag = false;
 
     try {
-      PDRectangle pageSize = getPageSize(size);
-      PDDocument document = new PDDocument();
+      for (int i = 0; i < copies; i++) {
+        PDPage page = new PDPage(pageSize);
+        document.addPage(page);
 
-      for (Label label : labels) {
-        for (int i = 0; i < copies; i++) {
-          PDPage page = new PDPage(pageSize);
-          document.addPage(page);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
 
-          try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+          drawMainCode(content, pageSize, codigo, size);
 
-            drawMainCode(content, pageSize, label.getCodigo(), size);
-
-            if (drawQrFlag) {
-              drawQr(content, document, pageSize, label.getCodigo(), size);
-            }
+          if (drawQrFlag) {
+            drawQr(content, document, pageSize, codigo, size);
+          }
 
-            if (drawBarcodeFlag) {
-              drawBarcode(content, document, pageSize, label.getCodigo(), size);
-            }
+          if (drawBarcodeFlag) {
+            drawBarcode(content, document, pageSize, codigo, size);
           }
         }
       }
-
-      File file = new File("etiquetas_" + size.name().toLowerCase() + ".pdf");
-      document.save(file);
-      document.close();
-
-      openPdf(file);
-      printLabels(labels, copies, size);
-
+    } catch (IOException e) {
+      throw e;
     } catch (Exception e) {
-      e.printStackTrace();
+      throw new IOException("Error generando las etiquetas: " + e.getMessage(), e);
     }
   }
 
@@ -280,7 +364,7 @@ public final class PrintLabelService {
     sb.append("Total de etiquetas: ").append(labels.size()).append("\n");
     sb.append("Etiquetas a imprimir:\n");
     for (Label label : labels) {
-      sb.append("  - ").append(label.getCodigo()).append("\n");
+      label.getClave().appendTo(sb.append("  - ")).append("\n");
     }
     sb.append("=============================\n");
 
@@ -293,7 +377,5 @@ public final class PrintLabelService {
     success.setContentText(
         "Se han enviado " + (labels.size() * copies) + " etiqueta(s) a la impresora.");
     success.showAndWait();
-
-    PrintLabelService.print(labels, copies, size);
   }
 }
@@ -0,0 +1,152 @@
+package com.openwarehouses.services;
+
+/**
+ * Métricas de persistencia de {@link StorageService}. Es una foto inmutable tomada en el momento
+ * de la consulta.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public final class StorageMetrics {
+  /** Número de guardados solicitados. */
+  private final long savesRequested;
+
+  /** Número de escrituras reales a disco. */
+  private final long writesCompleted;
+
+  /** Guardados pendientes de escribir en este momento. */
+  private final int queueDepth;
+
+  /** Duración de la última escritura en milisegundos. */
+  private final double lastWriteMillis;
+
+  /** Duración máxima de una escritura en milisegundos. */
+  private final double maxWriteMillis;
+
+  /** Tiempo total dedicado a escribir, en milisegundos. */
+  private final double totalWriteMillis;
+
+  /** Latencia desde la solicitud más antigua hasta su escritura, en la última escritura. */
+  private final double lastLatencyMillis;
+
+  /**
+   * Constructor con todos los valores.
+   *
+   * @param savesRequested Guardados solicitados
+   * @param writesCompleted Escrituras completadas
+   * @param queueDepth Guardados pendientes
+   * @param lastWriteMillis Duración de la última escritura
+   * @param maxWriteMillis Duración máxima de escritura
+   * @param totalWriteMillis Tiempo total de escritura
+   * @param lastLatencyMillis Latencia de la última escritura
+   */
+  StorageMetrics(
+      long savesRequested,
+      long writesCompleted,
+      int queueDepth,
+      double lastWriteMillis,
+      double maxWriteMillis,
+      double totalWriteMillis,
+      double lastLatencyMillis) {
+    this.savesRequested = savesRequested;
+    this.writesCompleted = writesCompleted;
+    this.queueDepth = queueDepth;
+    this.lastWriteMillis = lastWriteMillis;
+    this.maxWriteMillis = maxWriteMillis;
+    this.totalWriteMillis = totalWriteMillis;
+    this.lastLatencyMillis = lastLatencyMillis;
+  }
+
+  /**
+   * Obtiene el número de guardados solicitados.
+   *
+   * @return Guardados solicitados
+   */
+  public long getSavesRequested() {
+    return savesRequested;
+  }
+
+  /**
+   * Obtiene el número de escrituras reales a disco.
+   *
+   * @return Escrituras completadas
+   */
+  public long getWritesCompleted() {
+    return writesCompleted;
+  }
+
+  /**
+   * Obtiene cuántos guardados se agruparon con otros y no generaron escritura propia.
+   *
+   * @return Guardados agrupados
+   */
+  public long getCoalescedSaves() {
+    return Math.max(0, savesRequested - writesCompleted - queueDepth);
+  }
+
+  /**
+   * Obtiene el número de guardados pendientes de escribir.
+   *
+   * @return Profundidad de la cola
+   */
+  public int getQueueDepth() {
+    return queueDepth;
+  }
+
+  /**
+   * Obtiene la duración de la última escritura.
+   *
+   * @return Milisegundos
+   */
+  public double getLastWriteMillis() {
+    return lastWriteMillis;
+  }
+
+  /**
+   * Obtiene la duración máxima de una escritura.
+   *
+   * @return Milisegundos
+   */
+  public double getMaxWriteMillis() {
+    return maxWriteMillis;
+  }
+
+  /**
+   * Obtiene la duración media de las escrituras.
+   *
+   * @return Milisegundos, o 0 si no ha habido escrituras
+   */
+  public double getAverageWriteMillis() {
+    return writesCompleted == 0 ? 0 : totalWriteMillis / writesCompleted;
+  }
+
+  /**
+   * Obtiene la latencia de la última escritura, medida desde la solicitud más antigua que incluía.
+   *
+   * @return Milisegundos
+   */
+  public double getLastLatencyMillis() {
+    return lastLatencyMillis;
+  }
+
+  @Override
+  /**
+   * Representación en cadena de las métricas.
+   *
+   * @return Resumen de las métricas
+   */
+  public String toString() {
+    return String.format(
+        "StorageMetrics{solicitados=%d, escritos=%d, agrupados=%d, cola=%d, "
+            + "ultima=%.1fms, media=%.1fms, max=%.1fms, latencia=%.1fms}",
+        savesRequested,
+        writesCompleted,
+        getCoalescedSaves(),
+        queueDepth,
+        lastWriteMillis,
+        getAverageWriteMillis(),
+        maxWriteMillis,
+        lastLatencyMillis);
+  }
+}
@@ -1,219 +1,291 @@
 package com.openwarehouses.services;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.openwarehouses.models.Almacen;
+import com.openwarehouses.models.Altura;
+import com.openwarehouses.models.Estanteria;
+import com.openwarehouses.models.Pasillo;
+import com.openwarehouses.models.Posicion;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 
 /**
- * Servicio encargado de persistir y cargar datos de almacenes en JSON. Los datos se guardan en
- * Documentos/Almacenes o en la carpeta ejecutable. También maneja la configuración del PIN de
- * acceso.
+ * Almacenamiento de los almacenes y de la configuración (PIN). La sesión y los controladores solo
+ * usan esta interfaz, de modo que el almacenamiento se puede cambiar sin tocarlos.
+ *
+ * <p>Hay dos implementaciones: {@link FileStorageService}, con un archivo binario por almacén y un
+ * diario de cambios, y {@link H2StorageService}, con una base de datos H2 embebida. Se elige con
+ * {@link #create()} según la propiedad {@code backend} del archivo {@code almacenes.properties} de
+ * la carpeta de datos, o la propiedad de sistema {@code almacenes.backend}: {@code files} (por
+ * defecto) o {@code h2}. Con {@code compress=true} (o la propiedad de sistema
+ * {@code almacenes.compress}) el almacenamiento en archivos escribe los datos comprimidos.
  *
  * @author German
  * @version 1.0
  * @since 2025-12-16
  */
-public class StorageService {
-  /** Carpeta por defecto para almacenar los datos. */
-  private static final String DEFAULT_FOLDER = "Almacenes";
+public interface StorageService {
+  /** PIN usado cuando no hay ninguno configurado. */
+  String DEFAULT_PIN = "1234";
 
-  /** Nombre del archivo JSON donde se guardan los datos. */
-  private static final String FILENAME = "almacenes.json";
+  /** Propiedad de sistema que elige el almacenamiento; tiene prioridad sobre el archivo. */
+  String BACKEND_PROPERTY = "almacenes.backend";
 
-  /** Instancia de Gson para serialización/deserialización JSON. */
-  private final Gson gson;
+  /** Archivo de configuración de la carpeta de datos. */
+  String CONFIG_FILENAME = "almacenes.properties";
 
-  /** Directorio donde se almacenan los datos. */
-  private final File storageDir;
+  /** Valor de {@code backend} para el almacenamiento en archivos. */
+  String BACKEND_FILES = "files";
 
-  /** Clase interna para manejar la configuración (PIN). */
-  private static class Config {
-    private String pin;
+  /** Valor de {@code backend} para la base de datos H2 embebida. */
+  String BACKEND_H2 = "h2";
 
-    Config(String pin) {
-      this.pin = pin;
-    }
-  }
+  /** Propiedad de sistema que activa la compresión; tiene prioridad sobre el archivo. */
+  String COMPRESS_PROPERTY = "almacenes.compress";
 
-  /** Clase interna para envolver la configuración y la lista de almacenes. */
-  private static class StorageWrapper {
-    private Config config;
-    private List<Almacen> almacenes;
+  /**
+   * Crea el almacenamiento configurado sobre la carpeta de datos por defecto. Si la base de datos
+   * no se puede abrir se usan los archivos.
+   *
+   * @return Almacenamiento de la aplicación
+   */
+  static StorageService create() {
+    File dir = defaultDirectory();
+    Properties settings = readSettings(dir);
+    String backend =
+        System.getProperty(BACKEND_PROPERTY, settings.getProperty("backend", BACKEND_FILES));
 
-    StorageWrapper(Config config, List<Almacen> almacenes) {
-      this.config = config;
-      this.almacenes = almacenes;
+    if (BACKEND_H2.equalsIgnoreCase(backend.trim())) {
+      try {
+        return new H2StorageService(dir);
+      } catch (IllegalStateException e) {
+        System.err.println("Error abriendo la base de datos, se usan archivos: " + e.getMessage());
+      }
     }
+    FileStorageService files = new FileStorageService(dir);
+    files.setCompressed(Boolean.parseBoolean(
+        System.getProperty(COMPRESS_PROPERTY, settings.getProperty("compress", "false")).trim()));
+    return files;
   }
 
   /**
-   * Constructor que inicializa el servicio de almacenamiento. Intenta crear la carpeta en
-   * Documentos. Si falla, usa la carpeta ejecutable.
+   * Lee el archivo de configuración de la carpeta de datos.
+   *
+   * @param dir Carpeta de datos
+   * @return Propiedades leídas, vacías si el archivo no existe
    */
-  public StorageService() {
-    this.gson = new GsonBuilder().setPrettyPrinting().create();
-    this.storageDir = initializeStorageDirectory();
+  private static Properties readSettings(File dir) {
+    File config = new File(dir, CONFIG_FILENAME);
+    Properties properties = new Properties();
+    if (config.exists()) {
+      try (Reader reader = Files.newBufferedReader(config.toPath(), StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      } catch (IOException e) {
+        System.err.println("Error leyendo " + CONFIG_FILENAME + ": " + e.getMessage());
+      }
+    }
+    return properties;
   }
 
   /**
-   * Inicializa el directorio de almacenamiento. Intenta usar Documentos/Almacenes, si no, usa la
-   * carpeta ejecutable.
+   * Obtiene la carpeta de datos por defecto. Intenta usar Documentos/Almacenes y, si no existe
+   * Documentos, la carpeta ejecutable. La carpeta se crea si no existe.
    *
-   * @return Directorio donde se guardarán los datos
+   * @return Carpeta donde se guardan los datos
    */
-  private File initializeStorageDirectory() {
+  static File defaultDirectory() {
     // Intenta primero en Documentos
-    String userHome = System.getProperty("user.home");
-    File documentsFolder = new File(userHome, "Documents");
-    File almacenesFolder = new File(documentsFolder, DEFAULT_FOLDER);
-
-    if (documentsFolder.exists()) {
-      if (!almacenesFolder.exists()) {
-        almacenesFolder.mkdirs();
-      }
-      return almacenesFolder;
+    File documentsFolder = new File(System.getProperty("user.home"), "Documents");
+    File folder = documentsFolder.exists()
+        ? new File(documentsFolder, "Almacenes")
+        : new File(System.getProperty("user.dir"), "Almacenes");
+    if (!folder.exists()) {
+      folder.mkdirs();
     }
-
-    // Si no existe Documentos, usa la carpeta ejecutable
-    File executableFolder = new File(System.getProperty("user.dir"), DEFAULT_FOLDER);
-    if (!executableFolder.exists()) {
-      executableFolder.mkdirs();
-    }
-    return executableFolder;
+    return folder;
   }
 
   /**
-   * Guarda la lista de almacenes en JSON.
+   * Carga la lista de almacenes. La jerarquía de cada almacén puede quedar pendiente hasta el
+   * primer acceso a sus pasillos.
+   *
+   * @return Lista de almacenes guardados, vacía si no hay datos
+   */
+  List<Almacen> loadAlmacenes();
+
+  /**
+   * Guarda la lista completa de almacenes. Los almacenes cuya jerarquía no se ha cargado solo
+   * actualizan su nombre y su orden.
    *
    * @param almacenes Lista de almacenes a guardar
    */
-  public void saveAlmacenes(List<Almacen> almacenes) {
-    try {
-      File file = new File(storageDir, FILENAME);
-      // Preserve existing config (pin) if present
-      StorageWrapper wrapper = loadWrapper();
-      Config cfg = wrapper != null && wrapper.config != null ? wrapper.config : new Config("1234");
-      StorageWrapper toSave = new StorageWrapper(cfg, almacenes);
-      try (FileWriter writer = new FileWriter(file)) {
-        gson.toJson(toSave, writer);
+  void saveAlmacenes(List<Almacen> almacenes);
+
+  /**
+   * Registra cambios puntuales ya aplicados sobre la lista, sin reescribir todos los datos.
+   *
+   * @param almacenes Lista de almacenes ya modificada
+   * @param cambios Cambios aplicados sobre la lista
+   */
+  void appendChanges(List<Almacen> almacenes, List<JournalEntry> cambios);
+
+  /**
+   * Obtiene las posiciones de una parte de un almacén, sin cargar el resto de su jerarquía si el
+   * almacenamiento lo permite. La implementación por defecto carga el almacén y lo recorre.
+   *
+   * @param almacen Nombre del almacén
+   * @param ruta Números de pasillo, estantería y altura, o un prefijo de ellos; vacía para todo
+   *     el almacén
+   * @return Posiciones en orden, vacía si el almacén o la ruta no existen
+   */
+  default List<Posicion> loadPosiciones(String almacen, int... ruta) {
+    List<Posicion> posiciones = new ArrayList<>();
+    for (Almacen a : loadAlmacenes()) {
+      if (a.getNombre() == null || !a.getNombre().equalsIgnoreCase(almacen)) {
+        continue;
+      }
+      for (Pasillo p : a.getPasillos()) {
+        if (ruta.length > 0 && p.getNumero() != ruta[0]) {
+          continue;
+        }
+        for (Estanteria e : p.getEstanterias()) {
+          if (ruta.length > 1 && e.getNumero() != ruta[1]) {
+            continue;
+          }
+          for (Altura h : e.getAlturas()) {
+            if (ruta.length <= 2 || h.getNumero() == ruta[2]) {
+              posiciones.addAll(h.getPosiciones());
+            }
+          }
+        }
       }
-    } catch (IOException e) {
-      System.err.println("Error guardando almacenes: " + e.getMessage());
     }
+    return posiciones;
   }
 
   /**
-   * Carga la lista de almacenes desde JSON. Si el archivo no existe o está vacío, devuelve una
-   * lista vacía.
+   * Comprueba que los datos guardados sean legibles y que sus sumas de verificación sean
+   * correctas, sin modificarlos ni cargarlos en la sesión. Los almacenamientos cuyo motor ya
+   * garantiza la integridad no comprueban nada.
    *
-   * @return Lista de almacenes cargados desde JSON
+   * @return Descripción de cada archivo dañado; vacía si todo es correcto
    */
-  public List<Almacen> loadAlmacenes() {
-    StorageWrapper wrapper = loadWrapper();
-    if (wrapper == null || wrapper.almacenes == null) {
-      return new ArrayList<>();
-    }
-    return new ArrayList<>(wrapper.almacenes);
+  default List<String> verifyStorage() {
+    return List.of();
   }
 
-  /** Carga el objeto envolvente (config + almacenes) si existe. */
-  private StorageWrapper loadWrapper() {
-    try {
-      File file = new File(storageDir, FILENAME);
-      if (!file.exists() || file.length() == 0) {
-        return null;
-      }
+  /**
+   * Indica si los datos guardados han cambiado desde la última carga o escritura de este servicio,
+   * por ejemplo porque otra instancia de la aplicación ha guardado.
+   *
+   * @return true si hay que volver a cargar los almacenes para ver los datos actuales
+   */
+  boolean hasExternalChanges();
 
-      // Leer contenido como texto para detectar formato previo (array) y migrarlo si
-      // hace falta
-      String content = Files.readString(file.toPath());
-      String trimmed = content.trim();
-      if (trimmed.isEmpty()) {
-        return null;
-      }
+  /**
+   * Indica si la jerarquía guardada de un almacén sigue siendo la que este servicio leyó o
+   * escribió por última vez. Los almacenamientos que no lo saben devuelven false.
+   *
+   * @param archivo Clave de almacenamiento del almacén ({@link Almacen#getArchivo()})
+   * @return true si la jerarquía en memoria ya es la guardada
+   */
+  default boolean isShardCurrent(String archivo) {
+    return false;
+  }
 
-      if (trimmed.charAt(0) == '[') {
-        // Formato antiguo: lista JSON de almacenes. Migramos a StorageWrapper con PIN
-        // por defecto
-        Almacen[] almacenes = gson.fromJson(trimmed, Almacen[].class);
-        StorageWrapper wrapper =
-            new StorageWrapper(new Config("1234"), new ArrayList<>(List.of(almacenes)));
-        return wrapper;
-      }
+  /**
+   * Empieza a vigilar los guardados de otras instancias, si el almacenamiento puede compartirse.
+   *
+   * @param onExternalChange Acción a ejecutar al detectar cambios externos
+   */
+  void startWatching(Runnable onExternalChange);
 
-      try (FileReader reader = new FileReader(file)) {
-        StorageWrapper wrapper = gson.fromJson(reader, StorageWrapper.class);
-        return wrapper;
-      }
-    } catch (IOException e) {
-      System.err.println("Error cargando wrapper: " + e.getMessage());
-      return null;
-    }
-  }
+  /** Deja de vigilar los guardados de otras instancias. */
+  void stopWatching();
 
   /**
-   * Obtiene el PIN guardado en la configuración. Si no existe, devuelve "1234".
-   * @return Devuelve el pin correcto en formato String
+   * Activa o desactiva la escritura diferida, si el almacenamiento la admite.
+   *
+   * @param enabled true para escribir en segundo plano
    */
-  public String loadPin() {
-    StorageWrapper wrapper = loadWrapper();
-    if (wrapper != null
-        && wrapper.config != null
-        && wrapper.config.pin != null
-        && !wrapper.config.pin.isBlank()) {
-      return wrapper.config.pin;
-    }
-    return "1234";
-  }
+  void setWriteBehind(boolean enabled);
+
+  /** Espera a que se escriban todos los guardados pendientes. */
+  void flush();
+
+  /** Escribe los guardados pendientes y libera los recursos. Debe llamarse al cerrar. */
+  void close();
 
   /**
-   * Guarda el PIN en la configuración JSON, preservando los almacenes existentes.
+   * Obtiene las métricas de guardado.
+   *
+   * @return Foto actual de las métricas
+   */
+  StorageMetrics getMetrics();
+
+  /**
+   * Obtiene el PIN de acceso.
+   *
+   * @return PIN guardado, o {@link #DEFAULT_PIN} si no hay ninguno
+   */
+  String loadPin();
+
+  /**
+   * Guarda el PIN de acceso, preservando los almacenes.
+   *
    * @param pin El pin nuevo que se va a guardar
-   * */
-  public void savePin(String pin) {
-    try {
-      List<Almacen> current = loadAlmacenes();
-      StorageWrapper toSave = new StorageWrapper(new Config(pin), current);
-      File file = new File(storageDir, FILENAME);
-      try (FileWriter writer = new FileWriter(file)) {
-        gson.toJson(toSave, writer);
-      }
-    } catch (IOException e) {
-      System.err.println("Error guardando PIN: " + e.getMessage());
-    }
+   */
+  void savePin(String pin);
+
+  /**
+   * Exporta los almacenes y la configuración a un archivo JSON legible.
+   *
+   * @param target Archivo JSON de destino
+   * @return true si se exportó correctamente
+   */
+  boolean exportJson(File target);
+
+  /**
+   * Exporta los códigos de ubicación de todos los almacenes, una línea por posición, en CSV o en
+   * NDJSON según la extensión del archivo (ver {@link LocationExportService}).
+   *
+   * @param target Archivo de destino
+   * @return Número de posiciones exportadas
+   * @throws IOException Si falla la escritura
+   */
+  default long exportLocations(File target) throws IOException {
+    return LocationExportService.exportar(loadAlmacenes(),
+        LocationExportService.Formato.deArchivo(target.getName()), target.toPath());
   }
 
+  /**
+   * Importa los almacenes de un archivo JSON, reemplazando los datos guardados. Se conserva el PIN.
+   *
+   * @param source Archivo JSON de origen
+   * @return true si se importó correctamente
+   */
+  boolean importJson(File source);
+
   /**
    * Obtiene el directorio de almacenamiento.
    *
    * @return Directorio de almacenamiento
    */
-  public File getStorageDirectory() {
-    return storageDir;
-  }
+  File getStorageDirectory();
 
-  /** Limpia todos los datos (borra el archivo JSON). */
-  public void clearData() {
-    File file = new File(storageDir, FILENAME);
-    if (file.exists()) {
-      file.delete();
-    }
-  }
+  /** Borra todos los datos guardados, incluido el PIN. */
+  void clearData();
 
   /**
    * Verifica si existe algún almacén guardado.
    *
    * @return true si hay almacenes, false en caso contrario
    */
-  public boolean hasAlmacenes() {
-    return !loadAlmacenes().isEmpty();
-  }
+  boolean hasAlmacenes();
 }
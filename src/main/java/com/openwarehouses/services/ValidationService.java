@@ -5,6 +5,7 @@ import java.util.List;
 import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Altura;
 import com.openwarehouses.models.Estanteria;
+import com.openwarehouses.models.LocationKey;
 import com.openwarehouses.models.Pasillo;
 
 /**
@@ -42,7 +43,7 @@ public final class ValidationService {
    * @return true si el número es válido (no existe), false en caso contrario
    */
   public static boolean isPasilloNumeroValid(int numero, Almacen almacen) {
-    return almacen.getPasillos().stream().noneMatch(p -> p.getNumero() == numero);
+    return almacen.getPasilloByNumero(numero) == null;
   }
 
   /**
@@ -53,7 +54,7 @@ public final class ValidationService {
    * @return true si el número es válido (no existe), false en caso contrario
    */
   public static boolean isEstanteriaNumeroValid(int numero, Pasillo pasillo) {
-    return pasillo.getEstanterias().stream().noneMatch(e -> e.getNumero() == numero);
+    return pasillo.getEstanteriaByNumero(numero) == null;
   }
 
   /**
@@ -64,7 +65,7 @@ public final class ValidationService {
    * @return true si el número es válido (no existe), false en caso contrario
    */
   public static boolean isAlturaNumeroValid(int numero, Estanteria estanteria) {
-    return estanteria.getAlturas().stream().noneMatch(a -> a.getNumero() == numero);
+    return estanteria.getAlturaByNumero(numero) == null;
   }
 
   /**
@@ -75,11 +76,29 @@ public final class ValidationService {
    * @return true si el número es válido (no existe), false en caso contrario
    */
   public static boolean isPosicionNumeroValid(int numero, Altura altura) {
-    return altura.getPosiciones().stream().noneMatch(p -> p.getNumero() == numero);
+    return !altura.containsPosicion(numero);
   }
 
   /**
-   * Genera el código único para una posición: pasillo.estanteria.altura.posicion
+   * Genera la clave de una posición, que la identifica sin crear cadenas.
+   *
+   * @param numeroPasillo    Número del pasillo
+   * @param numeroEstanteria Número de la estantería
+   * @param numeroAltura     Número de la altura
+   * @param numeroPosicion   Número de la posición
+   * @return Clave de la posición, o null si algún número no cabe en una clave
+   */
+  public static LocationKey generateClave(
+      int numeroPasillo, int numeroEstanteria, int numeroAltura, int numeroPosicion) {
+    return LocationKey.admite(numeroPasillo, numeroEstanteria, numeroAltura, numeroPosicion)
+        ? LocationKey.of(numeroPasillo, numeroEstanteria, numeroAltura, numeroPosicion)
+        : null;
+  }
+
+  /**
+   * Genera el código único para una posición: pasillo.estanteria.altura.posicion. Solo se usa
+   * para guardarlo como texto; en memoria las posiciones se identifican por su
+   * {@link #generateClave clave}.
    *
    * @param numeroPasillo    Número del pasillo
    * @param numeroEstanteria Número de la estantería
@@ -93,13 +112,13 @@ public final class ValidationService {
   }
 
   /**
-   * Valida que un número sea positivo.
+   * Valida que un número sea positivo y quepa en una {@link LocationKey}.
    *
    * @param numero Número a validar
    * @return true si es válido, false en caso contrario
    */
   public static boolean isNumeroValido(int numero) {
-    return numero > 0;
+    return numero > 0 && numero <= LocationKey.MAX_NUMERO;
   }
 
   /**
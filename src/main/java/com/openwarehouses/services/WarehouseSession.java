@@ -0,0 +1,445 @@
+package com.openwarehouses.services;
+
+import com.openwarehouses.models.Almacen;
+import com.openwarehouses.models.Altura;
+import com.openwarehouses.models.Estanteria;
+import com.openwarehouses.models.Pasillo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Sesión de la aplicación: posee la única lista de almacenes en memoria y el servicio de
+ * almacenamiento que la persiste. Se crea al arrancar y se pasa a todas las vistas y controladores,
+ * de modo que navegar entre vistas no vuelve a leer los datos.
+ *
+ * <p>La lista solo se recarga si los datos en disco han cambiado desde la última carga o escritura
+ * propia (por ejemplo, otra instancia de la aplicación ha guardado). La recarga incorpora los
+ * datos nuevos sobre los objetos existentes: los elementos que siguen existiendo conservan su
+ * identidad, así que las vistas abiertas siguen siendo válidas, y solo se sustituyen las listas de
+ * hijos que han cambiado. Los almacenes cuya jerarquía no estaba en memoria se sustituyen por los
+ * recién leídos; si una vista conservaba uno de ellos, sus cambios se reaplican sobre el actual al
+ * registrarlos.
+ *
+ * <p>Con {@link #startWatching} los guardados de otras instancias se incorporan en cuanto se
+ * detectan, y la vista abierta recibe un {@link ExternalChange} con lo que ha cambiado.
+ *
+ * <p>La sesión guarda también el historial de deshacer y rehacer de los cambios registrados. Los
+ * controladores llaman a {@link #prepararEdicion} antes de modificar un almacén, para que el
+ * historial capture su jerarquía la primera vez. Incorporar guardados externos vacía el historial.
+ *
+ * @author German
+ * @version 1.0
+ * @since 2025-12-16
+ */
+public final class WarehouseSession {
+  /** Servicio de almacenamiento de la sesión. */
+  private final StorageService storage;
+
+  /** Lista de almacenes compartida por todas las vistas. */
+  private final List<Almacen> almacenes = new ArrayList<>();
+
+  /** Indica si la lista ya se ha cargado. */
+  private boolean loaded;
+
+  /** Receptor de los cambios externos: la vista abierta, o null. */
+  private Consumer<ExternalChange> listener;
+
+  /** Historial de deshacer y rehacer. */
+  private final EditHistory history = new EditHistory();
+
+  /**
+   * Constructor.
+   *
+   * @param storage Servicio de almacenamiento de la aplicación
+   */
+  public WarehouseSession(StorageService storage) {
+    this.storage = storage;
+  }
+
+  /**
+   * Obtiene el servicio de almacenamiento de la sesión.
+   *
+   * @return Servicio de almacenamiento
+   */
+  public StorageService getStorage() {
+    return storage;
+  }
+
+  /**
+   * Obtiene la lista de almacenes, cargándola la primera vez o si los datos han cambiado en disco.
+   *
+   * @return Lista de almacenes de la sesión, siempre la misma instancia
+   */
+  public synchronized List<Almacen> getAlmacenes() {
+    if (!loaded || storage.hasExternalChanges()) {
+      reload();
+    }
+    return almacenes;
+  }
+
+  /**
+   * Vuelve a leer los almacenes del almacenamiento. Si ya estaban cargados, los cambios se
+   * incorporan sobre los objetos existentes sin avisar a la vista, que se supone que va a pintarse
+   * de nuevo.
+   */
+  public synchronized void reload() {
+    if (loaded) {
+      merge();
+      return;
+    }
+    almacenes.addAll(storage.loadAlmacenes());
+    history.reiniciar(almacenes);
+    loaded = true;
+  }
+
+  /**
+   * Establece el receptor de los cambios externos y de los que producen deshacer y rehacer. Cada
+   * vista se registra al construirse, de modo que solo la vista abierta recibe avisos.
+   *
+   * @param listener Receptor, o null para no avisar
+   */
+  public synchronized void setListener(Consumer<ExternalChange> listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Empieza a vigilar los guardados de otras instancias. Cada vez que se detectan se incorporan
+   * con {@link #sincronizar()} en el ejecutor indicado, que debe ser el hilo de la interfaz.
+   *
+   * @param uiExecutor Ejecutor del hilo que usa la lista (por ejemplo, {@code Platform::runLater})
+   */
+  public void startWatching(Executor uiExecutor) {
+    storage.startWatching(() -> uiExecutor.execute(this::sincronizar));
+  }
+
+  /**
+   * Incorpora los cambios hechos en disco por otra instancia y avisa al receptor si hay alguno.
+   *
+   * @return Cambios incorporados (vacío si no había)
+   */
+  public synchronized ExternalChange sincronizar() {
+    if (!loaded || !storage.hasExternalChanges()) {
+      return new ExternalChange();
+    }
+    ExternalChange cambio = merge();
+    if (listener != null && !cambio.isVacio()) {
+      listener.accept(cambio);
+    }
+    return cambio;
+  }
+
+  /**
+   * Lee el índice y el diario e incorpora sus datos a la lista actual. Solo se decodifica la
+   * jerarquía de los almacenes que están en memoria y cuyo archivo o diario ha cambiado.
+   *
+   * @return Cambios incorporados
+   */
+  private ExternalChange merge() {
+    ExternalChange cambio = new ExternalChange();
+    List<Almacen> restantes = new ArrayList<>(almacenes);
+    List<Almacen> resultado = new ArrayList<>();
+    for (Almacen nuevo : storage.loadAlmacenes()) {
+      Almacen actual = extraer(restantes, nuevo);
+      if (actual == null) {
+        cambio.marcarLista();
+        resultado.add(nuevo);
+      } else {
+        resultado.add(mergeAlmacen(actual, nuevo, cambio));
+      }
+    }
+    for (Almacen eliminado : restantes) {
+      cambio.marcarEliminado(eliminado);
+      cambio.marcarLista();
+    }
+    for (int i = 0; i < resultado.size() && !cambio.isListaModificada(); i++) {
+      if (resultado.get(i) != almacenes.get(i)) {
+        cambio.marcarLista();
+      }
+    }
+    almacenes.clear();
+    almacenes.addAll(resultado);
+    if (!cambio.isVacio()) {
+      history.reiniciar(almacenes);
+    }
+    return cambio;
+  }
+
+  /**
+   * Busca y quita de la lista el almacén en memoria que corresponde a uno recién leído: por
+   * archivo si ambos lo tienen (así se reconocen los renombrados) y si no por nombre.
+   *
+   * @param actuales Almacenes en memoria aún sin emparejar
+   * @param nuevo Almacén recién leído
+   * @return Almacén en memoria, o null si es nuevo
+   */
+  private static Almacen extraer(List<Almacen> actuales, Almacen nuevo) {
+    for (int i = 0; i < actuales.size(); i++) {
+      Almacen a = actuales.get(i);
+      boolean mismo = a.getArchivo() != null && nuevo.getArchivo() != null
+          ? a.getArchivo().equals(nuevo.getArchivo())
+          : a.getNombre() != null && a.getNombre().equalsIgnoreCase(nuevo.getNombre());
+      if (mismo) {
+        return actuales.remove(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Incorpora un almacén recién leído sobre el que hay en memoria.
+   *
+   * @param actual Almacén en memoria
+   * @param nuevo Almacén recién leído
+   * @param cambio Cambios detectados
+   * @return Almacén que queda en la lista
+   */
+  private Almacen mergeAlmacen(Almacen actual, Almacen nuevo, ExternalChange cambio) {
+    if (!actual.isCargado()) {
+      // Ninguna vista muestra su jerarquía: basta con el resumen recién leído
+      boolean igual = !nuevo.isCargado()
+          && actual.getNombre().equals(nuevo.getNombre())
+          && actual.getNumPasillos() == nuevo.getNumPasillos()
+          && actual.getNumPosiciones() == nuevo.getNumPosiciones();
+      if (igual) {
+        return actual;
+      }
+      cambio.marcarEliminado(actual);
+      cambio.marcarLista();
+      return nuevo;
+    }
+
+    if (!actual.getNombre().equals(nuevo.getNombre())) {
+      actual.setNombre(nuevo.getNombre());
+      cambio.marcarModificado(actual);
+      cambio.marcarLista();
+    }
+    if (actual.getArchivo() == null) {
+      actual.setArchivo(nuevo.getArchivo());
+    }
+    // Si el diario no lo toca y su archivo no ha cambiado, la jerarquía en memoria ya es la del disco
+    if (!nuevo.isCargado() && storage.isShardCurrent(nuevo.getArchivo())) {
+      return actual;
+    }
+    mergeNivel(actual, actual.getPasillos(), nuevo.getPasillos(), Pasillo::getNumero,
+        (p, np) -> mergePasillo(p, np, cambio), cambio);
+    return actual;
+  }
+
+  /**
+   * Incorpora las estanterías recién leídas de un pasillo.
+   *
+   * @param actual Pasillo en memoria
+   * @param nuevo Pasillo recién leído
+   * @param cambio Cambios detectados
+   */
+  private static void mergePasillo(Pasillo actual, Pasillo nuevo, ExternalChange cambio) {
+    mergeNivel(actual, actual.getEstanterias(), nuevo.getEstanterias(), Estanteria::getNumero,
+        (e, ne) -> mergeEstanteria(e, ne, cambio), cambio);
+  }
+
+  /**
+   * Incorpora las alturas recién leídas de una estantería.
+   *
+   * @param actual Estantería en memoria
+   * @param nuevo Estantería recién leída
+   * @param cambio Cambios detectados
+   */
+  private static void mergeEstanteria(Estanteria actual, Estanteria nuevo, ExternalChange cambio) {
+    mergeNivel(actual, actual.getAlturas(), nuevo.getAlturas(), Altura::getNumero,
+        (h, nh) -> mergeAltura(h, nh, cambio), cambio);
+  }
+
+  /**
+   * Incorpora las posiciones recién leídas de una altura, comparando solo sus números.
+   *
+   * @param actual Altura en memoria
+   * @param nuevo Altura recién leída
+   * @param cambio Cambios detectados
+   */
+  private static void mergeAltura(Altura actual, Altura nuevo, ExternalChange cambio) {
+    int[] numeros = nuevo.getNumerosPosiciones();
+    if (!Arrays.equals(actual.getNumerosPosiciones(), numeros)) {
+      actual.setNumerosPosiciones(numeros);
+      cambio.marcarModificado(actual);
+    }
+  }
+
+  /**
+   * Incorpora los hijos recién leídos de un elemento, emparejándolos por número. Los que siguen
+   * existiendo conservan su objeto y se incorporan recursivamente; si cambia el conjunto o el orden,
+   * se sustituye el contenido de la lista de hijos y el padre se marca como modificado.
+   *
+   * @param padre Elemento en memoria cuyos hijos se incorporan
+   * @param actuales Lista de hijos en memoria
+   * @param nuevos Hijos recién leídos
+   * @param numero Número de un hijo
+   * @param mergeHijo Incorporación de un hijo emparejado
+   * @param cambio Cambios detectados
+   * @param <T> Tipo de los hijos
+   */
+  private static <T> void mergeNivel(
+      Object padre,
+      List<T> actuales,
+      List<T> nuevos,
+      ToIntFunction<T> numero,
+      BiConsumer<T, T> mergeHijo,
+      ExternalChange cambio) {
+    Map<Integer, T> porNumero = new HashMap<>();
+    for (T actual : actuales) {
+      porNumero.put(numero.applyAsInt(actual), actual);
+    }
+
+    List<T> resultado = new ArrayList<>(nuevos.size());
+    boolean modificado = actuales.size() != nuevos.size();
+    for (T nuevo : nuevos) {
+      T actual = porNumero.remove(numero.applyAsInt(nuevo));
+      if (actual == null) {
+        resultado.add(nuevo);
+        modificado = true;
+        continue;
+      }
+      mergeHijo.accept(actual, nuevo);
+      int i = resultado.size();
+      modificado |= i >= actuales.size() || actuales.get(i) != actual;
+      resultado.add(actual);
+    }
+    for (T eliminado : porNumero.values()) {
+      cambio.marcarEliminado(eliminado);
+    }
+
+    if (modificado) {
+      actuales.clear();
+      actuales.addAll(resultado);
+      cambio.marcarModificado(padre);
+    }
+  }
+
+  /**
+   * Registra en el diario cambios ya aplicados sobre un almacén. Si la lista se ha recargado
+   * desde que se obtuvo el almacén, los cambios se aplican también sobre el almacén actual para
+   * que la lista en memoria coincida con el diario.
+   *
+   * @param almacen Almacén modificado, o null si el cambio ya se hizo sobre la propia lista
+   * @param cambios Cambios aplicados
+   */
+  public synchronized void registrar(Almacen almacen, List<JournalEntry> cambios) {
+    if (almacen != null && !contiene(almacen)) {
+      for (JournalEntry cambio : cambios) {
+        cambio.aplicar(almacenes);
+      }
+    }
+    storage.appendChanges(almacenes, cambios);
+    history.registrar(almacenes, cambios);
+  }
+
+  /**
+   * Guarda un cambio masivo ya aplicado sobre un almacén de la lista, como una importación de su
+   * distribución. Se escribe una instantánea con un único guardado en lugar de una entrada de
+   * diario por elemento, y el historial se vacía porque el cambio no se puede deshacer.
+   *
+   * @param almacen Almacén modificado, que debe ser uno de los de la lista actual
+   * @return true si se guardó; false si la lista se recargó y el almacén ya no pertenece a ella
+   */
+  public synchronized boolean registrarImportacion(Almacen almacen) {
+    if (!contiene(almacen)) {
+      return false;
+    }
+    storage.saveAlmacenes(almacenes);
+    history.reiniciar(almacenes);
+    return true;
+  }
+
+  /**
+   * Prepara el historial antes de modificar la jerarquía de un almacén. La primera vez captura su
+   * contenido, que es lo que permite deshacer después, incluida su eliminación.
+   *
+   * @param almacen Almacén que se va a modificar
+   */
+  public synchronized void prepararEdicion(Almacen almacen) {
+    history.seguir(almacen);
+  }
+
+  /**
+   * Indica si hay cambios que deshacer.
+   *
+   * @return true si se ha registrado algún cambio desde la carga o la última sincronización
+   */
+  public synchronized boolean puedeDeshacer() {
+    return history.puedeDeshacer();
+  }
+
+  /**
+   * Indica si hay cambios deshechos que rehacer.
+   *
+   * @return true si se ha deshecho algo desde el último cambio
+   */
+  public synchronized boolean puedeRehacer() {
+    return history.puedeRehacer();
+  }
+
+  /**
+   * Deshace el último cambio registrado, lo guarda y avisa a la vista abierta de lo que cambia.
+   *
+   * @return true si había algo que deshacer
+   */
+  public synchronized boolean deshacer() {
+    sincronizar();
+    return aplicarHistorial(history.deshacer(almacenes));
+  }
+
+  /**
+   * Rehace el último cambio deshecho, lo guarda y avisa a la vista abierta de lo que cambia.
+   *
+   * @return true si había algo que rehacer
+   */
+  public synchronized boolean rehacer() {
+    sincronizar();
+    return aplicarHistorial(history.rehacer(almacenes));
+  }
+
+  /**
+   * Guarda la lista tras deshacer o rehacer. Se escribe una instantánea en lugar de registrar en el
+   * diario: solo se reescriben los archivos de los almacenes que han cambiado.
+   *
+   * @param cambio Elementos cambiados, o null si no había paso que aplicar
+   * @return true si se aplicó un paso
+   */
+  private boolean aplicarHistorial(ExternalChange cambio) {
+    if (cambio == null) {
+      return false;
+    }
+    storage.saveAlmacenes(almacenes);
+    if (listener != null && !cambio.isVacio()) {
+      listener.accept(cambio);
+    }
+    return true;
+  }
+
+  /**
+   * Comprueba si el almacén es uno de los de la lista actual (por identidad, no por nombre).
+   *
+   * @param almacen Almacén a buscar
+   * @return true si pertenece a la lista actual
+   */
+  private boolean contiene(Almacen almacen) {
+    for (Almacen a : almacenes) {
+      if (a == almacen) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Escribe los guardados pendientes y detiene los hilos del almacenamiento al cerrar la aplicación. */
+  public void close() {
+    storage.close();
+  }
+}
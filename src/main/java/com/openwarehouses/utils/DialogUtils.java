@@ -1,7 +1,9 @@
 package com.openwarehouses.utils;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
@@ -226,14 +228,16 @@ public final class DialogUtils {
    *
    * <p>
    * Permite validar cada número individualmente y muestra un resumen final
-   * con los elementos creados y no creados.
+   * con los elementos creados y no creados. La creación se delega en una única
+   * llamada para todo el rango, de modo que el controlador persiste una sola vez.
    *
    * @param title        título del diálogo
    * @param header       encabezado del diálogo
    * @param itemName     nombre del elemento (para mensajes)
    * @param parent       elemento padre asociado
    * @param validator    validación por número y padre
-   * @param createAction acción de creación
+   * @param createAction acción de creación en bloque: recibe inicio y fin del
+   *                     rango y devuelve los números creados
    * @param <P>          tipo del elemento padre
    * @return el valor inicial del rango si se creó algún elemento, o {@code null}
    */
@@ -243,7 +247,7 @@ public final class DialogUtils {
       String itemName,
       P parent,
       BiPredicate<Integer, P> validator,
-      BiFunction<Integer, P, Boolean> createAction) {
+      BiFunction<Integer, Integer, List<Integer>> createAction) {
 
     Dialog<Integer> dialog = new Dialog<>();
     dialog.setTitle(title);
@@ -288,16 +292,22 @@ public final class DialogUtils {
           StringBuilder creados = new StringBuilder();
           StringBuilder noCreados = new StringBuilder();
 
+          Set<Integer> existentes = new HashSet<>();
           for (int n = inicio; n <= fin; n++) {
-            if (validator.test(n, parent)) {
-              boolean ok = createAction.apply(n, parent);
-              if (ok) {
-                append(creados, String.valueOf(n));
-              } else {
-                append(noCreados, n + " (error)");
-              }
-            } else {
+            if (!validator.test(n, parent)) {
+              existentes.add(n);
+            }
+          }
+
+          Set<Integer> creadosOk = new HashSet<>(createAction.apply(inicio, fin));
+
+          for (int n = inicio; n <= fin; n++) {
+            if (creadosOk.contains(n)) {
+              append(creados, String.valueOf(n));
+            } else if (existentes.contains(n)) {
               append(noCreados, n + " (ya existe)");
+            } else {
+              append(noCreados, n + " (error)");
             }
           }
 
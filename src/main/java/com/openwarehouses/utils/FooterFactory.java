@@ -141,6 +141,23 @@ public final class FooterFactory {
     return footerBox;
   }
 
+  /**
+   * Añade al final de un footer un botón de acción con el estilo estándar.
+   *
+   * @param footer footer creado por esta fábrica
+   * @param texto  texto del botón
+   * @param color  color de fondo en formato hexadecimal (ej. "#2980b9")
+   * @param accion acción que se ejecuta al pulsar el botón
+   * @return el {@link Button} añadido
+   */
+  public static Button addAction(HBox footer, String texto, String color, Runnable accion) {
+    Button boton = new Button(texto);
+    styleButton(boton, color);
+    boton.setOnAction(e -> accion.run());
+    footer.getChildren().add(boton);
+    return boton;
+  }
+
   /**
    * Aplica estilo estándar a un {@link Button} del footer.
    *
@@ -1,7 +1,11 @@
 package com.openwarehouses.utils;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
@@ -20,6 +24,8 @@ import javafx.scene.layout.VBox;
  * <ul>
  * <li>Cargar elementos en un {@link Pane} usando una función que genere los
  * nodos.</li>
+ * <li>Actualizar un contenedor ya cargado reutilizando los nodos de los
+ * elementos que no han cambiado.</li>
  * <li>Crear un {@link FlowPane} estándar con scroll, estilo homogéneo y mensaje
  * vacío.</li>
  * </ul>
@@ -33,6 +39,9 @@ public final class GridLoader {
   /** Espaciado horizontal y vertical estándar para los grids. */
   private static int gap = 20;
 
+  /** Clave de las propiedades del nodo donde se guarda el elemento que representa. */
+  private static final String ITEM_KEY = GridLoader.class.getName() + ".item";
+
   /** Constructor privado para evitar instanciación. */
   private GridLoader() {
   }
@@ -63,7 +72,64 @@ public final class GridLoader {
       return;
     }
 
-    items.forEach(item -> container.getChildren().add(creator.apply(item)));
+    items.forEach(item -> container.getChildren().add(create(item, creator)));
+  }
+
+  /**
+   * Actualiza un contenedor cargado con {@link #load} para que muestre la lista
+   * indicada, sin reconstruirlo. Los nodos de los elementos que siguen en la
+   * lista (el mismo objeto) se reutilizan; solo se crean nodos para los
+   * elementos nuevos y para los que {@code changed} indique, por ejemplo porque
+   * ha cambiado su texto.
+   *
+   * @param container    contenedor cargado previamente
+   * @param items        lista actual de elementos
+   * @param emptyMessage nodo que se mostrará si no hay elementos
+   * @param creator      función que convierte un elemento en un nodo
+   * @param changed      elementos existentes cuyo nodo debe crearse de nuevo
+   * @param <T>          tipo de los elementos
+   */
+  public static <T> void sync(
+      Pane container,
+      List<T> items,
+      Node emptyMessage,
+      Function<T, Node> creator,
+      Predicate<? super T> changed) {
+    if (items == null || items.isEmpty()) {
+      container.getChildren().setAll(emptyMessage);
+      return;
+    }
+
+    Map<Object, Node> existing = new IdentityHashMap<>();
+    for (Node node : container.getChildren()) {
+      Object item = node.getProperties().get(ITEM_KEY);
+      if (item != null) {
+        existing.put(item, node);
+      }
+    }
+
+    List<Node> nodes = new ArrayList<>(items.size());
+    for (T item : items) {
+      Node node = existing.get(item);
+      nodes.add(node == null || changed.test(item) ? create(item, creator) : node);
+    }
+    if (!nodes.equals(container.getChildren())) {
+      container.getChildren().setAll(nodes);
+    }
+  }
+
+  /**
+   * Crea el nodo de un elemento y lo asocia al elemento para poder reutilizarlo.
+   *
+   * @param item    elemento a representar
+   * @param creator función que convierte el elemento en un nodo
+   * @param <T>     tipo del elemento
+   * @return nodo creado
+   */
+  private static <T> Node create(T item, Function<T, Node> creator) {
+    Node node = creator.apply(item);
+    node.getProperties().put(ITEM_KEY, item);
+    return node;
   }
 
   /**
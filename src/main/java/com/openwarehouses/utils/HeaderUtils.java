@@ -1,9 +1,12 @@
 package com.openwarehouses.utils;
 
+import com.openwarehouses.controllers.HistorialController;
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.views.InicioView;
 import com.openwarehouses.views.edicion.PinDialog;
 
 import javafx.geometry.Insets;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
@@ -37,8 +40,11 @@ public final class HeaderUtils {
     /** Header normal (sin acciones de edición). */
     NORMAL,
 
-    /** Header para vistas de edición (incluye botón editar PIN). */
-    EDITION
+    /** Header para vistas de edición (incluye botón editar PIN, deshacer y rehacer). */
+    EDITION,
+
+    /** Header para vistas de edición de la jerarquía (incluye deshacer y rehacer). */
+    HISTORY
   }
 
   /**
@@ -47,16 +53,19 @@ public final class HeaderUtils {
    *   <li>Botón "← ATRÁS"</li>
    *   <li>Botón "INICIO"</li>
    *   <li>Opcionalmente, botón "EDITAR PIN" solo en modo edición</li>
+   *   <li>Opcionalmente, botones "DESHACER" y "REHACER" en los modos de edición e historial</li>
    * </ul>
    *
    * @param parent {@link BorderPane} donde se insertará el header
    * @param primaryStage {@link Stage} principal de la aplicación
+   * @param session sesión de la aplicación, que se pasa a la vista de inicio
    * @param onBackAction acción a ejecutar al pulsar "ATRÁS"
-   * @param mode modo del header (NORMAL o EDITION)
+   * @param mode modo del header (NORMAL, EDITION o HISTORY)
    */
   public static void createHeader(
       BorderPane parent,
       Stage primaryStage,
+      WarehouseSession session,
       Runnable onBackAction,
       HeaderMode mode) {
 
@@ -75,7 +84,7 @@ public final class HeaderUtils {
 
     btnExit.setOnAction(
         e -> {
-          InicioView inicio = new InicioView(primaryStage);
+          InicioView inicio = new InicioView(primaryStage, session);
           inicio.show();
         });
 
@@ -92,11 +101,36 @@ public final class HeaderUtils {
           "-fx-padding: 15; -fx-font-size: 14; "
               + "-fx-background-color: #27ae60; -fx-text-fill: white;");
 
-      btnEditPin.setOnAction(e -> PinDialog.editPin(primaryStage));
+      btnEditPin.setOnAction(e -> PinDialog.editPin(primaryStage, session.getStorage()));
 
       topBar.getChildren().add(btnEditPin);
     }
 
+    if (mode == HeaderMode.EDITION || mode == HeaderMode.HISTORY) {
+      HistorialController historial = new HistorialController(session);
+      Button btnDeshacer = new Button("↶ DESHACER");
+      Button btnRehacer = new Button("↷ REHACER");
+      String estilo = "-fx-padding: 15; -fx-font-size: 14; "
+          + "-fx-background-color: #3498db; -fx-text-fill: white;";
+      btnDeshacer.setStyle(estilo);
+      btnRehacer.setStyle(estilo);
+
+      btnDeshacer.setOnAction(
+          e -> {
+            if (!historial.deshacer()) {
+              avisar("No hay cambios que deshacer.");
+            }
+          });
+      btnRehacer.setOnAction(
+          e -> {
+            if (!historial.rehacer()) {
+              avisar("No hay cambios que rehacer.");
+            }
+          });
+
+      topBar.getChildren().addAll(btnDeshacer, btnRehacer);
+    }
+
     topBar.getChildren().add(btnExit);
 
     parent.setTop(topBar);
@@ -110,13 +144,28 @@ public final class HeaderUtils {
    *
    * @param parent {@link BorderPane} donde se insertará el header
    * @param primaryStage {@link Stage} principal de la aplicación
+   * @param session sesión de la aplicación
    * @param onBackAction acción a ejecutar al pulsar "ATRÁS"
    */
   public static void createHeader(
       BorderPane parent,
       Stage primaryStage,
+      WarehouseSession session,
       Runnable onBackAction) {
 
-    createHeader(parent, primaryStage, onBackAction, HeaderMode.NORMAL);
+    createHeader(parent, primaryStage, session, onBackAction, HeaderMode.NORMAL);
+  }
+
+  /**
+   * Muestra un aviso cuando no hay nada que deshacer o rehacer.
+   *
+   * @param mensaje texto del aviso
+   */
+  private static void avisar(String mensaje) {
+    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+    alert.setTitle("Historial");
+    alert.setHeaderText(null);
+    alert.setContentText(mensaje);
+    alert.showAndWait();
   }
 }
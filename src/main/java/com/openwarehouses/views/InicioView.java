@@ -1,5 +1,6 @@
 package com.openwarehouses.views;
 
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.views.edicion.EdicionAlmacenView;
 import com.openwarehouses.views.edicion.PinDialog;
 import com.openwarehouses.views.visualization.SeleccionAlmacenEtiquetasView;
@@ -58,6 +59,9 @@ public class InicioView extends BorderPane {
   /** Stage principal de la aplicación. */
   private final Stage primaryStage;
 
+  /** Sesión de la aplicación, que se pasa a las vistas que se abren desde aquí. */
+  private final WarehouseSession session;
+
   /**
    * Construye la vista de inicio de la aplicación.
    *
@@ -66,10 +70,12 @@ public class InicioView extends BorderPane {
    *
    * @param primaryStage stage principal desde el cual se gestionan los cambios de escena y apertura
    *     de nuevas vistas
+   * @param session sesión de la aplicación, con la lista de almacenes compartida por las vistas
    */
-  public InicioView(Stage primaryStage) {
+  public InicioView(Stage primaryStage, WarehouseSession session) {
 
     this.primaryStage = primaryStage;
+    this.session = session;
 
     Button btnSalir = new Button("SALIR");
     Button btnAdmin = new Button("ADMIN");
@@ -188,13 +194,13 @@ public class InicioView extends BorderPane {
    */
   private void abrirVistaAdmin() {
     try {
-      boolean accesoPermitido = PinDialog.show();
+      boolean accesoPermitido = PinDialog.show(session.getStorage());
 
       if (!accesoPermitido) {
         return;
       }
 
-      EdicionAlmacenView adminView = new EdicionAlmacenView(primaryStage);
+      EdicionAlmacenView adminView = new EdicionAlmacenView(primaryStage, session);
       adminView.show();
 
     } catch (Exception ex) {
@@ -214,7 +220,7 @@ public class InicioView extends BorderPane {
    * visualización de almacenes.
    */
   private void vistaAlmacen() {
-    SeleccionAlmacenEtiquetasView view = new SeleccionAlmacenEtiquetasView(primaryStage);
+    SeleccionAlmacenEtiquetasView view = new SeleccionAlmacenEtiquetasView(primaryStage, session);
     view.show();
   }
 
@@ -1,11 +1,15 @@
 package com.openwarehouses.views.edicion;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.openwarehouses.controllers.AlmacenController;
 import com.openwarehouses.models.Almacen;
-import com.openwarehouses.services.StorageService;
+import com.openwarehouses.services.ExternalChange;
+import com.openwarehouses.services.LayoutImportService;
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.utils.DialogUtils;
 import com.openwarehouses.utils.FooterFactory;
 import com.openwarehouses.utils.GridLoader;
@@ -15,10 +19,13 @@ import com.openwarehouses.utils.StageUtils;
 import com.openwarehouses.utils.HeaderUtils.HeaderMode;
 import com.openwarehouses.views.InicioView;
 
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.FlowPane;
+import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 /**
@@ -47,11 +54,8 @@ public class EdicionAlmacenView extends BorderPane {
   /** Mensaje mostrado cuando no existen almacenes disponibles. */
   private Label emptyMessage;
 
-  /** Servicio de persistencia de almacenes. */
-  private final StorageService storageService;
-
-  /** Lista completa de almacenes cargados desde almacenamiento. */
-  private final List<Almacen> almacenes;
+  /** Sesión de la aplicación, con la lista de almacenes y su almacenamiento. */
+  private final WarehouseSession session;
 
   /** Lista de almacenes seleccionados en la vista. */
   private List<Almacen> selectedAlmacenes = new ArrayList<>();
@@ -60,13 +64,14 @@ public class EdicionAlmacenView extends BorderPane {
    * Constructor de la vista de edición de almacenes.
    *
    * @param primaryStage escenario principal de la aplicación
+   * @param session      sesión de la aplicación
    */
-  public EdicionAlmacenView(Stage primaryStage) {
-    this.storageService = new StorageService();
-    this.almacenes = storageService.loadAlmacenes();
+  public EdicionAlmacenView(Stage primaryStage, WarehouseSession session) {
+    this.session = session;
     this.primaryStage = primaryStage;
-    this.controller = new AlmacenController(storageService, almacenes);
+    this.controller = new AlmacenController(session);
 
+    session.setListener(this::aplicarCambioExterno);
     crearHeader();
     crearGridAlmacenes();
     crearFooter();
@@ -77,7 +82,7 @@ public class EdicionAlmacenView extends BorderPane {
 
   /** Crea y configura el encabezado de la vista. */
   private void crearHeader() {
-    HeaderUtils.createHeader(this, primaryStage, this::volverAtras, HeaderMode.EDITION);
+    HeaderUtils.createHeader(this, primaryStage, session, this::volverAtras, HeaderMode.EDITION);
   }
 
   /** Inicializa el grid donde se mostrarán los almacenes disponibles. */
@@ -92,6 +97,21 @@ public class EdicionAlmacenView extends BorderPane {
         buttonGrid, controller.getAllAlmacenes(), emptyMessage, this::crearBotonAlmacen);
   }
 
+  /**
+   * Incorpora los cambios guardados por otra instancia o hechos al deshacer y rehacer: solo se
+   * actualizan los botones de los almacenes nuevos, eliminados o renombrados.
+   *
+   * @param cambio cambios incorporados a la sesión
+   */
+  private void aplicarCambioExterno(ExternalChange cambio) {
+    if (!cambio.isListaModificada()) {
+      return;
+    }
+    selectedAlmacenes.removeIf(a -> cambio.isEliminado(a) || cambio.isModificado(a));
+    GridLoader.sync(buttonGrid, controller.getAllAlmacenes(), emptyMessage,
+        this::crearBotonAlmacen, cambio::isModificado);
+  }
+
   /**
    * Crea un botón asociado a un almacén concreto.
    *
@@ -104,10 +124,11 @@ public class EdicionAlmacenView extends BorderPane {
   }
 
   /**
-   * Crea el pie de página con las acciones de creación, edición y eliminación.
+   * Crea el pie de página con las acciones de creación, edición, eliminación e
+   * importación de la distribución.
    */
   private void crearFooter() {
-    FooterFactory.createEditFooter(
+    HBox footer = FooterFactory.createEditFooter(
         this,
         this::handleCrearAlmacen,
         this::handleEditarAlmacen,
@@ -115,6 +136,7 @@ public class EdicionAlmacenView extends BorderPane {
         selectedAlmacenes,
         "Debes seleccionar exactamente un almacén para editar.",
         "Debes seleccionar al menos un almacén para eliminar.");
+    FooterFactory.addAction(footer, "IMPORTAR", "#2980b9", this::handleImportarDistribucion);
   }
 
   /**
@@ -177,9 +199,75 @@ public class EdicionAlmacenView extends BorderPane {
         });
   }
 
+  /**
+   * Gestiona la importación de la distribución del almacén seleccionado desde un
+   * archivo CSV o JSON, y muestra el resumen con los registros rechazados.
+   */
+  private void handleImportarDistribucion() {
+    if (selectedAlmacenes.size() != 1) {
+      mostrarAlerta(Alert.AlertType.WARNING, "Selección inválida",
+          "Debes seleccionar exactamente un almacén para importar su distribución.");
+      return;
+    }
+
+    FileChooser chooser = new FileChooser();
+    chooser.setTitle("Importar distribución");
+    chooser.getExtensionFilters().addAll(
+        new FileChooser.ExtensionFilter(
+            "Distribución (CSV, JSON)", "*.csv", "*.txt", "*.json", "*.ndjson", "*.gz"),
+        new FileChooser.ExtensionFilter("Todos los archivos", "*.*"));
+    File origen = chooser.showOpenDialog(primaryStage);
+    if (origen == null) {
+      return;
+    }
+
+    Almacen almacen = selectedAlmacenes.get(0);
+    LayoutImportService.Resultado resultado;
+    try {
+      resultado = controller.importarDistribucion(almacen, origen);
+    } catch (IOException e) {
+      System.err.println("Error importando la distribución: " + e.getMessage());
+      mostrarAlerta(Alert.AlertType.ERROR, "Error",
+          "No se pudo importar " + origen.getName() + ": " + e.getMessage());
+      return;
+    }
+
+    StringBuilder resumen = new StringBuilder()
+        .append("Registros leídos: ").append(resultado.registros())
+        .append("\nElementos creados: ").append(resultado.creados())
+        .append("\nPosiciones repetidas: ").append(resultado.repetidas())
+        .append("\nRegistros rechazados: ").append(resultado.rechazados());
+    for (String rechazo : resultado.rechazos()) {
+      resumen.append("\n  ").append(rechazo);
+    }
+    if (resultado.rechazados() > resultado.rechazos().size()) {
+      resumen.append("\n  ...");
+    }
+    mostrarAlerta(Alert.AlertType.INFORMATION, "Importación de " + almacen.getNombre(),
+        resumen.toString());
+
+    selectedAlmacenes.clear();
+    cargarAlmacenes();
+  }
+
+  /**
+   * Muestra una alerta sin cabecera.
+   *
+   * @param tipo    tipo de alerta
+   * @param titulo  título de la ventana
+   * @param mensaje texto de la alerta
+   */
+  private void mostrarAlerta(Alert.AlertType tipo, String titulo, String mensaje) {
+    Alert alert = new Alert(tipo);
+    alert.setTitle(titulo);
+    alert.setHeaderText(null);
+    alert.setContentText(mensaje);
+    alert.showAndWait();
+  }
+
   /** Vuelve a la vista de inicio de la aplicación. */
   private void volverAtras() {
-    InicioView view = new InicioView(primaryStage);
+    InicioView view = new InicioView(primaryStage, session);
     view.show();
   }
 
@@ -189,7 +277,7 @@ public class EdicionAlmacenView extends BorderPane {
    * @param almacen almacén seleccionado
    */
   private void abrirPasillos(Almacen almacen) {
-    EdicionPasilloView view = new EdicionPasilloView(primaryStage, almacen, almacenes, storageService);
+    EdicionPasilloView view = new EdicionPasilloView(primaryStage, almacen, session);
     view.show();
   }
 
@@ -8,12 +8,14 @@ import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Altura;
 import com.openwarehouses.models.Estanteria;
 import com.openwarehouses.models.Pasillo;
-import com.openwarehouses.services.StorageService;
+import com.openwarehouses.services.ExternalChange;
 import com.openwarehouses.services.ValidationService;
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.utils.DialogUtils;
 import com.openwarehouses.utils.FooterFactory;
 import com.openwarehouses.utils.GridLoader;
 import com.openwarehouses.utils.HeaderUtils;
+import com.openwarehouses.utils.HeaderUtils.HeaderMode;
 import com.openwarehouses.utils.HierarchyButtonFactory;
 import com.openwarehouses.utils.StageUtils;
 
@@ -61,11 +63,8 @@ public class EdicionAlturaView extends BorderPane {
   /** Lista de alturas seleccionadas en la vista. */
   private List<Altura> selectedAlturas = new ArrayList<>();
 
-  /** Lista de almacenes disponibles en el sistema. */
-  private List<Almacen> almacenes;
-
-  /** Servicio de persistencia de datos. */
-  private StorageService storageService;
+  /** Sesión de la aplicación, con la lista de almacenes y su almacenamiento. */
+  private final WarehouseSession session;
 
   /**
    * Constructor de la vista de edición de alturas.
@@ -74,25 +73,23 @@ public class EdicionAlturaView extends BorderPane {
    * @param estanteria     estantería cuyas alturas se gestionan
    * @param pasillo        pasillo al que pertenece la estantería
    * @param almacen        almacén al que pertenece la estantería
-   * @param almacenes      lista de almacenes disponibles
-   * @param storageService servicio de persistencia
+   * @param session        sesión de la aplicación
    */
   public EdicionAlturaView(
       Stage primaryStage,
       Estanteria estanteria,
       Pasillo pasillo,
       Almacen almacen,
-      List<Almacen> almacenes,
-      StorageService storageService) {
+      WarehouseSession session) {
 
     this.primaryStage = primaryStage;
     this.estanteria = estanteria;
     this.pasillo = pasillo;
     this.almacen = almacen;
-    this.almacenes = almacenes;
-    this.storageService = storageService;
-    this.controller = new AlturaController(estanteria, almacenes, storageService);
+    this.session = session;
+    this.controller = new AlturaController(almacen, pasillo, estanteria, session);
 
+    session.setListener(this::aplicarCambioExterno);
     crearHeader();
     crearGridAlturas();
     crearFooter();
@@ -103,7 +100,7 @@ public class EdicionAlturaView extends BorderPane {
 
   /** Crea y configura el encabezado de la vista. */
   private void crearHeader() {
-    HeaderUtils.createHeader(this, primaryStage, this::volverAtras);
+    HeaderUtils.createHeader(this, primaryStage, session, this::volverAtras, HeaderMode.HISTORY);
   }
 
   /** Inicializa el grid donde se mostrarán las alturas disponibles. */
@@ -118,6 +115,25 @@ public class EdicionAlturaView extends BorderPane {
         buttonGrid, estanteria.getAlturas(), emptyMessage, this::crearBotonAltura);
   }
 
+  /**
+   * Incorpora los cambios guardados por otra instancia o hechos al deshacer y rehacer. Si lo
+   * mostrado ya no existe se vuelve atrás; si no, solo se actualizan los botones de los elementos
+   * nuevos, eliminados o renumerados.
+   *
+   * @param cambio cambios incorporados a la sesión
+   */
+  private void aplicarCambioExterno(ExternalChange cambio) {
+    if (cambio.isEliminado(almacen, pasillo, estanteria)) {
+      volverAtras();
+      return;
+    }
+    if (cambio.isModificado(estanteria)) {
+      selectedAlturas.removeIf(cambio::isEliminado);
+      GridLoader.sync(buttonGrid, estanteria.getAlturas(), emptyMessage,
+          this::crearBotonAltura, cambio::isModificado);
+    }
+  }
+
   /**
    * Crea un botón asociado a una altura concreta.
    *
@@ -151,7 +167,7 @@ public class EdicionAlturaView extends BorderPane {
         "altura",
         estanteria,
         ValidationService::isAlturaNumeroValid,
-        (n, e) -> controller.crearAltura(n));
+        controller::crearAlturas);
 
     if (res != null) {
       cargarAlturas();
@@ -198,7 +214,7 @@ public class EdicionAlturaView extends BorderPane {
 
   /** Vuelve a la vista de edición de estanterías. */
   private void volverAtras() {
-    EdicionEstanteriaView view = new EdicionEstanteriaView(primaryStage, pasillo, almacen, almacenes, storageService);
+    EdicionEstanteriaView view = new EdicionEstanteriaView(primaryStage, pasillo, almacen, session);
     view.show();
   }
 
@@ -209,7 +225,7 @@ public class EdicionAlturaView extends BorderPane {
    */
   private void abrirPosiciones(Altura altura) {
     EdicionPosicionView view = new EdicionPosicionView(
-        primaryStage, altura, estanteria, pasillo, almacen, almacenes, storageService);
+        primaryStage, altura, estanteria, pasillo, almacen, session);
     view.show();
   }
 
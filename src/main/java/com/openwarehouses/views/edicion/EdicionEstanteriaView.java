@@ -7,12 +7,14 @@ import com.openwarehouses.controllers.EstanteriaController;
 import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Estanteria;
 import com.openwarehouses.models.Pasillo;
-import com.openwarehouses.services.StorageService;
+import com.openwarehouses.services.ExternalChange;
 import com.openwarehouses.services.ValidationService;
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.utils.DialogUtils;
 import com.openwarehouses.utils.FooterFactory;
 import com.openwarehouses.utils.GridLoader;
 import com.openwarehouses.utils.HeaderUtils;
+import com.openwarehouses.utils.HeaderUtils.HeaderMode;
 import com.openwarehouses.utils.HierarchyButtonFactory;
 import com.openwarehouses.utils.StageUtils;
 
@@ -57,11 +59,8 @@ public class EdicionEstanteriaView extends BorderPane {
   /** Lista de estanterías seleccionadas en la vista. */
   private List<Estanteria> selectedEstanterias = new ArrayList<>();
 
-  /** Lista de almacenes disponibles en el sistema. */
-  private List<Almacen> almacenes;
-
-  /** Servicio de persistencia de datos. */
-  private StorageService storageService;
+  /** Sesión de la aplicación, con la lista de almacenes y su almacenamiento. */
+  private final WarehouseSession session;
 
   /**
    * Constructor de la vista de edición de estanterías.
@@ -69,23 +68,21 @@ public class EdicionEstanteriaView extends BorderPane {
    * @param primaryStage   escenario principal de la aplicación
    * @param pasillo        pasillo cuyas estanterías se gestionan
    * @param almacen        almacén al que pertenece el pasillo
-   * @param almacenes      lista de almacenes disponibles
-   * @param storageService servicio de persistencia
+   * @param session        sesión de la aplicación
    */
   public EdicionEstanteriaView(
       Stage primaryStage,
       Pasillo pasillo,
       Almacen almacen,
-      List<Almacen> almacenes,
-      StorageService storageService) {
+      WarehouseSession session) {
 
     this.primaryStage = primaryStage;
     this.pasillo = pasillo;
     this.almacen = almacen;
-    this.almacenes = almacenes;
-    this.storageService = storageService;
-    this.controller = new EstanteriaController(pasillo, almacenes, storageService);
+    this.session = session;
+    this.controller = new EstanteriaController(almacen, pasillo, session);
 
+    session.setListener(this::aplicarCambioExterno);
     crearHeader();
     crearGridEstanterias();
     crearFooter();
@@ -96,7 +93,7 @@ public class EdicionEstanteriaView extends BorderPane {
 
   /** Crea y configura el encabezado de la vista. */
   private void crearHeader() {
-    HeaderUtils.createHeader(this, primaryStage, this::volverAtras);
+    HeaderUtils.createHeader(this, primaryStage, session, this::volverAtras, HeaderMode.HISTORY);
   }
 
   /** Inicializa el grid donde se mostrarán las estanterías disponibles. */
@@ -111,6 +108,25 @@ public class EdicionEstanteriaView extends BorderPane {
         buttonGrid, pasillo.getEstanterias(), emptyMessage, this::crearBotonEstanteria);
   }
 
+  /**
+   * Incorpora los cambios guardados por otra instancia o hechos al deshacer y rehacer. Si lo
+   * mostrado ya no existe se vuelve atrás; si no, solo se actualizan los botones de los elementos
+   * nuevos, eliminados o renumerados.
+   *
+   * @param cambio cambios incorporados a la sesión
+   */
+  private void aplicarCambioExterno(ExternalChange cambio) {
+    if (cambio.isEliminado(almacen, pasillo)) {
+      volverAtras();
+      return;
+    }
+    if (cambio.isModificado(pasillo)) {
+      selectedEstanterias.removeIf(cambio::isEliminado);
+      GridLoader.sync(buttonGrid, pasillo.getEstanterias(), emptyMessage,
+          this::crearBotonEstanteria, cambio::isModificado);
+    }
+  }
+
   /**
    * Crea un botón asociado a una estantería concreta.
    *
@@ -153,7 +169,7 @@ public class EdicionEstanteriaView extends BorderPane {
         "estantería",
         pasillo,
         ValidationService::isEstanteriaNumeroValid,
-        (n, p) -> controller.crearEstanteria(n));
+        controller::crearEstanterias);
 
     if (res != null) {
       cargarEstanterias();
@@ -200,7 +216,7 @@ public class EdicionEstanteriaView extends BorderPane {
 
   /** Vuelve a la vista de edición de pasillos. */
   private void volverAtras() {
-    EdicionPasilloView view = new EdicionPasilloView(primaryStage, almacen, almacenes, storageService);
+    EdicionPasilloView view = new EdicionPasilloView(primaryStage, almacen, session);
     view.show();
   }
 
@@ -211,7 +227,7 @@ public class EdicionEstanteriaView extends BorderPane {
    */
   private void abrirAlturas(Estanteria estanteria) {
     EdicionAlturaView view = new EdicionAlturaView(
-        primaryStage, estanteria, pasillo, almacen, almacenes, storageService);
+        primaryStage, estanteria, pasillo, almacen, session);
     view.show();
   }
 
@@ -6,12 +6,14 @@ import java.util.List;
 import com.openwarehouses.controllers.PasilloController;
 import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Pasillo;
-import com.openwarehouses.services.StorageService;
+import com.openwarehouses.services.ExternalChange;
 import com.openwarehouses.services.ValidationService;
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.utils.DialogUtils;
 import com.openwarehouses.utils.FooterFactory;
 import com.openwarehouses.utils.GridLoader;
 import com.openwarehouses.utils.HeaderUtils;
+import com.openwarehouses.utils.HeaderUtils.HeaderMode;
 import com.openwarehouses.utils.HierarchyButtonFactory;
 import com.openwarehouses.utils.StageUtils;
 
@@ -53,29 +55,25 @@ public class EdicionPasilloView extends BorderPane {
   /** Lista de pasillos seleccionados en la vista. */
   private List<Pasillo> selectedPasillos = new ArrayList<>();
 
-  /** Lista de almacenes disponibles en el sistema. */
-  private List<Almacen> almacenes;
-
-  /** Servicio de persistencia de datos. */
-  private StorageService storageService;
+  /** Sesión de la aplicación, con la lista de almacenes y su almacenamiento. */
+  private final WarehouseSession session;
 
   /**
    * Constructor de la vista de edición de pasillos.
    *
    * @param primaryStage   escenario principal de la aplicación
    * @param almacen        almacén cuyos pasillos se gestionan
-   * @param almacenes      lista de almacenes disponibles
-   * @param storageService servicio de persistencia
+   * @param session        sesión de la aplicación
    */
   public EdicionPasilloView(
-      Stage primaryStage, Almacen almacen, List<Almacen> almacenes, StorageService storageService) {
+      Stage primaryStage, Almacen almacen, WarehouseSession session) {
 
     this.primaryStage = primaryStage;
     this.almacen = almacen;
-    this.almacenes = almacenes;
-    this.storageService = storageService;
-    this.controller = new PasilloController(almacen, almacenes, storageService);
+    this.session = session;
+    this.controller = new PasilloController(almacen, session);
 
+    session.setListener(this::aplicarCambioExterno);
     crearHeader();
     crearGridPasillos();
     crearFooter();
@@ -86,7 +84,7 @@ public class EdicionPasilloView extends BorderPane {
 
   /** Crea y configura el encabezado de la vista. */
   private void crearHeader() {
-    HeaderUtils.createHeader(this, primaryStage, () -> volverAtras());
+    HeaderUtils.createHeader(this, primaryStage, session, this::volverAtras, HeaderMode.HISTORY);
   }
 
   /** Inicializa el grid donde se mostrarán los pasillos disponibles. */
@@ -101,6 +99,25 @@ public class EdicionPasilloView extends BorderPane {
         buttonGrid, almacen.getPasillos(), emptyMessage, this::crearBotonPasillo);
   }
 
+  /**
+   * Incorpora los cambios guardados por otra instancia o hechos al deshacer y rehacer. Si lo
+   * mostrado ya no existe se vuelve atrás; si no, solo se actualizan los botones de los elementos
+   * nuevos, eliminados o renumerados.
+   *
+   * @param cambio cambios incorporados a la sesión
+   */
+  private void aplicarCambioExterno(ExternalChange cambio) {
+    if (cambio.isEliminado(almacen)) {
+      volverAtras();
+      return;
+    }
+    if (cambio.isModificado(almacen)) {
+      selectedPasillos.removeIf(cambio::isEliminado);
+      GridLoader.sync(buttonGrid, almacen.getPasillos(), emptyMessage,
+          this::crearBotonPasillo, cambio::isModificado);
+    }
+  }
+
   /**
    * Crea un botón asociado a un pasillo concreto.
    *
@@ -140,7 +157,7 @@ public class EdicionPasilloView extends BorderPane {
         "pasillo",
         almacen,
         ValidationService::isPasilloNumeroValid,
-        (n, a) -> controller.crearPasillo(n));
+        controller::crearPasillos);
 
     if (res != null) {
       cargarPasillos();
@@ -187,7 +204,7 @@ public class EdicionPasilloView extends BorderPane {
 
   /** Vuelve a la vista de edición de almacenes. */
   private void volverAtras() {
-    EdicionAlmacenView view = new EdicionAlmacenView(primaryStage);
+    EdicionAlmacenView view = new EdicionAlmacenView(primaryStage, session);
     view.show();
   }
 
@@ -197,7 +214,7 @@ public class EdicionPasilloView extends BorderPane {
    * @param pasillo pasillo seleccionado
    */
   private void abrirEstanterias(Pasillo pasillo) {
-    EdicionEstanteriaView view = new EdicionEstanteriaView(primaryStage, pasillo, almacen, almacenes, storageService);
+    EdicionEstanteriaView view = new EdicionEstanteriaView(primaryStage, pasillo, almacen, session);
     view.show();
   }
 
@@ -9,12 +9,14 @@ import com.openwarehouses.models.Altura;
 import com.openwarehouses.models.Estanteria;
 import com.openwarehouses.models.Pasillo;
 import com.openwarehouses.models.Posicion;
-import com.openwarehouses.services.StorageService;
+import com.openwarehouses.services.ExternalChange;
 import com.openwarehouses.services.ValidationService;
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.utils.DialogUtils;
 import com.openwarehouses.utils.FooterFactory;
 import com.openwarehouses.utils.GridLoader;
 import com.openwarehouses.utils.HeaderUtils;
+import com.openwarehouses.utils.HeaderUtils.HeaderMode;
 import com.openwarehouses.utils.HierarchyButtonFactory;
 import com.openwarehouses.utils.StageUtils;
 
@@ -65,11 +67,8 @@ public class EdicionPosicionView extends BorderPane {
   /** Lista de posiciones seleccionadas por el usuario. */
   private List<Posicion> selectedPosiciones = new ArrayList<>();
 
-  /** Lista de almacenes disponibles en el sistema. */
-  private List<Almacen> almacenes;
-
-  /** Servicio de persistencia. */
-  private StorageService storageService;
+  /** Sesión de la aplicación, con la lista de almacenes y su almacenamiento. */
+  private final WarehouseSession session;
 
   /**
    * Constructor de la vista de edición de posiciones.
@@ -79,8 +78,7 @@ public class EdicionPosicionView extends BorderPane {
    * @param estanteria     estantería actual
    * @param pasillo        pasillo actual
    * @param almacen        almacén actual
-   * @param almacenes      lista de almacenes disponibles
-   * @param storageService servicio de persistencia
+   * @param session        sesión de la aplicación
    */
   public EdicionPosicionView(
       Stage primaryStage,
@@ -88,21 +86,20 @@ public class EdicionPosicionView extends BorderPane {
       Estanteria estanteria,
       Pasillo pasillo,
       Almacen almacen,
-      List<Almacen> almacenes,
-      StorageService storageService) {
+      WarehouseSession session) {
 
     this.primaryStage = primaryStage;
     this.altura = altura;
     this.estanteria = estanteria;
     this.pasillo = pasillo;
     this.almacen = almacen;
-    this.almacenes = almacenes;
-    this.storageService = storageService;
-    this.controller = new PosicionController(altura, almacenes, storageService);
+    this.session = session;
+    this.controller = new PosicionController(almacen, altura, session);
 
     controller.setAlturaActual(
         altura, pasillo.getNumero(), estanteria.getNumero(), altura.getNumero());
 
+    session.setListener(this::aplicarCambioExterno);
     crearHeader();
     crearGridPosiciones();
     crearFooter();
@@ -113,7 +110,7 @@ public class EdicionPosicionView extends BorderPane {
 
   /** Crea el encabezado de la vista. */
   private void crearHeader() {
-    HeaderUtils.createHeader(this, primaryStage, this::volverAtras);
+    HeaderUtils.createHeader(this, primaryStage, session, this::volverAtras, HeaderMode.HISTORY);
   }
 
   /** Inicializa el grid de posiciones. */
@@ -128,6 +125,25 @@ public class EdicionPosicionView extends BorderPane {
         buttonGrid, altura.getPosiciones(), emptyMessage, this::crearBotonPosicion);
   }
 
+  /**
+   * Incorpora los cambios guardados por otra instancia o hechos al deshacer y rehacer. Si lo
+   * mostrado ya no existe se vuelve atrás; si no, solo se actualizan los botones de los elementos
+   * nuevos, eliminados o renumerados.
+   *
+   * @param cambio cambios incorporados a la sesión
+   */
+  private void aplicarCambioExterno(ExternalChange cambio) {
+    if (cambio.isEliminado(almacen, pasillo, estanteria, altura)) {
+      volverAtras();
+      return;
+    }
+    if (cambio.isModificado(altura)) {
+      selectedPosiciones.removeIf(cambio::isEliminado);
+      GridLoader.sync(buttonGrid, altura.getPosiciones(), emptyMessage,
+          this::crearBotonPosicion, cambio::isModificado);
+    }
+  }
+
   /**
    * Crea un botón representativo de una posición.
    *
@@ -159,7 +175,7 @@ public class EdicionPosicionView extends BorderPane {
         "posición",
         altura,
         ValidationService::isPosicionNumeroValid,
-        (n, a) -> controller.crearPosicion(n));
+        controller::crearPosiciones);
 
     if (res != null) {
       cargarPosiciones();
@@ -208,7 +224,7 @@ public class EdicionPosicionView extends BorderPane {
   /** Vuelve a la vista de edición de alturas. */
   private void volverAtras() {
     EdicionAlturaView view = new EdicionAlturaView(
-        primaryStage, estanteria, pasillo, almacen, almacenes, storageService);
+        primaryStage, estanteria, pasillo, almacen, session);
     view.show();
   }
 
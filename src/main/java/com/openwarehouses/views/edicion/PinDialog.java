@@ -102,11 +102,11 @@ public final class PinDialog {
   /**
    * Muestra el diálogo modal para introducir el PIN.
    *
+   * @param storage servicio de almacenamiento de la sesión, que guarda el PIN
    * @return {@code true} si el PIN es correcto, {@code false} si es incorrecto o
    *         se cancela
    */
-  public static boolean show() {
-    StorageService storage = new StorageService();
+  public static boolean show(StorageService storage) {
     String correctPin = storage.loadPin();
 
     Stage window = new Stage();
@@ -206,11 +206,10 @@ public final class PinDialog {
    * Muestra un diálogo modal para editar y guardar un nuevo PIN.
    *
    * @param owner escenario propietario
+   * @param storage servicio de almacenamiento de la sesión
    * @return {@code true} si el PIN se guardó correctamente
    */
-  public static boolean editPin(Stage owner) {
-    StorageService storage = new StorageService();
-
+  public static boolean editPin(Stage owner, StorageService storage) {
     Stage window = new Stage();
     window.initOwner(owner);
     window.initModality(Modality.APPLICATION_MODAL);
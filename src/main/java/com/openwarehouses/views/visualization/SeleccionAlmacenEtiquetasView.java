@@ -5,7 +5,9 @@ import java.util.List;
 
 import com.openwarehouses.controllers.AlmacenController;
 import com.openwarehouses.models.Almacen;
+import com.openwarehouses.services.ExternalChange;
 import com.openwarehouses.services.LabelGenerationService;
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.utils.FooterFactory;
 import com.openwarehouses.utils.GridLoader;
 import com.openwarehouses.utils.HeaderUtils;
@@ -38,6 +40,9 @@ public class SeleccionAlmacenEtiquetasView extends BorderPane {
   /** Escenario principal de la aplicación. */
   private final Stage primaryStage;
 
+  /** Sesión de la aplicación, con la lista de almacenes compartida por las vistas. */
+  private final WarehouseSession session;
+
   /** Controlador encargado de la gestión de almacenes. */
   private final AlmacenController controller;
 
@@ -57,12 +62,15 @@ public class SeleccionAlmacenEtiquetasView extends BorderPane {
    * Constructor de la vista de selección de almacenes.
    *
    * @param primaryStage escenario principal de la aplicación
+   * @param session      sesión de la aplicación
    */
-  public SeleccionAlmacenEtiquetasView(Stage primaryStage) {
+  public SeleccionAlmacenEtiquetasView(Stage primaryStage, WarehouseSession session) {
     this.primaryStage = primaryStage;
-    this.controller = new AlmacenController();
+    this.session = session;
+    this.controller = new AlmacenController(session);
     this.labelGenerationService = new LabelGenerationService();
 
+    session.setListener(this::aplicarCambioExterno);
     crearHeader();
     crearGridAlmacenes();
     crearFooter();
@@ -73,7 +81,7 @@ public class SeleccionAlmacenEtiquetasView extends BorderPane {
 
   /** Crea y configura el encabezado de la vista. */
   private void crearHeader() {
-    HeaderUtils.createHeader(this, primaryStage, () -> volverAtras());
+    HeaderUtils.createHeader(this, primaryStage, session, () -> volverAtras());
   }
 
   /** Inicializa el grid donde se mostrarán los almacenes disponibles. */
@@ -88,6 +96,21 @@ public class SeleccionAlmacenEtiquetasView extends BorderPane {
         buttonGrid, controller.getAllAlmacenes(), emptyMessage, this::crearBotonAlmacen);
   }
 
+  /**
+   * Incorpora los cambios guardados por otra instancia: solo se actualizan los botones de los
+   * almacenes nuevos, eliminados o renombrados.
+   *
+   * @param cambio cambios incorporados a la sesión
+   */
+  private void aplicarCambioExterno(ExternalChange cambio) {
+    if (!cambio.isListaModificada()) {
+      return;
+    }
+    selectedAlmacenes.removeIf(a -> cambio.isEliminado(a) || cambio.isModificado(a));
+    GridLoader.sync(buttonGrid, controller.getAllAlmacenes(), emptyMessage,
+        this::crearBotonAlmacen, cambio::isModificado);
+  }
+
   /** Crea el pie de página con la acción de impresión. */
   private void crearFooter() {
     FooterFactory.createPrintFooter(this, () -> handlePrintAlmacenes());
@@ -119,7 +142,7 @@ public class SeleccionAlmacenEtiquetasView extends BorderPane {
 
   /** Vuelve a la vista de inicio de la aplicación. */
   private void volverAtras() {
-    InicioView view = new InicioView(primaryStage);
+    InicioView view = new InicioView(primaryStage, session);
     view.show();
   }
 
@@ -129,7 +152,7 @@ public class SeleccionAlmacenEtiquetasView extends BorderPane {
    * @param almacen almacén seleccionado para visualizar sus pasillos
    */
   private void abrirPasillos(Almacen almacen) {
-    SeleccionPasilloEtiquetasView view = new SeleccionPasilloEtiquetasView(primaryStage, almacen);
+    SeleccionPasilloEtiquetasView view = new SeleccionPasilloEtiquetasView(primaryStage, almacen, session);
     view.show();
   }
 
@@ -7,7 +7,9 @@ import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Altura;
 import com.openwarehouses.models.Estanteria;
 import com.openwarehouses.models.Pasillo;
+import com.openwarehouses.services.ExternalChange;
 import com.openwarehouses.services.LabelGenerationService;
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.utils.FooterFactory;
 import com.openwarehouses.utils.GridLoader;
 import com.openwarehouses.utils.HeaderUtils;
@@ -39,6 +41,9 @@ public class SeleccionAlturaEtiquetasView extends BorderPane {
   /** Escenario principal de la aplicación. */
   private final Stage primaryStage;
 
+  /** Sesión de la aplicación, con la lista de almacenes compartida por las vistas. */
+  private final WarehouseSession session;
+
   /** Almacén al que pertenece la estantería actual. */
   private final Almacen almacen;
 
@@ -67,16 +72,23 @@ public class SeleccionAlturaEtiquetasView extends BorderPane {
    * @param pasillo      pasillo al que pertenece la estantería
    * @param estanteria   estantería de la que se mostrarán las alturas
    * @param almacen      almacén al que pertenece la estantería
+   * @param session      sesión de la aplicación
    */
   public SeleccionAlturaEtiquetasView(
-      Stage primaryStage, Pasillo pasillo, Estanteria estanteria, Almacen almacen) {
+      Stage primaryStage,
+      Pasillo pasillo,
+      Estanteria estanteria,
+      Almacen almacen,
+      WarehouseSession session) {
 
     this.primaryStage = primaryStage;
+    this.session = session;
     this.almacen = almacen;
     this.pasillo = pasillo;
     this.estanteria = estanteria;
     this.labelGenerationService = new LabelGenerationService();
 
+    session.setListener(this::aplicarCambioExterno);
     crearHeader();
     crearGridAlturas();
     crearFooter();
@@ -87,7 +99,7 @@ public class SeleccionAlturaEtiquetasView extends BorderPane {
 
   /** Crea y configura el encabezado de la vista. */
   private void crearHeader() {
-    HeaderUtils.createHeader(this, primaryStage, () -> volverAtras());
+    HeaderUtils.createHeader(this, primaryStage, session, () -> volverAtras());
   }
 
   /** Inicializa el grid donde se mostrarán las alturas disponibles. */
@@ -102,6 +114,24 @@ public class SeleccionAlturaEtiquetasView extends BorderPane {
         buttonGrid, estanteria.getAlturas(), emptyMessage, this::crearBotonAltura);
   }
 
+  /**
+   * Incorpora los cambios guardados por otra instancia. Si lo mostrado ya no existe se vuelve
+   * atrás; si no, solo se actualizan los botones de los elementos nuevos o eliminados.
+   *
+   * @param cambio cambios incorporados a la sesión
+   */
+  private void aplicarCambioExterno(ExternalChange cambio) {
+    if (cambio.isEliminado(almacen, pasillo, estanteria)) {
+      volverAtras();
+      return;
+    }
+    if (cambio.isModificado(estanteria)) {
+      selectedAlturas.removeIf(cambio::isEliminado);
+      GridLoader.sync(buttonGrid, estanteria.getAlturas(), emptyMessage,
+          this::crearBotonAltura, cambio::isModificado);
+    }
+  }
+
   /** Crea el pie de página con la acción de impresión de etiquetas. */
   private void crearFooter() {
     FooterFactory.createPrintFooter(this, () -> handlePrintAlturas());
@@ -139,13 +169,14 @@ public class SeleccionAlturaEtiquetasView extends BorderPane {
    */
   private void abrirPosiciones(Altura altura) {
     SeleccionPosicionEtiquetasView view = new SeleccionPosicionEtiquetasView(primaryStage, pasillo, estanteria, altura,
-        almacen);
+        almacen, session);
     view.show();
   }
 
   /** Vuelve a la vista de selección de estanterías. */
   private void volverAtras() {
-    SeleccionEstanteriaEtiquetasView view = new SeleccionEstanteriaEtiquetasView(primaryStage, pasillo, almacen);
+    SeleccionEstanteriaEtiquetasView view =
+        new SeleccionEstanteriaEtiquetasView(primaryStage, pasillo, almacen, session);
     view.show();
   }
 
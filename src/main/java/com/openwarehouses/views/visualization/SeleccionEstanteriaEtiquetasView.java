@@ -6,7 +6,9 @@ import java.util.List;
 import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Estanteria;
 import com.openwarehouses.models.Pasillo;
+import com.openwarehouses.services.ExternalChange;
 import com.openwarehouses.services.LabelGenerationService;
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.utils.FooterFactory;
 import com.openwarehouses.utils.GridLoader;
 import com.openwarehouses.utils.HeaderUtils;
@@ -38,6 +40,9 @@ public class SeleccionEstanteriaEtiquetasView extends BorderPane {
   /** Escenario principal de la aplicación. */
   private final Stage primaryStage;
 
+  /** Sesión de la aplicación, con la lista de almacenes compartida por las vistas. */
+  private final WarehouseSession session;
+
   /** Almacén al que pertenece el pasillo actual. */
   private final Almacen almacen;
 
@@ -62,14 +67,18 @@ public class SeleccionEstanteriaEtiquetasView extends BorderPane {
    * @param primaryStage escenario principal de la aplicación
    * @param pasillo      pasillo del que se mostrarán las estanterías
    * @param almacen      almacén al que pertenece el pasillo
+   * @param session      sesión de la aplicación
    */
-  public SeleccionEstanteriaEtiquetasView(Stage primaryStage, Pasillo pasillo, Almacen almacen) {
+  public SeleccionEstanteriaEtiquetasView(
+      Stage primaryStage, Pasillo pasillo, Almacen almacen, WarehouseSession session) {
 
     this.primaryStage = primaryStage;
+    this.session = session;
     this.almacen = almacen;
     this.pasillo = pasillo;
     this.labelGenerationService = new LabelGenerationService();
 
+    session.setListener(this::aplicarCambioExterno);
     crearHeader();
     crearGridEstanterias();
     crearFooter();
@@ -80,7 +89,7 @@ public class SeleccionEstanteriaEtiquetasView extends BorderPane {
 
   /** Crea y configura el encabezado de la vista. */
   private void crearHeader() {
-    HeaderUtils.createHeader(this, primaryStage, () -> volverAtras());
+    HeaderUtils.createHeader(this, primaryStage, session, () -> volverAtras());
   }
 
   /** Inicializa el grid donde se mostrarán las estanterías disponibles. */
@@ -95,6 +104,24 @@ public class SeleccionEstanteriaEtiquetasView extends BorderPane {
         buttonGrid, pasillo.getEstanterias(), emptyMessage, this::crearBotonEstanteria);
   }
 
+  /**
+   * Incorpora los cambios guardados por otra instancia. Si lo mostrado ya no existe se vuelve
+   * atrás; si no, solo se actualizan los botones de los elementos nuevos o eliminados.
+   *
+   * @param cambio cambios incorporados a la sesión
+   */
+  private void aplicarCambioExterno(ExternalChange cambio) {
+    if (cambio.isEliminado(almacen, pasillo)) {
+      volverAtras();
+      return;
+    }
+    if (cambio.isModificado(pasillo)) {
+      selectedEstanterias.removeIf(cambio::isEliminado);
+      GridLoader.sync(buttonGrid, pasillo.getEstanterias(), emptyMessage,
+          this::crearBotonEstanteria, cambio::isModificado);
+    }
+  }
+
   /** Crea el pie de página con la acción de impresión de etiquetas. */
   private void crearFooter() {
     FooterFactory.createPrintFooter(this, () -> handlePrintEstanterias());
@@ -133,13 +160,14 @@ public class SeleccionEstanteriaEtiquetasView extends BorderPane {
    * @param estanteria estantería seleccionada
    */
   private void abrirAlturas(Estanteria estanteria) {
-    SeleccionAlturaEtiquetasView view = new SeleccionAlturaEtiquetasView(primaryStage, pasillo, estanteria, almacen);
+    SeleccionAlturaEtiquetasView view =
+        new SeleccionAlturaEtiquetasView(primaryStage, pasillo, estanteria, almacen, session);
     view.show();
   }
 
   /** Vuelve a la vista de selección de pasillos. */
   private void volverAtras() {
-    SeleccionPasilloEtiquetasView view = new SeleccionPasilloEtiquetasView(primaryStage, almacen);
+    SeleccionPasilloEtiquetasView view = new SeleccionPasilloEtiquetasView(primaryStage, almacen, session);
     view.show();
   }
 
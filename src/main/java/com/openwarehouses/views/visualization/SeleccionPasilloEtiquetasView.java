@@ -5,7 +5,9 @@ import java.util.List;
 
 import com.openwarehouses.models.Almacen;
 import com.openwarehouses.models.Pasillo;
+import com.openwarehouses.services.ExternalChange;
 import com.openwarehouses.services.LabelGenerationService;
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.utils.FooterFactory;
 import com.openwarehouses.utils.GridLoader;
 import com.openwarehouses.utils.HeaderUtils;
@@ -36,6 +38,9 @@ public class SeleccionPasilloEtiquetasView extends BorderPane {
   /** Escenario principal de la aplicación. */
   private final Stage primaryStage;
 
+  /** Sesión de la aplicación, con la lista de almacenes compartida por las vistas. */
+  private final WarehouseSession session;
+
   /** Almacén al que pertenecen los pasillos mostrados. */
   private final Almacen almacen;
 
@@ -56,12 +61,15 @@ public class SeleccionPasilloEtiquetasView extends BorderPane {
    *
    * @param primaryStage escenario principal de la aplicación
    * @param almacen      almacén del que se mostrarán los pasillos
+   * @param session      sesión de la aplicación
    */
-  public SeleccionPasilloEtiquetasView(Stage primaryStage, Almacen almacen) {
+  public SeleccionPasilloEtiquetasView(Stage primaryStage, Almacen almacen, WarehouseSession session) {
     this.primaryStage = primaryStage;
+    this.session = session;
     this.almacen = almacen;
     this.labelGenerationService = new LabelGenerationService();
 
+    session.setListener(this::aplicarCambioExterno);
     crearHeader();
     crearGridPasillos();
     crearFooter();
@@ -72,7 +80,7 @@ public class SeleccionPasilloEtiquetasView extends BorderPane {
 
   /** Crea y configura el encabezado de la vista. */
   private void crearHeader() {
-    HeaderUtils.createHeader(this, primaryStage, () -> volverAtras());
+    HeaderUtils.createHeader(this, primaryStage, session, () -> volverAtras());
   }
 
   /** Inicializa el grid donde se mostrarán los pasillos disponibles. */
@@ -87,6 +95,24 @@ public class SeleccionPasilloEtiquetasView extends BorderPane {
         buttonGrid, almacen.getPasillos(), emptyMessage, this::crearBotonPasillo);
   }
 
+  /**
+   * Incorpora los cambios guardados por otra instancia. Si lo mostrado ya no existe se vuelve
+   * atrás; si no, solo se actualizan los botones de los elementos nuevos o eliminados.
+   *
+   * @param cambio cambios incorporados a la sesión
+   */
+  private void aplicarCambioExterno(ExternalChange cambio) {
+    if (cambio.isEliminado(almacen)) {
+      volverAtras();
+      return;
+    }
+    if (cambio.isModificado(almacen)) {
+      selectedPasillos.removeIf(cambio::isEliminado);
+      GridLoader.sync(buttonGrid, almacen.getPasillos(), emptyMessage,
+          this::crearBotonPasillo, cambio::isModificado);
+    }
+  }
+
   /** Crea el pie de página con la acción de impresión de etiquetas. */
   private void crearFooter() {
     FooterFactory.createPrintFooter(this, () -> handlePrintPasillos());
@@ -122,13 +148,14 @@ public class SeleccionPasilloEtiquetasView extends BorderPane {
    * @param pasillo pasillo seleccionado para visualizar sus estanterías
    */
   private void abrirEstanterias(Pasillo pasillo) {
-    SeleccionEstanteriaEtiquetasView view = new SeleccionEstanteriaEtiquetasView(primaryStage, pasillo, almacen);
+    SeleccionEstanteriaEtiquetasView view =
+        new SeleccionEstanteriaEtiquetasView(primaryStage, pasillo, almacen, session);
     view.show();
   }
 
   /** Vuelve a la vista de selección de almacenes. */
   private void volverAtras() {
-    SeleccionAlmacenEtiquetasView view = new SeleccionAlmacenEtiquetasView(primaryStage);
+    SeleccionAlmacenEtiquetasView view = new SeleccionAlmacenEtiquetasView(primaryStage, session);
     view.show();
   }
 
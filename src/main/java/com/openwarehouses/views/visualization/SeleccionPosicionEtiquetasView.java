@@ -8,7 +8,9 @@ import com.openwarehouses.models.Altura;
 import com.openwarehouses.models.Estanteria;
 import com.openwarehouses.models.Pasillo;
 import com.openwarehouses.models.Posicion;
+import com.openwarehouses.services.ExternalChange;
 import com.openwarehouses.services.LabelGenerationService;
+import com.openwarehouses.services.WarehouseSession;
 import com.openwarehouses.utils.FooterFactory;
 import com.openwarehouses.utils.GridLoader;
 import com.openwarehouses.utils.HeaderUtils;
@@ -37,6 +39,9 @@ public class SeleccionPosicionEtiquetasView extends BorderPane {
   /** Escenario principal de la aplicación. */
   private final Stage primaryStage;
 
+  /** Sesión de la aplicación, con la lista de almacenes compartida por las vistas. */
+  private final WarehouseSession session;
+
   /** Almacén al que pertenecen las posiciones. */
   private final Almacen almacen;
 
@@ -69,16 +74,24 @@ public class SeleccionPosicionEtiquetasView extends BorderPane {
    * @param estanteria   Estantería seleccionada
    * @param altura       Altura seleccionada
    * @param almacen      Almacén al que pertenece la jerarquía
+   * @param session      Sesión de la aplicación
    */
   public SeleccionPosicionEtiquetasView(
-      Stage primaryStage, Pasillo pasillo, Estanteria estanteria, Altura altura, Almacen almacen) {
+      Stage primaryStage,
+      Pasillo pasillo,
+      Estanteria estanteria,
+      Altura altura,
+      Almacen almacen,
+      WarehouseSession session) {
     this.primaryStage = primaryStage;
+    this.session = session;
     this.almacen = almacen;
     this.pasillo = pasillo;
     this.estanteria = estanteria;
     this.altura = altura;
     this.labelGenerationService = new LabelGenerationService();
 
+    session.setListener(this::aplicarCambioExterno);
     crearHeader();
     crearGridPosiciones();
     crearFooter();
@@ -89,7 +102,7 @@ public class SeleccionPosicionEtiquetasView extends BorderPane {
 
   /** Crea el encabezado de la vista con opción de navegación hacia atrás. */
   private void crearHeader() {
-    HeaderUtils.createHeader(this, primaryStage, () -> volverAtras());
+    HeaderUtils.createHeader(this, primaryStage, session, () -> volverAtras());
   }
 
   /** Inicializa la cuadrícula donde se muestran las posiciones. */
@@ -104,6 +117,24 @@ public class SeleccionPosicionEtiquetasView extends BorderPane {
         buttonGrid, altura.getPosiciones(), emptyMessage, this::crearBotonPosicion);
   }
 
+  /**
+   * Incorpora los cambios guardados por otra instancia. Si lo mostrado ya no existe se vuelve
+   * atrás; si no, solo se actualizan los botones de los elementos nuevos o eliminados.
+   *
+   * @param cambio cambios incorporados a la sesión
+   */
+  private void aplicarCambioExterno(ExternalChange cambio) {
+    if (cambio.isEliminado(almacen, pasillo, estanteria, altura)) {
+      volverAtras();
+      return;
+    }
+    if (cambio.isModificado(altura)) {
+      selectedPosiciones.removeIf(cambio::isEliminado);
+      GridLoader.sync(buttonGrid, altura.getPosiciones(), emptyMessage,
+          this::crearBotonPosicion, cambio::isModificado);
+    }
+  }
+
   /** Crea el pie de la vista con la opción de imprimir etiquetas. */
   private void crearFooter() {
     FooterFactory.createPrintFooter(this, () -> handlePrintPosiciones());
@@ -150,7 +181,8 @@ public class SeleccionPosicionEtiquetasView extends BorderPane {
 
   /** Vuelve a la vista de selección de alturas. */
   private void volverAtras() {
-    SeleccionAlturaEtiquetasView view = new SeleccionAlturaEtiquetasView(primaryStage, pasillo, estanteria, almacen);
+    SeleccionAlturaEtiquetasView view =
+        new SeleccionAlturaEtiquetasView(primaryStage, pasillo, estanteria, almacen, session);
     view.show();
   }
 